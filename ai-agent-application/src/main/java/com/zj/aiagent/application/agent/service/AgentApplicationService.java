@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.zj.aiagent.application.agent.cmd.AgentCommand;
+import com.zj.aiagent.application.workflow.WorkflowPlanCache;
 import com.zj.aiagent.domain.agent.entity.Agent;
 import com.zj.aiagent.domain.agent.entity.AgentVersion;
 import com.zj.aiagent.domain.agent.repository.AgentRepository;
@@ -28,6 +29,7 @@ public class AgentApplicationService {
     private final AgentRepository agentRepository;
     private final GraphValidator graphValidator;
     private final ObjectMapper objectMapper;
+    private final WorkflowPlanCache workflowPlanCache;
 
     private String initialGraphTemplate;
 
@@ -93,6 +95,7 @@ public class AgentApplicationService {
                 cmd.getVersion());
 
         agentRepository.save(agent);
+        workflowPlanCache.invalidate(agent.getId());
     }
 
     @Transactional(rollbackFor = Exception.class)
@@ -111,6 +114,7 @@ public class AgentApplicationService {
         // publishedVersionId 存储版本号（非 DB ID），与 findVersion(agentId, version) 对齐
         agent.setPublishedVersionId(version.getVersion().longValue());
         agentRepository.save(agent);
+        workflowPlanCache.invalidate(agent.getId());
     }
 
     @Transactional(rollbackFor = Exception.class)
@@ -125,6 +129,7 @@ public class AgentApplicationService {
 
         agent.rollbackTo(targetVersion);
         agentRepository.save(agent);
+        workflowPlanCache.invalidate(agent.getId());
     }
 
     /**
@@ -143,6 +148,7 @@ public class AgentApplicationService {
         }
 
         agentRepository.deleteVersion(cmd.getAgentId(), cmd.getVersion());
+        workflowPlanCache.invalidate(cmd.getAgentId());
         log.info("Deleted version {} of agent {}", cmd.getVersion(), cmd.getAgentId());
     }
 
@@ -161,6 +167,7 @@ public class AgentApplicationService {
 
         // 2. 再删除智能体本身
         agentRepository.deleteById(cmd.getId());
+        workflowPlanCache.invalidate(cmd.getId());
         log.info("Force deleted agent {}", cmd.getId());
     }
 
@@ -176,6 +183,7 @@ public class AgentApplicationService {
         // 软删除：标记 deleted = 1
         agent.setDeleted(1);
         agentRepository.save(agent);
+        workflowPlanCache.invalidate(cmd.getId());
         log.info("Soft deleted agent {}", cmd.getId());
     }
 
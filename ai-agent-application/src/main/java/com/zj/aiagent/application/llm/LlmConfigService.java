@@ -3,6 +3,7 @@ package com.zj.aiagent.application.llm;
 import com.zj.aiagent.application.llm.dto.*;
 import com.zj.aiagent.domain.llm.entity.LlmProviderConfig;
 import com.zj.aiagent.domain.llm.repository.LlmProviderConfigRepository;
+import com.zj.aiagent.infrastructure.llm.client.LlmClientRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.openai.OpenAiChatModel;
@@ -22,6 +23,7 @@ public class LlmConfigService {
 
     private final LlmProviderConfigRepository repository;
     private final RestClient.Builder restClientBuilder;
+    private final LlmClientRegistry llmClientRegistry;
 
     public List<LlmConfigDTO> listConfigs(Long userId) {
         return repository.findByUserId(userId).stream().map(this::toDTO).collect(Collectors.toList());
@@ -57,10 +59,12 @@ public class LlmConfigService {
             config.setIsDefault(true);
         }
         repository.update(config);
+        llmClientRegistry.evict(id);
     }
 
     public void deleteConfig(Long id) {
         repository.deleteById(id);
+        llmClientRegistry.evict(id);
     }
 
     /**
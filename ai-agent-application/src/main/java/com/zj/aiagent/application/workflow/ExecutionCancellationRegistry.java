@@ -0,0 +1,159 @@
+package com.zj.aiagent.application.workflow;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.zj.aiagent.infrastructure.redis.IRedisService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 执行取消登记表
+ *
+ * 取消通过 Redis 频道广播一次，各实例记入本地已取消集合，调度与节点回调的取消检查直接查本地集合，
+ * 不再每一步都访问 Redis。同时保留 workflow:cancel:{id} 标记：订阅建立之前发生的取消（后加入的实例）
+ * 在首次检查该执行时从 Redis 读取一次，未取消的结果短暂缓存。
+ * 取消时还会取消本实例上该执行正在运行的节点 future，由各节点策略释放流式订阅、HTTP / MCP 调用等资源。
+ */
+@Slf4j
+@Component
+public class ExecutionCancellationRegistry implements MessageListener {
+
+    static final String CHANNEL = "workflow:execution:cancelled";
+    static final String CANCEL_KEY_PREFIX = "workflow:cancel:";
+    private static final long CANCEL_EXPIRY_HOURS = 1;
+
+    private final IRedisService redisService;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 已取消的执行（与 Redis 标记同样保留 1 小时）
+     */
+    private final Cache<String, Boolean> cancelled = CacheBuilder.newBuilder()
+            .expireAfterWrite(CANCEL_EXPIRY_HOURS, TimeUnit.HOURS)
+            .build();
+
+    /**
+     * 已确认未取消的执行，兜底广播丢失时按过期时间重新确认
+     */
+    private final Cache<String, Boolean> notCancelled;
+
+    /**
+     * 本实例上正在运行的节点 (executionId -> futures)
+     */
+    private final Map<String, Set<CompletableFuture<?>>> running = new ConcurrentHashMap<>();
+
+    public ExecutionCancellationRegistry(
+            IRedisService redisService,
+            RedisMessageListenerContainer listenerContainer,
+            @Value("${workflow.cancel.recheck-ms:30000}") long recheckMillis) {
+        this.redisService = redisService;
+        this.listenerContainer = listenerContainer;
+        this.notCancelled = CacheBuilder.newBuilder()
+                .expireAfterWrite(recheckMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        listenerContainer.removeMessageListener(this);
+    }
+
+    /**
+     * 取消执行：写入 Redis 标记、广播并中断本实例上运行中的节点
+     */
+    public void cancel(String executionId) {
+        redisService.setString(CANCEL_KEY_PREFIX + executionId, "true", CANCEL_EXPIRY_HOURS, TimeUnit.HOURS);
+        markCancelled(executionId);
+        try {
+            redisService.publish(CHANNEL, executionId);
+        } catch (Exception e) {
+            log.warn("[Cancel] Failed to broadcast cancellation of {}: {}", executionId, e.getMessage());
+        }
+    }
+
+    public boolean isCancelled(String executionId) {
+        if (cancelled.getIfPresent(executionId) != null) {
+            return true;
+        }
+        if (notCancelled.getIfPresent(executionId) != null) {
+            return false;
+        }
+        try {
+            if (redisService.isExists(CANCEL_KEY_PREFIX + executionId)) {
+                markCancelled(executionId);
+                return true;
+            }
+            notCancelled.put(executionId, Boolean.TRUE);
+            return false;
+        } catch (Exception e) {
+            log.error("[Cancel] Failed to check cancellation status: {}", executionId, e);
+            return false;
+        }
+    }
+
+    /**
+     * 登记运行中的节点，节点结束后自动移除；执行已取消时立即取消
+     */
+    public void track(String executionId, CompletableFuture<?> future) {
+        running.computeIfAbsent(executionId, id -> ConcurrentHashMap.newKeySet()).add(future);
+        future.whenComplete((value, error) -> untrack(executionId, future));
+        if (cancelled.getIfPresent(executionId) != null) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * 本实例上运行中的节点数
+     */
+    public int runningCount() {
+        return running.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @Override
+    public void onMessage(@NonNull Message message, byte[] pattern) {
+        String executionId = new String(message.getBody(), StandardCharsets.UTF_8);
+        // Redisson 以 JSON 编码字符串，去掉外层引号
+        if (executionId.length() >= 2 && executionId.startsWith("\"") && executionId.endsWith("\"")) {
+            executionId = executionId.substring(1, executionId.length() - 1);
+        }
+        markCancelled(executionId);
+    }
+
+    private void markCancelled(String executionId) {
+        cancelled.put(executionId, Boolean.TRUE);
+        notCancelled.invalidate(executionId);
+
+        Set<CompletableFuture<?>> futures = running.remove(executionId);
+        if (futures != null && !futures.isEmpty()) {
+            log.info("[Cancel] Cancelling {} running node(s) of execution {}", futures.size(), executionId);
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private void untrack(String executionId, CompletableFuture<?> future) {
+        running.computeIfPresent(executionId, (id, futures) -> {
+            futures.remove(future);
+            return futures.isEmpty() ? null : futures;
+        });
+    }
+}
@@ -0,0 +1,118 @@
+package com.zj.aiagent.application.workflow;
+
+import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
+import com.zj.aiagent.infrastructure.redis.IRedisService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 执行完成通知登记表
+ *
+ * 等待方按 executionId 登记一个 {@link CompletableFuture}，执行结束（成功、失败、暂停、取消）时由调度器完成；
+ * 同时通过 Redis 频道广播，唤醒登记在其它实例上的等待方。
+ * future 在独立的虚拟线程上完成，等待方的后续处理不会占用执行邮箱线程。
+ */
+@Slf4j
+@Component
+public class ExecutionCompletionRegistry implements MessageListener {
+
+    static final String CHANNEL = "workflow:execution:completed";
+
+    private final IRedisService redisService;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    /**
+     * 本实例上的等待方 (executionId -> future)
+     */
+    private final Map<String, CompletableFuture<ExecutionStatus>> waiters = new ConcurrentHashMap<>();
+
+    private final ExecutorService notifier = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("wf-completion-", 0).factory());
+
+    public ExecutionCompletionRegistry(IRedisService redisService, RedisMessageListenerContainer listenerContainer) {
+        this.redisService = redisService;
+        this.listenerContainer = listenerContainer;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        listenerContainer.removeMessageListener(this);
+        notifier.shutdown();
+    }
+
+    /**
+     * 登记等待方，需在启动执行之前调用
+     */
+    public CompletableFuture<ExecutionStatus> register(String executionId) {
+        return waiters.computeIfAbsent(executionId, id -> new CompletableFuture<>());
+    }
+
+    /**
+     * 取消登记（等待超时或调用方放弃）
+     */
+    public void unregister(String executionId) {
+        waiters.remove(executionId);
+    }
+
+    /**
+     * 通知执行已结束或暂停
+     */
+    public void complete(String executionId, ExecutionStatus status) {
+        completeLocal(executionId, status);
+        try {
+            redisService.publish(CHANNEL, executionId + ":" + status.name());
+        } catch (Exception e) {
+            log.warn("[Completion] Failed to broadcast completion of {}: {}", executionId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(@NonNull Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        // Redisson 以 JSON 编码字符串，去掉外层引号
+        if (body.length() >= 2 && body.startsWith("\"") && body.endsWith("\"")) {
+            body = body.substring(1, body.length() - 1);
+        }
+        int separator = body.lastIndexOf(':');
+        if (separator <= 0) {
+            log.warn("[Completion] Ignore malformed message: {}", body);
+            return;
+        }
+        try {
+            completeLocal(body.substring(0, separator), ExecutionStatus.valueOf(body.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            log.warn("[Completion] Ignore message with unknown status: {}", body);
+        }
+    }
+
+    public int waiterCount() {
+        return waiters.size();
+    }
+
+    private void completeLocal(String executionId, ExecutionStatus status) {
+        CompletableFuture<ExecutionStatus> waiter = waiters.remove(executionId);
+        if (waiter != null) {
+            log.debug("[Completion] Execution {} reached {}", executionId, status);
+            waiter.completeAsync(() -> status, notifier);
+        }
+    }
+}
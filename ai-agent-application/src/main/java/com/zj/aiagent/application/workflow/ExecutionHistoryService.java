@@ -0,0 +1,63 @@
+package com.zj.aiagent.application.workflow;
+
+import com.zj.aiagent.domain.workflow.entity.Execution;
+import com.zj.aiagent.domain.workflow.port.ExecutionArchiveRepository;
+import com.zj.aiagent.domain.workflow.port.ExecutionRepository;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionHistoryCursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 执行历史查询服务
+ *
+ * 会话的执行分布在两处：Redis 中运行中与刚结束、尚未归档的执行（数量很少），
+ * MySQL 归档中的已结束执行。归档按键集分页取一页，与 Redis 中排在游标之后的执行合并，
+ * 同一执行两处都有时以 Redis 为准（归档完成到移出 Redis 之间的短暂窗口），再截取一页。
+ */
+@Service
+@RequiredArgsConstructor
+public class ExecutionHistoryService {
+
+    private final ExecutionRepository executionRepository;
+    private final ExecutionArchiveRepository archiveRepository;
+
+    /**
+     * 查询单个执行：优先取 Redis 中的完整执行，已归档时返回归档中的概要（不含执行上下文与工作流图）
+     *
+     * @param executionId 执行ID
+     * @return 执行
+     */
+    public Optional<Execution> findById(String executionId) {
+        return executionRepository.findSnapshotById(executionId)
+                .or(() -> archiveRepository.findById(executionId));
+    }
+
+    /**
+     * 按会话分页查询执行历史
+     *
+     * @param conversationId 会话ID
+     * @param cursor         上一页游标，null 表示第一页
+     * @param limit          每页条数
+     * @return 按 {@link ExecutionHistoryCursor#ORDER} 排序的一页执行
+     */
+    public List<Execution> findByConversationId(String conversationId, ExecutionHistoryCursor cursor, int limit) {
+        Map<String, Execution> merged = new LinkedHashMap<>();
+        for (Execution execution : executionRepository.findByConversationId(conversationId)) {
+            if (cursor == null || cursor.precedes(execution)) {
+                merged.put(execution.getExecutionId(), execution);
+            }
+        }
+        for (Execution execution : archiveRepository.findByConversationId(conversationId, cursor, limit)) {
+            merged.putIfAbsent(execution.getExecutionId(), execution);
+        }
+        return merged.values().stream()
+                .sorted(ExecutionHistoryCursor.ORDER)
+                .limit(limit)
+                .toList();
+    }
+}
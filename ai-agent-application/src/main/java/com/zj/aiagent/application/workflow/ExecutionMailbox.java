@@ -0,0 +1,178 @@
+package com.zj.aiagent.application.workflow;
+
+import com.zj.aiagent.infrastructure.redis.IRedisService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 执行串行邮箱
+ *
+ * 每个活跃执行对应一个任务队列，由一个虚拟线程按入队顺序逐个处理：
+ * 节点完成、启动、暂停、恢复、拒绝、取消都作为消息投递，同一执行的状态变更天然串行，无需加锁。
+ * 队列排空后邮箱即被回收，下次投递时重新创建。
+ *
+ * 分布式锁 lock:exec:{id} 仅作为跨实例的所有权租约：每轮排空期间持有一次（看门狗自动续期），
+ * 而不是每个节点完成各抢一次；其它实例对同一执行的操作会等待本轮处理结束。
+ */
+@Slf4j
+@Component
+public class ExecutionMailbox {
+
+    private static final String LEASE_KEY_PREFIX = "lock:exec:";
+
+    private final IRedisService redisService;
+
+    /**
+     * 活跃邮箱 (executionId -> Mailbox)，队列的增删与排空状态切换都在 compute 内完成
+     */
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    private final ExecutorService drainers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("wf-mailbox-", 0).factory());
+
+    /**
+     * 当前线程正在排空的执行，用于邮箱内重入时直接执行
+     */
+    private final ThreadLocal<String> draining = new ThreadLocal<>();
+
+    public ExecutionMailbox(IRedisService redisService) {
+        this.redisService = redisService;
+    }
+
+    /**
+     * 投递消息，不等待处理结果
+     */
+    public void post(String executionId, Runnable task) {
+        enqueue(executionId, new Task(task, error ->
+                log.error("[Mailbox] Dropped message for execution {}: {}", executionId, error.getMessage())));
+    }
+
+    /**
+     * 投递消息并等待处理完成，处理中抛出的异常原样抛给调用方
+     * 已在该执行的邮箱线程内调用时直接执行，避免自我等待
+     */
+    public <T> T call(String executionId, Supplier<T> task) {
+        if (executionId.equals(draining.get())) {
+            return task.get();
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        enqueue(executionId, new Task(() -> result.complete(task.get()), result::completeExceptionally));
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 投递消息并等待处理完成
+     */
+    public void run(String executionId, Runnable task) {
+        call(executionId, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * 当前活跃（有待处理消息或正在处理）的邮箱数
+     */
+    public int activeCount() {
+        return mailboxes.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        drainers.shutdown();
+    }
+
+    private void enqueue(String executionId, Task task) {
+        mailboxes.compute(executionId, (id, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox();
+            }
+            mailbox.tasks.add(task);
+            if (!mailbox.draining) {
+                mailbox.draining = true;
+                drainers.execute(() -> drain(id));
+            }
+            return mailbox;
+        });
+    }
+
+    private void drain(String executionId) {
+        RLock lease;
+        try {
+            lease = redisService.getLock(LEASE_KEY_PREFIX + executionId);
+            lease.lock();
+        } catch (RuntimeException e) {
+            log.error("[Mailbox] Failed to acquire lease for execution {}: {}", executionId, e.getMessage(), e);
+            Task task;
+            while ((task = next(executionId)) != null) {
+                task.reject().accept(e);
+            }
+            return;
+        }
+
+        draining.set(executionId);
+        try {
+            Task task;
+            while ((task = next(executionId)) != null) {
+                try {
+                    task.action().run();
+                } catch (Throwable e) {
+                    task.reject().accept(e);
+                }
+            }
+        } finally {
+            draining.remove();
+            if (lease.isHeldByCurrentThread()) {
+                lease.unlock();
+            }
+        }
+    }
+
+    /**
+     * 取出下一条消息；队列已空时回收邮箱并返回 null
+     */
+    private Task next(String executionId) {
+        Task[] next = new Task[1];
+        mailboxes.computeIfPresent(executionId, (id, mailbox) -> {
+            next[0] = mailbox.tasks.poll();
+            if (next[0] == null) {
+                mailbox.draining = false;
+                return null;
+            }
+            return mailbox;
+        });
+        return next[0];
+    }
+
+    private static final class Mailbox {
+        private final Queue<Task> tasks = new ArrayDeque<>();
+        private boolean draining;
+    }
+
+    private record Task(Runnable action, Consumer<Throwable> reject) {
+    }
+}
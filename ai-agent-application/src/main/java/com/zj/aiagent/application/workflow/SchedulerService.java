@@ -2,7 +2,6 @@ package com.zj.aiagent.application.workflow;
 
 import com.zj.aiagent.application.chat.ChatApplicationService;
 import com.zj.aiagent.domain.agent.entity.Agent;
-import com.zj.aiagent.domain.agent.entity.AgentVersion;
 import com.zj.aiagent.domain.agent.repository.AgentRepository;
 import com.zj.aiagent.domain.chat.entity.Message;
 import com.zj.aiagent.domain.chat.port.ConversationRepository;
@@ -15,19 +14,21 @@ import com.zj.aiagent.domain.workflow.entity.WorkflowGraph;
 import com.zj.aiagent.domain.workflow.entity.WorkflowNodeExecutionLog;
 import com.zj.aiagent.domain.workflow.event.NodeCompletedEvent;
 import com.zj.aiagent.domain.workflow.port.*;
-import com.zj.aiagent.infrastructure.workflow.graph.WorkflowGraphFactoryImpl;
 import com.zj.aiagent.domain.workflow.valobj.*;
 import com.zj.aiagent.infrastructure.redis.IRedisService;
 import com.zj.aiagent.infrastructure.workflow.executor.NodeExecutorFactory;
+import com.zj.aiagent.infrastructure.workflow.listener.WorkflowAuditWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RLock;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageRequest;
@@ -49,15 +50,14 @@ public class SchedulerService {
     private final ExecutionRepository executionRepository;
     private final CheckpointRepository checkpointRepository;
     private final AgentRepository agentRepository;
-    private final WorkflowGraphFactoryImpl workflowGraphFactory;
-    private final IRedisService redisService;
+    private final WorkflowPlanCache workflowPlanCache;
     private final HumanReviewQueuePort humanReviewQueuePort;
     private final StreamPublisherFactory streamPublisherFactory;
     private final ApplicationEventPublisher applicationEventPublisher;
     private final HumanReviewRepository humanReviewRepository;
-
-    private static final String CANCEL_KEY_PREFIX = "workflow:cancel:";
-    private static final long CANCEL_EXPIRY_HOURS = 1;
+    private final ExecutionMailbox executionMailbox;
+    private final ExecutionCompletionRegistry executionCompletionRegistry;
+    private final ExecutionCancellationRegistry executionCancellationRegistry;
 
     // ========== 记忆系统依赖 ==========
     private final VectorStore vectorStore;
@@ -67,13 +67,22 @@ public class SchedulerService {
     private final ChatApplicationService chatApplicationService;
 
     // ========== 工作流日志依赖 ==========
-    private final WorkflowNodeExecutionLogRepository workflowNodeExecutionLogRepository;
+    private final WorkflowAuditWriter workflowAuditWriter;
 
     // ========== 表达式解析依赖 ==========
     private final ExpressionResolverPort expressionResolver;
 
+    // ========== 大体积节点输出转存 ==========
+    private final NodeOutputStorePort nodeOutputStore;
+
     private static final int DEFAULT_STM_LIMIT = 10;
 
+    /**
+     * 执行日志保留的最大条目数
+     */
+    @Value("${workflow.execution-log.max-entries:50}")
+    private int executionLogMaxEntries;
+
     /**
      * 启动工作流执行（根据 AgentId 获取图定义）
      */
@@ -100,41 +109,10 @@ public class SchedulerService {
                 new IllegalArgumentException("Agent not found: " + agentId)
             );
 
-        // 2. 获取 graphJson
-        String graphJson;
-        if (versionId != null) {
-            // 使用指定版本
-            AgentVersion version = agentRepository
-                .findVersion(agentId, versionId)
-                .orElseThrow(() ->
-                    new IllegalArgumentException(
-                        "Version not found: " + versionId
-                    )
-                );
-            graphJson = version.getGraphSnapshot();
-        } else if (agent.getPublishedVersionId() != null) {
-            // 使用已发布版本
-            AgentVersion publishedVersion = agentRepository
-                .findVersion(agentId, agent.getPublishedVersionId().intValue())
-                .orElseThrow(() ->
-                    new IllegalStateException("Published version not found")
-                );
-            graphJson = publishedVersion.getGraphSnapshot();
-        } else {
-            // 使用当前草稿
-            graphJson = agent.getGraphJson();
-        }
-
-        if (graphJson == null || graphJson.isBlank()) {
-            throw new IllegalStateException(
-                "Agent has no workflow graph defined"
-            );
-        }
-
-        // 3. 解析为领域对象
-        WorkflowGraph graph = workflowGraphFactory.fromJson(graphJson);
+        // 2. 获取编译后的执行计划（按版本缓存，命中时跳过版本查询与图解析）
+        WorkflowGraph graph = workflowPlanCache.resolve(agent, versionId).getGraph();
 
-        // 4. 构建 Execution 并启动
+        // 3. 构建 Execution 并启动
         Execution execution = Execution.builder()
             .executionId(executionId)
             .agentId(agentId)
@@ -161,79 +139,162 @@ public class SchedulerService {
         long timeoutMillis
     ) {
         String executionId = java.util.UUID.randomUUID().toString();
-        Map<String, Object> safeInputs =
-            inputs == null ? new HashMap<>() : new HashMap<>(inputs);
-
-        startExecution(
+        CompletableFuture<Map<String, Object>> future = executeAsync(
             executionId,
             agentId,
             userId,
-            null,
-            null,
-            safeInputs,
-            mode != null
-                ? mode
-                : com.zj.aiagent.domain.workflow.valobj.ExecutionMode.STANDARD
+            inputs,
+            mode
         );
 
-        long deadline =
-            System.currentTimeMillis() + Math.max(timeoutMillis, 1000L);
-
-        while (System.currentTimeMillis() <= deadline) {
-            Execution execution = executionRepository
-                .findById(executionId)
+        try {
+            return future.get(
+                Math.max(timeoutMillis, 1000L),
+                TimeUnit.MILLISECONDS
+            );
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            // 兜底：完成通知丢失时以仓储中的状态为准
+            return executionRepository
+                .findSnapshotById(executionId)
+                .filter(execution -> isWaitFinished(execution.getStatus()))
+                .map(execution ->
+                    buildWaitResult(executionId, execution.getStatus())
+                )
                 .orElseThrow(() ->
                     new IllegalStateException(
-                        "工作流执行记录不存在: " + executionId
+                        "工作流执行超时，超过 " +
+                            timeoutMillis +
+                            "ms: " +
+                            executionId
                     )
                 );
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(
+                "等待工作流执行结果时被中断: " + executionId,
+                e
+            );
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(
+                "工作流执行失败: " + executionId,
+                e.getCause()
+            );
+        }
+    }
 
-            ExecutionStatus status = execution.getStatus();
-            if (status == ExecutionStatus.SUCCEEDED) {
-                String output = extractFinalResponseFromExecution(execution);
-                if (!StringUtils.hasText(output) || "执行完成".equals(output)) {
-                    output = extractFinalResponseFromLogs(executionId);
-                }
+    /**
+     * 启动工作流并返回结果 future
+     * 执行成功、失败、暂停或取消时完成，结果结构与 {@link #executeAndWait} 相同；
+     * 调用方取消或超时放弃 future 时自动取消登记。
+     */
+    public CompletableFuture<Map<String, Object>> executeAsync(
+        Long agentId,
+        Long userId,
+        Map<String, Object> inputs,
+        com.zj.aiagent.domain.workflow.valobj.ExecutionMode mode
+    ) {
+        return executeAsync(
+            java.util.UUID.randomUUID().toString(),
+            agentId,
+            userId,
+            inputs,
+            mode
+        );
+    }
 
-                Map<String, Object> result = new HashMap<>();
-                result.put("executionId", executionId);
-                result.put("status", status.name());
-                result.put("output", output);
-                return result;
-            }
+    private CompletableFuture<Map<String, Object>> executeAsync(
+        String executionId,
+        Long agentId,
+        Long userId,
+        Map<String, Object> inputs,
+        com.zj.aiagent.domain.workflow.valobj.ExecutionMode mode
+    ) {
+        Map<String, Object> safeInputs =
+            inputs == null ? new HashMap<>() : new HashMap<>(inputs);
 
-            if (
-                status == ExecutionStatus.FAILED ||
-                status == ExecutionStatus.CANCELLED ||
-                status == ExecutionStatus.PAUSED ||
-                status == ExecutionStatus.PAUSED_FOR_REVIEW
-            ) {
-                Map<String, Object> result = new HashMap<>();
-                result.put("executionId", executionId);
-                result.put("status", status.name());
-                result.put(
-                    "output",
-                    buildExecutionStatusMessage(execution, status)
-                );
-                return result;
-            }
+        // 先登记再启动，避免执行在登记前就已结束
+        CompletableFuture<ExecutionStatus> completion =
+            executionCompletionRegistry.register(executionId);
+        try {
+            startExecution(
+                executionId,
+                agentId,
+                userId,
+                null,
+                null,
+                safeInputs,
+                mode != null
+                    ? mode
+                    : com.zj.aiagent.domain.workflow.valobj.ExecutionMode.STANDARD
+            );
+        } catch (RuntimeException e) {
+            executionCompletionRegistry.unregister(executionId);
+            throw e;
+        }
 
+        CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        result.whenComplete((value, error) ->
+            executionCompletionRegistry.unregister(executionId)
+        );
+        completion.whenComplete((status, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
             try {
-                Thread.sleep(500);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new IllegalStateException(
-                    "等待工作流执行结果时被中断: " + executionId,
-                    e
-                );
+                result.complete(buildWaitResult(executionId, status));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
             }
-        }
+        });
+        return result;
+    }
 
-        throw new IllegalStateException(
-            "工作流执行超时，超过 " + timeoutMillis + "ms: " + executionId
+    private boolean isWaitFinished(ExecutionStatus status) {
+        return (
+            status == ExecutionStatus.SUCCEEDED ||
+            status == ExecutionStatus.FAILED ||
+            status == ExecutionStatus.CANCELLED ||
+            status == ExecutionStatus.PAUSED ||
+            status == ExecutionStatus.PAUSED_FOR_REVIEW
         );
     }
 
+    private Map<String, Object> buildWaitResult(
+        String executionId,
+        ExecutionStatus status
+    ) {
+        Execution execution = executionRepository
+            .findSnapshotById(executionId)
+            .orElseThrow(() ->
+                new IllegalStateException(
+                    "工作流执行记录不存在: " + executionId
+                )
+            );
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("executionId", executionId);
+        result.put("status", status.name());
+        if (status == ExecutionStatus.SUCCEEDED) {
+            String output = extractFinalResponseFromExecution(execution);
+            if (!StringUtils.hasText(output) || "执行完成".equals(output)) {
+                output = extractFinalResponseFromLogs(executionId);
+            }
+            result.put("output", output);
+        } else {
+            result.put(
+                "output",
+                buildExecutionStatusMessage(execution, status)
+            );
+        }
+        return result;
+    }
+
     /**
      * 启动工作流执行（内部方法，直接使用 Execution 对象）
      */
@@ -290,17 +351,25 @@ public class SchedulerService {
             }
         }
 
+        if (executionLogMaxEntries > 0) {
+            execution.getContext().getExecutionLog().setCapacity(executionLogMaxEntries);
+        }
+
         // ========== 记忆水合 (Memory Hydration) ==========
         hydrateMemory(execution, inputs);
 
-        // 1. 启动执行，获取就绪节点
-        List<Node> readyNodes = execution.start(inputs);
+        String executionId = execution.getExecutionId();
+        workflowAuditWriter.open(executionId);
+        executionMailbox.run(executionId, () -> {
+            // 1. 启动执行，获取就绪节点
+            List<Node> readyNodes = execution.start(inputs);
 
-        // 2. 持久化初始状态
-        executionRepository.save(execution);
+            // 2. 持久化初始状态
+            executionRepository.save(execution);
 
-        // 3. 调度就绪节点（根节点无父节点）
-        scheduleNodes(execution.getExecutionId(), readyNodes, null);
+            // 3. 调度就绪节点（根节点无父节点）
+            scheduleNodes(executionId, readyNodes, null);
+        });
     }
 
     /**
@@ -405,12 +474,7 @@ public class SchedulerService {
             return;
         }
 
-        String lockKey = "lock:exec:" + executionId;
-        RLock lock = redisService.getLock(lockKey);
-
-        try {
-            lock.lock(30, TimeUnit.SECONDS);
-
+        executionMailbox.run(executionId, () -> {
             Execution execution = executionRepository
                 .findById(executionId)
                 .orElseThrow(() ->
@@ -448,8 +512,9 @@ public class SchedulerService {
             }
 
             // 2. 区分 Phase 处理
-            TriggerPhase pausedPhase = execution.getPausedPhase();
-            if (pausedPhase == null) pausedPhase = TriggerPhase.AFTER_EXECUTION; // Default
+            TriggerPhase pausedPhase = execution.getPausedPhase() != null
+                ? execution.getPausedPhase()
+                : TriggerPhase.AFTER_EXECUTION; // Default
 
             // 3. Context Merging — 当前节点 edits
             if (edits != null && !edits.isEmpty()) {
@@ -525,10 +590,11 @@ public class SchedulerService {
                 // (results provided by human or previous run)
                 // We need to fetch the "Result" to pass to advance.
                 // Since we set output in context, we can construct success result.
+                // 上下文中的大体积输出是转存引用，下游拿到的结果需为原值
                 Map<String, Object> outputs =
                     edits != null
                         ? edits
-                        : execution.getContext().getNodeOutput(nodeId);
+                        : dereferenced(execution.getContext().getNodeOutput(nodeId));
                 NodeExecutionResult result = NodeExecutionResult.success(
                     outputs
                 );
@@ -547,11 +613,7 @@ public class SchedulerService {
                 // BEFORE_EXECUTION: readyNodes contains the node itself to be re-run
                 scheduleNodes(executionId, readyNodes, null);
             }
-        } finally {
-            if (lock.isHeldByCurrentThread()) {
-                lock.unlock();
-            }
-        }
+        });
     }
 
     /**
@@ -578,12 +640,7 @@ public class SchedulerService {
             return;
         }
 
-        String lockKey = "lock:exec:" + executionId;
-        RLock lock = redisService.getLock(lockKey);
-
-        try {
-            lock.lock(30, TimeUnit.SECONDS);
-
+        executionMailbox.run(executionId, () -> {
             Execution execution = executionRepository
                 .findById(executionId)
                 .orElseThrow(() ->
@@ -619,14 +676,13 @@ public class SchedulerService {
                 );
             }
 
-            TriggerPhase pausedPhase = execution.getPausedPhase();
-            if (pausedPhase == null) {
-                pausedPhase = TriggerPhase.AFTER_EXECUTION;
-            }
+            TriggerPhase pausedPhase = execution.getPausedPhase() != null
+                ? execution.getPausedPhase()
+                : TriggerPhase.AFTER_EXECUTION;
 
             Map<String, Object> originalData =
                 execution.getContext() != null
-                    ? execution.getContext().getNodeOutput(nodeId)
+                    ? dereferenced(execution.getContext().getNodeOutput(nodeId))
                     : null;
 
             HumanReviewRecord record = HumanReviewRecord.builder()
@@ -647,6 +703,8 @@ public class SchedulerService {
 
             execution.reject(nodeId);
             executionRepository.update(execution);
+            executionCompletionRegistry.complete(executionId, execution.getStatus());
+            deleteCheckpoints(executionId);
 
             StreamContext streamContext = StreamContext.builder()
                 .executionId(executionId)
@@ -695,11 +753,8 @@ public class SchedulerService {
                     com.zj.aiagent.domain.chat.valobj.MessageStatus.FAILED
                 );
             }
-        } finally {
-            if (lock.isHeldByCurrentThread()) {
-                lock.unlock();
-            }
-        }
+            workflowAuditWriter.close(executionId);
+        });
     }
 
     private void scheduleNodes(
@@ -768,6 +823,7 @@ public class SchedulerService {
                 new IllegalStateException("Execution not found: " + executionId)
             );
 
+        // 在执行邮箱线程上调用，状态变更已串行
         List<Node> acceptedNodes = execution.markRunning(nodes);
         if (!acceptedNodes.isEmpty()) {
             executionRepository.update(execution);
@@ -864,8 +920,8 @@ public class SchedulerService {
             return;
         }
 
-        // Inject Context
-        resolvedInputs.put("__context__", context);
+        // Inject Context（策略在执行线程上运行，只交给快照，不共享调度中的上下文）
+        resolvedInputs.put("__context__", context.snapshot());
 
         // Inject agentId for knowledge retrieval
         resolvedInputs.put("__agentId__", execution.getAgentId());
@@ -881,61 +937,87 @@ public class SchedulerService {
             resolvedInputs,
             streamPublisher
         );
+        // 登记运行中的节点，执行被取消时立即取消，由节点策略释放进行中的调用
+        executionCancellationRegistry.track(executionId, future);
 
         future.whenComplete((result, error) -> {
-            if (error != null) {
-                result = NodeExecutionResult.failed(error.getMessage());
+            NodeExecutionResult outcome;
+            if (future.isCancelled()) {
+                log.info(
+                    "[Scheduler] Node {} of execution {} cancelled",
+                    node.getNodeId(),
+                    executionId
+                );
+                outcome = NodeExecutionResult.failed("Execution cancelled");
+            } else if (error != null) {
+                outcome = NodeExecutionResult.failed(error.getMessage());
                 streamPublisher.publishError(error.getMessage());
             } else {
+                outcome = result;
                 streamPublisher.publishFinish(result);
             }
 
-            if (isCancelled(executionId)) {
-                log.warn(
-                    "[Scheduler] Execution {} cancelled, skipping node completion logic.",
-                    executionId
-                );
-                return;
-            }
+            // 完成结果投递到执行邮箱，与其它并行分支的完成按序处理
+            executionMailbox.post(executionId, () ->
+                handleNodeResult(executionId, node, outcome, resolvedInputs)
+            );
+        });
+    }
 
-            // pause gate: avoid in-flight callback continuing workflow after pause
-            try {
-                Execution latestExecution = executionRepository
-                    .findById(executionId)
-                    .orElseThrow(() ->
-                        new IllegalStateException(
-                            "Execution not found: " + executionId
-                        )
-                    );
-                if (
-                    latestExecution.getStatus() == ExecutionStatus.PAUSED ||
-                    latestExecution.getStatus() ==
-                    ExecutionStatus.PAUSED_FOR_REVIEW
-                ) {
-                    log.info(
-                        "[Scheduler] Execution {} is paused, ignore in-flight callback for node {}",
-                        executionId,
-                        node.getNodeId()
-                    );
-                    return;
-                }
-            } catch (Exception e) {
-                log.warn(
-                    "[Scheduler] Failed to evaluate pause gate for execution {}: {}",
+    /**
+     * 处理节点执行结果（在执行邮箱线程上调用）
+     */
+    private void handleNodeResult(
+        String executionId,
+        Node node,
+        NodeExecutionResult result,
+        Map<String, Object> resolvedInputs
+    ) {
+        if (isCancelled(executionId)) {
+            log.warn(
+                "[Scheduler] Execution {} cancelled, skipping node completion logic.",
+                executionId
+            );
+            return;
+        }
+
+        // pause gate: avoid in-flight callback continuing workflow after pause
+        try {
+            Execution latestExecution = executionRepository
+                .findById(executionId)
+                .orElseThrow(() ->
+                    new IllegalStateException(
+                        "Execution not found: " + executionId
+                    )
+                );
+            if (
+                latestExecution.getStatus() == ExecutionStatus.PAUSED ||
+                latestExecution.getStatus() ==
+                ExecutionStatus.PAUSED_FOR_REVIEW
+            ) {
+                log.info(
+                    "[Scheduler] Execution {} is paused, ignore in-flight callback for node {}",
                     executionId,
-                    e.getMessage()
+                    node.getNodeId()
                 );
+                return;
             }
-
-            onNodeComplete(
+        } catch (Exception e) {
+            log.warn(
+                "[Scheduler] Failed to evaluate pause gate for execution {}: {}",
                 executionId,
-                node.getNodeId(),
-                node.getName(),
-                node.getType(),
-                result,
-                resolvedInputs
+                e.getMessage()
             );
-        });
+        }
+
+        onNodeComplete(
+            executionId,
+            node.getNodeId(),
+            node.getName(),
+            node.getType(),
+            result,
+            resolvedInputs
+        );
     }
 
     /**
@@ -979,75 +1061,54 @@ public class SchedulerService {
             phase
         );
 
-        String lockKey = "lock:exec:" + executionId;
-        RLock lock = redisService.getLock(lockKey);
-
-        try {
-            if (!lock.tryLock(30, TimeUnit.SECONDS)) {
-                log.warn(
-                    "[Scheduler] Failed to acquire lock for checkPause, executionId={}",
-                    executionId
-                );
-                throw new IllegalStateException(
-                    "Failed to acquire lock for execution: " + executionId
-                );
-            }
-
-            Execution execution = executionRepository
-                .findById(executionId)
-                .orElseThrow(() ->
-                    new IllegalStateException("Execution not found")
-                );
-
-            // 暂停执行 (如果是在 执行后 暂停，必须保存 Outputs)
-            execution.advance(
-                node.getNodeId(),
-                NodeExecutionResult.paused(phase, outputs)
+        // 在执行邮箱线程上调用，无需再加锁
+        Execution execution = executionRepository
+            .findById(executionId)
+            .orElseThrow(() ->
+                new IllegalStateException("Execution not found")
             );
 
-            // 保存
-            checkpointRepository.save(
-                execution.createCheckpoint(node.getNodeId())
-            );
-            executionRepository.update(execution);
+        // 暂停执行 (如果是在 执行后 暂停，必须保存 Outputs)
+        execution.advance(
+            node.getNodeId(),
+            NodeExecutionResult.paused(phase, outputs)
+        );
+        nodeOutputStore.offload(execution.getContext(), node.getNodeId());
 
-            // 发布事件
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("type", "workflow_paused");
-            payload.put("executionId", executionId);
-            payload.put("nodeId", node.getNodeId());
-            payload.put("triggerPhase", phase.name());
-            publisher.publishEvent("workflow_paused", payload);
+        // 保存
+        checkpointRepository.save(
+            execution.createCheckpoint(node.getNodeId())
+        );
+        executionRepository.update(execution);
 
-            // 添加到待审核队列
-            humanReviewQueuePort.addToPendingQueue(executionId);
+        // 发布事件
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("type", "workflow_paused");
+        payload.put("executionId", executionId);
+        payload.put("nodeId", node.getNodeId());
+        payload.put("triggerPhase", phase.name());
+        publisher.publishEvent("workflow_paused", payload);
 
-            // 暂停时更新 assistant 消息，避免切换会话后内容为空显示 "..."
-            String assistantMessageId = execution.getAssistantMessageId();
-            if (StringUtils.hasText(assistantMessageId)) {
-                String pauseContent = buildPauseSummary(execution, node, phase);
-                List<
-                    com.zj.aiagent.domain.chat.valobj.ThoughtStep
-                > thoughtSteps = buildThoughtSteps(executionId);
-                chatApplicationService.finalizeMessage(
-                    assistantMessageId,
-                    pauseContent,
-                    thoughtSteps,
-                    com.zj.aiagent.domain.chat.valobj.MessageStatus.COMPLETED
-                );
-            }
+        // 添加到待审核队列
+        humanReviewQueuePort.addToPendingQueue(executionId);
+        executionCompletionRegistry.complete(executionId, execution.getStatus());
 
-            return true;
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException(e);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        } finally {
-            if (lock.isHeldByCurrentThread()) {
-                lock.unlock();
-            }
+        // 暂停时更新 assistant 消息，避免切换会话后内容为空显示 "..."
+        String assistantMessageId = execution.getAssistantMessageId();
+        if (StringUtils.hasText(assistantMessageId)) {
+            String pauseContent = buildPauseSummary(execution, node, phase);
+            List<
+                com.zj.aiagent.domain.chat.valobj.ThoughtStep
+            > thoughtSteps = buildThoughtSteps(executionId);
+            chatApplicationService.finalizeMessage(
+                assistantMessageId,
+                pauseContent,
+                thoughtSteps,
+                com.zj.aiagent.domain.chat.valobj.MessageStatus.COMPLETED
+            );
         }
+
+        return true;
     }
 
     private String buildPauseSummary(
@@ -1077,6 +1138,7 @@ public class SchedulerService {
                         String name = n != null ? n.getName() : entry.getKey();
                         sb.append("**").append(name).append("**: ");
                         String val = output.values().stream()
+                            .map(nodeOutputStore::resolve)
                             .filter(v -> v != null)
                             .findFirst()
                             .map(Object::toString)
@@ -1132,12 +1194,8 @@ public class SchedulerService {
             result.getStatus()
         );
 
-        String lockKey = "lock:exec:" + executionId;
-        RLock lock = redisService.getLock(lockKey);
-
+        // 在执行邮箱线程上调用：同一执行的节点完成按序处理，无需加锁
         try {
-            lock.lock(30, TimeUnit.SECONDS);
-
             // CHECK PAUSE: AFTER_EXECUTION
             // Need to reload Node to check config
             // But we don't have Node object easily here without loading Execution or Graph.
@@ -1175,8 +1233,9 @@ public class SchedulerService {
                 return;
             }
 
-            // 3. 推进执行
+            // 3. 推进执行（大体积输出转存，上下文中只保留引用）
             List<Node> nextNodes = execution.advance(nodeId, result);
+            nodeOutputStore.offload(execution.getContext(), nodeId);
 
             // 3.1 [Awareness]
             String summary = generateNodeSummary(nodeType, result);
@@ -1209,7 +1268,7 @@ public class SchedulerService {
                     .nodeType(nodeType.name())
                     .renderMode(renderMode)
                     .status(result.getStatus().getCode())
-                    .inputs(inputs)
+                    .inputs(auditInputs(inputs))
                     .outputs(result.getOutputs())
                     .errorMessage(result.getErrorMessage())
                     .startTime(java.time.LocalDateTime.now())
@@ -1259,103 +1318,90 @@ public class SchedulerService {
                 e.getMessage(),
                 e
             );
-        } finally {
-            if (lock.isHeldByCurrentThread()) {
-                lock.unlock();
-            }
         }
     }
 
     public void cancelExecution(String executionId) {
         log.info("[Scheduler] Cancelling execution: {}", executionId);
-        String key = CANCEL_KEY_PREFIX + executionId;
-        redisService.setString(key, "true", CANCEL_EXPIRY_HOURS, TimeUnit.HOURS);
+        // 广播取消并中断本实例上运行中的节点
+        executionCancellationRegistry.cancel(executionId);
+        // 取消标记立即生效，本地状态与检查点在已排队的消息处理完后释放
+        executionMailbox.post(executionId, () -> {
+            executionRepository.evict(executionId);
+            deleteCheckpoints(executionId);
+            workflowAuditWriter.close(executionId);
+        });
+        executionCompletionRegistry.complete(
+            executionId,
+            ExecutionStatus.CANCELLED
+        );
         log.info("[Scheduler] Marked as cancelled: {}", executionId);
     }
 
     public void pauseExecution(String executionId) {
         log.info("[Scheduler] Pausing execution: {}", executionId);
 
-        String lockKey = "lock:exec:" + executionId;
-        RLock lock = redisService.getLock(lockKey);
-
         try {
-            if (!lock.tryLock(30, TimeUnit.SECONDS)) {
-                log.warn(
-                    "[Scheduler] Failed to acquire lock for pauseExecution, executionId={}",
-                    executionId
-                );
-                throw new IllegalStateException(
-                    "Failed to acquire lock for execution: " + executionId
-                );
-            }
-            Execution execution = executionRepository
-                .findById(executionId)
-                .orElseThrow(() ->
-                    new IllegalArgumentException(
-                        "Execution not found: " + executionId
-                    )
-                );
+            executionMailbox.run(executionId, () -> {
+                Execution execution = executionRepository
+                    .findById(executionId)
+                    .orElseThrow(() ->
+                        new IllegalArgumentException(
+                            "Execution not found: " + executionId
+                        )
+                    );
 
-            if (
-                execution.getStatus() == ExecutionStatus.PAUSED ||
-                execution.getStatus() == ExecutionStatus.PAUSED_FOR_REVIEW ||
-                execution.getStatus() == ExecutionStatus.SUCCEEDED ||
-                execution.getStatus() == ExecutionStatus.FAILED ||
-                execution.getStatus() == ExecutionStatus.CANCELLED
-            ) {
-                log.info(
-                    "[Scheduler] Execution {} status is {}, skip pause",
-                    executionId,
-                    execution.getStatus()
-                );
-                return;
-            }
+                if (
+                    execution.getStatus() == ExecutionStatus.PAUSED ||
+                    execution.getStatus() == ExecutionStatus.PAUSED_FOR_REVIEW ||
+                    execution.getStatus() == ExecutionStatus.SUCCEEDED ||
+                    execution.getStatus() == ExecutionStatus.FAILED ||
+                    execution.getStatus() == ExecutionStatus.CANCELLED
+                ) {
+                    log.info(
+                        "[Scheduler] Execution {} status is {}, skip pause",
+                        executionId,
+                        execution.getStatus()
+                    );
+                    return;
+                }
 
-            execution.setStatus(ExecutionStatus.PAUSED);
-            execution.setPausedNodeId("__MANUAL_PAUSE__");
-            execution.setPausedPhase(null);
-            execution.setUpdatedAt(java.time.LocalDateTime.now());
-            execution.setVersion(execution.getVersion() + 1);
+                execution.setStatus(ExecutionStatus.PAUSED);
+                execution.setPausedNodeId("__MANUAL_PAUSE__");
+                execution.setPausedPhase(null);
+                execution.setUpdatedAt(java.time.LocalDateTime.now());
+                execution.setVersion(execution.getVersion() + 1);
 
-            checkpointRepository.save(
-                execution.createCheckpoint("__MANUAL_PAUSE__")
-            );
-            executionRepository.update(execution);
+                checkpointRepository.save(
+                    execution.createCheckpoint("__MANUAL_PAUSE__")
+                );
+                executionRepository.update(execution);
+                executionCompletionRegistry.complete(
+                    executionId,
+                    ExecutionStatus.PAUSED
+                );
 
-            StreamContext streamContext = StreamContext.builder()
-                .executionId(executionId)
-                .nodeId("__MANUAL_PAUSE__")
-                .build();
-            StreamPublisher publisher = streamPublisherFactory.create(
-                streamContext
-            );
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("type", "workflow_paused");
-            payload.put("executionId", executionId);
-            payload.put("nodeId", "__MANUAL_PAUSE__");
-            payload.put("triggerPhase", "MANUAL");
-            publisher.publishEvent("workflow_paused", payload);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException(e);
+                StreamContext streamContext = StreamContext.builder()
+                    .executionId(executionId)
+                    .nodeId("__MANUAL_PAUSE__")
+                    .build();
+                StreamPublisher publisher = streamPublisherFactory.create(
+                    streamContext
+                );
+                Map<String, Object> payload = new HashMap<>();
+                payload.put("type", "workflow_paused");
+                payload.put("executionId", executionId);
+                payload.put("nodeId", "__MANUAL_PAUSE__");
+                payload.put("triggerPhase", "MANUAL");
+                publisher.publishEvent("workflow_paused", payload);
+            });
         } catch (Exception e) {
             throw new RuntimeException(e);
-        } finally {
-            if (lock.isHeldByCurrentThread()) {
-                lock.unlock();
-            }
         }
     }
 
     private boolean isCancelled(String executionId) {
-        String key = CANCEL_KEY_PREFIX + executionId;
-        try {
-            return redisService.isExists(key);
-        } catch (Exception e) {
-            log.error("[Scheduler] Failed to check cancellation status: {}", executionId, e);
-            return false;
-        }
+        return executionCancellationRegistry.isCancelled(executionId);
     }
 
     private boolean isExecutionPaused(String executionId) {
@@ -1426,12 +1472,64 @@ public class SchedulerService {
         }
     }
 
+    /**
+     * 审计日志中的节点输入：去掉调度注入的 __ 前缀参数（执行上下文、出边等），
+     * 避免日志持有执行上下文并在写入线程上序列化
+     */
+    private static Map<String, Object> auditInputs(Map<String, Object> inputs) {
+        if (inputs == null) {
+            return null;
+        }
+        Map<String, Object> filtered = new HashMap<>(inputs.size());
+        inputs.forEach((key, value) -> {
+            if (!key.startsWith("__")) {
+                filtered.put(key, value);
+            }
+        });
+        return filtered;
+    }
+
+    /**
+     * 清理执行的全部检查点（终态、驳回、取消后不再恢复）
+     */
+    private void deleteCheckpoints(String executionId) {
+        try {
+            checkpointRepository.deleteByExecutionId(executionId);
+        } catch (Exception e) {
+            log.warn(
+                "[Scheduler] Failed to clean up checkpoints for execution {}: {}",
+                executionId,
+                e.getMessage()
+            );
+        }
+    }
+
     /**
      * 工作流执行完成回调
      * 提取最终响应并更新 Assistant 消息
      */
     private void onExecutionComplete(Execution execution) {
         String executionId = execution.getExecutionId();
+
+        // 唤醒同步/异步等待方
+        executionCompletionRegistry.complete(executionId, execution.getStatus());
+
+        // 终态执行不再恢复，清理全部检查点
+        deleteCheckpoints(executionId);
+
+        // 消息定稿后释放本次执行的日志视图
+        try {
+            finalizeAssistantMessage(execution);
+        } finally {
+            workflowAuditWriter.close(executionId);
+        }
+    }
+
+    /**
+     * 以最终响应（或失败信息）及思维链定稿关联的 Assistant 消息
+     */
+    private void finalizeAssistantMessage(Execution execution) {
+        String executionId = execution.getExecutionId();
         String assistantMessageId = execution.getAssistantMessageId();
 
         // 检查是否有关联的消息
@@ -1450,72 +1548,30 @@ public class SchedulerService {
                     execution
                 );
 
-                // 方案2: 异步延迟查询数据库（给异步保存留出时间）
-                // 如果方案1失败，使用方案2作为后备
+                // 方案2: 从节点执行日志视图提取（END 节点或最后执行的节点）
                 if (finalResponse == null || finalResponse.equals("执行完成")) {
                     log.warn(
-                        "[Scheduler] Failed to extract response from execution context, will retry from database"
+                        "[Scheduler] Failed to extract response from execution context, falling back to node logs"
                     );
-                    // 延迟100ms后查询数据库
-                    CompletableFuture.runAsync(() -> {
-                        try {
-                            Thread.sleep(100);
-                            String response = extractFinalResponseFromLogs(
-                                executionId
-                            );
-                            List<
-                                com.zj.aiagent.domain.chat.valobj.ThoughtStep
-                            > thoughtSteps = buildThoughtSteps(executionId);
-
-                            chatApplicationService.finalizeMessage(
-                                assistantMessageId,
-                                response,
-                                thoughtSteps,
-                                com.zj.aiagent.domain.chat.valobj.MessageStatus.COMPLETED
-                            );
-                            log.info(
-                                "[Scheduler] Updated assistant message {} with final response (delayed) for execution: {}",
-                                assistantMessageId,
-                                executionId
-                            );
-                        } catch (Exception e) {
-                            log.error(
-                                "[Scheduler] Failed to update message in delayed task: {}",
-                                e.getMessage(),
-                                e
-                            );
-                        }
-                    });
-                    return;
+                    finalResponse = extractFinalResponseFromLogs(executionId);
                 }
 
-                // 构建思维链（从执行日志中提取，也需要延迟）
-                CompletableFuture.runAsync(() -> {
-                    try {
-                        Thread.sleep(100);
-                        List<
-                            com.zj.aiagent.domain.chat.valobj.ThoughtStep
-                        > thoughtSteps = buildThoughtSteps(executionId);
-
-                        chatApplicationService.finalizeMessage(
-                            assistantMessageId,
-                            finalResponse,
-                            thoughtSteps,
-                            com.zj.aiagent.domain.chat.valobj.MessageStatus.COMPLETED
-                        );
-                        log.info(
-                            "[Scheduler] Updated assistant message {} with final response for execution: {}",
-                            assistantMessageId,
-                            executionId
-                        );
-                    } catch (Exception e) {
-                        log.error(
-                            "[Scheduler] Failed to update message with thought steps: {}",
-                            e.getMessage(),
-                            e
-                        );
-                    }
-                });
+                // 构建思维链（审计监听同步提交，日志视图此时已包含全部节点）
+                List<
+                    com.zj.aiagent.domain.chat.valobj.ThoughtStep
+                > thoughtSteps = buildThoughtSteps(executionId);
+
+                chatApplicationService.finalizeMessage(
+                    assistantMessageId,
+                    finalResponse,
+                    thoughtSteps,
+                    com.zj.aiagent.domain.chat.valobj.MessageStatus.COMPLETED
+                );
+                log.info(
+                    "[Scheduler] Updated assistant message {} with final response for execution: {}",
+                    assistantMessageId,
+                    executionId
+                );
             } else if (execution.getStatus() == ExecutionStatus.FAILED) {
                 // 更新消息为失败状态
                 String errorMessage = "执行失败";
@@ -1599,7 +1655,9 @@ public class SchedulerService {
                     > outputEntry : endNodeOutput.entrySet()) {
                         String key = outputEntry.getKey();
                         if (key.startsWith("__")) continue;
-                        Object value = outputEntry.getValue();
+                        Object value = nodeOutputStore.resolve(
+                            outputEntry.getValue()
+                        );
                         if (value != null && !value.toString().isEmpty()) {
                             log.info(
                                 "[Scheduler] Extracted response from END node output, nodeId={}, key={}, length={}",
@@ -1622,8 +1680,12 @@ public class SchedulerService {
                 if (node != null && node.getType() == NodeType.LLM) {
                     Map<String, Object> llmOutput = context.getNodeOutput(nid);
                     if (llmOutput != null) {
-                        Object response = llmOutput.get("response");
-                        if (response == null) response = llmOutput.get("json_output");
+                        Object response = nodeOutputStore.resolve(
+                            llmOutput.get("response")
+                        );
+                        if (response == null) response = nodeOutputStore.resolve(
+                            llmOutput.get("json_output")
+                        );
                         if (
                             response != null && !response.toString().isEmpty()
                         ) {
@@ -1696,9 +1758,7 @@ public class SchedulerService {
 
         try {
             List<WorkflowNodeExecutionLog> logs =
-                workflowNodeExecutionLogRepository.findByExecutionIdOrderByEndTime(
-                    executionId
-                );
+                workflowAuditWriter.logsOf(executionId);
 
             for (WorkflowNodeExecutionLog log : logs) {
                 // 只包含 MESSAGE 或 THOUGHT 渲染模式的节点
@@ -1819,12 +1879,15 @@ public class SchedulerService {
                 executionId
             );
 
+            List<WorkflowNodeExecutionLog> allLogs =
+                workflowAuditWriter.logsOf(executionId);
+
             // 1. 优先查询 END 节点的输出
-            WorkflowNodeExecutionLog endNodeLog =
-                workflowNodeExecutionLogRepository.findByExecutionIdAndNodeId(
-                    executionId,
-                    "END"
-                );
+            WorkflowNodeExecutionLog endNodeLog = allLogs
+                .stream()
+                .filter(nodeLog -> "END".equals(nodeLog.getNodeId()))
+                .findFirst()
+                .orElse(null);
 
             if (endNodeLog != null) {
                 log.info(
@@ -1873,10 +1936,6 @@ public class SchedulerService {
             }
 
             // 2. 如果 END 节点没有输出，查询最后执行的节点
-            List<WorkflowNodeExecutionLog> allLogs =
-                workflowNodeExecutionLogRepository.findByExecutionIdOrderByEndTime(
-                    executionId
-                );
 
             log.info(
                 "[Scheduler] Found {} total logs for execution: {}",
@@ -1951,6 +2010,20 @@ public class SchedulerService {
         }
     }
 
+    /**
+     * 节点输出中的转存引用替换为原值（返回副本）
+     */
+    private Map<String, Object> dereferenced(Map<String, Object> outputs) {
+        if (outputs == null) {
+            return null;
+        }
+        Map<String, Object> resolved = new HashMap<>();
+        outputs.forEach((key, value) ->
+            resolved.put(key, nodeOutputStore.resolve(value))
+        );
+        return resolved;
+    }
+
     private String serializeToJson(Map<String, Object> map) {
         try {
             return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(
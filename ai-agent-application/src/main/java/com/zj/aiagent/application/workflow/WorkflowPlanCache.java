@@ -0,0 +1,115 @@
+package com.zj.aiagent.application.workflow;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.zj.aiagent.domain.agent.entity.Agent;
+import com.zj.aiagent.domain.agent.entity.AgentVersion;
+import com.zj.aiagent.domain.agent.repository.AgentRepository;
+import com.zj.aiagent.domain.workflow.entity.WorkflowGraph;
+import com.zj.aiagent.domain.workflow.valobj.WorkflowPlan;
+import com.zj.aiagent.infrastructure.workflow.graph.WorkflowGraphFactoryImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 工作流执行计划缓存
+ *
+ * 按 (agentId, 版本号, Agent 乐观锁版本) 缓存编译后的 {@link WorkflowPlan}，
+ * 命中时跳过版本快照查询与图 JSON 解析。Agent 每次保存都会递增乐观锁版本，
+ * 其它实例上的发布/回滚会自然产生新的键，本地在发布、回滚、更新和删除时按 agentId 主动清除。
+ */
+@Slf4j
+@Component
+public class WorkflowPlanCache {
+
+    private final AgentRepository agentRepository;
+    private final WorkflowGraphFactoryImpl workflowGraphFactory;
+    private final Cache<PlanKey, WorkflowPlan> plans;
+
+    public WorkflowPlanCache(
+            AgentRepository agentRepository,
+            WorkflowGraphFactoryImpl workflowGraphFactory,
+            @Value("${workflow.plan-cache.max-size:256}") long maxSize) {
+        this.agentRepository = agentRepository;
+        this.workflowGraphFactory = workflowGraphFactory;
+        this.plans = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * 获取 Agent 指定版本的执行计划
+     *
+     * @param versionId 指定版本号；为 null 时使用已发布版本，未发布则使用当前草稿
+     */
+    public WorkflowPlan resolve(Agent agent, Integer versionId) {
+        Integer resolvedVersion = versionId != null
+                ? versionId
+                : agent.getPublishedVersionId() != null ? agent.getPublishedVersionId().intValue() : null;
+        PlanKey key = new PlanKey(agent.getId(), resolvedVersion, agent.getVersion());
+
+        WorkflowPlan plan = plans.getIfPresent(key);
+        if (plan != null) {
+            return plan;
+        }
+
+        WorkflowGraph graph = workflowGraphFactory.fromJson(loadGraphJson(agent, versionId));
+        plan = WorkflowPlan.compile(agent.getId(), resolvedVersion, agent.getVersion(), graph);
+        plans.put(key, plan);
+        log.debug("[PlanCache] Compiled plan: agent={}, version={}, revision={}, nodes={}",
+                agent.getId(), resolvedVersion, agent.getVersion(), graph.getNodes().size());
+        return plan;
+    }
+
+    /**
+     * 清除 Agent 的全部执行计划
+     */
+    public void invalidate(Long agentId) {
+        if (agentId == null) {
+            return;
+        }
+        plans.asMap().keySet().removeIf(key -> agentId.equals(key.agentId()));
+        log.debug("[PlanCache] Invalidated plans of agent: {}", agentId);
+    }
+
+    public long size() {
+        return plans.size();
+    }
+
+    private String loadGraphJson(Agent agent, Integer versionId) {
+        String graphJson;
+        if (versionId != null) {
+            // 使用指定版本
+            AgentVersion version = agentRepository
+                .findVersion(agent.getId(), versionId)
+                .orElseThrow(() ->
+                    new IllegalArgumentException(
+                        "Version not found: " + versionId
+                    )
+                );
+            graphJson = version.getGraphSnapshot();
+        } else if (agent.getPublishedVersionId() != null) {
+            // 使用已发布版本
+            AgentVersion publishedVersion = agentRepository
+                .findVersion(agent.getId(), agent.getPublishedVersionId().intValue())
+                .orElseThrow(() ->
+                    new IllegalStateException("Published version not found")
+                );
+            graphJson = publishedVersion.getGraphSnapshot();
+        } else {
+            // 使用当前草稿
+            graphJson = agent.getGraphJson();
+        }
+
+        if (graphJson == null || graphJson.isBlank()) {
+            throw new IllegalStateException(
+                "Agent has no workflow graph defined"
+            );
+        }
+        return graphJson;
+    }
+
+    private record PlanKey(Long agentId, Integer versionId, Integer agentRevision) {
+    }
+}
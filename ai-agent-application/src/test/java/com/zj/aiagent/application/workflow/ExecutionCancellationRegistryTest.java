@@ -0,0 +1,100 @@
+package com.zj.aiagent.application.workflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.zj.aiagent.infrastructure.redis.IRedisService;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * ExecutionCancellationRegistry 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ExecutionCancellationRegistry 测试")
+class ExecutionCancellationRegistryTest {
+
+    @Mock
+    private IRedisService redisService;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private ExecutionCancellationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new ExecutionCancellationRegistry(redisService, listenerContainer, 30_000L);
+    }
+
+    @Test
+    @DisplayName("取消时写入标记、广播并取消本地运行中的节点")
+    void should_mark_broadcast_and_cancel_running_nodes() {
+        CompletableFuture<String> running = new CompletableFuture<>();
+        registry.track("exec-1", running);
+
+        registry.cancel("exec-1");
+
+        assertThat(running).isCancelled();
+        assertThat(registry.runningCount()).isZero();
+        assertThat(registry.isCancelled("exec-1")).isTrue();
+        verify(redisService).setString("workflow:cancel:exec-1", "true", 1, TimeUnit.HOURS);
+        verify(redisService).publish(ExecutionCancellationRegistry.CHANNEL, "exec-1");
+        verify(redisService, never()).isExists(anyString());
+    }
+
+    @Test
+    @DisplayName("其它实例的取消广播记入本地集合并取消运行中的节点")
+    void should_cancel_from_remote_message() {
+        CompletableFuture<String> running = new CompletableFuture<>();
+        registry.track("exec-2", running);
+
+        // Redisson 以 JSON 字符串发布，消息体带外层引号
+        registry.onMessage(new DefaultMessage(
+                ExecutionCancellationRegistry.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "\"exec-2\"".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertThat(running).isCancelled();
+        assertThat(registry.isCancelled("exec-2")).isTrue();
+        verify(redisService, never()).isExists(anyString());
+    }
+
+    @Test
+    @DisplayName("未收到广播时从 Redis 标记读取一次，结果缓存")
+    void should_fall_back_to_redis_marker_once() {
+        when(redisService.isExists("workflow:cancel:exec-3")).thenReturn(false);
+        when(redisService.isExists("workflow:cancel:exec-4")).thenReturn(true);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(registry.isCancelled("exec-3")).isFalse();
+            assertThat(registry.isCancelled("exec-4")).isTrue();
+        }
+
+        verify(redisService, times(1)).isExists("workflow:cancel:exec-3");
+        verify(redisService, times(1)).isExists("workflow:cancel:exec-4");
+    }
+
+    @Test
+    @DisplayName("已取消的执行登记新节点时立即取消；已结束的节点自动移除")
+    void should_cancel_late_tracked_node_and_untrack_finished() {
+        registry.cancel("exec-5");
+        CompletableFuture<String> late = new CompletableFuture<>();
+        registry.track("exec-5", late);
+        assertThat(late).isCancelled();
+
+        CompletableFuture<String> finished = new CompletableFuture<>();
+        registry.track("exec-6", finished);
+        finished.complete("ok");
+        assertThat(registry.runningCount()).isZero();
+    }
+}
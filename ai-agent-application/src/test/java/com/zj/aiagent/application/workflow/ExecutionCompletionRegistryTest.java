@@ -0,0 +1,78 @@
+package com.zj.aiagent.application.workflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
+import com.zj.aiagent.infrastructure.redis.IRedisService;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * ExecutionCompletionRegistry 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ExecutionCompletionRegistry 测试")
+class ExecutionCompletionRegistryTest {
+
+    @Mock
+    private IRedisService redisService;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private ExecutionCompletionRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new ExecutionCompletionRegistry(redisService, listenerContainer);
+    }
+
+    @Test
+    @DisplayName("本地完成时唤醒等待方并广播")
+    void should_complete_local_waiter_and_broadcast() throws Exception {
+        CompletableFuture<ExecutionStatus> waiter = registry.register("exec-1");
+
+        registry.complete("exec-1", ExecutionStatus.SUCCEEDED);
+
+        assertThat(waiter.get(1, TimeUnit.SECONDS)).isEqualTo(ExecutionStatus.SUCCEEDED);
+        assertThat(registry.waiterCount()).isZero();
+        verify(redisService).publish(ExecutionCompletionRegistry.CHANNEL, "exec-1:SUCCEEDED");
+    }
+
+    @Test
+    @DisplayName("其它实例的完成通知唤醒本地等待方")
+    void should_complete_waiter_from_remote_message() throws Exception {
+        CompletableFuture<ExecutionStatus> waiter = registry.register("exec-2");
+
+        // Redisson 以 JSON 字符串发布，消息体带外层引号
+        registry.onMessage(new DefaultMessage(
+                ExecutionCompletionRegistry.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "\"exec-2:PAUSED_FOR_REVIEW\"".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertThat(waiter.get(1, TimeUnit.SECONDS)).isEqualTo(ExecutionStatus.PAUSED_FOR_REVIEW);
+        verify(redisService, never()).publish(anyString(), anyString());
+    }
+
+    @Test
+    @DisplayName("取消登记后完成通知不再影响等待方")
+    void should_ignore_completion_after_unregister() {
+        CompletableFuture<ExecutionStatus> waiter = registry.register("exec-3");
+        registry.unregister("exec-3");
+
+        registry.complete("exec-3", ExecutionStatus.FAILED);
+
+        assertThat(waiter).isNotDone();
+        assertThat(registry.waiterCount()).isZero();
+    }
+}
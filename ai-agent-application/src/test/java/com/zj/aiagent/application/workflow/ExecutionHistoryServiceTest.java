@@ -0,0 +1,142 @@
+package com.zj.aiagent.application.workflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.zj.aiagent.domain.workflow.entity.Execution;
+import com.zj.aiagent.domain.workflow.port.ExecutionArchiveRepository;
+import com.zj.aiagent.domain.workflow.port.ExecutionRepository;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionHistoryCursor;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
+import java.time.LocalDateTime;
+import java.util.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+/**
+ * ExecutionHistoryService 单元测试
+ * 验证 Redis 与归档合并后按键集顺序分页、两处重复时以 Redis 为准
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("ExecutionHistoryService 测试")
+class ExecutionHistoryServiceTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Mock
+    private ExecutionRepository executionRepository;
+
+    @Mock
+    private ExecutionArchiveRepository archiveRepository;
+
+    private ExecutionHistoryService service;
+
+    /**
+     * 归档中的执行，查询时按游标与条数模拟数据库键集分页
+     */
+    private final List<Execution> archived = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        service = new ExecutionHistoryService(executionRepository, archiveRepository);
+        when(archiveRepository.findByConversationId(eq("conv-1"), any(), anyInt())).thenAnswer(inv -> {
+            ExecutionHistoryCursor cursor = inv.getArgument(1);
+            int limit = inv.getArgument(2);
+            return archived.stream()
+                .filter(execution -> cursor == null || cursor.precedes(execution))
+                .sorted(ExecutionHistoryCursor.ORDER)
+                .limit(limit)
+                .toList();
+        });
+    }
+
+    private Execution execution(String executionId, int minute, ExecutionStatus status) {
+        return Execution.builder()
+            .executionId(executionId)
+            .conversationId("conv-1")
+            .status(status)
+            .createdAt(BASE.plusMinutes(minute))
+            .build();
+    }
+
+    private List<String> ids(List<Execution> executions) {
+        return executions.stream().map(Execution::getExecutionId).toList();
+    }
+
+    @Test
+    @DisplayName("Redis 中的执行与归档合并后按创建时间倒序分页，逐页翻完不重不漏")
+    void pages_through_live_and_archived() {
+        for (int i = 1; i <= 5; i++) {
+            archived.add(execution("a" + i, i, ExecutionStatus.SUCCEEDED));
+        }
+        Execution running = execution("r1", 10, ExecutionStatus.RUNNING);
+        Execution recent = execution("r2", 3, ExecutionStatus.FAILED);
+        when(executionRepository.findByConversationId("conv-1")).thenReturn(List.of(recent, running));
+
+        List<String> all = new ArrayList<>();
+        ExecutionHistoryCursor cursor = null;
+        List<Execution> page;
+        do {
+            page = service.findByConversationId("conv-1", cursor, 3);
+            all.addAll(ids(page));
+            cursor = page.isEmpty() ? null : ExecutionHistoryCursor.of(page.get(page.size() - 1));
+        } while (page.size() == 3);
+
+        assertThat(all).containsExactly("r1", "a5", "a4", "r2", "a3", "a2", "a1");
+    }
+
+    @Test
+    @DisplayName("归档完成但尚未移出 Redis 时以 Redis 中的执行为准")
+    void prefers_redis_copy_over_archive() {
+        Execution live = execution("e1", 1, ExecutionStatus.SUCCEEDED);
+        archived.add(execution("e1", 1, ExecutionStatus.SUCCEEDED));
+        when(executionRepository.findByConversationId("conv-1")).thenReturn(List.of(live));
+
+        List<Execution> page = service.findByConversationId("conv-1", null, 20);
+
+        assertThat(page).hasSize(1);
+        assertThat(page.get(0)).isSameAs(live);
+    }
+
+    @Test
+    @DisplayName("单个执行优先取 Redis，已移出 Redis 时从归档读取")
+    void find_by_id_falls_back_to_archive() {
+        Execution live = execution("e1", 1, ExecutionStatus.RUNNING);
+        Execution archivedExecution = execution("e2", 2, ExecutionStatus.SUCCEEDED);
+        when(executionRepository.findSnapshotById("e1")).thenReturn(Optional.of(live));
+        when(executionRepository.findSnapshotById("e2")).thenReturn(Optional.empty());
+        when(executionRepository.findSnapshotById("e3")).thenReturn(Optional.empty());
+        when(archiveRepository.findById("e2")).thenReturn(Optional.of(archivedExecution));
+        when(archiveRepository.findById("e3")).thenReturn(Optional.empty());
+
+        assertThat(service.findById("e1")).containsSame(live);
+        assertThat(service.findById("e2")).containsSame(archivedExecution);
+        assertThat(service.findById("e3")).isEmpty();
+        verify(archiveRepository, never()).findById("e1");
+    }
+
+    @Test
+    @DisplayName("创建时间相同的执行按执行ID排序，游标跨越同一时刻时不丢记录")
+    void breaks_ties_by_execution_id() {
+        archived.add(execution("x1", 1, ExecutionStatus.SUCCEEDED));
+        archived.add(execution("x2", 1, ExecutionStatus.SUCCEEDED));
+        archived.add(execution("x3", 1, ExecutionStatus.SUCCEEDED));
+        when(executionRepository.findByConversationId("conv-1")).thenReturn(List.of());
+
+        List<Execution> first = service.findByConversationId("conv-1", null, 2);
+        ExecutionHistoryCursor cursor = ExecutionHistoryCursor.parse(
+            ExecutionHistoryCursor.of(first.get(1)).encode());
+        List<Execution> second = service.findByConversationId("conv-1", cursor, 2);
+
+        assertThat(ids(first)).containsExactly("x3", "x2");
+        assertThat(ids(second)).containsExactly("x1");
+    }
+}
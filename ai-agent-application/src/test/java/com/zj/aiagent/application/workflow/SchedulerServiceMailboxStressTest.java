@@ -0,0 +1,224 @@
+package com.zj.aiagent.application.workflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.zj.aiagent.application.chat.ChatApplicationService;
+import com.zj.aiagent.domain.agent.entity.Agent;
+import com.zj.aiagent.domain.agent.repository.AgentRepository;
+import com.zj.aiagent.domain.chat.port.ConversationRepository;
+import com.zj.aiagent.domain.memory.port.VectorStore;
+import com.zj.aiagent.domain.workflow.entity.Execution;
+import com.zj.aiagent.domain.workflow.entity.Node;
+import com.zj.aiagent.domain.workflow.entity.WorkflowGraph;
+import com.zj.aiagent.domain.workflow.port.*;
+import com.zj.aiagent.domain.workflow.valobj.*;
+import com.zj.aiagent.infrastructure.redis.IRedisService;
+import com.zj.aiagent.infrastructure.workflow.executor.NodeExecutorFactory;
+import com.zj.aiagent.infrastructure.workflow.listener.WorkflowAuditWriter;
+import com.zj.aiagent.infrastructure.workflow.graph.WorkflowGraphFactoryImpl;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.redisson.api.RLock;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * 执行邮箱压力测试
+ *
+ * START -> 200 个并行节点 -> END，200 个节点在线程池上同时完成，
+ * 验证完成消息串行处理（无并发推进）、状态无丢失、END 只调度一次，且租约锁不再按完成次数获取。
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("SchedulerService 执行邮箱压力测试")
+class SchedulerServiceMailboxStressTest {
+
+    private static final int PARALLEL = 200;
+
+    @Mock
+    private NodeExecutorFactory executorFactory;
+    @Mock
+    private ExecutionRepository executionRepository;
+    @Mock
+    private CheckpointRepository checkpointRepository;
+    @Mock
+    private AgentRepository agentRepository;
+    @Mock
+    private IRedisService redisService;
+    @Mock
+    private HumanReviewQueuePort humanReviewQueuePort;
+    @Mock
+    private StreamPublisherFactory streamPublisherFactory;
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+    @Mock
+    private HumanReviewRepository humanReviewRepository;
+    @Mock
+    private VectorStore vectorStore;
+    @Mock
+    private ConversationRepository conversationRepository;
+    @Mock
+    private ChatApplicationService chatApplicationService;
+    @Mock
+    private WorkflowAuditWriter workflowAuditWriter;
+    @Mock
+    private ExpressionResolverPort expressionResolver;
+    @Mock
+    private NodeOutputStorePort nodeOutputStore;
+    @Mock
+    private ExecutionCompletionRegistry executionCompletionRegistry;
+
+    @InjectMocks
+    private SchedulerService schedulerService;
+
+    @Mock
+    private WorkflowGraphFactoryImpl workflowGraphFactory;
+    @Mock
+    private NodeExecutorStrategy strategy;
+    @Mock
+    private StreamPublisher streamPublisher;
+    @Mock
+    private RLock rLock;
+
+    private ExecutionMailbox executionMailbox;
+    private final ExecutorService workers = Executors.newFixedThreadPool(32);
+    private final Map<String, Execution> store = new ConcurrentHashMap<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicInteger endDispatches = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        executionMailbox = new ExecutionMailbox(redisService);
+        ReflectionTestUtils.setField(schedulerService, "executionMailbox", executionMailbox);
+        ReflectionTestUtils.setField(schedulerService, "workflowPlanCache",
+                new WorkflowPlanCache(agentRepository, workflowGraphFactory, 16));
+        ReflectionTestUtils.setField(schedulerService, "executionCancellationRegistry",
+                new ExecutionCancellationRegistry(redisService, mock(RedisMessageListenerContainer.class), 30_000L));
+
+        when(redisService.getLock(anyString())).thenReturn(rLock);
+        when(rLock.isHeldByCurrentThread()).thenReturn(true);
+        when(streamPublisherFactory.create(any())).thenReturn(streamPublisher);
+        when(expressionResolver.resolveInputs(any(), any())).thenAnswer(inv -> new HashMap<>());
+        when(nodeOutputStore.resolve(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(executorFactory.getStrategy(any())).thenReturn(strategy);
+
+        doAnswer(inv -> {
+            Execution execution = inv.getArgument(0);
+            store.put(execution.getExecutionId(), execution);
+            return null;
+        }).when(executionRepository).save(any());
+        when(executionRepository.findById(anyString()))
+                .thenAnswer(inv -> Optional.ofNullable(store.get(inv.<String>getArgument(0))));
+
+        // 推进过程中若有两个完成同时进入，这里会观察到并发
+        doAnswer(inv -> {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            Thread.sleep(1);
+            inFlight.decrementAndGet();
+            return null;
+        }).when(checkpointRepository).save(any());
+
+        // 并行节点全部调度后一起放行，制造同时完成
+        CountDownLatch dispatched = new CountDownLatch(PARALLEL);
+        when(strategy.executeAsync(any(), any(), any())).thenAnswer(inv -> {
+            Node node = inv.getArgument(0);
+            if (node.getType() != NodeType.TOOL) {
+                if (node.getType() == NodeType.END) {
+                    endDispatches.incrementAndGet();
+                }
+                return CompletableFuture.completedFuture(NodeExecutionResult.success(Map.of("output", "ok")));
+            }
+            dispatched.countDown();
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    dispatched.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return NodeExecutionResult.success(Map.of("output", node.getNodeId()));
+            }, workers);
+        });
+
+        when(agentRepository.findById(1L)).thenReturn(Optional.of(Agent.builder().id(1L).graphJson("{}").build()));
+        when(workflowGraphFactory.fromJson(anyString())).thenReturn(buildFanOutGraph());
+    }
+
+    @AfterEach
+    void tearDown() {
+        workers.shutdownNow();
+        executionMailbox.shutdown();
+    }
+
+    @Test
+    @DisplayName("200 个并行节点同时完成：串行推进、无丢失、END 只调度一次")
+    void should_apply_parallel_completions_serially() throws InterruptedException {
+        schedulerService.startExecution("exec-fanout", 1L, 1L, null, null, new HashMap<>(), ExecutionMode.STANDARD);
+
+        Execution execution = awaitTerminal("exec-fanout");
+
+        assertThat(execution.getStatus()).isEqualTo(ExecutionStatus.SUCCEEDED);
+        assertThat(execution.getNodeStatuses()).hasSize(PARALLEL + 2);
+        assertThat(execution.getNodeStatuses().values()).allMatch(s -> s == ExecutionStatus.SUCCEEDED);
+        for (int i = 0; i < PARALLEL; i++) {
+            assertThat(execution.getContext().getNodeOutput("p" + i)).containsEntry("output", "p" + i);
+        }
+
+        assertThat(endDispatches.get()).isEqualTo(1);
+        assertThat(maxInFlight.get()).isEqualTo(1);
+        verify(checkpointRepository, times(PARALLEL + 2)).save(any());
+
+        // 租约按排空轮次获取，远少于完成次数
+        long leaseAcquisitions = mockingDetails(rLock).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("lock"))
+                .count();
+        assertThat(leaseAcquisitions).isLessThan(PARALLEL);
+    }
+
+    private Execution awaitTerminal(String executionId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (System.currentTimeMillis() < deadline) {
+            Execution execution = store.get(executionId);
+            if (execution != null && execution.getStatus() != null && execution.getStatus().isTerminal()
+                    && executionMailbox.activeCount() == 0) {
+                return execution;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Execution did not finish in time: " + executionId);
+    }
+
+    /**
+     * START -> p0..p199 -> END
+     */
+    private WorkflowGraph buildFanOutGraph() {
+        Map<String, Node> nodes = new HashMap<>();
+        Map<String, Set<String>> edges = new HashMap<>();
+
+        nodes.put("START", Node.builder().nodeId("START").name("start").type(NodeType.START).build());
+        nodes.put("END", Node.builder().nodeId("END").name("end").type(NodeType.END).build());
+        for (int i = 0; i < PARALLEL; i++) {
+            String nodeId = "p" + i;
+            nodes.put(nodeId, Node.builder().nodeId(nodeId).name(nodeId).type(NodeType.TOOL).build());
+            edges.computeIfAbsent("START", k -> new HashSet<>()).add(nodeId);
+            edges.computeIfAbsent(nodeId, k -> new HashSet<>()).add("END");
+        }
+        return WorkflowGraph.builder().graphId("g-fanout").nodes(nodes).edges(edges).build();
+    }
+}
@@ -0,0 +1,264 @@
+package com.zj.aiagent.application.workflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.zj.aiagent.application.chat.ChatApplicationService;
+import com.zj.aiagent.domain.agent.entity.Agent;
+import com.zj.aiagent.domain.agent.repository.AgentRepository;
+import com.zj.aiagent.domain.chat.port.ConversationRepository;
+import com.zj.aiagent.domain.memory.port.VectorStore;
+import com.zj.aiagent.domain.workflow.entity.Execution;
+import com.zj.aiagent.domain.workflow.entity.Node;
+import com.zj.aiagent.domain.workflow.entity.WorkflowGraph;
+import com.zj.aiagent.domain.workflow.event.NodeCompletedEvent;
+import com.zj.aiagent.domain.workflow.port.*;
+import com.zj.aiagent.domain.workflow.valobj.*;
+import com.zj.aiagent.infrastructure.redis.IRedisService;
+import com.zj.aiagent.infrastructure.workflow.executor.NodeExecutorFactory;
+import com.zj.aiagent.infrastructure.workflow.listener.WorkflowAuditWriter;
+import com.zj.aiagent.infrastructure.workflow.graph.WorkflowGraphFactoryImpl;
+import com.zj.aiagent.infrastructure.workflow.repository.CachedExecutionRepository;
+import com.zj.aiagent.infrastructure.workflow.repository.ExecutionSnapshot;
+import com.zj.aiagent.infrastructure.workflow.repository.RedisExecutionRepository;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.redisson.api.RLock;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * 调度器仓储访问次数测试
+ *
+ * 在 50 节点的合成 DAG 上完整跑一次执行，统计落到 Redis 仓储的读写次数，
+ * 验证本地执行状态缓存下节点完成不再产生同步 Redis 读取。
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("SchedulerService 仓储访问测试")
+class SchedulerServiceRepositoryAccessTest {
+
+    private static final int LAYERS = 8;
+    private static final int WIDTH = 6;
+
+    @Mock
+    private NodeExecutorFactory executorFactory;
+    @Mock
+    private ExecutionRepository executionRepository;
+    @Mock
+    private CheckpointRepository checkpointRepository;
+    @Mock
+    private AgentRepository agentRepository;
+    @Mock
+    private WorkflowGraphFactoryImpl workflowGraphFactory;
+    @Mock
+    private IRedisService redisService;
+    @Mock
+    private HumanReviewQueuePort humanReviewQueuePort;
+    @Mock
+    private StreamPublisherFactory streamPublisherFactory;
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+    @Mock
+    private HumanReviewRepository humanReviewRepository;
+    @Mock
+    private VectorStore vectorStore;
+    @Mock
+    private ConversationRepository conversationRepository;
+    @Mock
+    private ChatApplicationService chatApplicationService;
+    @Mock
+    private WorkflowAuditWriter workflowAuditWriter;
+    @Mock
+    private ExpressionResolverPort expressionResolver;
+    @Mock
+    private NodeOutputStorePort nodeOutputStore;
+
+    @InjectMocks
+    private SchedulerService schedulerService;
+
+    @Mock
+    private RedisExecutionRepository redisExecutionRepository;
+    @Mock
+    private NodeExecutorStrategy strategy;
+    @Mock
+    private StreamPublisher streamPublisher;
+    @Mock
+    private RLock rLock;
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private CachedExecutionRepository cachedExecutionRepository;
+    private ExecutionMailbox executionMailbox;
+
+    @BeforeEach
+    void setUp() {
+        // 写后窗口足够长，运行期间只有状态边界会真正写入 Redis
+        cachedExecutionRepository = new CachedExecutionRepository(redisExecutionRepository, 600_000L, 600_000L);
+        ReflectionTestUtils.setField(schedulerService, "executionRepository", cachedExecutionRepository);
+        ReflectionTestUtils.setField(schedulerService, "workflowPlanCache",
+                new WorkflowPlanCache(agentRepository, workflowGraphFactory, 16));
+        executionMailbox = new ExecutionMailbox(redisService);
+        ReflectionTestUtils.setField(schedulerService, "executionMailbox", executionMailbox);
+        ReflectionTestUtils.setField(schedulerService, "executionCompletionRegistry",
+                new ExecutionCompletionRegistry(redisService, listenerContainer));
+        ReflectionTestUtils.setField(schedulerService, "executionCancellationRegistry",
+                new ExecutionCancellationRegistry(redisService, listenerContainer, 30_000L));
+
+        when(redisService.getLock(anyString())).thenReturn(rLock);
+        when(rLock.isHeldByCurrentThread()).thenReturn(true);
+        when(streamPublisherFactory.create(any())).thenReturn(streamPublisher);
+        when(nodeOutputStore.resolve(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(redisExecutionRepository.serialize(any())).thenAnswer(inv -> {
+            Execution execution = inv.getArgument(0);
+            return new ExecutionSnapshot(execution.getExecutionId(), execution.getVersion(),
+                    execution.getStatus(), null, Map.of());
+        });
+        when(expressionResolver.resolveInputs(any(), any())).thenAnswer(inv -> new HashMap<>());
+        when(executorFactory.getStrategy(any())).thenReturn(strategy);
+        when(strategy.executeAsync(any(), any(), any())).thenAnswer(inv ->
+                CompletableFuture.completedFuture(NodeExecutionResult.success(Map.of("output", "ok"))));
+
+        WorkflowGraph graph = buildLayeredGraph();
+        when(agentRepository.findById(1L)).thenReturn(Optional.of(Agent.builder().id(1L).graphJson("{}").build()));
+        when(workflowGraphFactory.fromJson(anyString())).thenReturn(graph);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cachedExecutionRepository.shutdown();
+        executionMailbox.shutdown();
+    }
+
+    @Test
+    @DisplayName("50 节点 DAG 执行期间不产生同步 Redis 读取，写入只发生在状态边界")
+    void should_not_read_redis_per_node() throws InterruptedException {
+        schedulerService.startExecution("exec-50", 1L, 1L, null, null, new HashMap<>(), ExecutionMode.STANDARD);
+        awaitIdle();
+
+        ArgumentCaptor<Execution> saved = ArgumentCaptor.forClass(Execution.class);
+        verify(redisExecutionRepository).save(saved.capture());
+        Execution execution = saved.getValue();
+
+        int nodeCount = execution.getGraph().getNodes().size();
+        assertThat(nodeCount).isEqualTo(LAYERS * WIDTH + 2);
+        assertThat(execution.getStatus()).isEqualTo(ExecutionStatus.SUCCEEDED);
+        assertThat(execution.getNodeStatuses().values()).allMatch(s -> s == ExecutionStatus.SUCCEEDED);
+
+        // 每个节点完成的 Redis 读取为 0
+        verify(redisExecutionRepository, never()).findById(anyString());
+        // 启动一次同步保存 + 终态一次同步写入，中间状态全部合并在写后窗口内
+        verify(redisExecutionRepository, times(1)).write(argThat(s -> "exec-50".equals(s.executionId())));
+        assertThat(cachedExecutionRepository.liveCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("审计日志不携带调度注入的内部参数，执行结束后释放日志视图")
+    void audit_logs_drop_internal_inputs_and_view_is_closed() throws InterruptedException {
+        schedulerService.startExecution("exec-audit", 1L, 1L, null, null, new HashMap<>(), ExecutionMode.STANDARD);
+        awaitIdle();
+
+        ArgumentCaptor<NodeCompletedEvent> events = ArgumentCaptor.forClass(NodeCompletedEvent.class);
+        verify(applicationEventPublisher, atLeastOnce()).publishEvent(events.capture());
+        assertThat(events.getAllValues()).isNotEmpty().allSatisfy(event ->
+                assertThat(event.getExecutionLog().getInputs().keySet()).noneMatch(key -> key.startsWith("__")));
+        verify(workflowAuditWriter).close("exec-audit");
+    }
+
+    @Test
+    @DisplayName("executeAndWait 由完成通知唤醒，不再轮询仓储")
+    void execute_and_wait_is_woken_by_completion() {
+        // 终态写入后聚合从本地缓存释放，结果构建时回源读取一次
+        Map<String, Execution> saved = new ConcurrentHashMap<>();
+        doAnswer(inv -> {
+            Execution execution = inv.getArgument(0);
+            saved.put(execution.getExecutionId(), execution);
+            return null;
+        }).when(redisExecutionRepository).save(any());
+        when(redisExecutionRepository.findById(anyString()))
+                .thenAnswer(inv -> Optional.ofNullable(saved.get(inv.<String>getArgument(0))));
+
+        Map<String, Object> result = schedulerService.executeAndWait(1L, 1L, new HashMap<>(), ExecutionMode.STANDARD, 10_000);
+
+        assertThat(result).containsEntry("status", ExecutionStatus.SUCCEEDED.name());
+        assertThat(saved).containsKey((String) result.get("executionId"));
+        verify(redisExecutionRepository, times(1)).findById(anyString());
+        verify(redisService).publish(eq(ExecutionCompletionRegistry.CHANNEL), anyString());
+    }
+
+    @Test
+    @DisplayName("写后窗口内的多次更新合并为一次写入")
+    void should_coalesce_intermediate_updates() {
+        Execution execution = Execution.builder()
+                .executionId("exec-coalesce")
+                .graph(buildLayeredGraph())
+                .build();
+        execution.start(new HashMap<>());
+        cachedExecutionRepository.save(execution);
+
+        for (int i = 0; i < 10; i++) {
+            execution.setVersion(execution.getVersion() + 1);
+            cachedExecutionRepository.update(execution);
+        }
+        verify(redisExecutionRepository, never()).write(any());
+
+        cachedExecutionRepository.flushAll();
+        verify(redisExecutionRepository, times(1)).write(argThat(s -> s.version() == 10));
+        assertThat(cachedExecutionRepository.findById("exec-coalesce")).containsSame(execution);
+    }
+
+    /**
+     * 节点完成经执行邮箱异步处理，等待全部消息处理完毕
+     */
+    private void awaitIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (executionMailbox.activeCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(executionMailbox.activeCount()).isZero();
+    }
+
+    /**
+     * START -> 8 层 x 6 个节点（相邻层全连接）-> END，共 50 个节点
+     */
+    private WorkflowGraph buildLayeredGraph() {
+        Map<String, Node> nodes = new HashMap<>();
+        Map<String, Set<String>> edges = new HashMap<>();
+
+        nodes.put("START", Node.builder().nodeId("START").name("start").type(NodeType.START).build());
+        nodes.put("END", Node.builder().nodeId("END").name("end").type(NodeType.END).build());
+
+        List<String> previous = List.of("START");
+        for (int layer = 0; layer < LAYERS; layer++) {
+            List<String> current = new ArrayList<>();
+            for (int i = 0; i < WIDTH; i++) {
+                String nodeId = "n" + layer + "_" + i;
+                nodes.put(nodeId, Node.builder().nodeId(nodeId).name(nodeId).type(NodeType.TOOL).build());
+                current.add(nodeId);
+            }
+            for (String source : previous) {
+                edges.computeIfAbsent(source, k -> new HashSet<>()).addAll(current);
+            }
+            previous = current;
+        }
+        for (String source : previous) {
+            edges.computeIfAbsent(source, k -> new HashSet<>()).add("END");
+        }
+
+        return WorkflowGraph.builder().graphId("g-50").nodes(nodes).edges(edges).build();
+    }
+}
@@ -0,0 +1,137 @@
+package com.zj.aiagent.application.workflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.zj.aiagent.domain.agent.entity.Agent;
+import com.zj.aiagent.domain.agent.entity.AgentVersion;
+import com.zj.aiagent.domain.agent.repository.AgentRepository;
+import com.zj.aiagent.domain.workflow.entity.Node;
+import com.zj.aiagent.domain.workflow.entity.WorkflowGraph;
+import com.zj.aiagent.domain.workflow.valobj.NodeType;
+import com.zj.aiagent.domain.workflow.valobj.WorkflowPlan;
+import com.zj.aiagent.infrastructure.workflow.graph.WorkflowGraphFactoryImpl;
+import java.util.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+/**
+ * WorkflowPlanCache 单元测试
+ * 验证同一版本只解析一次、Agent 变更或主动清除后重新编译
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("WorkflowPlanCache 测试")
+class WorkflowPlanCacheTest {
+
+    @Mock
+    private AgentRepository agentRepository;
+
+    @Mock
+    private WorkflowGraphFactoryImpl workflowGraphFactory;
+
+    private WorkflowPlanCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new WorkflowPlanCache(agentRepository, workflowGraphFactory, 16);
+        when(workflowGraphFactory.fromJson(anyString())).thenAnswer(inv -> buildGraph());
+        when(agentRepository.findVersion(eq(1L), eq(2)))
+                .thenReturn(Optional.of(AgentVersion.builder().agentId(1L).version(2).graphSnapshot("{\"v\":2}").build()));
+    }
+
+    @Test
+    @DisplayName("同一已发布版本重复启动只查询、解析一次")
+    void should_reuse_plan_for_same_version() {
+        Agent agent = Agent.builder().id(1L).publishedVersionId(2L).version(5).build();
+
+        WorkflowPlan first = cache.resolve(agent, null);
+        WorkflowPlan second = cache.resolve(agent, null);
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.getVersionId()).isEqualTo(2);
+        verify(agentRepository, times(1)).findVersion(1L, 2);
+        verify(workflowGraphFactory, times(1)).fromJson("{\"v\":2}");
+    }
+
+    @Test
+    @DisplayName("显式指定版本与默认已发布版本共用计划")
+    void should_share_plan_between_explicit_and_published_version() {
+        Agent agent = Agent.builder().id(1L).publishedVersionId(2L).version(5).build();
+
+        assertThat(cache.resolve(agent, 2)).isSameAs(cache.resolve(agent, null));
+        verify(workflowGraphFactory, times(1)).fromJson(anyString());
+    }
+
+    @Test
+    @DisplayName("Agent 保存后（乐观锁版本变化）重新编译")
+    void should_recompile_after_agent_revision_changes() {
+        Agent draft = Agent.builder().id(1L).graphJson("{\"draft\":1}").version(5).build();
+        WorkflowPlan before = cache.resolve(draft, null);
+
+        Agent saved = Agent.builder().id(1L).graphJson("{\"draft\":2}").version(6).build();
+        WorkflowPlan after = cache.resolve(saved, null);
+
+        assertThat(after).isNotSameAs(before);
+        verify(workflowGraphFactory).fromJson("{\"draft\":1}");
+        verify(workflowGraphFactory).fromJson("{\"draft\":2}");
+    }
+
+    @Test
+    @DisplayName("按 agentId 清除后重新编译，其它 Agent 不受影响")
+    void should_invalidate_by_agent() {
+        Agent agent = Agent.builder().id(1L).graphJson("{}").version(5).build();
+        Agent other = Agent.builder().id(9L).graphJson("{}").version(1).build();
+        WorkflowPlan before = cache.resolve(agent, null);
+        WorkflowPlan otherPlan = cache.resolve(other, null);
+
+        cache.invalidate(1L);
+
+        assertThat(cache.resolve(agent, null)).isNotSameAs(before);
+        assertThat(cache.resolve(other, null)).isSameAs(otherPlan);
+    }
+
+    @Test
+    @DisplayName("计划包含满足依赖关系的拓扑序")
+    void should_compile_topological_order() {
+        WorkflowPlan plan = cache.resolve(Agent.builder().id(1L).graphJson("{}").version(1).build(), null);
+
+        List<String> order = plan.getTopologicalOrder();
+        assertThat(order).containsExactlyInAnyOrder("start", "a", "b", "end");
+        plan.getGraph().getEdges().forEach((source, targets) ->
+                targets.forEach(target -> assertThat(order.indexOf(source)).isLessThan(order.indexOf(target))));
+        assertThat(plan.getGraph().getPredecessorIds("end")).containsExactlyInAnyOrder("a", "b");
+    }
+
+    @Test
+    @DisplayName("指定版本不存在时抛出异常且不缓存")
+    void should_fail_when_version_missing() {
+        Agent agent = Agent.builder().id(1L).version(1).build();
+        when(agentRepository.findVersion(1L, 7)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> cache.resolve(agent, 7))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Version not found");
+        assertThat(cache.size()).isZero();
+    }
+
+    private WorkflowGraph buildGraph() {
+        Map<String, Node> nodes = new HashMap<>();
+        for (String id : List.of("start", "a", "b", "end")) {
+            nodes.put(id, Node.builder().nodeId(id).name(id).type(NodeType.TOOL).build());
+        }
+        Map<String, Set<String>> edges = new HashMap<>();
+        edges.put("start", new HashSet<>(Set.of("a", "b")));
+        edges.put("a", new HashSet<>(Set.of("end")));
+        edges.put("b", new HashSet<>(Set.of("end")));
+        return WorkflowGraph.builder().graphId("g").nodes(nodes).edges(edges).build();
+    }
+}
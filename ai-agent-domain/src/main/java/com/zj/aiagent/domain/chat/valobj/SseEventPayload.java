@@ -1,5 +1,6 @@
 package com.zj.aiagent.domain.chat.valobj;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
 import com.zj.aiagent.domain.workflow.valobj.SseEventType;
 import lombok.AllArgsConstructor;
@@ -19,6 +20,12 @@ public class SseEventPayload {
 
     // --- 身份标识 ---
 
+    /**
+     * 事件ID（执行事件流中的条目 ID，单调递增，用作 SSE id 以支持 Last-Event-ID 续传）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String id;
+
     /**
      * 执行ID
      */
@@ -3,11 +3,15 @@ package com.zj.aiagent.domain.workflow.entity;
 import com.zj.aiagent.domain.workflow.valobj.*;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 /**
  * 执行聚合根
@@ -107,6 +111,25 @@ public class Execution {
      */
     private LocalDateTime updatedAt;
 
+    /**
+     * 就绪度跟踪（由 graph + nodeStatuses 派生，首次使用时构建）
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient ReadinessTracker readiness;
+
+    public void setGraph(WorkflowGraph graph) {
+        this.graph = graph;
+        this.readiness = null;
+    }
+
+    public void setNodeStatuses(Map<String, ExecutionStatus> nodeStatuses) {
+        this.nodeStatuses = nodeStatuses;
+        this.readiness = null;
+    }
+
     // --- 核心业务方法 ---
 
     /**
@@ -125,9 +148,7 @@ public class Execution {
         graph
             .getNodes()
             .keySet()
-            .forEach(nodeId ->
-                nodeStatuses.put(nodeId, ExecutionStatus.PENDING)
-            );
+            .forEach(nodeId -> setNodeStatus(nodeId, ExecutionStatus.PENDING));
 
         // 4. 更新状态
         this.status = ExecutionStatus.RUNNING;
@@ -156,7 +177,7 @@ public class Execution {
             }
             ExecutionStatus current = nodeStatuses.get(node.getNodeId());
             if (current == ExecutionStatus.PENDING) {
-                nodeStatuses.put(node.getNodeId(), ExecutionStatus.RUNNING);
+                setNodeStatus(node.getNodeId(), ExecutionStatus.RUNNING);
                 accepted.add(node);
             }
         }
@@ -175,7 +196,7 @@ public class Execution {
      */
     public List<Node> advance(String nodeId, NodeExecutionResult result) {
         // 1. 更新节点状态
-        nodeStatuses.put(nodeId, result.getStatus());
+        setNodeStatus(nodeId, result.getStatus());
 
         // 2. 存储输出到上下文
         if (result.getOutputs() != null) {
@@ -265,7 +286,7 @@ public class Execution {
         // If BEFORE_EXECUTION, return node to be executed.
         // If AFTER_EXECUTION, return empty (Scheduler will manually advance).
         if (phase == TriggerPhase.BEFORE_EXECUTION) {
-            nodeStatuses.put(nodeId, ExecutionStatus.PENDING);
+            setNodeStatus(nodeId, ExecutionStatus.PENDING);
             return List.of(pausedNode);
         }
         return Collections.emptyList();
@@ -291,7 +312,7 @@ public class Execution {
         }
 
         if (nodeId != null && !nodeId.isBlank()) {
-            nodeStatuses.put(nodeId, ExecutionStatus.FAILED);
+            setNodeStatus(nodeId, ExecutionStatus.FAILED);
         }
 
         this.status = ExecutionStatus.FAILED;
@@ -305,55 +326,24 @@ public class Execution {
      * 获取就绪节点（所有依赖已完成）
      */
     public List<Node> getReadyNodes() {
-        Map<String, Integer> inDegrees = calculateEffectiveInDegrees();
-
-        return graph
-            .getNodes()
-            .values()
-            .stream()
-            .filter(
-                node ->
-                    nodeStatuses.get(node.getNodeId()) ==
-                    ExecutionStatus.PENDING
-            )
-            .filter(node -> inDegrees.getOrDefault(node.getNodeId(), 0) == 0)
-            .collect(Collectors.toList());
+        return readiness().readyNodes();
     }
 
     /**
-     * 计算有效入度（考虑已完成和已跳过的节点）
+     * 写入节点状态并同步就绪度
      */
-    private Map<String, Integer> calculateEffectiveInDegrees() {
-        Map<String, Integer> inDegrees = new HashMap<>();
-
-        // 初始化
-        graph
-            .getNodes()
-            .keySet()
-            .forEach(nodeId -> inDegrees.put(nodeId, 0));
-
-        // 计算入度
-        for (Map.Entry<String, Set<String>> entry : graph
-            .getEdges()
-            .entrySet()) {
-            String sourceId = entry.getKey();
-            ExecutionStatus sourceStatus = nodeStatuses.get(sourceId);
-
-            // 如果源节点已完成或已跳过，不计入入度
-            if (
-                sourceStatus == ExecutionStatus.SUCCEEDED ||
-                sourceStatus == ExecutionStatus.SKIPPED ||
-                sourceStatus == ExecutionStatus.FAILED
-            ) {
-                continue;
-            }
-
-            for (String targetId : entry.getValue()) {
-                inDegrees.merge(targetId, 1, Integer::sum);
-            }
+    private void setNodeStatus(String nodeId, ExecutionStatus status) {
+        ExecutionStatus previous = nodeStatuses.put(nodeId, status);
+        if (readiness != null) {
+            readiness.onStatusChange(nodeId, previous, status);
         }
+    }
 
-        return inDegrees;
+    private ReadinessTracker readiness() {
+        if (readiness == null) {
+            readiness = new ReadinessTracker(graph, nodeStatuses);
+        }
+        return readiness;
     }
 
     /**
@@ -392,14 +382,16 @@ public class Execution {
             return;
         }
 
-        nodeStatuses.put(nodeId, ExecutionStatus.SKIPPED);
+        setNodeStatus(nodeId, ExecutionStatus.SKIPPED);
 
         // 递归跳过下游
         Set<Node> successors = graph.getSuccessors(nodeId);
         for (Node successor : successors) {
-            Set<Node> predecessors = graph.getPredecessors(
-                successor.getNodeId()
-            );
+            List<String> predecessors = graph
+                .getPredecessorIds(successor.getNodeId())
+                .stream()
+                .filter(graph.getNodes()::containsKey)
+                .toList();
 
             if (predecessors.size() <= 1) {
                 // 单前驱：直接递归跳过
@@ -410,8 +402,7 @@ public class Execution {
                     .stream()
                     .allMatch(
                         pred ->
-                            nodeStatuses.get(pred.getNodeId()) ==
-                            ExecutionStatus.SKIPPED
+                            nodeStatuses.get(pred) == ExecutionStatus.SKIPPED
                     );
                 if (allPredecessorsSkipped) {
                     skipNodeRecursively(successor.getNodeId());
@@ -425,25 +416,14 @@ public class Execution {
      * 检查是否完成
      */
     private boolean isCompleted() {
-        return nodeStatuses
-            .values()
-            .stream()
-            .allMatch(
-                status ->
-                    status == ExecutionStatus.SUCCEEDED ||
-                    status == ExecutionStatus.SKIPPED ||
-                    status == ExecutionStatus.FAILED
-            );
+        return readiness().isCompleted();
     }
 
     /**
      * 检查是否有失败节点
      */
     private boolean hasFailed() {
-        return nodeStatuses
-            .values()
-            .stream()
-            .anyMatch(status -> status == ExecutionStatus.FAILED);
+        return readiness().hasFailed();
     }
 
     /**
@@ -0,0 +1,125 @@
+package com.zj.aiagent.domain.workflow.entity;
+
+import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 执行就绪度跟踪
+ *
+ * 维护每个节点剩余未完成的前驱数（有效入度）和当前就绪节点集合，
+ * 节点状态变化时只调整其直接后继，推进执行的开销与出度成正比，而不是每次遍历全部边。
+ * 属于可由 nodeStatuses 重建的派生状态，不参与序列化。
+ */
+final class ReadinessTracker {
+
+    private final WorkflowGraph graph;
+    private final Map<String, ExecutionStatus> nodeStatuses;
+
+    /**
+     * 有效入度 (nodeId -> 未完成前驱的出边数)
+     */
+    private final Map<String, Integer> remaining = new HashMap<>();
+
+    /**
+     * 就绪节点：PENDING 且有效入度为 0
+     */
+    private final Set<String> ready = new LinkedHashSet<>();
+
+    /**
+     * nodeStatuses 中未完成（非 SUCCEEDED/SKIPPED/FAILED）的数量
+     */
+    private int unfinished;
+
+    /**
+     * nodeStatuses 中 FAILED 的数量
+     */
+    private int failed;
+
+    ReadinessTracker(WorkflowGraph graph, Map<String, ExecutionStatus> nodeStatuses) {
+        this.graph = graph;
+        this.nodeStatuses = nodeStatuses;
+
+        // 源节点未完成时，其每条出边计入目标的入度
+        for (Map.Entry<String, Set<String>> entry : graph.getEdges().entrySet()) {
+            if (isDone(nodeStatuses.get(entry.getKey()))) {
+                continue;
+            }
+            for (String targetId : entry.getValue()) {
+                remaining.merge(targetId, 1, Integer::sum);
+            }
+        }
+
+        for (ExecutionStatus status : nodeStatuses.values()) {
+            count(status, 1);
+        }
+
+        for (String nodeId : graph.getNodes().keySet()) {
+            refresh(nodeId);
+        }
+    }
+
+    /**
+     * 节点状态变化通知（由 Execution 在写入 nodeStatuses 后调用）
+     *
+     * @param previous 变化前状态，null 表示此前不存在
+     */
+    void onStatusChange(String nodeId, ExecutionStatus previous, ExecutionStatus current) {
+        count(previous, -1);
+        count(current, 1);
+
+        boolean wasDone = isDone(previous);
+        boolean nowDone = isDone(current);
+        if (wasDone != nowDone) {
+            int delta = nowDone ? -1 : 1;
+            for (String targetId : graph.getEdges().getOrDefault(nodeId, Collections.emptySet())) {
+                remaining.merge(targetId, delta, Integer::sum);
+                refresh(targetId);
+            }
+        }
+        refresh(nodeId);
+    }
+
+    List<Node> readyNodes() {
+        return ready.stream()
+                .map(graph::getNode)
+                .collect(Collectors.toList());
+    }
+
+    boolean isCompleted() {
+        return unfinished == 0;
+    }
+
+    boolean hasFailed() {
+        return failed > 0;
+    }
+
+    private void refresh(String nodeId) {
+        if (graph.getNodes().containsKey(nodeId)
+                && nodeStatuses.get(nodeId) == ExecutionStatus.PENDING
+                && remaining.getOrDefault(nodeId, 0) == 0) {
+            ready.add(nodeId);
+        } else {
+            ready.remove(nodeId);
+        }
+    }
+
+    private void count(ExecutionStatus status, int delta) {
+        if (status == null) {
+            return;
+        }
+        if (!isDone(status)) {
+            unfinished += delta;
+        }
+        if (status == ExecutionStatus.FAILED) {
+            failed += delta;
+        }
+    }
+
+    private static boolean isDone(ExecutionStatus status) {
+        return status == ExecutionStatus.SUCCEEDED
+                || status == ExecutionStatus.SKIPPED
+                || status == ExecutionStatus.FAILED;
+    }
+}
@@ -1,9 +1,14 @@
 package com.zj.aiagent.domain.workflow.entity;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -53,6 +58,25 @@ public class WorkflowGraph {
     @Builder.Default
     private Map<String, List<Edge>> edgeDetails = new HashMap<>();
 
+    /**
+     * 反向邻接表 (targetNodeId -> Set<sourceNodeId>)
+     * 由 edges 派生，首次查询前驱时构建，edges 被替换时失效
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient volatile Map<String, Set<String>> reverseEdges;
+
+    /**
+     * 环检测结果缓存，edges 被替换时失效
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient volatile Boolean cyclic;
+
     // --- 业务方法 ---
 
     /**
@@ -84,19 +108,95 @@ public class WorkflowGraph {
      * 获取上游节点
      */
     public Set<Node> getPredecessors(String nodeId) {
-        return edges.entrySet().stream()
-                .filter(entry -> entry.getValue().contains(nodeId))
-                .map(entry -> nodes.get(entry.getKey()))
+        return getPredecessorIds(nodeId).stream()
+                .map(nodes::get)
                 .filter(Objects::nonNull)
                 .collect(Collectors.toSet());
     }
 
+    /**
+     * 获取上游节点ID（含不在 nodes 中的悬空源）
+     */
+    public Set<String> getPredecessorIds(String nodeId) {
+        return reverseEdges().getOrDefault(nodeId, Collections.emptySet());
+    }
+
+    public void setEdges(Map<String, Set<String>> edges) {
+        this.edges = edges;
+        this.reverseEdges = null;
+        this.cyclic = null;
+    }
+
+    /**
+     * 拓扑排序（Kahn 算法，仅包含 nodes 中的节点）
+     *
+     * @throws IllegalStateException 存在循环依赖时
+     */
+    public List<String> topologicalOrder() {
+        Map<String, Integer> inDegrees = new HashMap<>();
+        nodes.keySet().forEach(nodeId -> inDegrees.put(nodeId, 0));
+        for (Map.Entry<String, Set<String>> entry : edges.entrySet()) {
+            if (!nodes.containsKey(entry.getKey())) {
+                continue;
+            }
+            for (String target : entry.getValue()) {
+                inDegrees.computeIfPresent(target, (k, v) -> v + 1);
+            }
+        }
+
+        Deque<String> queue = new ArrayDeque<>();
+        inDegrees.forEach((nodeId, degree) -> {
+            if (degree == 0) {
+                queue.add(nodeId);
+            }
+        });
+
+        List<String> order = new ArrayList<>(nodes.size());
+        while (!queue.isEmpty()) {
+            String nodeId = queue.poll();
+            order.add(nodeId);
+            for (String target : edges.getOrDefault(nodeId, Collections.emptySet())) {
+                if (inDegrees.computeIfPresent(target, (k, v) -> v - 1) != null && inDegrees.get(target) == 0) {
+                    queue.add(target);
+                }
+            }
+        }
+
+        if (order.size() != nodes.size()) {
+            throw new IllegalStateException("工作流图存在循环依赖");
+        }
+        return order;
+    }
+
+    private Map<String, Set<String>> reverseEdges() {
+        Map<String, Set<String>> reverse = reverseEdges;
+        if (reverse == null) {
+            reverse = new HashMap<>();
+            for (Map.Entry<String, Set<String>> entry : edges.entrySet()) {
+                for (String target : entry.getValue()) {
+                    reverse.computeIfAbsent(target, k -> new HashSet<>()).add(entry.getKey());
+                }
+            }
+            reverseEdges = reverse;
+        }
+        return reverse;
+    }
+
     /**
      * 检测是否有环
      * 
      * @return true 表示存在环
      */
     public boolean hasCycle() {
+        Boolean result = cyclic;
+        if (result == null) {
+            result = detectCycle();
+            cyclic = result;
+        }
+        return result;
+    }
+
+    private boolean detectCycle() {
         Set<String> visited = new HashSet<>();
         Set<String> recursionStack = new HashSet<>();
 
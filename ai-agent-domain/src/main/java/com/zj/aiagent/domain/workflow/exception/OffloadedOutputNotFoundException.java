@@ -0,0 +1,13 @@
+package com.zj.aiagent.domain.workflow.exception;
+
+/**
+ * 转存的节点输出不存在异常
+ * 解引用 {@link com.zj.aiagent.domain.workflow.valobj.OffloadedOutput} 时外部存储中已无对应内容（例如已过期）时抛出，
+ * 避免读取方把缺失的输出当作空值继续执行
+ */
+public class OffloadedOutputNotFoundException extends RuntimeException {
+
+    public OffloadedOutputNotFoundException(String digest) {
+        super("Offloaded output not found (expired?): " + digest);
+    }
+}
@@ -23,4 +23,25 @@ public interface ConditionEvaluatorPort {
      *         当分支配置无效时（无 default、多 default 等）
      */
     ConditionBranch evaluate(List<ConditionBranch> branches, ExecutionContext context);
+
+    /**
+     * 将分支列表预编译为不可变的条件树，供同一节点配置重复评估
+     *
+     * @param branches 分支列表（必须包含恰好一个 default 分支）
+     * @return 编译后的条件树
+     * @throws com.zj.aiagent.domain.workflow.exception.ConditionConfigurationException
+     *         当分支配置无效时（无 default、多 default 等）
+     */
+    CompiledConditions compile(List<ConditionBranch> branches);
+
+    /**
+     * 预编译的条件树，线程安全，可跨执行复用
+     */
+    interface CompiledConditions {
+
+        /**
+         * 评估条件树，返回命中的分支；没有非 default 分支匹配时返回 default 分支
+         */
+        ConditionBranch evaluate(ExecutionContext context);
+    }
 }
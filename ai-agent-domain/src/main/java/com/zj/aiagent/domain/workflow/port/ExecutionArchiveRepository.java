@@ -0,0 +1,42 @@
+package com.zj.aiagent.domain.workflow.port;
+
+import com.zj.aiagent.domain.workflow.entity.Execution;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionHistoryCursor;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 执行归档仓储接口（端口）
+ *
+ * 已结束（SUCCEEDED/FAILED/CANCELLED）的执行从热数据存储迁出后的精简记录，
+ * 只保留历史查询所需的概要字段（不含执行上下文与工作流图）。
+ * 实现类位于 Infrastructure 层
+ */
+public interface ExecutionArchiveRepository {
+
+    /**
+     * 批量归档执行（单条多行写入，重复归档按执行ID覆盖）
+     *
+     * @param executions 已结束的执行
+     */
+    void saveAll(List<Execution> executions);
+
+    /**
+     * 根据执行ID查询归档执行
+     *
+     * @param executionId 执行ID
+     * @return 归档执行（只含概要字段）
+     */
+    Optional<Execution> findById(String executionId);
+
+    /**
+     * 按会话键集分页查询归档执行
+     *
+     * @param conversationId 会话ID
+     * @param cursor         上一页游标，null 表示第一页
+     * @param limit          最多返回条数
+     * @return 按 {@link ExecutionHistoryCursor#ORDER} 排序的执行
+     */
+    List<Execution> findByConversationId(String conversationId, ExecutionHistoryCursor cursor, int limit);
+}
@@ -25,6 +25,18 @@ public interface ExecutionRepository {
      */
     Optional<Execution> findById(String executionId);
 
+    /**
+     * 根据ID查找执行的只读副本
+     * 供调度线程以外的读取（接口查询、审核等）使用，返回对象与调度中的实例互不影响
+     * 默认每次查询均为新反序列化的对象，直接复用 findById
+     *
+     * @param executionId 执行ID
+     * @return 执行聚合根副本
+     */
+    default Optional<Execution> findSnapshotById(String executionId) {
+        return findById(executionId);
+    }
+
     /**
      * 更新执行（带乐观锁）
      * 
@@ -37,4 +49,13 @@ public interface ExecutionRepository {
      * 根据会话ID查询执行历史
      */
     java.util.List<Execution> findByConversationId(String conversationId);
+
+    /**
+     * 释放本节点持有的执行状态（取消等非终态结束时调用）
+     * 默认无本地状态，无需处理
+     *
+     * @param executionId 执行ID
+     */
+    default void evict(String executionId) {
+    }
 }
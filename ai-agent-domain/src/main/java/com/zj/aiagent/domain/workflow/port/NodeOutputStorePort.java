@@ -0,0 +1,32 @@
+package com.zj.aiagent.domain.workflow.port;
+
+import com.zj.aiagent.domain.workflow.exception.OffloadedOutputNotFoundException;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionContext;
+import com.zj.aiagent.domain.workflow.valobj.OffloadedOutput;
+
+/**
+ * 节点输出外部存储端口
+ *
+ * 体积超过阈值的节点输出值转存到外部存储，执行上下文中只保留 {@link OffloadedOutput} 引用，
+ * 避免大输出随每次执行更新、检查点和上下文查询反复序列化。读取方按需解引用。
+ * 实现类位于 Infrastructure 层
+ */
+public interface NodeOutputStorePort {
+
+    /**
+     * 将节点输出中超过阈值的值转存，并在上下文中原地替换为引用
+     *
+     * @param context 执行上下文
+     * @param nodeId  节点ID
+     */
+    void offload(ExecutionContext context, String nodeId);
+
+    /**
+     * 解引用输出值
+     *
+     * @param value 节点输出值
+     * @return value 为转存引用时返回原值（独立副本，调用方可修改），否则原样返回
+     * @throws OffloadedOutputNotFoundException 转存内容已不存在
+     */
+    Object resolve(Object value);
+}
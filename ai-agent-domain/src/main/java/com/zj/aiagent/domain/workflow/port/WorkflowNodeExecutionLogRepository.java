@@ -14,6 +14,11 @@ public interface WorkflowNodeExecutionLogRepository {
      */
     void save(WorkflowNodeExecutionLog log);
 
+    /**
+     * 批量保存执行日志（单条多行 INSERT）
+     */
+    void saveAll(List<WorkflowNodeExecutionLog> logs);
+
     /**
      * 根据执行ID查询所有节点日志
      */
@@ -1,5 +1,6 @@
 package com.zj.aiagent.domain.workflow.valobj;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -75,10 +76,10 @@ public class ExecutionContext {
     /**
      * 执行日志
      * 动态更新的执行流水账，记录 "谁在什么时候做了什么"
-     * 让 LLM 节点知道当前执行进度
+     * 让 LLM 节点知道当前执行进度；只保留最近若干条，见 {@link ExecutionLog}
      */
     @Builder.Default
-    private String executionLog = "";
+    private ExecutionLog executionLog = new ExecutionLog();
 
     // --- 核心方法 ---
 
@@ -104,19 +105,27 @@ public class ExecutionContext {
     }
 
     /**
-     * 创建快照（用于检查点）
+     * 创建快照（用于检查点，以及交给节点策略在执行线程上只读使用）
      */
     public ExecutionContext snapshot() {
         return ExecutionContext.builder()
             .inputs(new HashMap<>(this.inputs))
-            .nodeOutputs(new HashMap<>(this.nodeOutputs))
+            .nodeOutputs(copyNodeOutputs())
             .sharedState(new HashMap<>(this.sharedState))
             .longTermMemories(new ArrayList<>(this.longTermMemories))
             .chatHistory(new ArrayList<>(this.chatHistory))
-            .executionLog(this.executionLog)
+            .executionLog(this.executionLog.copy())
             .build();
     }
 
+    private Map<String, Map<String, Object>> copyNodeOutputs() {
+        Map<String, Map<String, Object>> copy = new HashMap<>(this.nodeOutputs.size());
+        this.nodeOutputs.forEach((nodeId, outputs) ->
+            copy.put(nodeId, outputs != null ? new HashMap<>(outputs) : null)
+        );
+        return copy;
+    }
+
     // ========== 环境感知方法 ==========
 
     /**
@@ -128,20 +137,30 @@ public class ExecutionContext {
      * @param summary  执行摘要（如："完成意图识别，结果为 '查询天气'"）
      */
     public void appendLog(String nodeId, String nodeName, String summary) {
-        this.executionLog += String.format("[%s-%s]: %s%n", nodeId, nodeName, summary);
+        this.executionLog.append(
+            new ExecutionLogEntry(nodeId, nodeName, summary, System.currentTimeMillis())
+        );
     }
 
     /**
-     * 获取执行日志内容
+     * 获取执行日志内容（全部保留的条目）
      */
+    @JsonIgnore
     public String getExecutionLogContent() {
-        return this.executionLog;
+        return this.executionLog.render();
+    }
+
+    /**
+     * 按 token 预算获取执行日志内容，优先保留最新条目
+     */
+    public String renderExecutionLog(int tokenBudget) {
+        return this.executionLog.render(tokenBudget);
     }
 
     /**
      * 清空执行日志
      */
     public void clearExecutionLog() {
-        this.executionLog = "";
+        this.executionLog.clear();
     }
 }
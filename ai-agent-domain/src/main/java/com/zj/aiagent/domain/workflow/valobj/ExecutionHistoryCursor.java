@@ -0,0 +1,81 @@
+package com.zj.aiagent.domain.workflow.valobj;
+
+import com.zj.aiagent.domain.workflow.entity.Execution;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+
+/**
+ * 执行历史键集分页游标
+ *
+ * 历史按 (createdAt DESC, executionId DESC) 排序，游标指向上一页最后一条，
+ * 下一页只取排在其后的记录，翻页代价与页码无关。
+ * 创建时间统一按毫秒比较，与归档表 datetime(3) 精度一致；对外编码为 "{createdAt 毫秒}_{executionId}"。
+ *
+ * @param createdAt   上一页最后一条的创建时间
+ * @param executionId 上一页最后一条的执行ID（创建时间相同时的次序）
+ */
+public record ExecutionHistoryCursor(LocalDateTime createdAt, String executionId) {
+
+    /**
+     * 历史排序：创建时间倒序，相同时按执行ID倒序
+     */
+    public static final Comparator<Execution> ORDER = Comparator
+            .comparing((Execution execution) -> millis(execution.getCreatedAt()),
+                    Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Execution::getExecutionId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    /**
+     * 以某条执行为游标
+     */
+    public static ExecutionHistoryCursor of(Execution execution) {
+        return new ExecutionHistoryCursor(millis(execution.getCreatedAt()), execution.getExecutionId());
+    }
+
+    /**
+     * 解析对外游标，空值返回 null（从第一页开始）
+     *
+     * @throws IllegalArgumentException 格式不正确
+     */
+    public static ExecutionHistoryCursor parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        int separator = value.indexOf('_');
+        if (separator <= 0 || separator == value.length() - 1) {
+            throw new IllegalArgumentException("Invalid history cursor: " + value);
+        }
+        try {
+            long millis = Long.parseLong(value.substring(0, separator));
+            LocalDateTime createdAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+            return new ExecutionHistoryCursor(createdAt, value.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid history cursor: " + value, e);
+        }
+    }
+
+    /**
+     * 编码为对外游标
+     */
+    public String encode() {
+        return createdAt.toInstant(ZoneOffset.UTC).toEpochMilli() + "_" + executionId;
+    }
+
+    /**
+     * 执行是否排在游标之后（属于下一页）
+     */
+    public boolean precedes(Execution execution) {
+        if (execution.getCreatedAt() == null) {
+            return true;
+        }
+        int byTime = millis(execution.getCreatedAt()).compareTo(millis(createdAt));
+        return byTime < 0 || (byTime == 0 && execution.getExecutionId().compareTo(executionId) < 0);
+    }
+
+    private static LocalDateTime millis(LocalDateTime time) {
+        return time != null ? time.truncatedTo(ChronoUnit.MILLIS) : null;
+    }
+}
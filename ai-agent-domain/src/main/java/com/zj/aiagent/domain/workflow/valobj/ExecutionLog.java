@@ -0,0 +1,189 @@
+package com.zj.aiagent.domain.workflow.valobj;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 执行日志（环形缓冲）
+ *
+ * 只保留最近 capacity 条节点摘要，更早的条目丢弃并计数。追加为 O(1)，
+ * 执行更新与检查点序列化的体积有上限，长工作流的后续节点不再为完整历史付费。
+ * 注入 Prompt 时通过 {@link #render(int)} 按 token 预算从最新条目向前截取。
+ */
+@JsonPropertyOrder({"capacity", "dropped", "entries"})
+public class ExecutionLog {
+
+    public static final int DEFAULT_CAPACITY = 50;
+
+    private int capacity = DEFAULT_CAPACITY;
+
+    /**
+     * 因超出容量被丢弃的条目数
+     */
+    private long dropped;
+
+    private final ArrayDeque<ExecutionLogEntry> entries = new ArrayDeque<>();
+
+    public ExecutionLog() {
+    }
+
+    public ExecutionLog(int capacity) {
+        setCapacity(capacity);
+    }
+
+    /**
+     * 兼容旧版纯文本日志：每个非空行迁移为一条无节点信息的条目
+     */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static ExecutionLog fromText(String text) {
+        ExecutionLog log = new ExecutionLog();
+        if (text != null) {
+            for (String line : text.split("\\R")) {
+                if (!line.isBlank()) {
+                    log.append(new ExecutionLogEntry(null, null, line, 0L));
+                }
+            }
+        }
+        return log;
+    }
+
+    public synchronized void append(ExecutionLogEntry entry) {
+        entries.addLast(entry);
+        trim();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        dropped = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized ExecutionLog copy() {
+        ExecutionLog copy = new ExecutionLog(capacity);
+        copy.dropped = dropped;
+        copy.entries.addAll(entries);
+        return copy;
+    }
+
+    /**
+     * 渲染全部保留的条目
+     */
+    public String render() {
+        return render(0);
+    }
+
+    /**
+     * 按 token 预算渲染：从最新条目向前截取，超出预算或已丢弃的条目以一行省略提示代替
+     *
+     * @param tokenBudget token 预算，&lt;= 0 表示不限制
+     */
+    public synchronized String render(int tokenBudget) {
+        List<String> lines = new ArrayList<>();
+        int used = 0;
+        Iterator<ExecutionLogEntry> newestFirst = entries.descendingIterator();
+        while (newestFirst.hasNext()) {
+            String line = newestFirst.next().render();
+            int tokens = estimateTokens(line);
+            if (tokenBudget > 0 && used + tokens > tokenBudget) {
+                break;
+            }
+            used += tokens;
+            lines.add(line);
+        }
+
+        long omitted = dropped + (entries.size() - lines.size());
+        StringBuilder sb = new StringBuilder();
+        if (omitted > 0) {
+            sb.append("...(已省略 ").append(omitted).append(" 条较早记录)\n");
+        }
+        for (int i = lines.size() - 1; i >= 0; i--) {
+            sb.append(lines.get(i)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 粗略估算 token 数：CJK 字符按 1 个 token，其余按 4 个字符 1 个 token
+     */
+    static int estimateTokens(String text) {
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.UnicodeScript.of(text.charAt(i)) == Character.UnicodeScript.HAN) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return cjk + (other + 3) / 4 + 1;
+    }
+
+    // ========== 序列化属性 ==========
+
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = capacity > 0 ? capacity : DEFAULT_CAPACITY;
+        trim();
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    public synchronized void setDropped(long dropped) {
+        this.dropped = dropped;
+    }
+
+    public synchronized List<ExecutionLogEntry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    public synchronized void setEntries(List<ExecutionLogEntry> entries) {
+        this.entries.clear();
+        if (entries != null) {
+            this.entries.addAll(entries);
+        }
+        trim();
+    }
+
+    private void trim() {
+        while (entries.size() > capacity) {
+            entries.pollFirst();
+            dropped++;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ExecutionLog other)) {
+            return false;
+        }
+        return getCapacity() == other.getCapacity()
+            && getDropped() == other.getDropped()
+            && getEntries().equals(other.getEntries());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getCapacity(), getDropped(), getEntries());
+    }
+
+    @Override
+    public String toString() {
+        return render();
+    }
+}
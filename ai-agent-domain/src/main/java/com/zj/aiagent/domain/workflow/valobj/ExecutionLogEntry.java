@@ -0,0 +1,22 @@
+package com.zj.aiagent.domain.workflow.valobj;
+
+/**
+ * 执行日志条目
+ *
+ * @param nodeId   节点ID（由旧版纯文本日志迁移的条目为 null）
+ * @param nodeName 节点名称
+ * @param summary  执行摘要
+ * @param at       记录时间（毫秒时间戳）
+ */
+public record ExecutionLogEntry(String nodeId, String nodeName, String summary, long at) {
+
+    /**
+     * 渲染为单行文本：[nodeId-nodeName]: summary
+     */
+    public String render() {
+        if (nodeId == null) {
+            return summary;
+        }
+        return "[" + nodeId + "-" + nodeName + "]: " + summary;
+    }
+}
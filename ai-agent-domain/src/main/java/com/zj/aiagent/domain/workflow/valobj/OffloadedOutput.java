@@ -0,0 +1,41 @@
+package com.zj.aiagent.domain.workflow.valobj;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 转存到外部存储的节点输出值引用
+ *
+ * 在 nodeOutputs 中以 Map 形式占位：{"$offloaded": digest, "size": 字节数}，
+ * 与普通输出值一样经 JSON 持久化往返，读取方通过 {@link #from(Object)} 识别后按 digest 取回原值。
+ *
+ * @param digest 原值 JSON 的 SHA-256（十六进制），即内容地址
+ * @param size   原值 JSON 的字节数
+ */
+public record OffloadedOutput(String digest, long size) {
+
+    public static final String REF_KEY = "$offloaded";
+    public static final String SIZE_KEY = "size";
+
+    /**
+     * 识别输出值是否为转存引用，不是时返回 null
+     */
+    public static OffloadedOutput from(Object value) {
+        if (!(value instanceof Map<?, ?> map) || map.size() != 2
+                || !(map.get(REF_KEY) instanceof String digest)) {
+            return null;
+        }
+        Object size = map.get(SIZE_KEY);
+        return new OffloadedOutput(digest, size instanceof Number number ? number.longValue() : 0L);
+    }
+
+    /**
+     * 转为写入 nodeOutputs 的占位值
+     */
+    public Map<String, Object> toValue() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put(REF_KEY, digest);
+        value.put(SIZE_KEY, size);
+        return value;
+    }
+}
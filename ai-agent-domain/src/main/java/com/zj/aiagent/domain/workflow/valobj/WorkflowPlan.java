@@ -0,0 +1,62 @@
+package com.zj.aiagent.domain.workflow.valobj;
+
+import com.zj.aiagent.domain.workflow.entity.WorkflowGraph;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * 编译后的工作流执行计划值对象
+ *
+ * 同一 Agent 版本的所有执行共享一份：图结构（节点配置已由工厂解析为 NodeConfig）、
+ * 拓扑序以及预先构建的反向邻接索引。创建后不再修改，执行期间只读。
+ */
+@Getter
+@ToString(exclude = "graph")
+public final class WorkflowPlan {
+
+    /**
+     * Agent ID
+     */
+    private final Long agentId;
+
+    /**
+     * 版本号（null 表示草稿）
+     */
+    private final Integer versionId;
+
+    /**
+     * Agent 乐观锁版本，Agent 每次保存都会变化
+     */
+    private final Integer agentRevision;
+
+    /**
+     * 工作流图（只读共享）
+     */
+    private final WorkflowGraph graph;
+
+    /**
+     * 节点拓扑序
+     */
+    private final List<String> topologicalOrder;
+
+    private WorkflowPlan(Long agentId, Integer versionId, Integer agentRevision,
+                         WorkflowGraph graph, List<String> topologicalOrder) {
+        this.agentId = agentId;
+        this.versionId = versionId;
+        this.agentRevision = agentRevision;
+        this.graph = graph;
+        this.topologicalOrder = topologicalOrder;
+    }
+
+    /**
+     * 编译执行计划：计算拓扑序并预热图上的派生索引（反向邻接、环检测结果）
+     * 存在循环依赖的图不计算拓扑序，仍由 Execution.start 按原有方式拒绝
+     */
+    public static WorkflowPlan compile(Long agentId, Integer versionId, Integer agentRevision, WorkflowGraph graph) {
+        List<String> order = graph.hasCycle() ? List.of() : List.copyOf(graph.topologicalOrder());
+        graph.getNodes().keySet().forEach(graph::getPredecessorIds);
+        return new WorkflowPlan(agentId, versionId, agentRevision, graph, order);
+    }
+}
@@ -0,0 +1,54 @@
+package com.zj.aiagent.domain.workflow.valobj;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("ExecutionLog 测试")
+class ExecutionLogTest {
+
+    @Test
+    @DisplayName("超出容量时丢弃最早条目并计数")
+    void shouldDropOldestBeyondCapacity() {
+        ExecutionLog log = new ExecutionLog(3);
+        for (int i = 1; i <= 5; i++) {
+            log.append(new ExecutionLogEntry("n" + i, "节点" + i, "完成", i));
+        }
+
+        assertEquals(3, log.size());
+        assertEquals(2, log.getDropped());
+        assertEquals("n3", log.getEntries().get(0).nodeId());
+        assertTrue(log.render().startsWith("...(已省略 2 条较早记录)\n[n3-节点3]: 完成\n"));
+    }
+
+    @Test
+    @DisplayName("按 token 预算只保留最新条目，顺序不变")
+    void shouldRenderNewestEntriesWithinBudget() {
+        ExecutionLog log = new ExecutionLog();
+        for (int i = 1; i <= 10; i++) {
+            log.append(new ExecutionLogEntry("n" + i, "node", "summary " + i, i));
+        }
+        int perLine = ExecutionLog.estimateTokens("[n10-node]: summary 10");
+
+        String rendered = log.render(perLine * 2);
+
+        assertEquals("...(已省略 8 条较早记录)\n[n9-node]: summary 9\n[n10-node]: summary 10\n", rendered);
+        assertFalse(log.render(0).contains("已省略"));
+    }
+
+    @Test
+    @DisplayName("快照为独立副本")
+    void shouldCopyIndependently() {
+        ExecutionContext context = new ExecutionContext();
+        context.appendLog("start", "开始", "完成");
+
+        ExecutionContext snapshot = context.snapshot();
+        context.appendLog("llm", "LLM", "生成回复");
+
+        assertEquals(1, snapshot.getExecutionLog().size());
+        assertEquals("[start-开始]: 完成\n", snapshot.getExecutionLogContent());
+    }
+}
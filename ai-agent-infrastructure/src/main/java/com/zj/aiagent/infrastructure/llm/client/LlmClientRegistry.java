@@ -0,0 +1,207 @@
+package com.zj.aiagent.infrastructure.llm.client;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.Hashing;
+import com.zj.aiagent.domain.llm.entity.LlmProviderConfig;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.function.ToDoubleFunction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * LLM 客户端注册表
+ *
+ * 按模型配置缓存 OpenAiApi / OpenAiChatModel / ChatClient，避免每次节点执行都重建 HTTP 客户端。
+ * 缓存键为 (配置 ID, 配置内容哈希)：配置被修改后内容哈希随之变化，旧实例不会再被命中；
+ * 同步调用共用 restClientBuilder1 的连接池，流式调用共用一个 reactor-netty 连接池。
+ */
+@Slf4j
+@Component
+public class LlmClientRegistry {
+
+    private static final String POOL_NAME = "llm-provider";
+
+    private final RestClient.Builder restClientBuilder;
+    private final ConnectionProvider connectionProvider;
+    private final WebClient.Builder webClientBuilder;
+    private final Cache<ClientKey, ProviderClient> clients;
+
+    public LlmClientRegistry(
+        @Qualifier("restClientBuilder1") RestClient.Builder restClientBuilder,
+        MeterRegistry meterRegistry,
+        @Value("${llm.client.cache.max-size:128}") long maxSize,
+        @Value("${llm.client.cache.expire-after-access:30m}") Duration expireAfterAccess,
+        @Value("${llm.client.pool.max-connections:200}") int maxConnections,
+        @Value("${llm.client.pool.max-idle-time:60s}") Duration maxIdleTime
+    ) {
+        this.restClientBuilder = restClientBuilder;
+        this.connectionProvider = ConnectionProvider.builder(POOL_NAME)
+            .maxConnections(maxConnections)
+            .maxIdleTime(maxIdleTime)
+            .metrics(true)
+            .build();
+        this.webClientBuilder = WebClient.builder().clientConnector(
+            new ReactorClientHttpConnector(HttpClient.create(connectionProvider))
+        );
+        this.clients = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterAccess(expireAfterAccess)
+            .recordStats()
+            .build();
+        bindMetrics(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        clients.invalidateAll();
+        connectionProvider.dispose();
+    }
+
+    /**
+     * 获取模型配置对应的客户端
+     */
+    public ProviderClient get(LlmProviderConfig config) {
+        return get(
+            config.getId(),
+            config.getModel(),
+            config.getBaseUrl(),
+            config.getApiKey()
+        );
+    }
+
+    /**
+     * 获取客户端；configId 为空时（节点内联配置）仅按内容哈希缓存
+     */
+    public ProviderClient get(
+        Long configId,
+        String model,
+        String baseUrl,
+        String apiKey
+    ) {
+        String normalizedUrl = normalizeBaseUrl(baseUrl);
+        ClientKey key = new ClientKey(
+            configId,
+            contentHash(model, normalizedUrl, apiKey)
+        );
+        try {
+            return clients.get(key, () -> create(model, normalizedUrl, apiKey));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(
+                "创建 LLM 客户端失败: " + e.getCause().getMessage(),
+                e.getCause()
+            );
+        }
+    }
+
+    public ChatClient chatClient(
+        Long configId,
+        String model,
+        String baseUrl,
+        String apiKey
+    ) {
+        return get(configId, model, baseUrl, apiKey).chatClient();
+    }
+
+    /**
+     * 配置更新或删除后清除对应客户端
+     */
+    public void evict(Long configId) {
+        if (configId == null) {
+            return;
+        }
+        if (clients.asMap().keySet().removeIf(key -> configId.equals(key.configId()))) {
+            log.info("[LlmClient] Evicted clients of config {}", configId);
+        }
+    }
+
+    public long size() {
+        return clients.size();
+    }
+
+    private ProviderClient create(String model, String baseUrl, String apiKey) {
+        log.info("[LlmClient] Creating client: baseUrl={}, model={}", baseUrl, model);
+        OpenAiApi api = OpenAiApi.builder()
+            .apiKey(apiKey)
+            .baseUrl(baseUrl)
+            .restClientBuilder(restClientBuilder)
+            .webClientBuilder(webClientBuilder)
+            .build();
+        OpenAiChatModel chatModel = OpenAiChatModel.builder()
+            .openAiApi(api)
+            .defaultOptions(OpenAiChatOptions.builder().model(model).build())
+            .build();
+        return new ProviderClient(api, chatModel, ChatClient.builder(chatModel).build());
+    }
+
+    private void bindMetrics(MeterRegistry meterRegistry) {
+        Gauge.builder("llm.client.cache.size", clients, Cache::size)
+            .description("Cached LLM provider clients")
+            .register(meterRegistry);
+        counter(meterRegistry, "hit", CacheStats::hitCount);
+        counter(meterRegistry, "miss", CacheStats::missCount);
+        counter(meterRegistry, "eviction", CacheStats::evictionCount);
+    }
+
+    private void counter(
+        MeterRegistry meterRegistry,
+        String result,
+        ToDoubleFunction<CacheStats> value
+    ) {
+        FunctionCounter.builder(
+            "llm.client.cache.requests",
+            clients,
+            cache -> value.applyAsDouble(cache.stats())
+        )
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Spring AI OpenAiApi 会自动拼 /v1 前缀，去掉用户配置中多余的 /v1 和末尾斜杠
+     */
+    static String normalizeBaseUrl(String baseUrl) {
+        return baseUrl.replaceAll("/v1/?$", "").replaceAll("/+$", "");
+    }
+
+    private static String contentHash(String model, String baseUrl, String apiKey) {
+        return Hashing.sha256()
+            .hashString(
+                Objects.toString(model, "") + '\n' + baseUrl + '\n' + Objects.toString(apiKey, ""),
+                StandardCharsets.UTF_8
+            )
+            .toString();
+    }
+
+    private record ClientKey(Long configId, String contentHash) {
+    }
+
+    /**
+     * 同一模型配置共享的客户端实例
+     */
+    public record ProviderClient(
+        OpenAiApi api,
+        OpenAiChatModel chatModel,
+        ChatClient chatClient
+    ) {
+    }
+}
@@ -0,0 +1,248 @@
+package com.zj.aiagent.infrastructure.llm.repository;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.zj.aiagent.domain.llm.entity.LlmProviderConfig;
+import com.zj.aiagent.domain.llm.repository.LlmProviderConfigRepository;
+import com.zj.aiagent.infrastructure.redis.IRedisService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 模型配置两级缓存
+ *
+ * 节点执行时按 ID / 默认配置读取模型配置，读多写极少：本地有界缓存直接命中，不再每次查询 MySQL。
+ * 任一配置写入后在事务提交时递增 Redis 版本戳并通过频道广播，各实例收到后清空本地缓存
+ * （配置变更极少，且默认标记可能随之变化，整体失效最简单可靠）；
+ * 若广播丢失，读取时按间隔比对 Redis 版本戳，发现变化同样整体失效。
+ * 返回给调用方的是副本，调用方修改实体不会污染缓存。
+ */
+@Slf4j
+@Primary
+@Repository
+public class CachedLlmProviderConfigRepository implements LlmProviderConfigRepository, MessageListener {
+
+    static final String CHANNEL = "llm:config:invalidate";
+    static final String VERSION_KEY = "llm:config:version";
+
+    private final LlmProviderConfigRepositoryImpl delegate;
+    private final IRedisService redisService;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final long stampCheckMillis;
+
+    private final Cache<Long, Entry> byId;
+    private final Cache<DefaultKey, Entry> defaults;
+
+    /**
+     * 本地失效代数：加载前记录，命中时代数不一致说明加载期间发生过失效，需重新加载
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile long observedStamp = Long.MIN_VALUE;
+    private volatile long nextStampCheck;
+
+    public CachedLlmProviderConfigRepository(
+            LlmProviderConfigRepositoryImpl delegate,
+            IRedisService redisService,
+            RedisMessageListenerContainer listenerContainer,
+            @Value("${llm.config-cache.max-size:1024}") long maxSize,
+            @Value("${llm.config-cache.expire-after-write:10m}") Duration expireAfterWrite,
+            @Value("${llm.config-cache.stamp-check-ms:5000}") long stampCheckMillis) {
+        this.delegate = delegate;
+        this.redisService = redisService;
+        this.listenerContainer = listenerContainer;
+        this.stampCheckMillis = stampCheckMillis;
+        this.byId = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        this.defaults = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        listenerContainer.removeMessageListener(this);
+    }
+
+    @Override
+    public Optional<LlmProviderConfig> findById(Long id) {
+        if (id == null) {
+            return delegate.findById(null);
+        }
+        return read(byId, id, () -> delegate.findById(id));
+    }
+
+    @Override
+    public Optional<LlmProviderConfig> findDefault(Long userId) {
+        return read(defaults, new DefaultKey(userId), () -> delegate.findDefault(userId));
+    }
+
+    @Override
+    public List<LlmProviderConfig> findByUserId(Long userId) {
+        // 列表仅用于配置管理页面，不缓存
+        return delegate.findByUserId(userId);
+    }
+
+    @Override
+    public void save(LlmProviderConfig config) {
+        delegate.save(config);
+        invalidate(String.valueOf(config.getId()));
+    }
+
+    @Override
+    public void update(LlmProviderConfig config) {
+        delegate.update(config);
+        invalidate(String.valueOf(config.getId()));
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        delegate.deleteById(id);
+        invalidate(String.valueOf(id));
+    }
+
+    @Override
+    public void clearDefault(Long userId) {
+        delegate.clearDefault(userId);
+        invalidate("user:" + userId);
+    }
+
+    @Override
+    public void onMessage(@NonNull Message message, byte[] pattern) {
+        log.debug("[LlmConfigCache] Invalidated by {}", new String(message.getBody(), StandardCharsets.UTF_8));
+        invalidateLocal();
+    }
+
+    /**
+     * 本地缓存条目数（按 ID + 默认配置）
+     */
+    public long size() {
+        return byId.size() + defaults.size();
+    }
+
+    private <K> Optional<LlmProviderConfig> read(Cache<K, Entry> cache, K key, Supplier<Optional<LlmProviderConfig>> loader) {
+        checkStamp();
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null || entry.generation() != generation.get()) {
+            try {
+                cache.invalidate(key);
+                entry = cache.get(key, () -> {
+                    long loadedAt = generation.get();
+                    return new Entry(loader.get(), loadedAt);
+                });
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException cause
+                        ? cause
+                        : new IllegalStateException(e.getCause());
+            }
+        }
+        return entry.value().map(CachedLlmProviderConfigRepository::copy);
+    }
+
+    /**
+     * 按间隔比对 Redis 版本戳，兜底广播丢失的情况
+     */
+    private void checkStamp() {
+        long now = System.currentTimeMillis();
+        if (now < nextStampCheck) {
+            return;
+        }
+        nextStampCheck = now + stampCheckMillis;
+        try {
+            Long stamp = redisService.getAtomicLong(VERSION_KEY);
+            long current = stamp != null ? stamp : 0L;
+            if (current != observedStamp) {
+                if (observedStamp != Long.MIN_VALUE) {
+                    log.info("[LlmConfigCache] Version stamp changed {} -> {}, invalidating", observedStamp, current);
+                }
+                invalidateLocal();
+                observedStamp = current;
+            }
+        } catch (Exception e) {
+            // 无法确认版本时不信任本地缓存
+            log.warn("[LlmConfigCache] Failed to read version stamp: {}", e.getMessage());
+            invalidateLocal();
+        }
+    }
+
+    private void invalidate(String target) {
+        invalidateLocal();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 事务提交后再广播，避免其它实例在提交前重新加载到旧数据
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateLocal();
+                    broadcast(target);
+                }
+            });
+        } else {
+            broadcast(target);
+        }
+    }
+
+    private void broadcast(String target) {
+        try {
+            observedStamp = redisService.incr(VERSION_KEY);
+            redisService.publish(CHANNEL, target);
+        } catch (Exception e) {
+            log.warn("[LlmConfigCache] Failed to broadcast invalidation of {}: {}", target, e.getMessage());
+        }
+    }
+
+    private void invalidateLocal() {
+        generation.incrementAndGet();
+        byId.invalidateAll();
+        defaults.invalidateAll();
+    }
+
+    private static LlmProviderConfig copy(LlmProviderConfig source) {
+        return LlmProviderConfig.builder()
+                .id(source.getId())
+                .userId(source.getUserId())
+                .name(source.getName())
+                .provider(source.getProvider())
+                .baseUrl(source.getBaseUrl())
+                .apiKey(source.getApiKey())
+                .model(source.getModel())
+                .isDefault(source.getIsDefault())
+                .status(source.getStatus())
+                .createdAt(source.getCreatedAt())
+                .updatedAt(source.getUpdatedAt())
+                .build();
+    }
+
+    private record Entry(Optional<LlmProviderConfig> value, long generation) {
+    }
+
+    private record DefaultKey(Long userId) {
+    }
+}
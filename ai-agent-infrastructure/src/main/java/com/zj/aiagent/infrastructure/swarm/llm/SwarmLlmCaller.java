@@ -2,6 +2,7 @@ package com.zj.aiagent.infrastructure.swarm.llm;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zj.aiagent.domain.llm.entity.LlmProviderConfig;
+import com.zj.aiagent.infrastructure.llm.client.LlmClientRegistry;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
@@ -19,7 +20,6 @@ import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.ai.openai.api.OpenAiApi;
 import org.springframework.ai.tool.ToolCallback;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestClient;
 import reactor.core.publisher.Flux;
 
 /**
@@ -31,23 +31,19 @@ import reactor.core.publisher.Flux;
 @RequiredArgsConstructor
 public class SwarmLlmCaller {
 
-    private final RestClient.Builder restClientBuilder;
+    private final LlmClientRegistry llmClientRegistry;
     private final ObjectMapper objectMapper;
 
     /**
-     * 根据 LlmProviderConfig 构建 OpenAiApi
+     * 获取 LlmProviderConfig 对应的共享 ChatModel（由 LlmClientRegistry 复用）
      */
-    private OpenAiApi buildApi(LlmProviderConfig config) {
+    private OpenAiChatModel resolveChatModel(LlmProviderConfig config) {
         if (config == null) {
             throw new IllegalStateException(
                 "Workspace 未配置 LLM 模型，请在创建 Workspace 时选择模型配置"
             );
         }
-        return OpenAiApi.builder()
-            .baseUrl(config.getBaseUrl())
-            .apiKey(config.getApiKey())
-            .restClientBuilder(restClientBuilder)
-            .build();
+        return llmClientRegistry.get(config).chatModel();
     }
 
     private String resolveModel(LlmProviderConfig config) {
@@ -74,7 +70,7 @@ public class SwarmLlmCaller {
         Consumer<String> onChunk,
         LlmProviderConfig llmConfig
     ) {
-        OpenAiApi api = buildApi(llmConfig);
+        OpenAiChatModel chatModel = resolveChatModel(llmConfig);
 
         OpenAiChatOptions.Builder optionsBuilder =
             OpenAiChatOptions.builder().model(resolveModel(llmConfig));
@@ -84,12 +80,7 @@ public class SwarmLlmCaller {
             optionsBuilder.internalToolExecutionEnabled(false); // 禁用自动执行，由 Runner 手动处理
         }
 
-        OpenAiChatModel chatModel = OpenAiChatModel.builder()
-            .openAiApi(api)
-            .defaultOptions(optionsBuilder.build())
-            .build();
-
-        Prompt prompt = new Prompt(messages);
+        Prompt prompt = new Prompt(messages, optionsBuilder.build());
 
         // 非流式调用（简化 MVP，tool_calls 需要完整响应）
         ChatResponse response = chatModel.call(prompt);
@@ -132,7 +123,7 @@ public class SwarmLlmCaller {
         Consumer<String> onChunk,
         LlmProviderConfig llmConfig
     ) {
-        OpenAiApi api = buildApi(llmConfig);
+        OpenAiChatModel chatModel = resolveChatModel(llmConfig);
 
         OpenAiChatOptions.Builder optionsBuilder =
             OpenAiChatOptions.builder().model(resolveModel(llmConfig));
@@ -142,12 +133,7 @@ public class SwarmLlmCaller {
             optionsBuilder.internalToolExecutionEnabled(false);
         }
 
-        OpenAiChatModel chatModel = OpenAiChatModel.builder()
-            .openAiApi(api)
-            .defaultOptions(optionsBuilder.build())
-            .build();
-
-        Prompt prompt = new Prompt(messages);
+        Prompt prompt = new Prompt(messages, optionsBuilder.build());
 
         return collectStreamingResponse(chatModel.stream(prompt), onChunk);
     }
@@ -167,7 +153,7 @@ public class SwarmLlmCaller {
         Consumer<String> onChunk,
         LlmProviderConfig llmConfig
     ) {
-        OpenAiApi api = buildApi(llmConfig);
+        OpenAiChatModel chatModel = resolveChatModel(llmConfig);
 
         OpenAiChatOptions.Builder optionsBuilder =
             OpenAiChatOptions.builder().model(resolveModel(llmConfig));
@@ -177,12 +163,7 @@ public class SwarmLlmCaller {
             optionsBuilder.internalToolExecutionEnabled(false);
         }
 
-        OpenAiChatModel chatModel = OpenAiChatModel.builder()
-            .openAiApi(api)
-            .defaultOptions(optionsBuilder.build())
-            .build();
-
-        Prompt prompt = new Prompt(messages);
+        Prompt prompt = new Prompt(messages, optionsBuilder.build());
 
         return collectStreamingResponse(chatModel.stream(prompt), onChunk);
     }
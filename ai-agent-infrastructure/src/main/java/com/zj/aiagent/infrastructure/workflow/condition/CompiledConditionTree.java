@@ -0,0 +1,363 @@
+package com.zj.aiagent.infrastructure.workflow.condition;
+
+import com.zj.aiagent.domain.workflow.port.ConditionEvaluatorPort;
+import com.zj.aiagent.domain.workflow.valobj.ComparisonOperator;
+import com.zj.aiagent.domain.workflow.valobj.ConditionBranch;
+import com.zj.aiagent.domain.workflow.valobj.ConditionGroup;
+import com.zj.aiagent.domain.workflow.valobj.ConditionItem;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionContext;
+import com.zj.aiagent.domain.workflow.valobj.LogicalOperator;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * 预编译的条件树
+ *
+ * 分支在编译期完成排序与校验，条件组/条件项编译为不可变谓词：
+ * 变量引用预先拆分为 nodeId/key 访问器，字面值预先计算字符串与数值形式，
+ * 两侧均为字面值的条件项直接折叠为常量。评估期只做 Map 查找与比较，语义与逐次解释执行一致；
+ * 读到转存的节点输出引用时才取回原值。
+ */
+@Slf4j
+final class CompiledConditionTree implements ConditionEvaluatorPort.CompiledConditions {
+
+    private static final String OUTPUT_SEGMENT = ".output.";
+    private static final String NODES_PREFIX = "nodes.";
+    private static final String INPUTS_PREFIX = "inputs.";
+
+    private final UnaryOperator<Object> dereference;
+    private final List<CompiledBranch> branches;
+    private final ConditionBranch defaultBranch;
+
+    /**
+     * @param sorted      已校验、按 priority 升序排列的分支
+     * @param dereference 节点输出值解引用
+     */
+    CompiledConditionTree(List<ConditionBranch> sorted, UnaryOperator<Object> dereference) {
+        this.dereference = dereference;
+        List<CompiledBranch> compiled = new ArrayList<>();
+        ConditionBranch fallback = null;
+        for (ConditionBranch branch : sorted) {
+            if (branch.isDefault()) {
+                // 与解释执行一致：取排序后最后一个 default 分支
+                fallback = branch;
+                continue;
+            }
+            compiled.add(new CompiledBranch(branch, compileBranch(branch)));
+        }
+        this.branches = List.copyOf(compiled);
+        this.defaultBranch = fallback;
+    }
+
+    @Override
+    public ConditionBranch evaluate(ExecutionContext context) {
+        for (CompiledBranch compiled : branches) {
+            if (compiled.predicate().test(context)) {
+                ConditionBranch branch = compiled.branch();
+                log.info("条件分支命中, targetNodeId={}, priority={}, description={}",
+                        branch.getTargetNodeId(), branch.getPriority(), branch.getDescription());
+                return branch;
+            }
+        }
+
+        log.info("无非 default 分支命中, 使用 default 分支, targetNodeId={}",
+                defaultBranch != null ? defaultBranch.getTargetNodeId() : "null");
+        return defaultBranch;
+    }
+
+    // ========== 编译 ==========
+
+    /**
+     * 分支：所有 conditionGroups 都满足才命中（AND 关系）
+     */
+    private Predicate compileBranch(ConditionBranch branch) {
+        List<ConditionGroup> groups = branch.getConditionGroups();
+        if (groups == null || groups.isEmpty()) {
+            log.warn("非 default 分支无条件组, targetNodeId={}, 视为不匹配", branch.getTargetNodeId());
+            return Predicate.FALSE;
+        }
+        return all(groups.stream().map(this::compileGroup).toList());
+    }
+
+    /**
+     * 条件组：按 LogicalOperator (AND/OR) 组合条件项
+     */
+    private Predicate compileGroup(ConditionGroup group) {
+        List<ConditionItem> conditions = group.getConditions();
+        if (conditions == null || conditions.isEmpty()) {
+            // 空条件组视为不满足
+            return Predicate.FALSE;
+        }
+
+        LogicalOperator operator = group.getOperator();
+        if (operator == null) {
+            log.warn("条件组的 LogicalOperator 为 null, 默认使用 AND");
+            operator = LogicalOperator.AND;
+        }
+
+        List<Predicate> items = conditions.stream().map(this::compileItem).toList();
+        return operator == LogicalOperator.AND ? all(items) : any(items);
+    }
+
+    /**
+     * 条件项：两侧均为字面值时折叠为常量
+     */
+    private Predicate compileItem(ConditionItem item) {
+        if (item.getOperator() == null) {
+            log.warn("ConditionItem 的 operator 为 null, leftOperand={}, 跳过该条件, 视为 false",
+                    item.getLeftOperand());
+            return Predicate.FALSE;
+        }
+
+        Operand left = compileOperand(item.getLeftOperand());
+        Operand right = compileOperand(item.getRightOperand());
+        Comparison comparison = new Comparison(left, item.getOperator(), right);
+        if (left instanceof Literal && right instanceof Literal) {
+            return comparison.test(null) ? Predicate.TRUE : Predicate.FALSE;
+        }
+        return comparison;
+    }
+
+    /**
+     * 操作数：{nodeId}.output.{key} / nodes.{nodeId}.{key} / inputs.{key}，其它作为字面值
+     */
+    private Operand compileOperand(Object operand) {
+        if (!(operand instanceof String reference)) {
+            return Literal.of(operand);
+        }
+
+        if (reference.contains(OUTPUT_SEGMENT)) {
+            int outputIndex = reference.indexOf(OUTPUT_SEGMENT);
+            if (outputIndex <= 0 || outputIndex >= reference.length() - OUTPUT_SEGMENT.length()) {
+                log.warn("无效的节点引用格式: {}, 期望格式: {{nodeId}}.output.{{key}}", reference);
+                return Literal.of(null);
+            }
+            return new NodeOutputRef(reference, reference.substring(0, outputIndex),
+                    reference.substring(outputIndex + OUTPUT_SEGMENT.length()), dereference);
+        }
+
+        if (reference.startsWith(NODES_PREFIX)) {
+            String withoutPrefix = reference.substring(NODES_PREFIX.length());
+            int dotIndex = withoutPrefix.indexOf('.');
+            if (dotIndex <= 0 || dotIndex >= withoutPrefix.length() - 1) {
+                log.warn("无效的节点引用格式: {}, 期望格式: nodes.{{nodeId}}.{{key}}", reference);
+                return Literal.of(null);
+            }
+            return new NodeOutputRef(reference, withoutPrefix.substring(0, dotIndex),
+                    withoutPrefix.substring(dotIndex + 1), dereference);
+        }
+
+        if (reference.startsWith(INPUTS_PREFIX)) {
+            String key = reference.substring(INPUTS_PREFIX.length());
+            if (key.isEmpty()) {
+                log.warn("无效的输入引用格式: {}, 期望格式: inputs.{{key}}", reference);
+                return Literal.of(null);
+            }
+            return new InputRef(reference, key);
+        }
+
+        return Literal.of(operand);
+    }
+
+    private static Predicate all(List<Predicate> predicates) {
+        if (predicates.size() == 1) {
+            return predicates.get(0);
+        }
+        Predicate[] array = predicates.toArray(Predicate[]::new);
+        return context -> {
+            for (Predicate predicate : array) {
+                if (!predicate.test(context)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private static Predicate any(List<Predicate> predicates) {
+        if (predicates.size() == 1) {
+            return predicates.get(0);
+        }
+        Predicate[] array = predicates.toArray(Predicate[]::new);
+        return context -> {
+            for (Predicate predicate : array) {
+                if (predicate.test(context)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    // ========== 谓词与操作数 ==========
+
+    private record CompiledBranch(ConditionBranch branch, Predicate predicate) {
+    }
+
+    @FunctionalInterface
+    private interface Predicate {
+
+        Predicate TRUE = context -> true;
+        Predicate FALSE = context -> false;
+
+        boolean test(ExecutionContext context);
+    }
+
+    private sealed interface Operand permits Literal, NodeOutputRef, InputRef {
+
+        Object value(ExecutionContext context);
+    }
+
+    /**
+     * 字面值，预先计算字符串与数值形式（无法转为数值时 number 为 null）
+     */
+    private record Literal(Object value, String text, Double number) implements Operand {
+
+        static Literal of(Object value) {
+            if (value == null) {
+                return new Literal(null, null, null);
+            }
+            Double number;
+            try {
+                number = toDouble(value);
+            } catch (IllegalArgumentException e) {
+                number = null;
+            }
+            return new Literal(value, value.toString(), number);
+        }
+
+        @Override
+        public Object value(ExecutionContext context) {
+            return value;
+        }
+    }
+
+    private record NodeOutputRef(String reference, String nodeId, String key, UnaryOperator<Object> dereference)
+            implements Operand {
+
+        @Override
+        public Object value(ExecutionContext context) {
+            Map<String, Object> nodeOutput = context.getNodeOutput(nodeId);
+            if (nodeOutput == null || nodeOutput.isEmpty()) {
+                log.warn("节点输出不存在, nodeId={}, reference={}", nodeId, reference);
+                return null;
+            }
+
+            Object value = dereference.apply(nodeOutput.get(key));
+            if (value == null) {
+                log.warn("节点输出中不存在指定 key, nodeId={}, key={}, reference={}", nodeId, key, reference);
+            }
+            return value;
+        }
+    }
+
+    private record InputRef(String reference, String key) implements Operand {
+
+        @Override
+        public Object value(ExecutionContext context) {
+            Map<String, Object> inputs = context.getInputs();
+            if (inputs == null) {
+                log.warn("ExecutionContext 的 inputs 为 null, reference={}", reference);
+                return null;
+            }
+
+            Object value = inputs.get(key);
+            if (value == null) {
+                log.warn("全局输入中不存在指定 key, key={}, reference={}", key, reference);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * 类型安全比较：支持 String、Number、null，类型不兼容时视为不满足
+     */
+    private record Comparison(Operand left, ComparisonOperator op, Operand right) implements Predicate {
+
+        @Override
+        public boolean test(ExecutionContext context) {
+            Object leftValue = left.value(context);
+            Object rightValue = right.value(context);
+            try {
+                return switch (op) {
+                    case EQUALS -> equalTo(leftValue, rightValue);
+                    case NOT_EQUALS -> !equalTo(leftValue, rightValue);
+                    case CONTAINS -> leftValue != null && rightValue != null
+                            && text(leftValue, left).contains(text(rightValue, right));
+                    case NOT_CONTAINS -> !(leftValue != null && rightValue != null
+                            && text(leftValue, left).contains(text(rightValue, right)));
+                    case GREATER_THAN -> compareNumeric(leftValue, rightValue) > 0;
+                    case LESS_THAN -> compareNumeric(leftValue, rightValue) < 0;
+                    case GREATER_THAN_OR_EQUAL -> compareNumeric(leftValue, rightValue) >= 0;
+                    case LESS_THAN_OR_EQUAL -> compareNumeric(leftValue, rightValue) <= 0;
+                    case IS_EMPTY -> leftValue == null || text(leftValue, left).isEmpty();
+                    case IS_NOT_EMPTY -> !(leftValue == null || text(leftValue, left).isEmpty());
+                    case STARTS_WITH -> leftValue != null && rightValue != null
+                            && text(leftValue, left).startsWith(text(rightValue, right));
+                    case ENDS_WITH -> leftValue != null && rightValue != null
+                            && text(leftValue, left).endsWith(text(rightValue, right));
+                };
+            } catch (Exception e) {
+                log.warn("比较操作失败, left={}, op={}, right={}, error={}",
+                        leftValue, op, rightValue, e.getMessage());
+                return false;
+            }
+        }
+
+        /**
+         * 等于比较：两侧均为 Number 时按数值比较，否则按字符串比较
+         */
+        private boolean equalTo(Object leftValue, Object rightValue) {
+            if (leftValue == null && rightValue == null) {
+                return true;
+            }
+            if (leftValue == null || rightValue == null) {
+                return false;
+            }
+            if (leftValue instanceof Number l && rightValue instanceof Number r) {
+                return Double.compare(l.doubleValue(), r.doubleValue()) == 0;
+            }
+            return text(leftValue, left).equals(text(rightValue, right));
+        }
+
+        private int compareNumeric(Object leftValue, Object rightValue) {
+            if (leftValue == null || rightValue == null) {
+                throw new IllegalArgumentException(
+                        "数值比较不支持 null 值, left=" + leftValue + ", right=" + rightValue);
+            }
+            return Double.compare(number(leftValue, left), number(rightValue, right));
+        }
+
+        private static String text(Object value, Operand operand) {
+            return operand instanceof Literal literal ? literal.text() : value.toString();
+        }
+
+        private static double number(Object value, Operand operand) {
+            if (operand instanceof Literal literal) {
+                if (literal.number() == null) {
+                    throw new IllegalArgumentException("无法将值转为数值: " + value);
+                }
+                return literal.number();
+            }
+            return toDouble(value);
+        }
+    }
+
+    /**
+     * 将对象转为 double 值
+     */
+    private static double toDouble(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        try {
+            return Double.parseDouble(value.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("无法将值转为数值: " + value);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.zj.aiagent.infrastructure.workflow.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zj.aiagent.domain.chat.valobj.SseEventPayload;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * SSE 事件分发器
+ *
+ * 每个实例只持有一个模式订阅 (workflow:channel:*)，消息只反序列化一次，
+ * 再按 executionId 分发给本实例上登记的订阅方；没有本地订阅方的执行直接丢弃，不做反序列化。
+ * 订阅方通过 {@link #register} 返回的句柄注销；投递失败的订阅方自动注销，执行的最后一个订阅方注销时移除该执行。
+ *
+ * 订阅方在场键: 执行在本实例有订阅方时，本实例 ID 以过期时间为分数写入 workflow:sse:subscribers:{executionId}，
+ * 并定期续期。发布方据此判断是否存在其它实例的订阅方，没有时不 PUBLISH，而是调用 {@link #deliverLocal} 直接投递。
+ * 在场键的写入与移除都在该执行的 compute 内同步完成，快速重连时注销的移除不会落在新登记的写入之后。
+ */
+@Slf4j
+@Component
+public class RedisSseDispatcher implements MessageListener {
+
+    static final String PRESENCE_PREFIX = "workflow:sse:subscribers:";
+
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+    private final RedissonClient redissonClient;
+    private final Duration presenceTtl;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /**
+     * 本实例上的订阅方 (executionId -> 订阅方列表)
+     */
+    private final Map<String, List<Consumer<SseEventPayload>>> subscribers = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService presenceRefresher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("sse-presence-refresh").daemon(true).factory());
+
+    public RedisSseDispatcher(
+            RedisMessageListenerContainer listenerContainer,
+            ObjectMapper objectMapper,
+            RedissonClient redissonClient,
+            @Value("${workflow.sse.presence.ttl:60s}") Duration presenceTtl) {
+        this.listenerContainer = listenerContainer;
+        this.objectMapper = objectMapper;
+        this.redissonClient = redissonClient;
+        this.presenceTtl = presenceTtl;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new PatternTopic(RedisSsePublisher.CHANNEL_PREFIX + "*"));
+        long period = Math.max(1, presenceTtl.toMillis() / 3);
+        presenceRefresher.scheduleAtFixedRate(this::refreshPresence, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        listenerContainer.removeMessageListener(this);
+        presenceRefresher.shutdownNow();
+        subscribers.keySet().forEach(this::markAbsent);
+        subscribers.clear();
+    }
+
+    /**
+     * 订阅方在场键，与事件流键使用相同的 hash tag
+     */
+    public static String presenceKey(String executionId) {
+        return PRESENCE_PREFIX + "{" + executionId + "}";
+    }
+
+    public String instanceId() {
+        return instanceId;
+    }
+
+    /**
+     * 登记执行的事件订阅方；执行在本实例的第一个订阅方登记时同步写入在场键，
+     * 返回后发布方即会把事件送达本实例
+     *
+     * @return 注销句柄，可重复调用
+     */
+    public Runnable register(String executionId, Consumer<SseEventPayload> subscriber) {
+        subscribers.compute(executionId, (id, list) -> {
+            if (list == null) {
+                list = new CopyOnWriteArrayList<>();
+                markPresent(id);
+            }
+            list.add(subscriber);
+            return list;
+        });
+        log.debug("[SSE-Sub] Registered subscriber of {}", executionId);
+        return () -> unregister(executionId, subscriber);
+    }
+
+    /**
+     * 本实例上某执行的订阅方数量
+     */
+    public int subscriberCount(String executionId) {
+        List<Consumer<SseEventPayload>> list = subscribers.get(executionId);
+        return list != null ? list.size() : 0;
+    }
+
+    /**
+     * 本实例上有订阅方的执行数量
+     */
+    public int executionCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * 本地快速路径：发布方与订阅方同在本实例时直接投递，不经过 Redis 频道
+     */
+    public void deliverLocal(SseEventPayload payload) {
+        dispatch(payload.getExecutionId(), payload);
+    }
+
+    @Override
+    public void onMessage(@NonNull Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        String executionId = channel.substring(RedisSsePublisher.CHANNEL_PREFIX.length());
+        List<Consumer<SseEventPayload>> targets = subscribers.get(executionId);
+        if (targets == null || targets.isEmpty()) {
+            return;
+        }
+
+        SseEventPayload payload;
+        try {
+            payload = decode(message.getBody());
+        } catch (Exception e) {
+            log.error("[SSE-Sub] Failed to deserialize message of {}", executionId, e);
+            return;
+        }
+        dispatch(executionId, payload);
+    }
+
+    private void dispatch(String executionId, SseEventPayload payload) {
+        List<Consumer<SseEventPayload>> targets = subscribers.get(executionId);
+        if (targets == null) {
+            return;
+        }
+        for (Consumer<SseEventPayload> subscriber : targets) {
+            try {
+                subscriber.accept(payload);
+            } catch (Exception e) {
+                log.warn("[SSE-Sub] Failed to deliver event to subscriber of {}, eventType={}, reason={}",
+                        executionId, payload.getEventType(), e.getMessage());
+                unregister(executionId, subscriber);
+            }
+        }
+    }
+
+    private void unregister(String executionId, Consumer<SseEventPayload> subscriber) {
+        subscribers.computeIfPresent(executionId, (id, list) -> {
+            list.remove(subscriber);
+            if (!list.isEmpty()) {
+                return list;
+            }
+            markAbsent(id);
+            return null;
+        });
+    }
+
+    private void markPresent(String executionId) {
+        try {
+            RScoredSortedSet<String> presence = presence(executionId);
+            presence.add(System.currentTimeMillis() + presenceTtl.toMillis(), instanceId);
+            presence.expire(presenceTtl);
+        } catch (Exception e) {
+            log.warn("[SSE-Sub] Failed to mark presence for {}: {}", executionId, e.getMessage());
+        }
+    }
+
+    private void markAbsent(String executionId) {
+        try {
+            presence(executionId).remove(instanceId);
+        } catch (Exception e) {
+            log.warn("[SSE-Sub] Failed to clear presence for {}: {}", executionId, e.getMessage());
+        }
+    }
+
+    /**
+     * 为本实例仍有订阅方的执行续期在场键
+     */
+    private void refreshPresence() {
+        long expireAt = System.currentTimeMillis() + presenceTtl.toMillis();
+        for (String executionId : subscribers.keySet()) {
+            try {
+                RScoredSortedSet<String> presence = presence(executionId);
+                presence.addAsync(expireAt, instanceId);
+                presence.expireAsync(presenceTtl);
+            } catch (Exception e) {
+                log.warn("[SSE-Sub] Failed to refresh presence for {}: {}", executionId, e.getMessage());
+            }
+        }
+    }
+
+    private RScoredSortedSet<String> presence(String executionId) {
+        return redissonClient.getScoredSortedSet(presenceKey(executionId), StringCodec.INSTANCE);
+    }
+
+    private SseEventPayload decode(byte[] body) throws Exception {
+        String messageStr = new String(body, StandardCharsets.UTF_8);
+        // 兼容 Redisson JsonJacksonCodec 发布的消息（字符串外面包了引号）
+        if (messageStr.startsWith("\"") && messageStr.endsWith("\"")) {
+            messageStr = objectMapper.readValue(messageStr, String.class);
+        }
+        return objectMapper.readValue(messageStr, SseEventPayload.class);
+    }
+}
@@ -0,0 +1,92 @@
+package com.zj.aiagent.infrastructure.workflow.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zj.aiagent.domain.chat.valobj.SseEventPayload;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RStream;
+import org.redisson.api.StreamMessageId;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.stream.StreamReadArgs;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SSE 事件补读
+ * 从执行的事件流中读取指定事件 ID 之后的事件，一次 XREAD 完成，用于 Last-Event-ID 续传
+ */
+@Slf4j
+@Component
+public class RedisSseEventReplayer {
+
+    private final RedissonClient redissonClient;
+    private final ObjectMapper objectMapper;
+    private final int maxLength;
+
+    public RedisSseEventReplayer(
+            RedissonClient redissonClient,
+            ObjectMapper objectMapper,
+            @Value("${workflow.sse.stream.max-length:5000}") int maxLength) {
+        this.redissonClient = redissonClient;
+        this.objectMapper = objectMapper;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * 读取 lastEventId 之后的全部事件（按 ID 升序）；lastEventId 为空时从头读取
+     */
+    public List<SseEventPayload> replayAfter(String executionId, String lastEventId) {
+        RStream<String, String> stream = redissonClient.getStream(
+                RedisSsePublisher.streamKey(executionId), StringCodec.INSTANCE);
+        Map<StreamMessageId, Map<String, String>> entries =
+                stream.read(StreamReadArgs.greaterThan(parseId(lastEventId)).count(maxLength));
+        if (entries == null || entries.isEmpty()) {
+            return List.of();
+        }
+
+        List<SseEventPayload> events = new ArrayList<>(entries.size());
+        for (Map.Entry<StreamMessageId, Map<String, String>> entry : entries.entrySet()) {
+            try {
+                SseEventPayload payload = objectMapper.readValue(entry.getValue().get("d"), SseEventPayload.class);
+                payload.setId(entry.getKey().toString());
+                events.add(payload);
+            } catch (Exception e) {
+                log.warn("[SSE-Replay] Skipping undecodable event {} of {}: {}",
+                        entry.getKey(), executionId, e.getMessage());
+            }
+        }
+        log.debug("[SSE-Replay] Replayed {} event(s) of {} after {}", events.size(), executionId, lastEventId);
+        return events;
+    }
+
+    /**
+     * 比较两个事件 ID（ms-seq），null 视为最小
+     */
+    public static int compareIds(String a, String b) {
+        StreamMessageId left = parseId(a);
+        StreamMessageId right = parseId(b);
+        int result = Long.compare(left.getId0(), right.getId0());
+        return result != 0 ? result : Long.compare(left.getId1(), right.getId1());
+    }
+
+    static StreamMessageId parseId(String id) {
+        if (id == null || id.isBlank()) {
+            return new StreamMessageId(0, 0);
+        }
+        try {
+            int dash = id.indexOf('-');
+            if (dash < 0) {
+                return new StreamMessageId(Long.parseLong(id.trim()), 0);
+            }
+            return new StreamMessageId(
+                    Long.parseLong(id.substring(0, dash).trim()),
+                    Long.parseLong(id.substring(dash + 1).trim()));
+        } catch (NumberFormatException e) {
+            return new StreamMessageId(0, 0);
+        }
+    }
+}
@@ -3,54 +3,125 @@ package com.zj.aiagent.infrastructure.workflow.event;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zj.aiagent.domain.chat.valobj.SseEventPayload;
-import com.zj.aiagent.infrastructure.redis.IRedisService;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.List;
+
 /**
  * Redis SSE 发布者
- * 将事件发布到 Redis 频道
- * 
+ * 将事件追加到执行的事件流并发布到 Redis 频道
+ *
  * 业务逻辑:
- * - 构建频道名称 (workflow:channel:{executionId})
- * - 序列化 SSE 事件负载
- * - 发布消息到 Redis 频道
+ * - 事件先 XADD 到限长的 Redis Stream (workflow:stream:{executionId})，条目 ID 单调递增，作为 SSE id
+ * - 再 PUBLISH 到频道 (workflow:channel:{executionId})，消息体为带 id 的事件 JSON
+ * - 两步在同一个 Lua 脚本中完成，一次往返；订阅建立前发出的事件、断线期间的事件可按 Last-Event-ID 从流中补读
+ * - 本地快速路径: 只有其它实例存在订阅方（订阅方在场键中有其它实例）时才 PUBLISH；
+ *   否则事件由 {@link RedisSseDispatcher#deliverLocal} 直接交给本实例的订阅方，省去频道往返和一次反序列化
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class RedisSsePublisher {
 
-    private final IRedisService redisService;
+    static final String CHANNEL_PREFIX = "workflow:channel:";
+    static final String STREAM_PREFIX = "workflow:stream:";
+
+    /**
+     * KEYS[1] 事件流，KEYS[2] 订阅方在场键；ARGV: 最大长度、过期毫秒数、频道、事件 JSON、本实例 ID、当前毫秒时间
+     * 存在其它实例的订阅方时发布，消息在事件 JSON 开头插入 "id" 字段；返回 {事件 ID, 是否已发布}
+     */
+    private static final String APPEND_SCRIPT = """
+            local id = redis.call('XADD', KEYS[1], 'MAXLEN', '~', ARGV[1], '*', 'd', ARGV[4])
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            local remote = redis.call('ZCOUNT', KEYS[2], '(' .. ARGV[6], '+inf')
+            local own = redis.call('ZSCORE', KEYS[2], ARGV[5])
+            if own and tonumber(own) > tonumber(ARGV[6]) then
+                remote = remote - 1
+            end
+            if remote > 0 then
+                redis.call('PUBLISH', ARGV[3], '{"id":"' .. id .. '",' .. string.sub(ARGV[4], 2))
+                return {id, 1}
+            end
+            return {id, 0}
+            """;
+
+    private final RedissonClient redissonClient;
     private final ObjectMapper objectMapper;
+    private final RedisSseDispatcher sseDispatcher;
+    private final long maxLength;
+    private final Duration ttl;
+
+    public RedisSsePublisher(
+            RedissonClient redissonClient,
+            ObjectMapper objectMapper,
+            RedisSseDispatcher sseDispatcher,
+            @Value("${workflow.sse.stream.max-length:5000}") long maxLength,
+            @Value("${workflow.sse.stream.ttl:1h}") Duration ttl) {
+        this.redissonClient = redissonClient;
+        this.objectMapper = objectMapper;
+        this.sseDispatcher = sseDispatcher;
+        this.maxLength = maxLength;
+        this.ttl = ttl;
+    }
 
-    private static final String CHANNEL_PREFIX = "workflow:channel:";
+    public static String channel(String executionId) {
+        return CHANNEL_PREFIX + executionId;
+    }
 
     /**
-     * 发布 SSE 事件到 Redis 频道
-     * 
+     * 事件流键，与订阅方在场键使用相同的 hash tag，保证脚本中的两个键位于同一槽位
+     */
+    public static String streamKey(String executionId) {
+        return STREAM_PREFIX + "{" + executionId + "}";
+    }
+
+    /**
+     * 追加 SSE 事件到事件流，并发布到 Redis 频道或直接交给本实例的订阅方
+     *
      * @param payload SSE 事件负载
+     * @return 事件 ID（Redis Stream 条目 ID）
      */
-    public void publish(SseEventPayload payload) {
+    public String publish(SseEventPayload payload) {
+        String executionId = payload.getExecutionId();
         try {
-            // 业务逻辑: 构建频道名称
-            String channel = CHANNEL_PREFIX + payload.getExecutionId();
-
-            // 业务逻辑: 序列化负载
+            // 业务逻辑: 序列化负载（id 由 Redis 生成，不参与序列化）
+            payload.setId(null);
             String message = objectMapper.writeValueAsString(payload);
 
-            // 使用 IRedisService 的基础操作: 发布消息
-            redisService.publish(channel, message);
+            String key = streamKey(executionId);
+            List<Object> result = redissonClient.getScript(StringCodec.INSTANCE).eval(
+                    key,
+                    RScript.Mode.READ_WRITE,
+                    APPEND_SCRIPT,
+                    RScript.ReturnType.MULTI,
+                    List.of(key, RedisSseDispatcher.presenceKey(executionId)),
+                    String.valueOf(maxLength),
+                    String.valueOf(ttl.toMillis()),
+                    channel(executionId),
+                    message,
+                    sseDispatcher.instanceId(),
+                    String.valueOf(System.currentTimeMillis()));
+            String id = String.valueOf(result.get(0));
+            boolean published = ((Number) result.get(1)).longValue() > 0;
+            payload.setId(id);
 
-            log.debug("[SSE-Pub] Published to {}: {}", channel, message);
+            if (!published) {
+                // 只有本实例的订阅方：直接投递，不经过频道
+                sseDispatcher.deliverLocal(payload);
+            }
+            log.debug("[SSE-Pub] Appended {} to {} (published={}): {}", id, executionId, published, message);
+            return id;
         } catch (JsonProcessingException e) {
             log.error("[SSE-Pub] Failed to serialize payload", e);
             throw new RuntimeException("Failed to serialize SSE payload", e);
         } catch (Exception e) {
-            log.error("[SSE-Pub] Failed to publish message to channel: {}", payload.getExecutionId(), e);
+            log.error("[SSE-Pub] Failed to publish message to channel: {}", executionId, e);
             throw new RuntimeException("Failed to publish SSE message", e);
         }
     }
 }
-
@@ -2,6 +2,8 @@ package com.zj.aiagent.infrastructure.workflow.executor;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.zj.aiagent.domain.workflow.config.NodeConfig;
 import com.zj.aiagent.domain.llm.entity.LlmProviderConfig;
 import com.zj.aiagent.domain.llm.repository.LlmProviderConfigRepository;
@@ -18,15 +20,12 @@ import com.zj.aiagent.domain.workflow.valobj.ExecutionContext;
 import com.zj.aiagent.domain.workflow.valobj.LogicalOperator;
 import com.zj.aiagent.domain.workflow.valobj.NodeExecutionResult;
 import com.zj.aiagent.domain.workflow.valobj.NodeType;
+import com.zj.aiagent.infrastructure.llm.client.LlmClientRegistry;
 import com.zj.aiagent.infrastructure.workflow.util.SpelToConditionConverter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.openai.OpenAiChatModel;
-import org.springframework.ai.openai.OpenAiChatOptions;
-import org.springframework.ai.openai.api.OpenAiApi;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestClient;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -48,6 +47,8 @@ import java.util.regex.Pattern;
  * - LLM 模式：从 NodeConfig.properties["branches"] 解析分支列表，使用 branch.description
  *   构建 Prompt 让 LLM 选择目标分支；支持重试逻辑和 default 分支兜底
  * - 向后兼容：如果 branches 配置为空，从 __outgoingEdges__ 做旧模型兼容转换
+ * - EXPRESSION 模式的分支（含旧模型转换结果）编译为条件树后按节点缓存：
+ *   执行计划缓存复用 Node 实例，同一节点配置只解析、编译一次；节点随计划失效后由弱引用回收
  */
 @Slf4j
 @Component
@@ -56,19 +57,21 @@ public class ConditionNodeExecutorStrategy implements NodeExecutorStrategy {
     private final ConditionEvaluatorPort conditionEvaluator;
     private final ObjectMapper objectMapper;
     private final Executor executor;
-    private final RestClient.Builder restClientBuilder;
+    private final LlmClientRegistry llmClientRegistry;
     private final LlmProviderConfigRepository llmProviderConfigRepository;
+    private final Cache<Node, ConditionEvaluatorPort.CompiledConditions> compiledConditions =
+            CacheBuilder.newBuilder().weakKeys().build();
 
     public ConditionNodeExecutorStrategy(
             ConditionEvaluatorPort conditionEvaluator,
             ObjectMapper objectMapper,
             @Qualifier("nodeExecutorThreadPool") Executor executor,
-            @Qualifier("restClientBuilder1") RestClient.Builder restClientBuilder,
+            LlmClientRegistry llmClientRegistry,
             LlmProviderConfigRepository llmProviderConfigRepository) {
         this.conditionEvaluator = conditionEvaluator;
         this.objectMapper = objectMapper;
         this.executor = executor;
-        this.restClientBuilder = restClientBuilder;
+        this.llmClientRegistry = llmClientRegistry;
         this.llmProviderConfigRepository = llmProviderConfigRepository;
     }
 
@@ -109,17 +112,23 @@ public class ConditionNodeExecutorStrategy implements NodeExecutorStrategy {
     private NodeExecutionResult evaluateByStructuredCondition(
             Node node, NodeConfig config, Map<String, Object> resolvedInputs) {
 
-        List<ConditionBranch> branches = parseBranchesFromConfig(config, node.getNodeId());
+        ConditionEvaluatorPort.CompiledConditions conditions = compiledConditions.getIfPresent(node);
+        if (conditions == null) {
+            List<ConditionBranch> branches = parseBranchesFromConfig(config, node.getNodeId());
 
-        if (branches == null || branches.isEmpty()) {
-            log.info("[Condition Node {}] No branches in config, falling back to legacy edge conversion",
-                    node.getNodeId());
-            List<Edge> outgoingEdges = (List<Edge>) resolvedInputs.get("__outgoingEdges__");
-            if (outgoingEdges == null || outgoingEdges.isEmpty()) {
-                log.error("[Condition Node {}] No branches defined and no outgoing edges found", node.getNodeId());
-                return NodeExecutionResult.failed("No branches defined for condition node");
+            if (branches == null || branches.isEmpty()) {
+                log.info("[Condition Node {}] No branches in config, falling back to legacy edge conversion",
+                        node.getNodeId());
+                List<Edge> outgoingEdges = (List<Edge>) resolvedInputs.get("__outgoingEdges__");
+                if (outgoingEdges == null || outgoingEdges.isEmpty()) {
+                    log.error("[Condition Node {}] No branches defined and no outgoing edges found", node.getNodeId());
+                    return NodeExecutionResult.failed("No branches defined for condition node");
+                }
+                branches = convertLegacyEdgesToBranches(outgoingEdges, node.getNodeId());
             }
-            branches = convertLegacyEdgesToBranches(outgoingEdges, node.getNodeId());
+
+            conditions = conditionEvaluator.compile(branches);
+            compiledConditions.put(node, conditions);
         }
 
         ExecutionContext context = (ExecutionContext) resolvedInputs.get("__context__");
@@ -128,7 +137,7 @@ public class ConditionNodeExecutorStrategy implements NodeExecutorStrategy {
             return NodeExecutionResult.failed("ExecutionContext not available for condition evaluation");
         }
 
-        ConditionBranch selectedBranch = conditionEvaluator.evaluate(branches, context);
+        ConditionBranch selectedBranch = conditions.evaluate(context);
 
         if (selectedBranch == null) {
             log.error("[Condition Node {}] No branch selected after evaluation", node.getNodeId());
@@ -309,7 +318,7 @@ public class ConditionNodeExecutorStrategy implements NodeExecutorStrategy {
     }
 
     /**
-     * 创建 ChatClient 实例
+     * 获取 ChatClient 实例（由 LlmClientRegistry 按模型配置复用）
      * 注意：使用 package-private 可见性以支持单元测试中的 mock（通过 Mockito spy）
      */
     ChatClient buildChatClient(NodeConfig config) {
@@ -382,17 +391,7 @@ public class ConditionNodeExecutorStrategy implements NodeExecutorStrategy {
             throw new IllegalStateException("条件节点 LLM 模式缺少模型配置，请在条件节点中选择 LLM 配置或在模型配置中心设置默认模型。");
         }
 
-        return ChatClient.builder(OpenAiChatModel.builder()
-                .openAiApi(OpenAiApi.builder()
-                        .apiKey(apiKey)
-                        .baseUrl(apiUrl.replaceAll("/v1/?$", "").replaceAll("/+$", ""))
-                        .restClientBuilder(restClientBuilder)
-                        .build())
-                .defaultOptions(OpenAiChatOptions.builder()
-                        .model(model)
-                        .build())
-                .build())
-                .build();
+        return llmClientRegistry.chatClient(llmConfigId, model, apiUrl, apiKey);
     }
 
     /**
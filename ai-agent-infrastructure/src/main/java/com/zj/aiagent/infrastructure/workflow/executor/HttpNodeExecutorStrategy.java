@@ -2,6 +2,8 @@ package com.zj.aiagent.infrastructure.workflow.executor;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.zj.aiagent.domain.workflow.config.NodeConfig;
 import com.zj.aiagent.domain.workflow.entity.Node;
 import com.zj.aiagent.domain.workflow.port.NodeExecutorStrategy;
@@ -11,42 +13,93 @@ import com.zj.aiagent.domain.workflow.valobj.NodeExecutionResult;
 import com.zj.aiagent.domain.workflow.valobj.NodeType;
 import com.zj.aiagent.infrastructure.workflow.template.PromptTemplateResolver;
 
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
 
 /**
  * HTTP 节点执行策略
- * 使用 WebClient 发送 HTTP 请求
+ *
+ * 所有 HTTP 节点共用一个 WebClient，底层为按目标主机分池的 reactor-netty 连接池（每主机连接数上限、空闲回收）。
+ * 节点线程池只负责渲染请求模板，请求发出后由 netty 线程异步完成结果，不再阻塞节点线程等待响应；
+ * 执行被取消时释放订阅，进行中的请求随之取消。
+ * 响应体边读边计数，超过上限后停止读取并截断，输出中 truncated 标记为 true。
+ * 节点配置（方法、超时、URL/Header/Body 模板）首次执行时解析一次并按节点缓存：
+ * 执行计划缓存复用 Node 实例，节点随计划失效后由弱引用回收。
  */
 @Slf4j
 @Component
 public class HttpNodeExecutorStrategy implements NodeExecutorStrategy {
 
-    private final WebClient.Builder webClientBuilder;
+    private static final String POOL_NAME = "workflow-http";
+    private static final long DEFAULT_TIMEOUT_MILLIS = 30000L;
+
     private final Executor executor;
     private final ObjectMapper objectMapper;
     private final PromptTemplateResolver promptTemplateResolver;
+    private final ConnectionProvider connectionProvider;
+    private final WebClient webClient;
+    private final int maxBodyBytes;
+    private final Cache<Node, RequestTemplate> requestTemplates =
+            CacheBuilder.newBuilder().weakKeys().build();
 
     public HttpNodeExecutorStrategy(
-            WebClient.Builder webClientBuilder,
             @Qualifier("nodeExecutorThreadPool") Executor executor,
             ObjectMapper objectMapper,
-            PromptTemplateResolver promptTemplateResolver) {
-        this.webClientBuilder = webClientBuilder;
+            PromptTemplateResolver promptTemplateResolver,
+            @Value("${workflow.http.pool.max-connections-per-host:50}") int maxConnectionsPerHost,
+            @Value("${workflow.http.pool.pending-acquire-timeout:10s}") Duration pendingAcquireTimeout,
+            @Value("${workflow.http.pool.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${workflow.http.pool.evict-interval:30s}") Duration evictInterval,
+            @Value("${workflow.http.connect-timeout:10s}") Duration connectTimeout,
+            @Value("${workflow.http.max-body-bytes:1048576}") int maxBodyBytes) {
         this.executor = executor;
         this.objectMapper = objectMapper;
         this.promptTemplateResolver = promptTemplateResolver;
+        this.maxBodyBytes = maxBodyBytes;
+        // 连接池按远端地址分别建池，maxConnections 即每个主机的连接上限
+        this.connectionProvider = ConnectionProvider.builder(POOL_NAME)
+                .maxConnections(maxConnectionsPerHost)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .evictInBackground(evictInterval)
+                .build();
+        this.webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())))
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connectionProvider.dispose();
     }
 
     @Override
@@ -55,121 +108,24 @@ public class HttpNodeExecutorStrategy implements NodeExecutorStrategy {
             Map<String, Object> resolvedInputs,
             StreamPublisher streamPublisher) {
 
-        return CompletableFuture.supplyAsync(() -> {
+        CompletableFuture<NodeExecutionResult> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
             try {
-                NodeConfig config = node.getConfig();
-
-                // 解析 URL
-                String url = resolveTemplate(firstNonBlank(
-                        config.getString("http_url"),
-                        config.getString("url")
-                ), resolvedInputs);
-                String methodStr = firstNonBlank(
-                        config.getString("http_method"),
-                        config.getString("method"),
-                        "GET"
-                );
-                HttpMethod method = HttpMethod.valueOf(methodStr.toUpperCase());
-
-                log.info("[HTTP Node {}] {} {}", node.getNodeId(), method, url);
-
-                // 设置超时
-                Long timeout = config.getLong("readTimeout");
-                if (timeout == null) {
-                    timeout = config.getLong("timeout");
-                }
-                if (timeout == null) {
-                    timeout = 30000L;
-                }
-                Duration requestTimeout = Duration.ofMillis(timeout);
-
-                // 获取 Headers
-                Map<String, Object> headers = resolveHeaders(config, resolvedInputs);
-                String bodyTemplate = firstNonBlank(
-                        config.getString("http_body"),
-                        config.getString("bodyTemplate")
-                );
-
-                // 使用 exchangeToMono 获取状态码
-                WebClient webClient = webClientBuilder.build();
-                int[] statusCodeHolder = new int[1];
-                String[] responseHolder = new String[1];
-
-                try {
-                    String bodyResult;
-                    if (bodyTemplate != null && !bodyTemplate.isEmpty()) {
-                        String body = resolveTemplate(bodyTemplate, resolvedInputs);
-                        bodyResult = webClient.method(method)
-                                .uri(url)
-                                .contentType(MediaType.APPLICATION_JSON)
-                                .headers(h -> {
-                                    if (headers != null) {
-                                        headers.forEach((key, value) -> {
-                                            if (value != null) {
-                                                h.set(key, resolveTemplate(value.toString(), resolvedInputs));
-                                            }
-                                        });
-                                    }
-                                })
-                                .bodyValue(body)
-                                .exchangeToMono(clientResponse -> {
-                                    statusCodeHolder[0] = clientResponse.statusCode().value();
-                                    return clientResponse.bodyToMono(String.class);
-                                })
-                                .block(requestTimeout);
-                    } else {
-                        bodyResult = webClient.method(method)
-                                .uri(url)
-                                .headers(h -> {
-                                    if (headers != null) {
-                                        headers.forEach((key, value) -> {
-                                            if (value != null) {
-                                                h.set(key, resolveTemplate(value.toString(), resolvedInputs));
-                                            }
-                                        });
-                                    }
-                                })
-                                .exchangeToMono(clientResponse -> {
-                                    statusCodeHolder[0] = clientResponse.statusCode().value();
-                                    return clientResponse.bodyToMono(String.class);
-                                })
-                                .block(requestTimeout);
-                    }
-                    responseHolder[0] = bodyResult;
-                } catch (Exception e) {
-                    log.error("[HTTP Node {}] Request failed: {}", node.getNodeId(), e.getMessage());
-                    streamPublisher.publishError(e.getMessage());
-                    return NodeExecutionResult.failed(e.getMessage());
-                }
-
-                int statusCode = statusCodeHolder[0];
-                String response = responseHolder[0] != null ? responseHolder[0] : "";
-
-                log.info("[HTTP Node {}] Response received, statusCode: {}, length: {}",
-                        node.getNodeId(), statusCode, response.length());
-
-                // 构建输出
-                Map<String, Object> outputs = new HashMap<>();
-                outputs.put("response", response);
-                outputs.put("body", response);
-                outputs.put("statusCode", statusCode);
-                outputs.put(
-                        "http_response",
-                        Map.of(
-                                "statusCode", statusCode,
-                                "body", response,
-                                "response", response
-                        )
-                );
-
-                return NodeExecutionResult.success(outputs);
-
+                Disposable subscription = exchange(node, template(node), resolvedInputs)
+                        .onErrorResume(e -> Mono.just(fail(node, streamPublisher, e)))
+                        .subscribe(future::complete, future::completeExceptionally);
+                // 执行被取消（future 以 CancellationException 结束）时取消进行中的请求
+                future.whenComplete((result, error) -> subscription.dispose());
             } catch (Exception e) {
                 log.error("[HTTP Node {}] Execution failed: {}", node.getNodeId(), e.getMessage(), e);
                 streamPublisher.publishError(e.getMessage());
-                return NodeExecutionResult.failed(e.getMessage());
+                future.complete(NodeExecutionResult.failed(e.getMessage()));
             }
-        }, executor);
+        });
+        return future;
     }
 
     @Override
@@ -177,6 +133,154 @@ public class HttpNodeExecutorStrategy implements NodeExecutorStrategy {
         return NodeType.HTTP;
     }
 
+    private Mono<NodeExecutionResult> exchange(
+            Node node,
+            RequestTemplate template,
+            Map<String, Object> resolvedInputs) {
+
+        String url = resolveTemplate(template.url(), resolvedInputs);
+        Map<String, String> headers = resolveHeaders(template, resolvedInputs);
+        String body = resolveTemplate(template.body(), resolvedInputs);
+
+        log.info("[HTTP Node {}] {} {}", node.getNodeId(), template.method(), url);
+
+        WebClient.RequestBodySpec request = webClient.method(template.method()).uri(url);
+        if (body != null && !body.isEmpty()) {
+            request.contentType(MediaType.APPLICATION_JSON);
+        }
+        request.headers(h -> headers.forEach(h::set));
+        WebClient.RequestHeadersSpec<?> spec = body != null && !body.isEmpty() ? request.bodyValue(body) : request;
+
+        Duration timeout = template.timeout();
+        return spec.exchangeToMono(this::readResponse)
+                .timeout(timeout, Mono.error(() ->
+                        new TimeoutException("HTTP request timed out after " + timeout.toMillis() + " ms")))
+                .map(response -> success(node, response));
+    }
+
+    /**
+     * 读取响应体，累计到上限后停止读取（取消上游），多读 1 字节用于判断是否截断
+     */
+    private Mono<HttpResult> readResponse(ClientResponse response) {
+        int statusCode = response.statusCode().value();
+        Charset charset = response.headers().contentType()
+                .map(MimeType::getCharset)
+                .orElse(StandardCharsets.UTF_8);
+        Flux<DataBuffer> buffers = DataBufferUtils.takeUntilByteCount(
+                response.body(BodyExtractors.toDataBuffers()), maxBodyBytes + 1L);
+        return DataBufferUtils.join(buffers)
+                .map(joined -> {
+                    try {
+                        int length = joined.readableByteCount();
+                        byte[] bytes = new byte[Math.min(length, maxBodyBytes)];
+                        joined.read(bytes);
+                        return new HttpResult(statusCode, new String(bytes, charset), length > maxBodyBytes);
+                    } finally {
+                        DataBufferUtils.release(joined);
+                    }
+                })
+                .defaultIfEmpty(new HttpResult(statusCode, "", false));
+    }
+
+    private NodeExecutionResult success(Node node, HttpResult result) {
+        log.info("[HTTP Node {}] Response received, statusCode: {}, length: {}{}",
+                node.getNodeId(), result.statusCode(), result.body().length(),
+                result.truncated() ? " (truncated)" : "");
+
+        // 构建输出
+        Map<String, Object> outputs = new HashMap<>();
+        outputs.put("response", result.body());
+        outputs.put("body", result.body());
+        outputs.put("statusCode", result.statusCode());
+        outputs.put("truncated", result.truncated());
+        outputs.put(
+                "http_response",
+                Map.of(
+                        "statusCode", result.statusCode(),
+                        "body", result.body(),
+                        "response", result.body()
+                )
+        );
+        return NodeExecutionResult.success(outputs);
+    }
+
+    private NodeExecutionResult fail(Node node, StreamPublisher streamPublisher, Throwable e) {
+        log.error("[HTTP Node {}] Request failed: {}", node.getNodeId(), e.getMessage());
+        streamPublisher.publishError(e.getMessage());
+        return NodeExecutionResult.failed(e.getMessage());
+    }
+
+    /**
+     * 获取节点的请求模板，首次执行时解析节点配置
+     */
+    private RequestTemplate template(Node node) {
+        RequestTemplate template = requestTemplates.getIfPresent(node);
+        if (template == null) {
+            template = compile(node.getConfig());
+            requestTemplates.put(node, template);
+        }
+        return template;
+    }
+
+    private RequestTemplate compile(NodeConfig config) {
+        String url = firstNonBlank(
+                config.getString("http_url"),
+                config.getString("url")
+        );
+        String methodStr = firstNonBlank(
+                config.getString("http_method"),
+                config.getString("method"),
+                "GET"
+        );
+
+        // 设置超时
+        Long timeout = config.getLong("readTimeout");
+        if (timeout == null) {
+            timeout = config.getLong("timeout");
+        }
+        if (timeout == null) {
+            timeout = DEFAULT_TIMEOUT_MILLIS;
+        }
+
+        String body = firstNonBlank(
+                config.getString("http_body"),
+                config.getString("bodyTemplate")
+        );
+
+        Map<String, String> headers = null;
+        String headerText = null;
+        Map<String, Object> headerMap = config.getMap("headers");
+        if (headerMap == null) {
+            headerMap = config.getMap("http_headers");
+        }
+        if (headerMap == null) {
+            headerText = firstNonBlank(
+                    config.getString("http_headers"),
+                    config.getString("headers")
+            );
+            headerMap = headerText != null ? parseHeaders(headerText) : null;
+        }
+        if (headerMap != null) {
+            // Header 值逐个作为模板，渲染时不再整体解析 JSON
+            headers = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> entry : headerMap.entrySet()) {
+                if (entry.getValue() != null) {
+                    headers.put(entry.getKey(), entry.getValue().toString());
+                }
+            }
+            headerText = null;
+        }
+
+        return new RequestTemplate(
+                url,
+                HttpMethod.valueOf(methodStr.toUpperCase()),
+                Duration.ofMillis(timeout),
+                headers,
+                headerText,
+                body
+        );
+    }
+
     /**
      * 解析模板中的占位符
      * 支持 #{key} 和 {{key}} 两种格式
@@ -190,36 +294,32 @@ public class HttpNodeExecutorStrategy implements NodeExecutorStrategy {
         return promptTemplateResolver.resolve(template, resolvedInputs, context);
     }
 
-    private Map<String, Object> resolveHeaders(
-            NodeConfig config,
-            Map<String, Object> resolvedInputs) {
-        Map<String, Object> headers = config.getMap("headers");
-        if (headers == null) {
-            headers = config.getMap("http_headers");
-        }
-        if (headers != null) {
-            return headers;
-        }
-
-        String headerText = firstNonBlank(
-                config.getString("http_headers"),
-                config.getString("headers")
-        );
-        if (headerText == null) {
-            return null;
+    private Map<String, String> resolveHeaders(RequestTemplate template, Map<String, Object> resolvedInputs) {
+        Map<String, String> resolved = new LinkedHashMap<>();
+        if (template.headers() != null) {
+            template.headers().forEach((key, value) -> resolved.put(key, resolveTemplate(value, resolvedInputs)));
+        } else if (template.headerText() != null) {
+            // 占位符不在 JSON 字符串内（如 {"X-Count": {{n}}}）时只能先渲染再解析
+            Map<String, Object> parsed = parseHeaders(resolveTemplate(template.headerText(), resolvedInputs));
+            if (parsed != null) {
+                parsed.forEach((key, value) -> {
+                    if (value != null) {
+                        resolved.put(key, value.toString());
+                    }
+                });
+            }
         }
+        return resolved;
+    }
 
-        String resolvedHeaderText = resolveTemplate(headerText, resolvedInputs);
+    private Map<String, Object> parseHeaders(String headerText) {
         try {
             return objectMapper.readValue(
-                    resolvedHeaderText,
+                    headerText,
                     new TypeReference<Map<String, Object>>() {}
             );
         } catch (Exception e) {
-            log.warn(
-                    "[HTTP Node] Failed to parse headers as JSON, headerText={}",
-                    resolvedHeaderText
-            );
+            log.debug("[HTTP Node] Headers are not valid JSON, headerText={}", headerText);
             return null;
         }
     }
@@ -232,4 +332,22 @@ public class HttpNodeExecutorStrategy implements NodeExecutorStrategy {
         }
         return null;
     }
+
+    /**
+     * 节点配置解析结果
+     *
+     * @param headers    Header 名 -> 值模板；配置为无法直接解析的 Header 文本时为 null
+     * @param headerText 需渲染后再解析的 Header 文本
+     */
+    private record RequestTemplate(
+            String url,
+            HttpMethod method,
+            Duration timeout,
+            Map<String, String> headers,
+            String headerText,
+            String body) {
+    }
+
+    private record HttpResult(int statusCode, String body, boolean truncated) {
+    }
 }
@@ -0,0 +1,61 @@
+package com.zj.aiagent.infrastructure.workflow.executor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * 可中断的异步任务
+ *
+ * {@link CompletableFuture#cancel(boolean)} 不会中断正在执行任务的线程；
+ * 这里返回的 future 被取消时会中断执行线程，使阻塞在 IO 上的节点（如 block() 等待 HTTP 响应）立即退出。
+ * 任务结束时清除中断标记，避免影响线程池中的后续任务。
+ */
+final class InterruptibleFutures {
+
+    private InterruptibleFutures() {
+    }
+
+    static <T> CompletableFuture<T> supplyAsync(Supplier<T> task, Executor executor) {
+        InterruptibleFuture<T> future = new InterruptibleFuture<>();
+        executor.execute(() -> future.run(task));
+        return future;
+    }
+
+    private static final class InterruptibleFuture<T> extends CompletableFuture<T> {
+
+        private Thread runner;
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                synchronized (this) {
+                    if (runner != null) {
+                        runner.interrupt();
+                    }
+                }
+            }
+            return cancelled;
+        }
+
+        private void run(Supplier<T> task) {
+            synchronized (this) {
+                if (isDone()) {
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                complete(task.get());
+            } catch (Throwable e) {
+                completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+}
@@ -13,6 +13,7 @@ import com.zj.aiagent.domain.workflow.valobj.ExecutionContext;
 import com.zj.aiagent.domain.workflow.valobj.FieldSchema;
 import com.zj.aiagent.domain.workflow.valobj.NodeExecutionResult;
 import com.zj.aiagent.domain.workflow.valobj.NodeType;
+import com.zj.aiagent.infrastructure.llm.client.LlmClientRegistry;
 import com.zj.aiagent.infrastructure.workflow.template.PromptTemplateResolver;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -21,8 +22,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.messages.AssistantMessage;
@@ -30,13 +32,10 @@ import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.openai.OpenAiChatModel;
-import org.springframework.ai.openai.OpenAiChatOptions;
-import org.springframework.ai.openai.api.OpenAiApi;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
-import org.springframework.web.client.RestClient;
+import reactor.core.Disposable;
 
 /**
  * LLM 节点执行策略
@@ -53,24 +52,25 @@ public class LlmNodeExecutorStrategy implements NodeExecutorStrategy {
 
     private static final String CONFIG_LLM_OUTPUT_MODE = "llmOutputMode";
     private static final String OUTPUT_MODE_JSON = "json";
+    private static final int DEFAULT_EXECUTION_LOG_TOKEN_BUDGET = 1000;
 
     private final Executor executor;
     private final ObjectMapper objectMapper;
-    private final RestClient.Builder restClientBuilder;
+    private final LlmClientRegistry llmClientRegistry;
     private final KnowledgeRetrievalService knowledgeRetrievalService;
     private final LlmProviderConfigRepository llmProviderConfigRepository;
     private final PromptTemplateResolver promptTemplateResolver;
 
     public LlmNodeExecutorStrategy(
         @Qualifier("nodeExecutorThreadPool") Executor executor,
-        @Qualifier("restClientBuilder1") RestClient.Builder restClientBuilder,
+        LlmClientRegistry llmClientRegistry,
         ObjectMapper objectMapper,
         KnowledgeRetrievalService knowledgeRetrievalService,
         LlmProviderConfigRepository llmProviderConfigRepository,
         PromptTemplateResolver promptTemplateResolver
     ) {
         this.executor = executor;
-        this.restClientBuilder = restClientBuilder;
+        this.llmClientRegistry = llmClientRegistry;
         this.objectMapper = objectMapper;
         this.knowledgeRetrievalService = knowledgeRetrievalService;
         this.llmProviderConfigRepository = llmProviderConfigRepository;
@@ -83,180 +83,261 @@ public class LlmNodeExecutorStrategy implements NodeExecutorStrategy {
         Map<String, Object> resolvedInputs,
         StreamPublisher streamPublisher
     ) {
-        return CompletableFuture.supplyAsync(
-            () -> {
-                try {
-                    NodeConfig config = node.getConfig();
-
-                    // 优先通过 llmConfigId 引用模型配置
-                    String model;
-                    String apiUrl;
-                    String apiKey;
-                    Long llmConfigId = config.getLong("llmConfigId");
-                    if (llmConfigId != null) {
-                        LlmProviderConfig providerConfig =
-                            llmProviderConfigRepository
-                                .findById(llmConfigId)
-                                .orElseThrow(() ->
-                                    new IllegalStateException(
-                                        "模型配置不存在（ID: " +
-                                            llmConfigId +
-                                            "），请在模型配置页面检查"
-                                    )
-                                );
-                        model = providerConfig.getModel();
-                        apiUrl = providerConfig.getBaseUrl();
-                        apiKey = providerConfig.getApiKey();
-                    } else {
-                        // 兼容旧数据：直接从节点配置读取
-                        model =
-                            config.getString("llm_model") != null
-                                ? config.getString("llm_model")
-                                : config.getString("model");
-                        apiUrl =
-                            config.getString("llm_base_url") != null
-                                ? config.getString("llm_base_url")
-                                : config.getString("baseUrl");
-                        apiKey =
-                            config.getString("llm_api_key") != null
-                                ? config.getString("llm_api_key")
-                                : config.getString("apiKey");
-                    }
+        // 准备阶段（模型配置、RAG 检索、Prompt 构建）含阻塞 IO，在节点线程池上执行；
+        // 生成阶段由响应流的终止信号完成 future，流式输出期间不占用线程池线程
+        CompletableFuture<NodeExecutionResult> result =
+            new CompletableFuture<>();
+        AtomicReference<Disposable> subscription = new AtomicReference<>();
+
+        CompletableFuture.supplyAsync(
+            () -> prepare(node, resolvedInputs),
+            executor
+        ).whenComplete((call, error) -> {
+            if (error != null) {
+                fail(node, error, streamPublisher, result);
+                return;
+            }
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                subscription.set(stream(node, call, streamPublisher, result));
+            } catch (RuntimeException e) {
+                fail(node, e, streamPublisher, result);
+            }
+            // 订阅建立前已被取消
+            Disposable current = subscription.get();
+            if (result.isCancelled() && current != null) {
+                current.dispose();
+            }
+        });
+
+        // 执行被取消时取消响应流订阅，立即断开与模型服务的连接
+        result.whenComplete((response, error) -> {
+            Disposable current = subscription.get();
+            if (result.isCancelled() && current != null) {
+                log.info("[LLM Node {}] Cancelled, disposing stream", node.getNodeId());
+                current.dispose();
+            }
+        });
+        return result;
+    }
 
-                    if (
-                        !StringUtils.hasText(model) ||
-                        !StringUtils.hasText(apiUrl) ||
-                        !StringUtils.hasText(apiKey)
-                    ) {
-                        throw new IllegalStateException(
-                            "LLM 节点缺少必要配置（model/baseUrl/apiKey），请在工作流编辑器中配置 LLM 节点参数"
-                        );
-                    }
+    private void fail(
+        Node node,
+        Throwable error,
+        StreamPublisher streamPublisher,
+        CompletableFuture<NodeExecutionResult> result
+    ) {
+        Throwable e =
+            error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+        log.error(
+            "[LLM Node {}] Execution failed: {}",
+            node.getNodeId(),
+            e.getMessage(),
+            e
+        );
+        streamPublisher.publishError(e.getMessage());
+        result.complete(NodeExecutionResult.failed(e.getMessage()));
+    }
 
-                    // Spring AI OpenAiApi 会自动拼 /v1 前缀，去掉用户配置中多余的 /v1
-                    String normalizedUrl = apiUrl.replaceAll("/v1/?$", "");
-
-                    ChatClient.Builder chatClientBuilder = ChatClient.builder(
-                        OpenAiChatModel.builder()
-                            .openAiApi(
-                                OpenAiApi.builder()
-                                    .apiKey(apiKey)
-                                    .baseUrl(normalizedUrl)
-                                    .restClientBuilder(restClientBuilder)
-                                    .build()
-                            )
-                            .defaultOptions(
-                                OpenAiChatOptions.builder().model(model).build()
-                            )
-                            .build()
-                    );
-                    // 获取执行上下文（用于 LTM/STM/Awareness）
-                    ExecutionContext context =
-                        (ExecutionContext) resolvedInputs.get("__context__");
-                    Long agentId = (Long) resolvedInputs.get("__agentId__");
-
-                    // Step 1: 构建 System Prompt（包含 LTM + RAG + Awareness）
-                    String userInput = buildUserPrompt(config, resolvedInputs);
-                    String systemPrompt = buildSystemPrompt(
-                        node,
-                        config,
-                        context,
-                        resolvedInputs,
-                        agentId,
-                        userInput
-                    );
+    /**
+     * 解析模型配置并构建 Prompt
+     */
+    private LlmCall prepare(Node node, Map<String, Object> resolvedInputs) {
+        NodeConfig config = node.getConfig();
 
-                    // Step 2: 构建 Message Chain（包含 STM），复用已构建的 userInput
-                    List<Message> messageChain = buildMessageChain(
-                        config,
-                        context,
-                        resolvedInputs,
-                        systemPrompt,
-                        userInput
+        // 优先通过 llmConfigId 引用模型配置
+        String model;
+        String apiUrl;
+        String apiKey;
+        Long llmConfigId = config.getLong("llmConfigId");
+        if (llmConfigId != null) {
+            LlmProviderConfig providerConfig =
+                llmProviderConfigRepository
+                    .findById(llmConfigId)
+                    .orElseThrow(() ->
+                        new IllegalStateException(
+                            "模型配置不存在（ID: " +
+                                llmConfigId +
+                                "），请在模型配置页面检查"
+                        )
                     );
+            model = providerConfig.getModel();
+            apiUrl = providerConfig.getBaseUrl();
+            apiKey = providerConfig.getApiKey();
+        } else {
+            // 兼容旧数据：直接从节点配置读取
+            model =
+                config.getString("llm_model") != null
+                    ? config.getString("llm_model")
+                    : config.getString("model");
+            apiUrl =
+                config.getString("llm_base_url") != null
+                    ? config.getString("llm_base_url")
+                    : config.getString("baseUrl");
+            apiKey =
+                config.getString("llm_api_key") != null
+                    ? config.getString("llm_api_key")
+                    : config.getString("apiKey");
+        }
 
-                    log.info(
-                        "[LLM Node {}] Executing with {} messages, system prompt length: {}",
-                        node.getNodeId(),
-                        messageChain.size(),
-                        systemPrompt.length()
-                    );
+        if (
+            !StringUtils.hasText(model) ||
+            !StringUtils.hasText(apiUrl) ||
+            !StringUtils.hasText(apiKey)
+        ) {
+            throw new IllegalStateException(
+                "LLM 节点缺少必要配置（model/baseUrl/apiKey），请在工作流编辑器中配置 LLM 节点参数"
+            );
+        }
 
-                    // Step 3: 调用 LLM（流式输出）
-                    ChatClient chatClient = chatClientBuilder.build();
-                    StringBuilder fullResponse = new StringBuilder();
-
-                    Prompt prompt = new Prompt(messageChain);
-
-                    AtomicBoolean streamError = new AtomicBoolean(false);
-
-                    chatClient
-                        .prompt(prompt)
-                        .stream()
-                        .content()
-                        .doOnNext(chunk -> {
-                            fullResponse.append(chunk);
-                            streamPublisher.publishDelta(chunk);
-                        })
-                        .doOnError(error -> {
-                            log.error(
-                                "[LLM Node {}] Stream error: {}",
-                                node.getNodeId(),
-                                error.getMessage()
-                            );
-                            streamPublisher.publishError(error.getMessage());
-                            streamError.set(true);
-                        })
-                        .blockLast();
+        // 获取执行上下文（用于 LTM/STM/Awareness）
+        ExecutionContext context =
+            (ExecutionContext) resolvedInputs.get("__context__");
+        Long agentId = (Long) resolvedInputs.get("__agentId__");
+
+        // Step 1: 构建 System Prompt（包含 LTM + RAG + Awareness）
+        String userInput = buildUserPrompt(config, resolvedInputs);
+        String systemPrompt = buildSystemPrompt(
+            node,
+            config,
+            context,
+            resolvedInputs,
+            agentId,
+            userInput
+        );
 
-                    String response = fullResponse.toString();
-                    if (!streamError.get() && !StringUtils.hasText(response)) {
-                        log.warn(
-                            "[LLM Node {}] Stream returned empty content, retrying with non-streaming call",
-                            node.getNodeId()
-                        );
-                        response = chatClient.prompt(prompt).call().content();
-                        if (StringUtils.hasText(response)) {
-                            streamPublisher.publishDelta(response);
-                        }
-                    }
-                    log.info(
-                        "[LLM Node {}] Response received, length: {}",
-                        node.getNodeId(),
-                        response != null ? response.length() : 0
-                    );
+        // Step 2: 构建 Message Chain（包含 STM），复用已构建的 userInput
+        List<Message> messageChain = buildMessageChain(
+            config,
+            context,
+            resolvedInputs,
+            systemPrompt,
+            userInput
+        );
 
-                    if (streamError.get()) {
-                        return NodeExecutionResult.failed("Stream interrupted, partial output available");
-                    }
+        log.info(
+            "[LLM Node {}] Executing with {} messages, system prompt length: {}",
+            node.getNodeId(),
+            messageChain.size(),
+            systemPrompt.length()
+        );
 
-                    if (!StringUtils.hasText(response)) {
-                        return NodeExecutionResult.failed("LLM 返回空响应");
-                    }
+        return new LlmCall(
+            createChatClient(llmConfigId, model, apiUrl, apiKey),
+            new Prompt(messageChain)
+        );
+    }
 
-                    Map<String, Object> outputs;
-                    try {
-                        outputs = buildOutputs(response, node);
-                    } catch (JsonProcessingException | IllegalArgumentException e) {
-                        String message = "LLM JSON 输出解析失败：" + e.getMessage();
-                        log.warn("[LLM Node {}] {}", node.getNodeId(), message);
-                        streamPublisher.publishError(message);
-                        return NodeExecutionResult.failed(message);
-                    }
-                    return NodeExecutionResult.success(outputs);
-                } catch (Exception e) {
+    ChatClient createChatClient(
+        Long llmConfigId,
+        String model,
+        String apiUrl,
+        String apiKey
+    ) {
+        return llmClientRegistry.chatClient(llmConfigId, model, apiUrl, apiKey);
+    }
+
+    /**
+     * Step 3: 订阅流式输出，由终止信号完成结果
+     */
+    private Disposable stream(
+        Node node,
+        LlmCall call,
+        StreamPublisher streamPublisher,
+        CompletableFuture<NodeExecutionResult> result
+    ) {
+        StringBuilder fullResponse = new StringBuilder();
+
+        return call
+            .chatClient()
+            .prompt(call.prompt())
+            .stream()
+            .content()
+            .subscribe(
+                chunk -> {
+                    fullResponse.append(chunk);
+                    streamPublisher.publishDelta(chunk);
+                },
+                error -> {
                     log.error(
-                        "[LLM Node {}] Execution failed: {}",
+                        "[LLM Node {}] Stream error: {}",
                         node.getNodeId(),
-                        e.getMessage(),
-                        e
+                        error.getMessage()
+                    );
+                    streamPublisher.publishError(error.getMessage());
+                    result.complete(
+                        NodeExecutionResult.failed(
+                            "Stream interrupted, partial output available"
+                        )
                     );
-                    streamPublisher.publishError(e.getMessage());
-                    return NodeExecutionResult.failed(e.getMessage());
+                },
+                () -> {
+                    String response = fullResponse.toString();
+                    if (StringUtils.hasText(response)) {
+                        result.complete(
+                            finish(node, response, streamPublisher)
+                        );
+                        return;
+                    }
+
+                    log.warn(
+                        "[LLM Node {}] Stream returned empty content, retrying with non-streaming call",
+                        node.getNodeId()
+                    );
+                    // 非流式兜底调用是阻塞的，交回节点线程池执行
+                    CompletableFuture.supplyAsync(
+                        () -> {
+                            String fallback = call
+                                .chatClient()
+                                .prompt(call.prompt())
+                                .call()
+                                .content();
+                            if (StringUtils.hasText(fallback)) {
+                                streamPublisher.publishDelta(fallback);
+                            }
+                            return finish(node, fallback, streamPublisher);
+                        },
+                        executor
+                    ).whenComplete((fallbackResult, error) -> {
+                        if (error != null) {
+                            fail(node, error, streamPublisher, result);
+                        } else {
+                            result.complete(fallbackResult);
+                        }
+                    });
                 }
-            },
-            executor
+            );
+    }
+
+    private NodeExecutionResult finish(
+        Node node,
+        String response,
+        StreamPublisher streamPublisher
+    ) {
+        log.info(
+            "[LLM Node {}] Response received, length: {}",
+            node.getNodeId(),
+            response != null ? response.length() : 0
         );
+
+        if (!StringUtils.hasText(response)) {
+            return NodeExecutionResult.failed("LLM 返回空响应");
+        }
+
+        Map<String, Object> outputs;
+        try {
+            outputs = buildOutputs(response, node);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            String message = "LLM JSON 输出解析失败：" + e.getMessage();
+            log.warn("[LLM Node {}] {}", node.getNodeId(), message);
+            streamPublisher.publishError(message);
+            return NodeExecutionResult.failed(message);
+        }
+        return NodeExecutionResult.success(outputs);
     }
 
     @Override
@@ -350,7 +431,8 @@ public class LlmNodeExecutorStrategy implements NodeExecutorStrategy {
 
         // 3. [Awareness] 注入执行日志
         if (config.getBoolean("includeExecutionLog", true)) {
-            String execLog = context.getExecutionLogContent();
+            String execLog = context.renderExecutionLog(
+                    config.getInteger("executionLogTokenBudget", DEFAULT_EXECUTION_LOG_TOKEN_BUDGET));
             if (StringUtils.hasText(execLog)) {
                 sb.append("### 当前工作流执行进度 (Execution Log):\n");
                 sb.append(execLog).append("\n");
@@ -599,4 +681,7 @@ public class LlmNodeExecutorStrategy implements NodeExecutorStrategy {
         }
         return text.substring(start, end + 1).trim();
     }
+
+    private record LlmCall(ChatClient chatClient, Prompt prompt) {
+    }
 }
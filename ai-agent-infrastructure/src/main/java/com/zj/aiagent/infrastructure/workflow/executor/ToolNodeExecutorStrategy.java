@@ -91,7 +91,7 @@ public class ToolNodeExecutorStrategy implements NodeExecutorStrategy {
             toolArgs.keySet()
         );
 
-        return mcpToolRegistry.execute(serverId, toolName, toolArgs, executionId)
+        CompletableFuture<NodeExecutionResult> future = mcpToolRegistry.execute(serverId, toolName, toolArgs, executionId)
                 .thenApply(result -> {
                     if (result.isAborted()) {
                         log.info("[Tool Node {}] Tool execution aborted executionId={}",
@@ -119,6 +119,16 @@ public class ToolNodeExecutorStrategy implements NodeExecutorStrategy {
                             node.getNodeId(), executionId, ex);
                     return NodeExecutionResult.failed(ex.getMessage());
                 });
+
+        // 工作流被取消时中止进行中的 MCP 调用
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                log.info("[Tool Node {}] Cancelled, aborting MCP call executionId={}",
+                        node.getNodeId(), executionId);
+                mcpToolRegistry.abort(executionId);
+            }
+        });
+        return future;
     }
 
     @Override
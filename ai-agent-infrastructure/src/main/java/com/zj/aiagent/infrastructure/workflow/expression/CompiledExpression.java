@@ -0,0 +1,330 @@
+package com.zj.aiagent.infrastructure.workflow.expression;
+
+import com.zj.aiagent.domain.workflow.valobj.ExecutionContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * 预编译的值引用
+ *
+ * 引用字符串只在首次出现时解析一次：前缀分派、路径切分、数组下标解析、SpEL 解析都在编译期完成，
+ * 执行期只做 Map/List 访问。格式错误的引用同样编译为访问器，在执行期抛出与逐次解析完全相同的异常，
+ * 保持错误信息及其先后顺序不变。
+ */
+sealed interface CompiledExpression {
+
+    String INPUTS_PREFIX = "inputs.";
+    String SHARED_STATE_PREFIX = "sharedState.";
+    String LEGACY_STATE_PREFIX = "state.";
+    String LEGACY_NODES_PREFIX = "nodes.";
+    String OUTPUT_SEGMENT = ".output.";
+
+    /**
+     * @param dereference 节点输出值解引用（见 {@link com.zj.aiagent.domain.workflow.port.NodeOutputStorePort}）
+     */
+    Object resolve(ExecutionContext context, UnaryOperator<Object> dereference);
+
+    /**
+     * 编译引用表达式（调用方保证非 null）
+     */
+    static CompiledExpression compile(String expression) {
+        String trimmed = expression.trim();
+        if (trimmed.isEmpty()) {
+            return new Literal(expression);
+        }
+        if (trimmed.startsWith("#{") && trimmed.endsWith("}")) {
+            return LegacySpel.parse(trimmed);
+        }
+        if (trimmed.startsWith(INPUTS_PREFIX)) {
+            return new InputsRef(trimmed, trimmed.substring(INPUTS_PREFIX.length()));
+        }
+        if (trimmed.startsWith(SHARED_STATE_PREFIX)) {
+            return new SharedStateRef(trimmed, trimmed.substring(SHARED_STATE_PREFIX.length()));
+        }
+        if (trimmed.startsWith(LEGACY_STATE_PREFIX)) {
+            return new SharedStateRef(trimmed, trimmed.substring(LEGACY_STATE_PREFIX.length()));
+        }
+        if (trimmed.startsWith(LEGACY_NODES_PREFIX)) {
+            String rest = trimmed.substring(LEGACY_NODES_PREFIX.length());
+            int dotIndex = rest.indexOf('.');
+            if (dotIndex <= 0 || dotIndex >= rest.length() - 1) {
+                return new Invalid("历史节点引用格式错误，期望 nodes.nodeId.key: " + trimmed);
+            }
+            return NodeOutputRef.of(trimmed, rest.substring(0, dotIndex), rest.substring(dotIndex + 1));
+        }
+        if (trimmed.contains(OUTPUT_SEGMENT)) {
+            int outputIndex = trimmed.indexOf(OUTPUT_SEGMENT);
+            if (outputIndex <= 0 || outputIndex >= trimmed.length() - OUTPUT_SEGMENT.length()) {
+                return new Invalid("节点输出引用格式错误，期望 nodeId.output.key: " + trimmed);
+            }
+            return NodeOutputRef.of(trimmed, trimmed.substring(0, outputIndex),
+                    trimmed.substring(outputIndex + OUTPUT_SEGMENT.length()));
+        }
+        return new Literal(expression);
+    }
+
+    /**
+     * 非引用文本，原样返回（保留首尾空白）
+     */
+    record Literal(String value) implements CompiledExpression {
+        @Override
+        public Object resolve(ExecutionContext context, UnaryOperator<Object> dereference) {
+            return value;
+        }
+    }
+
+    /**
+     * 格式错误的引用，执行期抛出
+     */
+    record Invalid(String message) implements CompiledExpression {
+        @Override
+        public Object resolve(ExecutionContext context, UnaryOperator<Object> dereference) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    /**
+     * inputs.key
+     */
+    record InputsRef(String reference, String key) implements CompiledExpression {
+        @Override
+        public Object resolve(ExecutionContext context, UnaryOperator<Object> dereference) {
+            if (key.isBlank()) {
+                throw new IllegalArgumentException("全局输入引用缺少 key");
+            }
+            Map<String, Object> inputs = context != null ? context.getInputs() : null;
+            if (inputs == null || !inputs.containsKey(key)) {
+                throw new IllegalArgumentException("全局输入不存在: " + reference);
+            }
+            return inputs.get(key);
+        }
+    }
+
+    /**
+     * sharedState.key / state.key
+     */
+    record SharedStateRef(String reference, String key) implements CompiledExpression {
+        @Override
+        public Object resolve(ExecutionContext context, UnaryOperator<Object> dereference) {
+            if (key.isBlank()) {
+                throw new IllegalArgumentException("共享状态引用缺少 key");
+            }
+            Map<String, Object> sharedState = context != null ? context.getSharedState() : null;
+            if (sharedState == null || !sharedState.containsKey(key)) {
+                throw new IllegalArgumentException("共享状态不存在: " + reference);
+            }
+            return sharedState.get(key);
+        }
+    }
+
+    /**
+     * nodeId.output.a.b.0 / nodes.nodeId.a.b.0，路径段与数组下标预先解析
+     */
+    record NodeOutputRef(String reference, String nodeId, boolean blankPath, String[] segments, int[] indexes)
+            implements CompiledExpression {
+
+        static NodeOutputRef of(String reference, String nodeId, String path) {
+            String[] segments = path.split("\\.");
+            int[] indexes = new int[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                indexes[i] = parseIndex(segments[i]);
+            }
+            return new NodeOutputRef(reference, nodeId, path.isBlank(), segments, indexes);
+        }
+
+        /**
+         * 非数字段记为 Integer.MIN_VALUE
+         */
+        private static int parseIndex(String segment) {
+            try {
+                return Integer.parseInt(segment);
+            } catch (NumberFormatException e) {
+                return Integer.MIN_VALUE;
+            }
+        }
+
+        @Override
+        public Object resolve(ExecutionContext context, UnaryOperator<Object> dereference) {
+            Map<String, Object> nodeOutput = context != null ? context.getNodeOutput(nodeId) : null;
+            if (nodeOutput == null) {
+                throw new IllegalArgumentException("上游节点输出不存在: nodeId=" + nodeId);
+            }
+            if (blankPath) {
+                throw new IllegalArgumentException("引用路径缺少字段: " + reference);
+            }
+
+            Object current = nodeOutput;
+            for (int i = 0; i < segments.length; i++) {
+                String segment = segments[i];
+                if (segment.isBlank()) {
+                    throw new IllegalArgumentException("引用路径包含空字段: " + reference);
+                }
+                if (current instanceof Map<?, ?> map) {
+                    if (!map.containsKey(segment)) {
+                        throw new IllegalArgumentException("上游输出字段不存在: " + reference);
+                    }
+                    // 转存的输出值只出现在节点输出的第一层
+                    current = i == 0 ? dereference.apply(map.get(segment)) : map.get(segment);
+                    continue;
+                }
+                if (current instanceof List<?> list) {
+                    int index = indexes[i];
+                    if (index == Integer.MIN_VALUE) {
+                        throw new IllegalArgumentException("数组引用下标不是数字: " + reference);
+                    }
+                    if (index < 0 || index >= list.size()) {
+                        throw new IllegalArgumentException("数组引用下标越界: " + reference);
+                    }
+                    current = list.get(index);
+                    continue;
+                }
+                throw new IllegalArgumentException("引用路径无法继续解析: " + reference);
+            }
+            return current;
+        }
+    }
+
+    /**
+     * 历史 SpEL：#{...}，解析一次，MIXED 模式下热点表达式编译为字节码，失败时回退解释执行
+     */
+    @Slf4j
+    final class LegacySpel implements CompiledExpression {
+
+        private static final ExpressionParser PARSER = new SpelExpressionParser(
+                new SpelParserConfiguration(SpelCompilerMode.MIXED, LegacySpel.class.getClassLoader()));
+
+        private final String expression;
+        private final Expression parsed;
+        private final String parseError;
+
+        private LegacySpel(String expression, Expression parsed, String parseError) {
+            this.expression = expression;
+            this.parsed = parsed;
+            this.parseError = parseError;
+        }
+
+        static CompiledExpression parse(String expression) {
+            try {
+                return new LegacySpel(expression,
+                        PARSER.parseExpression(expression.substring(2, expression.length() - 1)), null);
+            } catch (Exception e) {
+                // 语法错误推迟到执行期报告，与逐次解析的行为一致
+                return new LegacySpel(expression, null, e.getMessage());
+            }
+        }
+
+        @Override
+        public Object resolve(ExecutionContext context, UnaryOperator<Object> dereference) {
+            String error = parseError;
+            if (parsed != null) {
+                try {
+                    return parsed.getValue(buildEvaluationContext(context, dereference));
+                } catch (Exception e) {
+                    error = e.getMessage();
+                }
+            }
+            log.warn("历史 SpEL 表达式解析失败: expression={}, error={}", expression, error);
+            throw new IllegalArgumentException("历史 SpEL 表达式解析失败: " + expression);
+        }
+
+        /**
+         * 构建 SpEL 评估上下文
+         */
+        private static EvaluationContext buildEvaluationContext(ExecutionContext context,
+                                                                UnaryOperator<Object> dereference) {
+            StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
+
+            // 注册 inputs
+            evaluationContext.setVariable("inputs", context.getInputs());
+
+            // 注册 sharedState
+            evaluationContext.setVariable("sharedState", context.getSharedState());
+
+            // 注册所有节点输出（两种方式访问），转存引用在表达式访问到对应键时才取回
+            // 1. 整体注册为 nodeOutputs map，支持 #nodeOutputs['llm-1']['response'] 语法
+            Map<String, Map<String, Object>> nodeOutputs = new HashMap<>();
+            context.getNodeOutputs().forEach((nodeId, output) ->
+                    nodeOutputs.put(nodeId, new DereferencingMap(output, dereference)));
+            evaluationContext.setVariable("nodeOutputs", nodeOutputs);
+            // 2. 逐个注册（仅对合法变量名有效，如 start, end）
+            for (Map.Entry<String, Map<String, Object>> entry : nodeOutputs.entrySet()) {
+                evaluationContext.setVariable(entry.getKey(), entry.getValue());
+            }
+
+            return evaluationContext;
+        }
+
+        /**
+         * 节点输出的按需解引用视图：只取回被访问到的键，同一次求值内重复访问复用取回结果
+         */
+        private static final class DereferencingMap extends AbstractMap<String, Object> {
+
+            private final Map<String, Object> output;
+            private final UnaryOperator<Object> dereference;
+            private final Map<Object, Object> resolved = new HashMap<>();
+
+            private DereferencingMap(Map<String, Object> output, UnaryOperator<Object> dereference) {
+                this.output = output;
+                this.dereference = dereference;
+            }
+
+            @Override
+            public Object get(Object key) {
+                Object value = output.get(key);
+                return value == null ? null : resolved.computeIfAbsent(key, k -> dereference.apply(value));
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return output.containsKey(key);
+            }
+
+            @Override
+            public int size() {
+                return output.size();
+            }
+
+            @Override
+            public Set<Entry<String, Object>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<String, Object>> iterator() {
+                        Iterator<String> keys = output.keySet().iterator();
+                        return new Iterator<>() {
+                            @Override
+                            public boolean hasNext() {
+                                return keys.hasNext();
+                            }
+
+                            @Override
+                            public Entry<String, Object> next() {
+                                String key = keys.next();
+                                return new SimpleImmutableEntry<>(key, get(key));
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return output.size();
+                    }
+                };
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.zj.aiagent.infrastructure.workflow.listener;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.zj.aiagent.domain.workflow.entity.WorkflowNodeExecutionLog;
+import com.zj.aiagent.domain.workflow.port.WorkflowNodeExecutionLogRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 节点执行日志批量写入器
+ *
+ * 节点完成时日志先进入有界队列，由后台线程按条数或时间间隔攒批，以一条多行 INSERT 写入 MySQL；
+ * 队列满时在调用线程直接写入，不丢日志。
+ * 同时按执行维护内存中的日志视图，执行结束时构建思维链、提取最终响应直接读取视图，
+ * 无需等待异步写入落库后再回查数据库。
+ * 在本实例启动的执行由 {@link #open(String)} 建立空视图；其它情况（在其它实例启动后恢复、实例重启、
+ * 视图过期）首次访问时从数据库加载一次已落库的日志；执行结束后由 {@link #close(String)} 释放视图。
+ */
+@Slf4j
+@Component
+public class WorkflowAuditWriter {
+
+    private final WorkflowNodeExecutionLogRepository repository;
+    private final BlockingQueue<WorkflowNodeExecutionLog> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    /**
+     * 执行日志视图 (executionId -> 按完成顺序排列的日志)
+     */
+    private final Cache<String, List<WorkflowNodeExecutionLog>> recent;
+
+    private volatile boolean running = true;
+    private Thread flusher;
+
+    public WorkflowAuditWriter(
+            WorkflowNodeExecutionLogRepository repository,
+            @Value("${workflow.audit.queue-capacity:10000}") int queueCapacity,
+            @Value("${workflow.audit.batch-size:100}") int batchSize,
+            @Value("${workflow.audit.flush-interval-ms:200}") long flushIntervalMillis,
+            @Value("${workflow.audit.view-max-executions:1000}") long viewMaxExecutions,
+            @Value("${workflow.audit.view-retention:10m}") Duration viewRetention) {
+        this.repository = repository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.recent = CacheBuilder.newBuilder()
+                .maximumSize(viewMaxExecutions)
+                .expireAfterAccess(viewRetention)
+                .build();
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Thread.ofPlatform()
+                .name("workflow-audit-writer")
+                .daemon(true)
+                .start(this::runLoop);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (flusher != null) {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        // 兜底写出残留日志
+        flushRemaining();
+    }
+
+    /**
+     * 为本实例新启动的执行建立空日志视图
+     */
+    public void open(String executionId) {
+        recent.put(executionId, new CopyOnWriteArrayList<>());
+    }
+
+    /**
+     * 执行结束后释放其日志视图，已提交的日志仍按批落库
+     */
+    public void close(String executionId) {
+        recent.invalidate(executionId);
+    }
+
+    /**
+     * 提交一条节点执行日志：立即进入内存视图，异步批量落库
+     */
+    public void submit(WorkflowNodeExecutionLog executionLog) {
+        view(executionLog.getExecutionId()).add(executionLog);
+        if (!queue.offer(executionLog)) {
+            log.warn("[Audit] Queue full, writing log of node {} synchronously", executionLog.getNodeId());
+            write(List.of(executionLog));
+        }
+    }
+
+    /**
+     * 某次执行的节点日志（按完成顺序）
+     */
+    public List<WorkflowNodeExecutionLog> logsOf(String executionId) {
+        return List.copyOf(view(executionId));
+    }
+
+    /**
+     * 待写入的日志条数
+     */
+    public int pendingCount() {
+        return queue.size();
+    }
+
+    private List<WorkflowNodeExecutionLog> view(String executionId) {
+        try {
+            return recent.get(executionId, () -> new CopyOnWriteArrayList<>(
+                    repository.findByExecutionIdOrderByEndTime(executionId)));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            log.warn("[Audit] Failed to load execution logs of {}: {}", executionId, e.getMessage());
+            return new CopyOnWriteArrayList<>();
+        }
+    }
+
+    private void runLoop() {
+        List<WorkflowNodeExecutionLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                WorkflowNodeExecutionLog first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // 攒批：直到满一批或距首条超过刷新间隔
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    WorkflowNodeExecutionLog next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(List.copyOf(batch));
+            } catch (InterruptedException e) {
+                write(List.copyOf(batch));
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flushRemaining() {
+        List<WorkflowNodeExecutionLog> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(List.copyOf(batch));
+            batch.clear();
+        }
+    }
+
+    private void write(List<WorkflowNodeExecutionLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            repository.saveAll(batch);
+            log.debug("[Audit] Saved {} execution log(s)", batch.size());
+        } catch (Exception e) {
+            // 批量失败时逐条重试，避免一条坏数据拖累整批
+            log.warn("[Audit] Batch insert of {} log(s) failed, retrying one by one: {}", batch.size(), e.getMessage());
+            for (WorkflowNodeExecutionLog executionLog : batch) {
+                try {
+                    repository.save(executionLog);
+                } catch (Exception ex) {
+                    log.error("[Audit] Failed to save execution log for node: {}", executionLog.getNodeId(), ex);
+                }
+            }
+        }
+    }
+}
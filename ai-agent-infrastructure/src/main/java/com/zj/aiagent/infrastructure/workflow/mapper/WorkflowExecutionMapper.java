@@ -0,0 +1,17 @@
+package com.zj.aiagent.infrastructure.workflow.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.zj.aiagent.infrastructure.workflow.po.WorkflowExecutionPO;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface WorkflowExecutionMapper extends BaseMapper<WorkflowExecutionPO> {
+
+    /**
+     * 多行 INSERT 批量归档，执行ID已存在时覆盖
+     */
+    int upsertBatch(@Param("list") List<WorkflowExecutionPO> executions);
+}
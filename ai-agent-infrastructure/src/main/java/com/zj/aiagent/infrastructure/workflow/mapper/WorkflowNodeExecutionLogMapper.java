@@ -3,7 +3,15 @@ package com.zj.aiagent.infrastructure.workflow.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.zj.aiagent.infrastructure.workflow.po.WorkflowNodeExecutionLogPO;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 @Mapper
 public interface WorkflowNodeExecutionLogMapper extends BaseMapper<WorkflowNodeExecutionLogPO> {
+
+    /**
+     * 多行 INSERT 批量写入
+     */
+    int insertBatch(@Param("list") List<WorkflowNodeExecutionLogPO> logs);
 }
@@ -0,0 +1,105 @@
+package com.zj.aiagent.infrastructure.workflow.persistence;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zj.aiagent.domain.workflow.entity.Execution;
+import com.zj.aiagent.domain.workflow.port.ExecutionArchiveRepository;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionHistoryCursor;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
+import com.zj.aiagent.infrastructure.workflow.mapper.WorkflowExecutionMapper;
+import com.zj.aiagent.infrastructure.workflow.po.WorkflowExecutionPO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * 执行归档仓储实现（workflow_execution 表）
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class WorkflowExecutionArchiveRepositoryImpl implements ExecutionArchiveRepository {
+
+    private final WorkflowExecutionMapper executionMapper;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void saveAll(List<Execution> executions) {
+        if (executions == null || executions.isEmpty()) {
+            return;
+        }
+        executionMapper.upsertBatch(executions.stream().map(this::toPO).collect(Collectors.toList()));
+    }
+
+    @Override
+    public Optional<Execution> findById(String executionId) {
+        return Optional.ofNullable(executionMapper.selectById(executionId)).map(this::toDomain);
+    }
+
+    @Override
+    public List<Execution> findByConversationId(String conversationId, ExecutionHistoryCursor cursor, int limit) {
+        LambdaQueryWrapper<WorkflowExecutionPO> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(WorkflowExecutionPO::getConversationId, conversationId);
+        if (cursor != null) {
+            wrapper.and(w -> w.lt(WorkflowExecutionPO::getStartedAt, cursor.createdAt())
+                    .or(o -> o.eq(WorkflowExecutionPO::getStartedAt, cursor.createdAt())
+                            .lt(WorkflowExecutionPO::getExecutionId, cursor.executionId())));
+        }
+        wrapper.orderByDesc(WorkflowExecutionPO::getStartedAt)
+                .orderByDesc(WorkflowExecutionPO::getExecutionId)
+                .last("LIMIT " + limit);
+        return executionMapper.selectList(wrapper).stream()
+                .map(this::toDomain)
+                .collect(Collectors.toList());
+    }
+
+    // --- Converters ---
+
+    private WorkflowExecutionPO toPO(Execution domain) {
+        WorkflowExecutionPO po = new WorkflowExecutionPO();
+        po.setExecutionId(domain.getExecutionId());
+        po.setAgentId(domain.getAgentId());
+        po.setUserId(domain.getUserId());
+        po.setConversationId(domain.getConversationId());
+        po.setStatus(domain.getStatus().name());
+        po.setNodeStatuses(objectMapper.valueToTree(domain.getNodeStatuses()));
+        // 按毫秒截断后写入，避免 datetime(3) 四舍五入与游标的毫秒比较不一致
+        po.setStartedAt(millis(domain.getCreatedAt()));
+        po.setCompletedAt(millis(domain.getUpdatedAt()));
+        if (domain.getCreatedAt() != null && domain.getUpdatedAt() != null) {
+            po.setDurationMs(Duration.between(domain.getCreatedAt(), domain.getUpdatedAt()).toMillis());
+        }
+        return po;
+    }
+
+    private Execution toDomain(WorkflowExecutionPO po) {
+        Map<String, ExecutionStatus> nodeStatuses = po.getNodeStatuses() == null
+                ? new HashMap<>()
+                : objectMapper.convertValue(po.getNodeStatuses(), new TypeReference<Map<String, ExecutionStatus>>() {
+                });
+        return Execution.builder()
+                .executionId(po.getExecutionId())
+                .agentId(po.getAgentId())
+                .userId(po.getUserId())
+                .conversationId(po.getConversationId())
+                .status(ExecutionStatus.valueOf(po.getStatus()))
+                .nodeStatuses(nodeStatuses)
+                .createdAt(po.getStartedAt())
+                .updatedAt(po.getCompletedAt())
+                .build();
+    }
+
+    private static LocalDateTime millis(LocalDateTime time) {
+        return time != null ? time.truncatedTo(ChronoUnit.MILLIS) : null;
+    }
+}
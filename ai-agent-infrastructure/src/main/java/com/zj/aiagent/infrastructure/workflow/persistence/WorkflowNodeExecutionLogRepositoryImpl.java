@@ -30,6 +30,14 @@ public class WorkflowNodeExecutionLogRepositoryImpl implements WorkflowNodeExecu
         logDomain.setId(po.getId());
     }
 
+    @Override
+    public void saveAll(List<WorkflowNodeExecutionLog> logs) {
+        if (logs == null || logs.isEmpty()) {
+            return;
+        }
+        logMapper.insertBatch(logs.stream().map(this::toPO).collect(Collectors.toList()));
+    }
+
     @Override
     public List<WorkflowNodeExecutionLog> findByExecutionId(String executionId) {
         LambdaQueryWrapper<WorkflowNodeExecutionLogPO> wrapper = new LambdaQueryWrapper<>();
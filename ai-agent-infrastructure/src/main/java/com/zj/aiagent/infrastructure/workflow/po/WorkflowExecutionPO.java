@@ -0,0 +1,31 @@
+package com.zj.aiagent.infrastructure.workflow.po;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.extension.handlers.JacksonTypeHandler;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@TableName(value = "workflow_execution", autoResultMap = true)
+public class WorkflowExecutionPO {
+
+    @TableId(type = IdType.INPUT)
+    private String executionId;
+
+    private Long agentId;
+    private Long userId;
+    private String conversationId;
+    private String status;
+
+    @TableField(typeHandler = JacksonTypeHandler.class)
+    private JsonNode nodeStatuses;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+    private Long durationMs;
+}
@@ -0,0 +1,258 @@
+package com.zj.aiagent.infrastructure.workflow.repository;
+
+import com.zj.aiagent.domain.workflow.entity.Execution;
+import com.zj.aiagent.domain.workflow.port.ExecutionRepository;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地执行状态缓存 + 写后持久化
+ *
+ * 运行中的 Execution 由启动它的实例持有，调度过程中的读取直接命中本地对象，
+ * 不再每次从 Redis 反序列化整个聚合。中间状态的写入在调用线程上生成快照后
+ * 交给单线程异步刷盘，同一执行在刷盘窗口内的多次更新合并为一次写入；
+ * 暂停、终态等状态边界同步写入 Redis 并释放本地持有，保证其他实例接手时读到最新状态。
+ *
+ * 本地对象只交给调度邮箱线程读写；其他线程经 {@link #findSnapshotById} 读取，
+ * 由最近一次写入的快照还原出独立副本，不与调度中的状态变更共享对象。
+ */
+@Slf4j
+@Primary
+@Repository
+public class CachedExecutionRepository implements ExecutionRepository {
+
+    /**
+     * 写后刷盘失败的重试间隔
+     */
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    private final RedisExecutionRepository delegate;
+    private final long writeBehindMillis;
+    private final long idleEvictMillis;
+
+    /**
+     * 本实例持有的运行中执行 (executionId -> Execution)
+     */
+    private final Map<String, LiveExecution> live = new ConcurrentHashMap<>();
+
+    /**
+     * 待刷盘的最新快照 (executionId -> Snapshot)
+     */
+    private final Map<String, ExecutionSnapshot> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 已写入 Redis 的最大版本，防止异步刷盘覆盖更新的同步写入
+     */
+    private final Map<String, Integer> flushedVersions = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "wf-exec-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CachedExecutionRepository(
+            RedisExecutionRepository delegate,
+            @Value("${workflow.execution.write-behind-ms:50}") long writeBehindMillis,
+            @Value("${workflow.execution.idle-evict-ms:600000}") long idleEvictMillis) {
+        this.delegate = delegate;
+        this.writeBehindMillis = writeBehindMillis;
+        this.idleEvictMillis = idleEvictMillis;
+    }
+
+    @Override
+    public void save(Execution execution) {
+        // 启动边界：同步写入，建立会话索引
+        delegate.save(execution);
+        flushedVersions.put(execution.getExecutionId(), execution.getVersion());
+        live.put(execution.getExecutionId(), new LiveExecution(execution, delegate.serialize(execution)));
+    }
+
+    @Override
+    public Optional<Execution> findById(String executionId) {
+        LiveExecution cached = live.get(executionId);
+        if (cached != null) {
+            cached.touch();
+            return Optional.of(cached.execution);
+        }
+        return delegate.findById(executionId);
+    }
+
+    @Override
+    public Optional<Execution> findSnapshotById(String executionId) {
+        LiveExecution cached = live.get(executionId);
+        if (cached != null) {
+            return Optional.of(delegate.deserialize(cached.snapshot));
+        }
+        return delegate.findById(executionId);
+    }
+
+    @Override
+    public void update(Execution execution) {
+        String executionId = execution.getExecutionId();
+        // 调用方即持有聚合的邮箱线程，快照在此生成，之后只在快照上跨线程读取
+        ExecutionSnapshot snapshot = delegate.serialize(execution);
+
+        if (isBoundary(execution.getStatus())) {
+            // 状态边界：丢弃未刷盘的旧快照，同步写入后释放本地持有
+            pending.remove(executionId);
+            flush(snapshot);
+            release(executionId);
+            return;
+        }
+
+        live.compute(executionId, (id, existing) -> {
+            if (existing != null && existing.execution == execution) {
+                existing.snapshot = snapshot;
+                existing.touch();
+                return existing;
+            }
+            return new LiveExecution(execution, snapshot);
+        });
+        if (pending.put(executionId, snapshot) == null) {
+            writer.schedule(() -> flushPending(executionId), writeBehindMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public List<Execution> findByConversationId(String conversationId) {
+        List<Execution> persisted = delegate.findByConversationId(conversationId);
+        Map<String, Execution> merged = new LinkedHashMap<>();
+        for (Execution execution : persisted) {
+            LiveExecution cached = live.get(execution.getExecutionId());
+            merged.put(execution.getExecutionId(),
+                    cached != null ? delegate.deserialize(cached.snapshot) : execution);
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    @Override
+    public void evict(String executionId) {
+        flushPending(executionId);
+        release(executionId);
+    }
+
+    /**
+     * 空闲执行兜底回收（取消后未走终态、实例间被接管等情况）
+     */
+    @Scheduled(fixedDelayString = "${workflow.execution.idle-sweep-ms:60000}")
+    public void evictIdle() {
+        long threshold = System.currentTimeMillis() - idleEvictMillis;
+        live.forEach((executionId, cached) -> {
+            if (cached.lastAccess < threshold) {
+                log.info("[ExecutionCache] Evicting idle execution: {}", executionId);
+                evict(executionId);
+            }
+        });
+    }
+
+    /**
+     * 将所有待写快照同步刷入 Redis
+     */
+    public void flushAll() {
+        new ArrayList<>(pending.keySet()).forEach(this::flushPending);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushAll();
+        writer.shutdown();
+    }
+
+    /**
+     * 本实例当前持有的执行数量
+     */
+    public int liveCount() {
+        return live.size();
+    }
+
+    private void flushPending(String executionId) {
+        ExecutionSnapshot snapshot = pending.remove(executionId);
+        if (snapshot != null) {
+            try {
+                flush(snapshot);
+            } catch (Exception e) {
+                log.error("[ExecutionCache] Write-behind failed for {}: {}", executionId, e.getMessage());
+                requeue(snapshot);
+            }
+        }
+    }
+
+    /**
+     * 刷盘失败的快照放回待写队列并延迟重试；期间已有更新的快照排队时以新快照为准
+     */
+    private void requeue(ExecutionSnapshot snapshot) {
+        String executionId = snapshot.executionId();
+        if (writer.isShutdown()) {
+            return;
+        }
+        if (pending.putIfAbsent(executionId, snapshot) == null) {
+            writer.schedule(() -> {
+                flushPending(executionId);
+                forgetIfReleased(executionId);
+            }, RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush(ExecutionSnapshot snapshot) {
+        // compute 保证同一执行的版本检查与写入原子进行
+        flushedVersions.compute(snapshot.executionId(), (id, flushed) -> {
+            if (flushed != null && flushed > snapshot.version()) {
+                log.debug("[ExecutionCache] Skip stale snapshot {} (v{} < v{})", id, snapshot.version(), flushed);
+                return flushed;
+            }
+            delegate.write(snapshot);
+            return snapshot.version();
+        });
+    }
+
+    private void release(String executionId) {
+        live.remove(executionId);
+        // 放到写线程上清理，确保排在可能仍在进行的异步刷盘之后
+        writer.execute(() -> forgetIfReleased(executionId));
+    }
+
+    private void forgetIfReleased(String executionId) {
+        if (!live.containsKey(executionId) && !pending.containsKey(executionId)) {
+            flushedVersions.remove(executionId);
+            delegate.forget(executionId);
+        }
+    }
+
+    private boolean isBoundary(ExecutionStatus status) {
+        return status == null
+                || status.isTerminal()
+                || status == ExecutionStatus.PAUSED
+                || status == ExecutionStatus.PAUSED_FOR_REVIEW;
+    }
+
+    private static final class LiveExecution {
+        private final Execution execution;
+        private volatile ExecutionSnapshot snapshot;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private LiveExecution(Execution execution, ExecutionSnapshot snapshot) {
+            this.execution = execution;
+            this.snapshot = snapshot;
+        }
+
+        private void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+    }
+}
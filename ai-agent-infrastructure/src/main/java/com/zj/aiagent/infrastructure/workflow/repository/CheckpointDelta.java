@@ -0,0 +1,123 @@
+package com.zj.aiagent.infrastructure.workflow.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 检查点上下文增量
+ *
+ * 以 JSON 树比对相邻两次上下文快照：inputs / nodeOutputs / sharedState 按 key 记录新增、变更与删除，
+ * 其余字段（长期记忆、会话历史、执行日志）变化时整体替换。基线快照依次应用各增量即得到最新快照。
+ *
+ * 增量格式：
+ * <pre>
+ * {
+ *   "set":      { "nodeOutputs": { "llm-1": {...} } },
+ *   "removed":  { "sharedState": ["tmp"] },
+ *   "replaced": { "executionLog": {...} },
+ *   "unset":    ["chatHistory"]
+ * }
+ * </pre>
+ */
+final class CheckpointDelta {
+
+    /**
+     * 按 key 比对的 Map 字段
+     */
+    static final Set<String> KEYED_FIELDS = Set.of("inputs", "nodeOutputs", "sharedState");
+
+    private static final String SET = "set";
+    private static final String REMOVED = "removed";
+    private static final String REPLACED = "replaced";
+    private static final String UNSET = "unset";
+
+    private CheckpointDelta() {
+    }
+
+    /**
+     * 计算 previous -> current 的增量，两棵树均不会被修改
+     */
+    static ObjectNode diff(ObjectNode previous, ObjectNode current) {
+        ObjectNode delta = JsonNodeFactory.instance.objectNode();
+        Set<String> fields = new LinkedHashSet<>();
+        previous.fieldNames().forEachRemaining(fields::add);
+        current.fieldNames().forEachRemaining(fields::add);
+
+        for (String field : fields) {
+            JsonNode before = previous.get(field);
+            JsonNode after = current.get(field);
+            if (Objects.equals(before, after)) {
+                continue;
+            }
+            if (after == null) {
+                delta.withArrayProperty(UNSET).add(field);
+            } else if (KEYED_FIELDS.contains(field) && before instanceof ObjectNode beforeMap
+                    && after instanceof ObjectNode afterMap) {
+                diffKeys(delta, field, beforeMap, afterMap);
+            } else {
+                delta.withObjectProperty(REPLACED).set(field, after);
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * 将增量应用到 target（原地修改）
+     */
+    static void apply(ObjectNode target, ObjectNode delta) {
+        JsonNode set = delta.get(SET);
+        if (set != null) {
+            for (Iterator<Map.Entry<String, JsonNode>> it = set.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> entry = it.next();
+                ObjectNode map = keyedMap(target, entry.getKey());
+                entry.getValue().fields().forEachRemaining(e -> map.set(e.getKey(), e.getValue()));
+            }
+        }
+        JsonNode removed = delta.get(REMOVED);
+        if (removed != null) {
+            for (Iterator<Map.Entry<String, JsonNode>> it = removed.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> entry = it.next();
+                ObjectNode map = keyedMap(target, entry.getKey());
+                entry.getValue().forEach(key -> map.remove(key.asText()));
+            }
+        }
+        JsonNode replaced = delta.get(REPLACED);
+        if (replaced != null) {
+            replaced.fields().forEachRemaining(e -> target.set(e.getKey(), e.getValue()));
+        }
+        JsonNode unset = delta.get(UNSET);
+        if (unset != null) {
+            unset.forEach(field -> target.remove(field.asText()));
+        }
+    }
+
+    private static void diffKeys(ObjectNode delta, String field, ObjectNode before, ObjectNode after) {
+        for (Iterator<Map.Entry<String, JsonNode>> it = after.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            if (!Objects.equals(before.get(entry.getKey()), entry.getValue())) {
+                delta.withObjectProperty(SET).withObjectProperty(field).set(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Iterator<String> it = before.fieldNames(); it.hasNext(); ) {
+            String key = it.next();
+            if (!after.has(key)) {
+                delta.withObjectProperty(REMOVED).withArrayProperty(field).add(key);
+            }
+        }
+    }
+
+    private static ObjectNode keyedMap(ObjectNode target, String field) {
+        JsonNode map = target.get(field);
+        if (map instanceof ObjectNode objectNode) {
+            return objectNode;
+        }
+        return target.putObject(field);
+    }
+}
@@ -0,0 +1,107 @@
+package com.zj.aiagent.infrastructure.workflow.repository;
+
+import com.zj.aiagent.domain.workflow.entity.Execution;
+import com.zj.aiagent.domain.workflow.port.ExecutionArchiveRepository;
+import com.zj.aiagent.infrastructure.redis.IRedisService;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 已结束执行归档任务
+ *
+ * 定时从结束时间索引中取出结束超过最短保留时长的执行，按批写入 MySQL 归档后再从 Redis 移除，
+ * Redis 中只保留运行中与刚结束的执行。先写归档再删 Redis：中途失败时下次重试，归档按执行ID覆盖写入。
+ * 多实例通过分布式锁保证同一时刻只有一个实例在归档。
+ */
+@Slf4j
+@Component
+public class ExecutionArchiver {
+
+    private static final String LOCK_KEY = "workflow:execution:archive:lock";
+
+    private final RedisExecutionRepository executionRepository;
+    private final ExecutionArchiveRepository archiveRepository;
+    private final IRedisService redisService;
+    private final int batchSize;
+    private final int maxBatches;
+    private final Duration minAge;
+
+    public ExecutionArchiver(
+            RedisExecutionRepository executionRepository,
+            ExecutionArchiveRepository archiveRepository,
+            IRedisService redisService,
+            @Value("${workflow.execution.archive.batch-size:200}") int batchSize,
+            @Value("${workflow.execution.archive.max-batches:50}") int maxBatches,
+            @Value("${workflow.execution.archive.min-age:1h}") Duration minAge) {
+        this.executionRepository = executionRepository;
+        this.archiveRepository = archiveRepository;
+        this.redisService = redisService;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.minAge = minAge;
+    }
+
+    @Scheduled(fixedDelayString = "${workflow.execution.archive.interval-ms:60000}")
+    public void archive() {
+        RLock lock = redisService.getLock(LOCK_KEY);
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            int archived = 0;
+            for (int i = 0; i < maxBatches; i++) {
+                int count = archiveBatch();
+                archived += count;
+                if (count < batchSize) {
+                    break;
+                }
+            }
+            if (archived > 0) {
+                log.info("[ExecutionArchive] Archived {} executions", archived);
+            }
+        } catch (Exception e) {
+            log.error("[ExecutionArchive] Archive failed: {}", e.getMessage(), e);
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 归档一批
+     *
+     * @return 本批从索引中取出的执行数（含已过期的残留ID）
+     */
+    int archiveBatch() {
+        long terminatedBefore = System.currentTimeMillis() - minAge.toMillis();
+        List<String> executionIds = executionRepository.findTerminatedBefore(terminatedBefore, batchSize);
+        if (executionIds.isEmpty()) {
+            return 0;
+        }
+
+        List<Execution> terminated = new ArrayList<>(executionIds.size());
+        Set<String> stale = new HashSet<>(executionIds);
+        for (Execution execution : executionRepository.findAllById(executionIds)) {
+            // 只归档仍处于终态的执行；结束后被重新拉起的执行只移出结束时间索引
+            if (execution.getStatus() != null && execution.getStatus().isTerminal()) {
+                terminated.add(execution);
+                stale.remove(execution.getExecutionId());
+            }
+        }
+
+        archiveRepository.saveAll(terminated);
+        executionRepository.removeArchived(terminated, stale);
+        log.debug("[ExecutionArchive] Batch archived: {}, skipped: {}", terminated.size(), stale.size());
+        return executionIds.size();
+    }
+}
@@ -0,0 +1,169 @@
+package com.zj.aiagent.infrastructure.workflow.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.zj.aiagent.domain.workflow.entity.Execution;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionContext;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 执行聚合 <-> Redis Hash 字段编解码
+ *
+ * 字段布局：
+ * <pre>
+ * _v              版本号
+ * meta            标量属性（状态、暂停点、审核记录、时间戳等）
+ * graph           工作流图（执行期间不变，仅全量写入时携带）
+ * ns:{nodeId}     节点状态
+ * out:{nodeId}    节点输出
+ * ctx:inputs / ctx:shared / ctx:ltm / ctx:history / ctx:log  上下文各分区
+ * </pre>
+ * 解码时重新拼装成与整体序列化一致的 JSON 树，再交给 Jackson 反序列化，保证与旧格式行为一致。
+ */
+final class ExecutionHashCodec {
+
+    static final String VERSION_FIELD = "_v";
+    static final String META_FIELD = "meta";
+    static final String GRAPH_FIELD = "graph";
+    static final String NODE_STATUS_PREFIX = "ns:";
+    static final String NODE_OUTPUT_PREFIX = "out:";
+
+    private static final String CTX_INPUTS = "ctx:inputs";
+    private static final String CTX_SHARED = "ctx:shared";
+    private static final String CTX_LTM = "ctx:ltm";
+    private static final String CTX_HISTORY = "ctx:history";
+    private static final String CTX_LOG = "ctx:log";
+
+    private final ObjectMapper objectMapper;
+
+    ExecutionHashCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 编码为分字段快照（不含 graph）
+     */
+    ExecutionSnapshot encode(Execution execution) throws JsonProcessingException {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put(META_FIELD, objectMapper.writeValueAsString(meta(execution)));
+
+        for (Map.Entry<String, ExecutionStatus> entry : execution.getNodeStatuses().entrySet()) {
+            if (entry.getValue() != null) {
+                fields.put(NODE_STATUS_PREFIX + entry.getKey(), entry.getValue().name());
+            }
+        }
+
+        ExecutionContext context = execution.getContext();
+        if (context != null) {
+            putJson(fields, CTX_INPUTS, context.getInputs());
+            putJson(fields, CTX_SHARED, context.getSharedState());
+            putJson(fields, CTX_LTM, context.getLongTermMemories());
+            putJson(fields, CTX_HISTORY, context.getChatHistory());
+            putJson(fields, CTX_LOG, context.getExecutionLog());
+            if (context.getNodeOutputs() != null) {
+                for (Map.Entry<String, Map<String, Object>> entry : context.getNodeOutputs().entrySet()) {
+                    putJson(fields, NODE_OUTPUT_PREFIX + entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        return new ExecutionSnapshot(
+                execution.getExecutionId(),
+                execution.getVersion(),
+                execution.getStatus(),
+                execution.getGraph(),
+                fields);
+    }
+
+    String encodeGraph(ExecutionSnapshot snapshot) throws JsonProcessingException {
+        return snapshot.graph() == null ? null : objectMapper.writeValueAsString(snapshot.graph());
+    }
+
+    /**
+     * 由 Hash 全部字段还原执行聚合
+     */
+    Execution decode(Map<String, String> fields) throws JsonProcessingException {
+        String meta = fields.get(META_FIELD);
+        ObjectNode root = meta != null
+                ? (ObjectNode) objectMapper.readTree(meta)
+                : objectMapper.createObjectNode();
+
+        String version = fields.get(VERSION_FIELD);
+        if (version != null) {
+            root.put("version", Integer.parseInt(version));
+        }
+        String graph = fields.get(GRAPH_FIELD);
+        if (graph != null) {
+            root.set("graph", objectMapper.readTree(graph));
+        }
+
+        ObjectNode nodeStatuses = root.putObject("nodeStatuses");
+        ObjectNode context = root.putObject("context");
+        ObjectNode nodeOutputs = context.putObject("nodeOutputs");
+
+        for (Map.Entry<String, String> entry : fields.entrySet()) {
+            String field = entry.getKey();
+            String value = entry.getValue();
+            if (field.startsWith(NODE_STATUS_PREFIX)) {
+                nodeStatuses.put(field.substring(NODE_STATUS_PREFIX.length()), value);
+            } else if (field.startsWith(NODE_OUTPUT_PREFIX)) {
+                nodeOutputs.set(field.substring(NODE_OUTPUT_PREFIX.length()), objectMapper.readTree(value));
+            } else {
+                switch (field) {
+                    case CTX_INPUTS -> context.set("inputs", objectMapper.readTree(value));
+                    case CTX_SHARED -> context.set("sharedState", objectMapper.readTree(value));
+                    case CTX_LTM -> context.set("longTermMemories", objectMapper.readTree(value));
+                    case CTX_HISTORY -> context.set("chatHistory", objectMapper.readTree(value));
+                    // 旧版为纯文本日志，由 ExecutionLog.fromText 迁移
+                    case CTX_LOG -> context.set("executionLog", value.startsWith("{")
+                            ? objectMapper.readTree(value)
+                            : objectMapper.getNodeFactory().textNode(value));
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        return objectMapper.treeToValue(root, Execution.class);
+    }
+
+    /**
+     * 解码升级前的整体 JSON 格式
+     */
+    Execution decodeLegacy(String json) throws JsonProcessingException {
+        return objectMapper.readValue(json, Execution.class);
+    }
+
+    /**
+     * 是否为随节点增减的动态字段（全量快照中不存在时需要删除）
+     */
+    static boolean isDynamicField(String field) {
+        return field.startsWith(NODE_STATUS_PREFIX) || field.startsWith(NODE_OUTPUT_PREFIX);
+    }
+
+    private Map<String, Object> meta(Execution execution) {
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("executionId", execution.getExecutionId());
+        meta.put("agentId", execution.getAgentId());
+        meta.put("userId", execution.getUserId());
+        meta.put("conversationId", execution.getConversationId());
+        meta.put("assistantMessageId", execution.getAssistantMessageId());
+        meta.put("status", execution.getStatus());
+        meta.put("pausedNodeId", execution.getPausedNodeId());
+        meta.put("pausedPhase", execution.getPausedPhase());
+        meta.put("reviewedNodes", execution.getReviewedNodes());
+        meta.put("createdAt", execution.getCreatedAt());
+        meta.put("updatedAt", execution.getUpdatedAt());
+        return meta;
+    }
+
+    private void putJson(Map<String, String> fields, String field, Object value) throws JsonProcessingException {
+        if (value != null) {
+            fields.put(field, objectMapper.writeValueAsString(value));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.zj.aiagent.infrastructure.workflow.repository;
+
+import com.zj.aiagent.domain.workflow.entity.WorkflowGraph;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
+
+import java.util.Map;
+
+/**
+ * 执行聚合的分字段快照
+ *
+ * 在持有聚合的线程上生成，字段值均已序列化为字符串，可安全地交给其他线程写入。
+ * graph 在执行期间不变，只保留引用，需要全量写入时再序列化。
+ */
+public record ExecutionSnapshot(
+        String executionId,
+        Integer version,
+        ExecutionStatus status,
+        WorkflowGraph graph,
+        Map<String, String> fields) {
+}
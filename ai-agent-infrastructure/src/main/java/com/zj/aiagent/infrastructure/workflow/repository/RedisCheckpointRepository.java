@@ -1,51 +1,98 @@
 package com.zj.aiagent.infrastructure.workflow.repository;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.zj.aiagent.domain.workflow.port.CheckpointRepository;
 import com.zj.aiagent.domain.workflow.valobj.Checkpoint;
-import com.zj.aiagent.infrastructure.redis.IRedisService;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBatch;
+import org.redisson.api.RScoredSortedSetAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.ScoredEntry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Redis 检查点仓储实现
- * 使用 ZSET（有序集合）维护时间戳索引，解决键名字典序排序的不稳定性问题
+ * 使用 ZSET（有序集合）维护写入顺序索引，分数为每个执行单调递增的序号，
+ * 同一毫秒内写入的检查点也按写入顺序排列（不依赖 checkpointId 中的时间戳或键名字典序）
+ *
+ * 检查点按"基线 + 增量"存储：每个执行每 baseInterval 个检查点写一次完整上下文（基线），
+ * 其余只写与上一个检查点的上下文差异（见 {@link CheckpointDelta}），条目键名区分类型：
+ * workflow:checkpoint:{executionId}:base:{checkpointId} / workflow:checkpoint:{executionId}:delta:{checkpointId}。
+ * 只保留最近 retention 个检查点及其依赖的基线，更早的条目在写入同一批次中删除。
+ * 内存中的比对基准可能因其它实例写入同一执行而过期：每次写入前核对索引末尾仍是本实例最近写入的条目，
+ * 不一致时重新加载索引并写基线。
+ * 恢复时从最近的基线开始依次应用增量；同一批次写入条目、索引与暂停点，清理以单条 DEL 删除全部键。
  */
 @Slf4j
 @Repository
-@RequiredArgsConstructor
 public class RedisCheckpointRepository implements CheckpointRepository {
 
     private static final String KEY_PREFIX = "workflow:checkpoint:";
     private static final String INDEX_PREFIX = "workflow:checkpoint:index:";
     private static final String PAUSE_KEY_PREFIX = "workflow:pause:";
+    private static final String BASE_SEGMENT = ":base:";
+    private static final String DELTA_SEGMENT = ":delta:";
+    private static final String CONTEXT_FIELD = "contextSnapshot";
     private static final long TTL_HOURS = 24;
 
-    private final IRedisService redisService;
     private final ObjectMapper objectMapper;
+    private final RedissonClient redissonClient;
+    private final int baseInterval;
+    private final int retention;
+
+    /**
+     * 每个执行最近一次写入的上下文及索引成员，作为下一次增量的比对基准；
+     * 按条数限制，被淘汰的执行下次写入时从库中重新加载索引
+     */
+    private final Cache<String, WriterState> writers;
+
+    public RedisCheckpointRepository(
+            ObjectMapper objectMapper,
+            RedissonClient redissonClient,
+            @Value("${workflow.checkpoint.base-interval:10}") int baseInterval,
+            @Value("${workflow.checkpoint.retention:20}") int retention,
+            @Value("${workflow.checkpoint.writer-cache-size:10000}") long writerCacheSize) {
+        this.objectMapper = objectMapper;
+        this.redissonClient = redissonClient;
+        this.baseInterval = Math.max(1, baseInterval);
+        this.retention = Math.max(1, retention);
+        this.writers = CacheBuilder.newBuilder()
+                .maximumSize(writerCacheSize)
+                .expireAfterAccess(TTL_HOURS, TimeUnit.HOURS)
+                .build();
+    }
 
     @Override
     public void save(Checkpoint checkpoint) {
+        String executionId = checkpoint.getExecutionId();
         try {
-            String key = KEY_PREFIX + checkpoint.getExecutionId() + ":" + checkpoint.getCurrentNodeId();
-            String value = objectMapper.writeValueAsString(checkpoint);
-
-            redisService.setString(key, value, TTL_HOURS, TimeUnit.HOURS);
-
-            // ZSET: 索引键 -> 时间戳分数，便于按时间排序获取最新检查点
-            String indexKey = INDEX_PREFIX + checkpoint.getExecutionId();
-            double timestamp = parseCheckpointTimestamp(checkpoint.getCheckpointId());
-            redisService.addToScoredSortedSet(indexKey, key, timestamp);
-
-            if (checkpoint.isPausePoint()) {
-                String pauseKey = PAUSE_KEY_PREFIX + checkpoint.getExecutionId();
-                redisService.setString(pauseKey, value, TTL_HOURS, TimeUnit.HOURS);
+            WriterState state = writers.get(executionId, () -> new WriterState(loadEntries(executionId)));
+            synchronized (state) {
+                try {
+                    verifyTail(executionId, state);
+                    write(checkpoint, state);
+                } catch (Exception e) {
+                    // 内存基准可能与库中不一致，下次写入重新建立基线
+                    writers.invalidate(executionId);
+                    throw e;
+                }
             }
-
             log.debug("[Checkpoint] Saved: {}", checkpoint.getCheckpointId());
         } catch (Exception e) {
             log.error("[Checkpoint] Failed to save: {}", e.getMessage(), e);
@@ -56,19 +103,40 @@ public class RedisCheckpointRepository implements CheckpointRepository {
     @Override
     public Optional<Checkpoint> findLatest(String executionId) {
         try {
-            String indexKey = INDEX_PREFIX + executionId;
-            String latestKey = redisService.getHighestScored(indexKey);
-
-            if (latestKey == null) {
+            List<String> members = loadIndex(executionId);
+            int from = lastBaseIndex(executionId, members, members.size() - 1);
+            if (from < 0) {
                 return Optional.empty();
             }
 
-            String value = redisService.getString(latestKey);
-            if (value == null) {
-                return Optional.empty();
+            List<String> chain = members.subList(from, members.size());
+            Map<String, String> values = redissonClient.getBuckets(StringCodec.INSTANCE)
+                    .get(chain.toArray(String[]::new));
+
+            ObjectNode latest = null;
+            ObjectNode context = null;
+            for (String key : chain) {
+                String value = values.get(key);
+                if (value == null) {
+                    // 链路中断（条目过期），停在最后一个可完整还原的检查点
+                    log.warn("[Checkpoint] Missing entry {}, restoring from preceding checkpoint", key);
+                    break;
+                }
+                ObjectNode tree = (ObjectNode) objectMapper.readTree(value);
+                JsonNode snapshot = tree.get(CONTEXT_FIELD);
+                if (isBase(executionId, key)) {
+                    context = snapshot instanceof ObjectNode objectNode ? objectNode : null;
+                } else if (context != null && snapshot instanceof ObjectNode delta) {
+                    CheckpointDelta.apply(context, delta);
+                }
+                latest = tree;
             }
 
-            return Optional.of(objectMapper.readValue(value, Checkpoint.class));
+            if (latest == null) {
+                return Optional.empty();
+            }
+            latest.set(CONTEXT_FIELD, context);
+            return Optional.of(objectMapper.treeToValue(latest, Checkpoint.class));
         } catch (Exception e) {
             log.error("[Checkpoint] Failed to find latest: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to find checkpoint", e);
@@ -78,8 +146,7 @@ public class RedisCheckpointRepository implements CheckpointRepository {
     @Override
     public Optional<Checkpoint> findPausePoint(String executionId) {
         try {
-            String key = PAUSE_KEY_PREFIX + executionId;
-            String value = redisService.getString(key);
+            String value = redissonClient.<String>getBucket(PAUSE_KEY_PREFIX + executionId, StringCodec.INSTANCE).get();
 
             if (value == null) {
                 return Optional.empty();
@@ -95,11 +162,14 @@ public class RedisCheckpointRepository implements CheckpointRepository {
     @Override
     public void deleteByExecutionId(String executionId) {
         try {
-            String indexKey = INDEX_PREFIX + executionId;
-            redisService.delete(indexKey);
-            redisService.delete(PAUSE_KEY_PREFIX + executionId);
+            writers.invalidate(executionId);
+
+            List<String> keys = loadIndex(executionId);
+            keys.add(INDEX_PREFIX + executionId);
+            keys.add(PAUSE_KEY_PREFIX + executionId);
+            redissonClient.getKeys().delete(keys.toArray(String[]::new));
 
-            log.debug("[Checkpoint] Deleted all for execution: {}", executionId);
+            log.debug("[Checkpoint] Deleted {} keys for execution: {}", keys.size(), executionId);
         } catch (Exception e) {
             log.error("[Checkpoint] Failed to delete: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to delete checkpoint", e);
@@ -107,20 +177,173 @@ public class RedisCheckpointRepository implements CheckpointRepository {
     }
 
     /**
-     * 从 checkpointId 解析时间戳（格式: {executionId}_{nodeId}_{timestamp}）
+     * 写入一个检查点：条目、索引、过期条目清理与暂停点在同一批次中提交
      */
-    private double parseCheckpointTimestamp(String checkpointId) {
-        if (checkpointId == null) {
-            return System.currentTimeMillis();
+    private void write(Checkpoint checkpoint, WriterState state) throws Exception {
+        String executionId = checkpoint.getExecutionId();
+        ObjectNode tree = objectMapper.valueToTree(checkpoint);
+        String pauseValue = checkpoint.isPausePoint() ? objectMapper.writeValueAsString(tree) : null;
+
+        JsonNode snapshot = tree.get(CONTEXT_FIELD);
+        ObjectNode context = snapshot instanceof ObjectNode objectNode ? objectNode : null;
+        boolean base = state.lastContext == null || context == null || state.sinceBase >= baseInterval;
+        String key;
+        if (base) {
+            key = KEY_PREFIX + executionId + BASE_SEGMENT + checkpoint.getCheckpointId();
+            state.sinceBase = 0;
+        } else {
+            key = KEY_PREFIX + executionId + DELTA_SEGMENT + checkpoint.getCheckpointId();
+            tree.set(CONTEXT_FIELD, CheckpointDelta.diff(state.lastContext, context));
         }
-        int lastUnderscore = checkpointId.lastIndexOf('_');
-        if (lastUnderscore < 0) {
-            return System.currentTimeMillis();
+        String value = objectMapper.writeValueAsString(tree);
+
+        state.members.remove(key);
+        state.members.addLast(key);
+        List<String> trimmed = trim(executionId, state.members);
+
+        String indexKey = INDEX_PREFIX + executionId;
+        Duration ttl = Duration.ofHours(TTL_HOURS);
+        RBatch batch = redissonClient.createBatch();
+        batch.<String>getBucket(key, StringCodec.INSTANCE).setAsync(value, ttl);
+        RScoredSortedSetAsync<String> index = batch.getScoredSortedSet(indexKey, StringCodec.INSTANCE);
+        double sequence = state.sequence + 1;
+        index.addAsync(sequence, key);
+        if (!trimmed.isEmpty()) {
+            index.removeAllAsync(trimmed);
+            batch.getKeys().deleteAsync(trimmed.toArray(String[]::new));
         }
-        try {
-            return Double.parseDouble(checkpointId.substring(lastUnderscore + 1));
-        } catch (NumberFormatException e) {
-            return System.currentTimeMillis();
+        index.expireAsync(ttl);
+        if (pauseValue != null) {
+            batch.<String>getBucket(PAUSE_KEY_PREFIX + executionId, StringCodec.INSTANCE).setAsync(pauseValue, ttl);
+        }
+        batch.execute();
+
+        state.sequence = sequence;
+        state.lastContext = context;
+        state.sinceBase++;
+    }
+
+    /**
+     * 核对索引末尾：其它实例在此之后写入过同一执行时，内存基准已过期，重新加载索引，下一次写入为基线
+     */
+    private void verifyTail(String executionId, WriterState state) {
+        ScoredEntry<String> tail = redissonClient.<String>getScoredSortedSet(
+                INDEX_PREFIX + executionId, StringCodec.INSTANCE).lastEntry();
+        if (state.isTail(tail)) {
+            return;
+        }
+        log.info("[Checkpoint] Index of {} changed by another writer, rebasing", executionId);
+        state.reload(loadEntries(executionId));
+    }
+
+    /**
+     * 只保留最近 retention 个检查点：最早保留条目所依赖的基线之前的条目全部移出
+     *
+     * @return 被移出的条目键
+     */
+    private List<String> trim(String executionId, Deque<String> members) {
+        int cutoff = members.size() - retention;
+        if (cutoff <= 0) {
+            return List.of();
+        }
+        List<String> ordered = new ArrayList<>(members);
+        int keepFrom = lastBaseIndex(executionId, ordered, cutoff);
+        if (keepFrom < 0) {
+            // 保留区间之前没有基线，之前的增量已无法还原
+            keepFrom = cutoff;
+        }
+        List<String> trimmed = new ArrayList<>(ordered.subList(0, keepFrom));
+        for (int i = 0; i < keepFrom; i++) {
+            members.removeFirst();
+        }
+        return trimmed;
+    }
+
+    /**
+     * 按写入顺序读取索引中的全部条目键
+     */
+    private List<String> loadIndex(String executionId) {
+        Collection<String> members = redissonClient.<String>getScoredSortedSet(
+                INDEX_PREFIX + executionId, StringCodec.INSTANCE).valueRange(0, -1);
+        return new ArrayList<>(members);
+    }
+
+    /**
+     * 按写入顺序读取索引中的全部条目及其序号
+     */
+    private Collection<ScoredEntry<String>> loadEntries(String executionId) {
+        return redissonClient.<String>getScoredSortedSet(
+                INDEX_PREFIX + executionId, StringCodec.INSTANCE).entryRange(0, -1);
+    }
+
+    /**
+     * 在 [0, to] 范围内查找最后一个基线条目的下标，不存在时返回 -1
+     */
+    private int lastBaseIndex(String executionId, List<String> members, int to) {
+        for (int i = to; i >= 0; i--) {
+            if (isBase(executionId, members.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isBase(String executionId, String key) {
+        return key.startsWith(KEY_PREFIX + executionId + BASE_SEGMENT);
+    }
+
+    /**
+     * 单个执行的写入状态
+     */
+    private static final class WriterState {
+
+        /**
+         * 索引成员（按写入顺序）
+         */
+        private final Deque<String> members;
+
+        /**
+         * 最近一次写入的索引序号，下一个检查点使用 sequence + 1
+         */
+        private double sequence;
+
+        /**
+         * 上一个检查点的上下文 JSON 树
+         */
+        private ObjectNode lastContext;
+
+        /**
+         * 自最近一次基线以来写入的检查点数（含基线本身）
+         */
+        private int sinceBase;
+
+        private WriterState(Collection<ScoredEntry<String>> entries) {
+            this.members = new ArrayDeque<>(entries.size());
+            reload(entries);
+        }
+
+        /**
+         * 以库中索引重建状态，丢弃比对基准
+         */
+        private void reload(Collection<ScoredEntry<String>> entries) {
+            members.clear();
+            sequence = 0;
+            for (ScoredEntry<String> entry : entries) {
+                members.addLast(entry.getValue());
+                sequence = entry.getScore();
+            }
+            lastContext = null;
+            sinceBase = 0;
+        }
+
+        /**
+         * 索引末尾是否仍是本状态最近写入的条目
+         */
+        private boolean isTail(ScoredEntry<String> tail) {
+            if (tail == null) {
+                return members.isEmpty();
+            }
+            return tail.getValue().equals(members.peekLast()) && tail.getScore() == sequence;
         }
     }
 }
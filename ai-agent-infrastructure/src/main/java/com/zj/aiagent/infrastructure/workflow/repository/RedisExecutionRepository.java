@@ -1,47 +1,111 @@
 package com.zj.aiagent.infrastructure.workflow.repository;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
 import com.zj.aiagent.domain.workflow.entity.Execution;
 import com.zj.aiagent.domain.workflow.port.ExecutionRepository;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
 import com.zj.aiagent.infrastructure.redis.IRedisService;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RBucket;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RScoredSortedSetAsync;
+import org.redisson.api.RScript;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
 import org.springframework.stereotype.Repository;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * Redis 执行仓储实现
  * 用于持久化执行聚合根（热数据）
+ *
+ * 执行以 Hash 存储，节点状态、节点输出和上下文各分区分别占用独立字段（见 {@link ExecutionHashCodec}）。
+ * 更新时与本实例上次写入的字段摘要比对，只写入变化的字段；版本校验与写入在同一段 Lua 脚本中完成。
+ * 进入终态的执行登记到结束时间索引 workflow:execution:terminal（ZSET，分值为结束时间毫秒），
+ * 由 {@link ExecutionArchiver} 批量迁入 MySQL 归档后从 Redis 移除。
  */
 @Slf4j
 @Repository
-@RequiredArgsConstructor
 public class RedisExecutionRepository implements ExecutionRepository {
 
     private static final String KEY_PREFIX = "workflow:execution:";
-    private static final String VERSION_KEY_SUFFIX = ":_v";
+    private static final String TERMINAL_INDEX_KEY = "workflow:execution:terminal";
     private static final long TTL_HOURS = 48;
 
+    private static final long WRITE_STALE = 0L;
+    private static final long WRITE_BASE_MISMATCH = -1L;
+
+    /**
+     * KEYS[1] = 执行 Hash
+     * ARGV[1] = 新版本，ARGV[2] = 增量基线版本（全量写为空），ARGV[3] = TTL 秒，
+     * ARGV[4] = 是否全量（1/0），ARGV[5] = 写入字段数 n，随后 n 组 field/value，其余为待删除字段
+     * 返回 1 写入成功，0 库中版本更新（本次为过期写入），-1 基线不一致需全量重写
+     */
+    private static final String WRITE_SCRIPT = """
+            local key = KEYS[1]
+            if redis.call('TYPE', key).ok == 'string' then
+                redis.call('DEL', key)
+            end
+            local current = redis.call('HGET', key, '_v')
+            if current and tonumber(current) > tonumber(ARGV[1]) then
+                return 0
+            end
+            if ARGV[2] ~= '' and current ~= ARGV[2] then
+                return -1
+            end
+            if ARGV[4] == '1' then
+                redis.call('DEL', key)
+            end
+            local i = 6
+            for _ = 1, tonumber(ARGV[5]) do
+                redis.call('HSET', key, ARGV[i], ARGV[i + 1])
+                i = i + 2
+            end
+            while i <= #ARGV do
+                redis.call('HDEL', key, ARGV[i])
+                i = i + 1
+            end
+            redis.call('HSET', key, '_v', ARGV[1])
+            redis.call('EXPIRE', key, ARGV[3])
+            return 1
+            """;
+
     private final IRedisService redisService;
-    private final ObjectMapper objectMapper;
     private final RedissonClient redissonClient;
+    private final ExecutionHashCodec codec;
+
+    /**
+     * 本实例最近一次写入的字段摘要 (executionId -> WrittenState)，仅对运行中的执行保留
+     */
+    private final Map<String, WrittenState> writtenStates = new ConcurrentHashMap<>();
+
+    public RedisExecutionRepository(IRedisService redisService, ObjectMapper objectMapper, RedissonClient redissonClient) {
+        this.redisService = redisService;
+        this.redissonClient = redissonClient;
+        this.codec = new ExecutionHashCodec(objectMapper);
+    }
 
     @Override
     public void save(Execution execution) {
         try {
-            String key = KEY_PREFIX + execution.getExecutionId();
-            String value = objectMapper.writeValueAsString(execution);
-            redisService.setString(key, value, TTL_HOURS, TimeUnit.HOURS);
-
-            // Initialize version counter
-            redissonClient.getAtomicLong(KEY_PREFIX + execution.getExecutionId() + VERSION_KEY_SUFFIX)
-                    .set(execution.getVersion());
+            write(serialize(execution), true);
 
-            String indexKey = "workflow:conversation:" + execution.getConversationId() + ":executions";
+            String indexKey = conversationIndexKey(execution.getConversationId());
             redisService.addToSet(indexKey, execution.getExecutionId());
             redisService.expire(indexKey, TTL_HOURS * 3600);
 
@@ -54,15 +118,16 @@ public class RedisExecutionRepository implements ExecutionRepository {
 
     @Override
     public Optional<Execution> findById(String executionId) {
+        String key = KEY_PREFIX + executionId;
         try {
-            String key = KEY_PREFIX + executionId;
-            String value = redisService.getString(key);
-
-            if (value == null) {
-                return Optional.empty();
+            Map<String, String> fields = redissonClient.<String, String>getMap(key, StringCodec.INSTANCE).readAllMap();
+            return fields.isEmpty() ? Optional.empty() : Optional.of(codec.decode(fields));
+        } catch (RedisException e) {
+            if (isWrongType(e)) {
+                return findLegacy(key);
             }
-
-            return Optional.of(objectMapper.readValue(value, Execution.class));
+            log.error("[Execution] Failed to find: {}", e.getMessage(), e);
+            return Optional.empty();
         } catch (Exception e) {
             log.error("[Execution] Failed to find: {}", e.getMessage(), e);
             return Optional.empty();
@@ -70,61 +135,306 @@ public class RedisExecutionRepository implements ExecutionRepository {
     }
 
     @Override
-    public java.util.List<Execution> findByConversationId(String conversationId) {
+    public List<Execution> findByConversationId(String conversationId) {
         try {
-            String indexKey = "workflow:conversation:" + conversationId + ":executions";
-            java.util.Set<String> executionIds = redisService.getSetMembers(indexKey);
+            String indexKey = conversationIndexKey(conversationId);
+            Set<String> executionIds = redisService.getSetMembers(indexKey);
 
             if (executionIds == null || executionIds.isEmpty()) {
-                return java.util.Collections.emptyList();
+                return Collections.emptyList();
             }
 
-            java.util.List<String> keys = executionIds.stream()
-                    .map(id -> KEY_PREFIX + id)
-                    .collect(java.util.stream.Collectors.toList());
-
-            java.util.List<String> values = redisService.multiGetString(keys);
-
-            if (values == null) {
-                return java.util.Collections.emptyList();
+            List<Execution> executions;
+            try {
+                executions = findAllInBatch(executionIds);
+            } catch (RedisException e) {
+                // 批量中存在旧格式的 String 结构，逐个回退读取
+                executions = executionIds.stream()
+                        .map(this::findById)
+                        .flatMap(Optional::stream)
+                        .collect(Collectors.toList());
             }
 
-            return values.stream()
-                    .filter(java.util.Objects::nonNull)
-                    .map(v -> {
-                        try {
-                            return objectMapper.readValue(v, Execution.class);
-                        } catch (Exception e) {
-                            return null;
-                        }
-                    })
-                    .filter(java.util.Objects::nonNull)
+            return executions.stream()
                     .sorted((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()))
-                    .collect(java.util.stream.Collectors.toList());
+                    .collect(Collectors.toList());
 
         } catch (Exception e) {
             log.error("[Execution] Failed to find by conversationId: {}", e.getMessage(), e);
-            return java.util.Collections.emptyList();
+            return Collections.emptyList();
         }
     }
 
     @Override
     public void update(Execution execution) {
-        String key = KEY_PREFIX + execution.getExecutionId();
-        String versionKey = key + VERSION_KEY_SUFFIX;
-        org.redisson.api.RAtomicLong versionCounter = redissonClient.getAtomicLong(versionKey);
+        write(serialize(execution));
+    }
 
-        // Single-threaded scheduler: no concurrent writes. Set version directly.
-        versionCounter.set(execution.getVersion());
+    /**
+     * 生成分字段快照
+     * 供写后缓存在持有聚合的线程上生成快照，避免异步刷盘时与状态变更并发读写
+     */
+    public ExecutionSnapshot serialize(Execution execution) {
+        try {
+            return codec.encode(execution);
+        } catch (Exception e) {
+            log.error("[Execution] Failed to serialize: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to serialize execution", e);
+        }
+    }
 
+    /**
+     * 由快照还原一份独立的执行聚合
+     * graph 在执行期间不变，直接复用快照中的引用
+     */
+    public Execution deserialize(ExecutionSnapshot snapshot) {
         try {
-            String newValue = objectMapper.writeValueAsString(execution);
-            redisService.setString(key, newValue, TTL_HOURS, TimeUnit.HOURS);
-            log.debug("[Execution] Updated: {} (v{})", execution.getExecutionId(), execution.getVersion());
+            Map<String, String> fields = new HashMap<>(snapshot.fields());
+            if (snapshot.version() != null) {
+                fields.put(ExecutionHashCodec.VERSION_FIELD, String.valueOf(snapshot.version()));
+            }
+            Execution execution = codec.decode(fields);
+            execution.setGraph(snapshot.graph());
+            return execution;
         } catch (Exception e) {
-            versionCounter.set(execution.getVersion() - 1);
+            log.error("[Execution] Failed to deserialize: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to deserialize execution", e);
+        }
+    }
+
+    /**
+     * 增量写入快照：只写入相对上次写入发生变化的字段
+     */
+    public void write(ExecutionSnapshot snapshot) {
+        write(snapshot, false);
+    }
+
+    /**
+     * 丢弃本实例对该执行的写入摘要，下次写入将退化为全量写
+     */
+    public void forget(String executionId) {
+        writtenStates.remove(executionId);
+    }
+
+    private void write(ExecutionSnapshot snapshot, boolean full) {
+        String executionId = snapshot.executionId();
+        WrittenState previous = full ? null : writtenStates.get(executionId);
+
+        try {
+            long result = previous == null ? writeFull(snapshot) : writeDelta(snapshot, previous);
+            if (result == WRITE_BASE_MISMATCH) {
+                log.info("[Execution] Delta base changed, rewriting in full: {} (v{})",
+                        executionId, snapshot.version());
+                result = writeFull(snapshot);
+            }
+            if (result == WRITE_STALE) {
+                log.warn("[Execution] Skip stale write: {} (v{})", executionId, snapshot.version());
+                writtenStates.remove(executionId);
+                return;
+            }
+        } catch (RuntimeException e) {
+            writtenStates.remove(executionId);
             log.error("[Execution] Failed to update: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to update execution", e);
         }
+
+        if (isRunning(snapshot.status())) {
+            writtenStates.put(executionId, new WrittenState(snapshot.version(), digest(snapshot.fields())));
+        } else {
+            writtenStates.remove(executionId);
+        }
+        if (snapshot.status() != null && snapshot.status().isTerminal()) {
+            indexTerminal(executionId);
+        }
+        log.debug("[Execution] Updated: {} (v{})", executionId, snapshot.version());
+    }
+
+    /**
+     * 查询结束时间早于给定时间的执行ID，按结束先后排序
+     *
+     * @param terminatedBefore 结束时间上限（毫秒时间戳）
+     * @param limit            最多返回条数
+     */
+    public List<String> findTerminatedBefore(long terminatedBefore, int limit) {
+        return new ArrayList<>(redissonClient.<String>getScoredSortedSet(TERMINAL_INDEX_KEY, StringCodec.INSTANCE)
+                .valueRange(Double.NEGATIVE_INFINITY, true, terminatedBefore, true, 0, limit));
+    }
+
+    /**
+     * 批量读取执行，已过期的执行不在结果中
+     */
+    public List<Execution> findAllById(Collection<String> executionIds) {
+        if (executionIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            return findAllInBatch(executionIds);
+        } catch (RedisException e) {
+            return executionIds.stream()
+                    .map(this::findById)
+                    .flatMap(Optional::stream)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * 将已归档的执行移出 Redis：删除执行 Hash、会话索引成员与结束时间索引成员，一次往返完成
+     *
+     * @param archived 已写入归档的执行
+     * @param expired  索引中残留但执行本身已过期的ID
+     */
+    public void removeArchived(List<Execution> archived, Collection<String> expired) {
+        if (archived.isEmpty() && expired.isEmpty()) {
+            return;
+        }
+        RBatch batch = redissonClient.createBatch();
+        RScoredSortedSetAsync<String> terminalIndex = batch.getScoredSortedSet(TERMINAL_INDEX_KEY, StringCodec.INSTANCE);
+        for (Execution execution : archived) {
+            batch.getBucket(KEY_PREFIX + execution.getExecutionId(), StringCodec.INSTANCE).deleteAsync();
+            // 会话索引经 IRedisService 以默认编解码写入，删除时保持一致
+            batch.<String>getSet(conversationIndexKey(execution.getConversationId()))
+                    .removeAsync(execution.getExecutionId());
+        }
+        List<String> members = new ArrayList<>(archived.size() + expired.size());
+        archived.forEach(execution -> members.add(execution.getExecutionId()));
+        members.addAll(expired);
+        terminalIndex.removeAllAsync(members);
+        batch.execute();
+    }
+
+    /**
+     * 登记结束时间；失败时执行仍随 TTL 过期，只是不会被归档
+     */
+    private void indexTerminal(String executionId) {
+        try {
+            redissonClient.<String>getScoredSortedSet(TERMINAL_INDEX_KEY, StringCodec.INSTANCE)
+                    .add(System.currentTimeMillis(), executionId);
+        } catch (RuntimeException e) {
+            log.warn("[Execution] Failed to index terminated execution {}: {}", executionId, e.getMessage());
+        }
+    }
+
+    private static String conversationIndexKey(String conversationId) {
+        return "workflow:conversation:" + conversationId + ":executions";
+    }
+
+    private long writeFull(ExecutionSnapshot snapshot) {
+        Map<String, String> fields = new HashMap<>(snapshot.fields());
+        try {
+            String graph = codec.encodeGraph(snapshot);
+            if (graph != null) {
+                fields.put(ExecutionHashCodec.GRAPH_FIELD, graph);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to serialize workflow graph", e);
+        }
+        return eval(snapshot, "", true, fields, Collections.emptyList());
+    }
+
+    private long writeDelta(ExecutionSnapshot snapshot, WrittenState previous) {
+        Map<String, String> changed = new HashMap<>();
+        snapshot.fields().forEach((field, value) -> {
+            if (!Objects.equals(previous.digests().get(field), digest(value))) {
+                changed.put(field, value);
+            }
+        });
+        List<String> removed = previous.digests().keySet().stream()
+                .filter(ExecutionHashCodec::isDynamicField)
+                .filter(field -> !snapshot.fields().containsKey(field))
+                .collect(Collectors.toList());
+
+        if (changed.isEmpty() && removed.isEmpty() && Objects.equals(previous.version(), snapshot.version())) {
+            return 1L;
+        }
+        return eval(snapshot, String.valueOf(previous.version()), false, changed, removed);
+    }
+
+    private long eval(ExecutionSnapshot snapshot, String baseVersion, boolean full,
+                      Map<String, String> fields, List<String> removed) {
+        String key = KEY_PREFIX + snapshot.executionId();
+        List<Object> args = new ArrayList<>(5 + fields.size() * 2 + removed.size());
+        args.add(String.valueOf(snapshot.version()));
+        args.add(baseVersion);
+        args.add(String.valueOf(TTL_HOURS * 3600));
+        args.add(full ? "1" : "0");
+        args.add(String.valueOf(fields.size()));
+        fields.forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        args.addAll(removed);
+
+        Long result = redissonClient.getScript(StringCodec.INSTANCE).eval(
+                key,
+                RScript.Mode.READ_WRITE,
+                WRITE_SCRIPT,
+                RScript.ReturnType.INTEGER,
+                Collections.singletonList(key),
+                args.toArray());
+        return result == null ? WRITE_STALE : result;
+    }
+
+    private List<Execution> findAllInBatch(Collection<String> executionIds) {
+        RBatch batch = redissonClient.createBatch();
+        List<RFuture<Map<String, String>>> futures = new ArrayList<>(executionIds.size());
+        for (String executionId : executionIds) {
+            futures.add(batch.<String, String>getMap(KEY_PREFIX + executionId, StringCodec.INSTANCE).readAllMapAsync());
+        }
+        batch.execute();
+
+        List<Execution> executions = new ArrayList<>(futures.size());
+        for (RFuture<Map<String, String>> future : futures) {
+            Map<String, String> fields = future.getNow();
+            if (fields == null || fields.isEmpty()) {
+                continue;
+            }
+            try {
+                executions.add(codec.decode(fields));
+            } catch (Exception e) {
+                log.warn("[Execution] Failed to decode execution: {}", e.getMessage());
+            }
+        }
+        return executions;
+    }
+
+    /**
+     * 兼容升级前以整体 JSON 字符串存储的执行（TTL 内仍可能存在）
+     */
+    private Optional<Execution> findLegacy(String key) {
+        try {
+            String value = redisService.getString(key);
+            if (value == null) {
+                return Optional.empty();
+            }
+            return Optional.of(codec.decodeLegacy(value));
+        } catch (Exception e) {
+            log.error("[Execution] Failed to read legacy execution: {}", e.getMessage(), e);
+            return Optional.empty();
+        }
+    }
+
+    private boolean isWrongType(RedisException e) {
+        return e.getMessage() != null && e.getMessage().contains("WRONGTYPE");
+    }
+
+    private boolean isRunning(ExecutionStatus status) {
+        return status == ExecutionStatus.PENDING || status == ExecutionStatus.RUNNING;
+    }
+
+    private static Map<String, HashCode> digest(Map<String, String> fields) {
+        Map<String, HashCode> digests = new HashMap<>(fields.size() * 2);
+        fields.forEach((field, value) -> digests.put(field, digest(value)));
+        return digests;
+    }
+
+    /**
+     * 字段摘要：内容的 SHA-256，摘要相同即视为字段未变化而跳过写入
+     * （String.hashCode 在等长字符串间极易碰撞，不能用于判断内容相等）
+     */
+    private static HashCode digest(String value) {
+        return Hashing.sha256().hashString(value, StandardCharsets.UTF_8);
+    }
+
+    private record WrittenState(Integer version, Map<String, HashCode> digests) {
     }
 }
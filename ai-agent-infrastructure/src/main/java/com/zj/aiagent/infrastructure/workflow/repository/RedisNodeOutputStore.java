@@ -0,0 +1,207 @@
+package com.zj.aiagent.infrastructure.workflow.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.zj.aiagent.domain.workflow.exception.OffloadedOutputNotFoundException;
+import com.zj.aiagent.domain.workflow.port.NodeOutputStorePort;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionContext;
+import com.zj.aiagent.domain.workflow.valobj.OffloadedOutput;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis 节点输出外部存储实现
+ *
+ * 单个输出值序列化后超过阈值时，以 JSON 字节写入内容寻址的键 workflow:output:blob:{sha256}，
+ * 上下文中替换为 {@link OffloadedOutput} 引用。相同内容只占一份存储。
+ * 过期时间随使用续期：重复写入相同内容、节点输出中已有的引用再次转存、解引用时都刷新 TTL，
+ * 仍被执行使用的内容不会先于引用它的执行过期；内容已不存在时解引用抛出异常而不是返回 null。
+ * 进程内按字节数限额的 LRU 缓存最近写入/读取的原值，热点输出解引用不访问 Redis，
+ * 命中缓存时每个内容每 {@link #REFRESH_INTERVAL_MILLIS} 至多异步续期一次。
+ * 缓存中的原值由所有调用方共享，解引用返回其深拷贝，调用方修改不会影响缓存。
+ */
+@Slf4j
+@Repository
+public class RedisNodeOutputStore implements NodeOutputStorePort {
+
+    private static final String KEY_PREFIX = "workflow:output:blob:";
+    /**
+     * 与执行热数据的 TTL 一致
+     */
+    private static final long TTL_HOURS = 48;
+    /**
+     * 命中进程内缓存时的续期间隔
+     */
+    private static final long REFRESH_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final ObjectMapper objectMapper;
+    private final RedissonClient redissonClient;
+    private final int thresholdBytes;
+    private final Cache<String, Blob> cache;
+
+    public RedisNodeOutputStore(
+            ObjectMapper objectMapper,
+            RedissonClient redissonClient,
+            @Value("${workflow.node-output.offload-threshold-bytes:65536}") int thresholdBytes,
+            @Value("${workflow.node-output.cache-max-bytes:67108864}") long cacheMaxBytes) {
+        this.objectMapper = objectMapper;
+        this.redissonClient = redissonClient;
+        this.thresholdBytes = thresholdBytes;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(cacheMaxBytes)
+                .weigher((String digest, Blob blob) -> blob.size())
+                .build();
+    }
+
+    @Override
+    public void offload(ExecutionContext context, String nodeId) {
+        Map<String, Object> outputs = context != null ? context.getNodeOutput(nodeId) : null;
+        if (outputs == null || outputs.isEmpty()) {
+            return;
+        }
+
+        for (Map.Entry<String, Object> entry : outputs.entrySet()) {
+            Object value = entry.getValue();
+            OffloadedOutput existing = OffloadedOutput.from(value);
+            if (existing != null) {
+                touch(existing.digest());
+                continue;
+            }
+            if (!mayExceedThreshold(value)) {
+                continue;
+            }
+            try {
+                byte[] json = objectMapper.writeValueAsBytes(value);
+                if (json.length <= thresholdBytes) {
+                    continue;
+                }
+                String digest = Hashing.sha256().hashBytes(json).toString();
+                RBucket<byte[]> bucket = redissonClient.getBucket(KEY_PREFIX + digest, ByteArrayCodec.INSTANCE);
+                // 相同内容已存在时只续期，不重复写入字节
+                if (cache.getIfPresent(digest) == null || !bucket.expire(ttl())) {
+                    bucket.set(json, ttl());
+                }
+                // 节点仍持有原对象，缓存保存副本
+                cache.put(digest, new Blob(copyOf(value), json.length));
+                entry.setValue(new OffloadedOutput(digest, json.length).toValue());
+
+                log.debug("[NodeOutput] Offloaded {}.{} ({} bytes) as {}", nodeId, entry.getKey(), json.length, digest);
+            } catch (Exception e) {
+                // 转存失败时保留原值，不影响执行
+                log.warn("[NodeOutput] Failed to offload {}.{}: {}", nodeId, entry.getKey(), e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public Object resolve(Object value) {
+        OffloadedOutput ref = OffloadedOutput.from(value);
+        if (ref == null) {
+            return value;
+        }
+
+        Blob blob = cache.getIfPresent(ref.digest());
+        if (blob != null) {
+            refresh(ref.digest(), blob);
+        } else {
+            byte[] json = redissonClient.<byte[]>getBucket(KEY_PREFIX + ref.digest(), ByteArrayCodec.INSTANCE)
+                    .getAndExpire(ttl());
+            if (json == null) {
+                log.error("[NodeOutput] Offloaded output not found (expired?): {}", ref.digest());
+                throw new OffloadedOutputNotFoundException(ref.digest());
+            }
+            try {
+                blob = new Blob(objectMapper.readValue(json, Object.class), json.length);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to decode offloaded output: " + ref.digest(), e);
+            }
+            cache.put(ref.digest(), blob);
+        }
+        return copyOf(blob.value());
+    }
+
+    /**
+     * 深拷贝 JSON 反序列化得到的值（Map / List 逐层复制，其余均为不可变值）
+     */
+    private static Object copyOf(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = Maps.newLinkedHashMapWithExpectedSize(map.size());
+            map.forEach((key, item) -> copy.put(key, copyOf(item)));
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(item -> copy.add(copyOf(item)));
+            return copy;
+        }
+        return value;
+    }
+
+    /**
+     * 续期已转存的内容：缓存中有记录时按间隔限流，否则直接续期
+     */
+    private void touch(String digest) {
+        Blob blob = cache.getIfPresent(digest);
+        if (blob != null) {
+            refresh(digest, blob);
+        } else {
+            redissonClient.getBucket(KEY_PREFIX + digest, ByteArrayCodec.INSTANCE).expireAsync(ttl());
+        }
+    }
+
+    /**
+     * 距上次续期超过间隔时异步刷新 TTL
+     */
+    private void refresh(String digest, Blob blob) {
+        long now = System.currentTimeMillis();
+        long last = blob.refreshedAt().get();
+        if (now - last >= REFRESH_INTERVAL_MILLIS && blob.refreshedAt().compareAndSet(last, now)) {
+            redissonClient.getBucket(KEY_PREFIX + digest, ByteArrayCodec.INSTANCE).expireAsync(ttl());
+        }
+    }
+
+    private static Duration ttl() {
+        return Duration.ofHours(TTL_HOURS);
+    }
+
+    /**
+     * 快速排除明显不会超过阈值的值，避免逐个序列化
+     */
+    private boolean mayExceedThreshold(Object value) {
+        if (value == null || value instanceof Number || value instanceof Boolean) {
+            return false;
+        }
+        if (value instanceof CharSequence text) {
+            // 单个字符转义后最多 6 字节，另加两侧引号
+            return text.length() * 6L + 2 > thresholdBytes;
+        }
+        return true;
+    }
+
+    /**
+     * @param value       原值
+     * @param size        原值 JSON 字节数（缓存权重）
+     * @param refreshedAt 最近一次写入或续期 Redis TTL 的时间
+     */
+    private record Blob(Object value, int size, AtomicLong refreshedAt) {
+
+        private Blob(Object value, int size) {
+            this(value, size, new AtomicLong(System.currentTimeMillis()));
+        }
+    }
+}
@@ -9,20 +9,51 @@ import com.zj.aiagent.domain.workflow.valobj.NodeExecutionResult;
 import com.zj.aiagent.domain.workflow.valobj.SseEventType;
 import com.zj.aiagent.domain.workflow.valobj.StreamContext;
 import com.zj.aiagent.infrastructure.workflow.event.RedisSsePublisher;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * Redis SSE 流式推送器实现
  * 实现 StreamPublisher 端口接口
+ *
+ * 增量合并: 合并窗口内的连续增量（同为思考或同为正文）拼接后作为一个 UPDATE 事件推送，
+ * 达到字符上限或窗口到期时推送；其它任何事件（开始、完成、错误、数据等）推送前先清空缓冲区，保证顺序。
+ * 窗口到期的推送在虚拟线程上执行，持锁期间会阻塞调用 Redis，因此使用 ReentrantLock 而非 synchronized，
+ * 避免虚拟线程被钉在载体线程上。
  */
 @Slf4j
-@RequiredArgsConstructor
 public class RedisSseStreamPublisher implements StreamPublisher {
 
     private final RedisSsePublisher ssePublisher;
     private final com.fasterxml.jackson.databind.ObjectMapper objectMapper;
     private final StreamContext context;
+    private final SseDeltaCoalescing coalescing;
+
+    /**
+     * 推送锁：缓冲区与推送顺序
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final StringBuilder pendingDelta = new StringBuilder();
+    private boolean pendingThought;
+    private int pendingDeltas;
+    private long pendingSince;
+    private ScheduledFuture<?> pendingFlush;
+    /**
+     * 缓冲批次号：已交给执行器的过期兜底推送不会提前推送后一批缓冲
+     */
+    private long pendingBatch;
+
+    public RedisSseStreamPublisher(RedisSsePublisher ssePublisher,
+            com.fasterxml.jackson.databind.ObjectMapper objectMapper,
+            StreamContext context,
+            SseDeltaCoalescing coalescing) {
+        this.ssePublisher = ssePublisher;
+        this.objectMapper = objectMapper;
+        this.context = context;
+        this.coalescing = coalescing;
+    }
 
     @Override
     public void publishStart() {
@@ -45,7 +76,67 @@ public class RedisSseStreamPublisher implements StreamPublisher {
         }
         log.trace("[Stream] Publishing delta for node: {}, length: {}, isThought: {}",
                 context.getNodeId(), delta.length(), isThought);
-        publish(SseEventType.UPDATE, ExecutionStatus.RUNNING, null, delta, isThought);
+        lock.lock();
+        try {
+            if (!coalescing.enabled()) {
+                publish(SseEventType.UPDATE, ExecutionStatus.RUNNING, null, delta, isThought);
+                coalescing.recordFlush(1);
+                return;
+            }
+            // 思考与正文渲染方式不同，切换时先推送已缓冲的部分
+            if (pendingDeltas > 0 && pendingThought != isThought) {
+                flushPendingDelta();
+            }
+            if (pendingDeltas == 0) {
+                pendingThought = isThought;
+                pendingSince = System.nanoTime();
+                long batch = ++pendingBatch;
+                pendingFlush = coalescing.scheduleFlush(() -> flushOnWindow(batch));
+            }
+            pendingDelta.append(delta);
+            pendingDeltas++;
+            if (coalescing.due(pendingDelta.length(), pendingSince)) {
+                flushPendingDelta();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 窗口到期：增量停止到达时推送缓冲区
+     */
+    private void flushOnWindow(long batch) {
+        lock.lock();
+        try {
+            if (batch == pendingBatch) {
+                flushPendingDelta();
+            }
+        } catch (Exception e) {
+            log.warn("[Stream] Failed to flush coalesced delta for node {}: {}",
+                    context.getNodeId(), e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 推送缓冲的增量（调用方持有 lock）
+     */
+    private void flushPendingDelta() {
+        if (pendingDeltas == 0) {
+            return;
+        }
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+        String merged = pendingDelta.toString();
+        int merges = pendingDeltas;
+        pendingDelta.setLength(0);
+        pendingDeltas = 0;
+        publish(SseEventType.UPDATE, ExecutionStatus.RUNNING, null, merged, pendingThought);
+        coalescing.recordFlush(merges);
     }
 
     @Override
@@ -105,7 +196,7 @@ public class RedisSseStreamPublisher implements StreamPublisher {
                 .content(errorMessage)
                 .renderMode("TEXT")
                 .build());
-        ssePublisher.publish(payload);
+        send(payload);
     }
 
     @Override
@@ -120,7 +211,7 @@ public class RedisSseStreamPublisher implements StreamPublisher {
                 .content(content)
                 .renderMode(renderMode)
                 .build());
-        ssePublisher.publish(payload);
+        send(payload);
     }
 
     @Override
@@ -141,7 +232,7 @@ public class RedisSseStreamPublisher implements StreamPublisher {
                 .content(jsonContent)
                 .renderMode("JSON_EVENT")
                 .build());
-        ssePublisher.publish(ssePayload);
+        send(ssePayload);
     }
 
     /**
@@ -157,7 +248,20 @@ public class RedisSseStreamPublisher implements StreamPublisher {
                 .isThought(isThought)
                 .renderMode(isThought ? "THOUGHT" : "MARKDOWN")
                 .build());
-        ssePublisher.publish(payload);
+        send(payload);
+    }
+
+    /**
+     * 推送事件：先推送缓冲的增量，保证事件顺序
+     */
+    private void send(SseEventPayload payload) {
+        lock.lock();
+        try {
+            flushPendingDelta();
+            ssePublisher.publish(payload);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -4,8 +4,10 @@ import com.zj.aiagent.domain.workflow.port.StreamPublisher;
 import com.zj.aiagent.domain.workflow.port.StreamPublisherFactory;
 import com.zj.aiagent.domain.workflow.valobj.StreamContext;
 import com.zj.aiagent.infrastructure.workflow.event.RedisSsePublisher;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
@@ -14,16 +16,32 @@ import org.springframework.stereotype.Component;
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class RedisSseStreamPublisherFactory implements StreamPublisherFactory {
 
     private final RedisSsePublisher ssePublisher;
     private final com.fasterxml.jackson.databind.ObjectMapper objectMapper;
+    private final SseDeltaCoalescing coalescing;
+
+    public RedisSseStreamPublisherFactory(
+            RedisSsePublisher ssePublisher,
+            com.fasterxml.jackson.databind.ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${workflow.sse.delta.coalesce-window-ms:40}") long coalesceWindowMillis,
+            @Value("${workflow.sse.delta.coalesce-max-chars:512}") int coalesceMaxChars) {
+        this.ssePublisher = ssePublisher;
+        this.objectMapper = objectMapper;
+        this.coalescing = new SseDeltaCoalescing(coalesceWindowMillis, coalesceMaxChars, meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        coalescing.shutdown();
+    }
 
     @Override
     public StreamPublisher create(StreamContext context) {
         log.debug("[StreamFactory] Creating StreamPublisher for execution: {}, node: {}",
                 context.getExecutionId(), context.getNodeId());
-        return new RedisSseStreamPublisher(ssePublisher, objectMapper, context);
+        return new RedisSseStreamPublisher(ssePublisher, objectMapper, context, coalescing);
     }
 }
@@ -0,0 +1,105 @@
+package com.zj.aiagent.infrastructure.workflow.stream;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 增量合并配置与统计（所有流式推送器共享）
+ *
+ * 同一节点在合并窗口内的连续增量合并为一个 UPDATE 事件推送；窗口为 0 时不合并。
+ * 合并率 = 收到的增量数 / 实际推送的增量事件数，由 sse.delta.merge.ratio 暴露。
+ *
+ * 窗口到期的兜底推送会阻塞调用 Redis，定时线程只负责到期后把推送交给虚拟线程执行，
+ * 避免所有流的兜底推送串行排在同一个定时线程上。
+ */
+final class SseDeltaCoalescing {
+
+    private final long windowNanos;
+    private final long windowMillis;
+    private final int maxChars;
+    private final ScheduledExecutorService flushScheduler;
+    private final ExecutorService flushExecutor;
+
+    private final LongAdder deltasIn = new LongAdder();
+    private final LongAdder eventsOut = new LongAdder();
+
+    SseDeltaCoalescing(long windowMillis, int maxChars, MeterRegistry meterRegistry) {
+        this.windowMillis = Math.max(0, windowMillis);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(this.windowMillis);
+        this.maxChars = maxChars;
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                r -> Thread.ofPlatform().name("sse-delta-flush").daemon(true).unstarted(r));
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.flushScheduler = scheduler;
+        this.flushExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("sse-delta-flush-", 0).factory());
+        bindMetrics(meterRegistry);
+    }
+
+    boolean enabled() {
+        return windowMillis > 0;
+    }
+
+    /**
+     * 缓冲区是否需要立即推送（超过字符上限或距首个增量超过窗口）
+     */
+    boolean due(int pendingChars, long pendingSinceNanos) {
+        return pendingChars >= maxChars || System.nanoTime() - pendingSinceNanos >= windowNanos;
+    }
+
+    /**
+     * 窗口到期后兜底推送缓冲区（增量停止到达时）
+     */
+    ScheduledFuture<?> scheduleFlush(Runnable flush) {
+        return flushScheduler.schedule(() -> handOff(flush), windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void handOff(Runnable flush) {
+        try {
+            flushExecutor.execute(flush);
+        } catch (RejectedExecutionException e) {
+            // 关闭过程中到期的推送在定时线程上直接执行，不丢弃缓冲内容
+            flush.run();
+        }
+    }
+
+    /**
+     * 记录一次增量事件推送及其合并的增量数
+     */
+    void recordFlush(int mergedDeltas) {
+        deltasIn.add(mergedDeltas);
+        eventsOut.increment();
+    }
+
+    double mergeRatio() {
+        long out = eventsOut.sum();
+        return out == 0 ? 1.0 : (double) deltasIn.sum() / out;
+    }
+
+    void shutdown() {
+        flushScheduler.shutdown();
+        flushExecutor.shutdown();
+    }
+
+    private void bindMetrics(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("sse.delta.received", deltasIn, LongAdder::sum)
+                .description("LLM token deltas handed to SSE stream publishers")
+                .register(meterRegistry);
+        FunctionCounter.builder("sse.delta.published", eventsOut, LongAdder::sum)
+                .description("Coalesced delta events published to Redis")
+                .register(meterRegistry);
+        Gauge.builder("sse.delta.merge.ratio", this, SseDeltaCoalescing::mergeRatio)
+                .description("Token deltas per published delta event")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,126 @@
+package com.zj.aiagent.infrastructure.workflow.template;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 预编译的 Prompt 模板
+ *
+ * 模板文本按占位符正则切分为字面片段与占位符片段，占位符表达式预先分类（全局输入/节点输出/普通 key），
+ * 渲染时顺序拼接即可，不再对全文执行正则。{@code #{}} 占位符片段按原模板预先切分，
+ * 仅在第一遍 {@code {{}}} 替换没有改变文本时直接使用（渲染语义见 {@link PromptTemplateResolver}）。
+ */
+final class CompiledPromptTemplate {
+
+    private static final String INPUTS_PREFIX = "inputs.";
+    private static final String OUTPUT_SEGMENT = ".output.";
+
+    private final List<Segment> mustacheSegments;
+    private final List<Segment> hashSegments;
+    private final boolean hasMustachePlaceholder;
+    private final boolean hasHashPlaceholder;
+    private volatile int sizeHint;
+
+    CompiledPromptTemplate(String template, Pattern mustache, Pattern hash) {
+        this.mustacheSegments = parse(template, mustache);
+        this.hashSegments = parse(template, hash);
+        this.hasMustachePlaceholder = mustacheSegments.stream().anyMatch(Placeholder.class::isInstance);
+        this.hasHashPlaceholder = hashSegments.stream().anyMatch(Placeholder.class::isInstance);
+        this.sizeHint = template.length() + 16 * mustacheSegments.size();
+    }
+
+    List<Segment> mustacheSegments() {
+        return mustacheSegments;
+    }
+
+    List<Segment> hashSegments() {
+        return hashSegments;
+    }
+
+    boolean hasMustachePlaceholder() {
+        return hasMustachePlaceholder;
+    }
+
+    boolean hasHashPlaceholder() {
+        return hasHashPlaceholder;
+    }
+
+    /**
+     * 输出缓冲区初始容量：取上次渲染结果的长度
+     */
+    int sizeHint() {
+        return sizeHint;
+    }
+
+    void recordLength(int length) {
+        this.sizeHint = length;
+    }
+
+    /**
+     * 按占位符正则切分文本
+     */
+    static List<Segment> parse(String text, Pattern pattern) {
+        Matcher matcher = pattern.matcher(text);
+        List<Segment> segments = new ArrayList<>();
+        int last = 0;
+        while (matcher.find()) {
+            if (matcher.start() > last) {
+                segments.add(new Literal(text.substring(last, matcher.start())));
+            }
+            segments.add(Placeholder.of(matcher.group(1).trim(), matcher.group(0)));
+            last = matcher.end();
+        }
+        if (last < text.length()) {
+            segments.add(new Literal(text.substring(last)));
+        }
+        return List.copyOf(segments);
+    }
+
+    sealed interface Segment permits Literal, Placeholder {
+    }
+
+    record Literal(String text) implements Segment {
+    }
+
+    /**
+     * 占位符片段
+     *
+     * @param expression 去除首尾空白的表达式，优先按 resolvedInputs 的 key 查找
+     * @param raw        占位符原文，未解析到值时原样保留
+     * @param kind       表达式类型
+     * @param nodeId     节点输出引用的节点 ID
+     * @param key        全局输入 key 或节点输出 key
+     */
+    record Placeholder(String expression, String raw, Kind kind, String nodeId, String key) implements Segment {
+
+        static Placeholder of(String expression, String raw) {
+            if (expression.isEmpty()) {
+                return new Placeholder(expression, raw, Kind.EMPTY, null, null);
+            }
+            if (expression.startsWith(INPUTS_PREFIX)) {
+                return new Placeholder(expression, raw, Kind.INPUTS, null,
+                        expression.substring(INPUTS_PREFIX.length()));
+            }
+            int outputIndex = expression.indexOf(OUTPUT_SEGMENT);
+            if (outputIndex > 0 && outputIndex < expression.length() - OUTPUT_SEGMENT.length()) {
+                return new Placeholder(expression, raw, Kind.NODE_OUTPUT,
+                        expression.substring(0, outputIndex),
+                        expression.substring(outputIndex + OUTPUT_SEGMENT.length()));
+            }
+            return new Placeholder(expression, raw, Kind.KEY, null, null);
+        }
+    }
+
+    enum Kind {
+        /** 空表达式，始终保留原文 */
+        EMPTY,
+        /** inputs.key */
+        INPUTS,
+        /** nodeId.output.key */
+        NODE_OUTPUT,
+        /** 仅按 resolvedInputs 的 key 查找 */
+        KEY
+    }
+}
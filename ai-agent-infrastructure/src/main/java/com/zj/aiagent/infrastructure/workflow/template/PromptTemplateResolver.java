@@ -1,11 +1,19 @@
 package com.zj.aiagent.infrastructure.workflow.template;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.zj.aiagent.domain.workflow.port.NodeOutputStorePort;
 import com.zj.aiagent.domain.workflow.valobj.ExecutionContext;
+import com.zj.aiagent.infrastructure.workflow.template.CompiledPromptTemplate.Literal;
+import com.zj.aiagent.infrastructure.workflow.template.CompiledPromptTemplate.Placeholder;
+import com.zj.aiagent.infrastructure.workflow.template.CompiledPromptTemplate.Segment;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
@@ -14,10 +22,14 @@ import org.springframework.stereotype.Component;
  * - {{inputs.key}}
  * - {{nodeId.output.key}}
  * - #{key} / #{inputs.key} / #{nodeId.output.key}
+ *
+ * 模板首次出现时编译为 {@link CompiledPromptTemplate} 并按模板文本缓存，渲染时顺序拼接片段。
+ * 语义保持两遍替换：先替换 {{}}，再对结果替换 #{}。第一遍没有替换任何占位符时结果即原模板，
+ * 直接使用预编译的 #{} 片段；有替换且结果中出现 "#{" 时才对结果重新切分（替换值可能与字面文本拼出新占位符）。
+ * 引用到转存的节点输出时才取回原值。
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class PromptTemplateResolver {
 
     private static final Pattern MUSTACHE_PATTERN = Pattern.compile(
@@ -26,10 +38,36 @@ public class PromptTemplateResolver {
     private static final Pattern HASH_PATTERN = Pattern.compile(
         "#\\{\\s*([^{}]+?)\\s*\\}"
     );
-    private static final String INPUTS_PREFIX = "inputs.";
-    private static final String OUTPUT_SEGMENT = ".output.";
+    private static final long DEFAULT_CACHE_SIZE = 1024;
 
     private final PromptValueFormatter valueFormatter;
+    private final Cache<String, CompiledPromptTemplate> templates;
+    private final UnaryOperator<Object> dereference;
+
+    public PromptTemplateResolver(PromptValueFormatter valueFormatter) {
+        this(valueFormatter, DEFAULT_CACHE_SIZE, UnaryOperator.identity());
+    }
+
+    @Autowired
+    public PromptTemplateResolver(
+        PromptValueFormatter valueFormatter,
+        @Value("${workflow.prompt-template.cache-size:1024}") long cacheSize,
+        NodeOutputStorePort nodeOutputStore
+    ) {
+        this(valueFormatter, cacheSize, nodeOutputStore::resolve);
+    }
+
+    private PromptTemplateResolver(
+        PromptValueFormatter valueFormatter,
+        long cacheSize,
+        UnaryOperator<Object> dereference
+    ) {
+        this.valueFormatter = valueFormatter;
+        this.templates = CacheBuilder.newBuilder()
+            .maximumSize(cacheSize)
+            .build();
+        this.dereference = dereference;
+    }
 
     public String resolve(
         String template,
@@ -40,50 +78,93 @@ public class PromptTemplateResolver {
             return template;
         }
 
-        String resolved = resolvePattern(
-            template,
-            MUSTACHE_PATTERN,
-            resolvedInputs,
-            context
-        );
-        return resolvePattern(resolved, HASH_PATTERN, resolvedInputs, context);
+        CompiledPromptTemplate compiled = compile(template);
+        StringBuilder out = null;
+        boolean substituted = false;
+        if (compiled.hasMustachePlaceholder()) {
+            out = new StringBuilder(compiled.sizeHint());
+            substituted = render(
+                compiled.mustacheSegments(),
+                out,
+                resolvedInputs,
+                context
+            );
+        }
+
+        if (!substituted) {
+            // 第一遍结果即原模板
+            if (!compiled.hasHashPlaceholder()) {
+                return template;
+            }
+            out = new StringBuilder(compiled.sizeHint());
+            render(compiled.hashSegments(), out, resolvedInputs, context);
+        } else if (out.indexOf("#{") >= 0) {
+            List<Segment> segments = CompiledPromptTemplate.parse(
+                out.toString(),
+                HASH_PATTERN
+            );
+            out.setLength(0);
+            render(segments, out, resolvedInputs, context);
+        }
+
+        compiled.recordLength(out.length());
+        return out.toString();
     }
 
-    private String resolvePattern(
-        String template,
-        Pattern pattern,
+    /**
+     * 获取已编译的模板，首次出现时编译
+     */
+    CompiledPromptTemplate compile(String template) {
+        CompiledPromptTemplate compiled = templates.getIfPresent(template);
+        if (compiled == null) {
+            compiled = new CompiledPromptTemplate(
+                template,
+                MUSTACHE_PATTERN,
+                HASH_PATTERN
+            );
+            templates.put(template, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * 顺序拼接片段，返回是否替换了至少一个占位符
+     */
+    private boolean render(
+        List<Segment> segments,
+        StringBuilder out,
         Map<String, Object> resolvedInputs,
         ExecutionContext context
     ) {
-        Matcher matcher = pattern.matcher(template);
-        StringBuffer sb = new StringBuffer();
-
-        while (matcher.find()) {
-            String expression = matcher.group(1).trim();
+        boolean substituted = false;
+        for (Segment segment : segments) {
+            if (segment instanceof Literal literal) {
+                out.append(literal.text());
+                continue;
+            }
+            Placeholder placeholder = (Placeholder) segment;
             ResolvedValue resolvedValue = resolveExpression(
-                expression,
+                placeholder,
                 resolvedInputs,
                 context
             );
-            String replacement = resolvedValue.found()
-                ? valueFormatter.format(resolvedValue.value())
-                : matcher.group(0);
-            matcher.appendReplacement(
-                sb,
-                Matcher.quoteReplacement(replacement)
-            );
+            if (resolvedValue.found()) {
+                out.append(valueFormatter.format(resolvedValue.value()));
+                substituted = true;
+            } else {
+                out.append(placeholder.raw());
+            }
         }
-
-        matcher.appendTail(sb);
-        return sb.toString();
+        return substituted;
     }
 
     private ResolvedValue resolveExpression(
-        String expression,
+        Placeholder placeholder,
         Map<String, Object> resolvedInputs,
         ExecutionContext context
     ) {
-        if (expression.isEmpty()) {
+        String expression = placeholder.expression();
+        if (placeholder.kind() == CompiledPromptTemplate.Kind.EMPTY) {
             return ResolvedValue.notFound();
         }
 
@@ -91,50 +172,45 @@ public class PromptTemplateResolver {
             return ResolvedValue.found(resolvedInputs.get(expression));
         }
 
-        if (expression.startsWith(INPUTS_PREFIX)) {
-            String key = expression.substring(INPUTS_PREFIX.length());
-            if (
-                context != null &&
-                context.getInputs() != null &&
-                context.getInputs().containsKey(key)
-            ) {
-                return ResolvedValue.found(context.getInputs().get(key));
+        switch (placeholder.kind()) {
+            case INPUTS -> {
+                String key = placeholder.key();
+                if (
+                    context != null &&
+                    context.getInputs() != null &&
+                    context.getInputs().containsKey(key)
+                ) {
+                    return ResolvedValue.found(context.getInputs().get(key));
+                }
+                log.warn(
+                    "[PromptTemplateResolver] Input reference not found: {}",
+                    expression
+                );
             }
-            log.warn(
-                "[PromptTemplateResolver] Input reference not found: {}",
-                expression
-            );
-            return ResolvedValue.notFound();
-        }
-
-        int outputIndex = expression.indexOf(OUTPUT_SEGMENT);
-        if (
-            outputIndex > 0 &&
-            outputIndex < expression.length() - OUTPUT_SEGMENT.length()
-        ) {
-            String nodeId = expression.substring(0, outputIndex);
-            String key = expression.substring(
-                outputIndex + OUTPUT_SEGMENT.length()
-            );
-
-            if (context != null) {
-                Map<String, Object> nodeOutput = context.getNodeOutput(nodeId);
-                if (nodeOutput != null && nodeOutput.containsKey(key)) {
-                    return ResolvedValue.found(nodeOutput.get(key));
+            case NODE_OUTPUT -> {
+                if (context != null) {
+                    Map<String, Object> nodeOutput = context.getNodeOutput(
+                        placeholder.nodeId()
+                    );
+                    if (
+                        nodeOutput != null &&
+                        nodeOutput.containsKey(placeholder.key())
+                    ) {
+                        return ResolvedValue.found(
+                            dereference.apply(nodeOutput.get(placeholder.key()))
+                        );
+                    }
                 }
+                log.warn(
+                    "[PromptTemplateResolver] Node output reference not found: {}",
+                    expression
+                );
             }
-
-            log.warn(
-                "[PromptTemplateResolver] Node output reference not found: {}",
+            default -> log.warn(
+                "[PromptTemplateResolver] Unsupported prompt expression: {}",
                 expression
             );
-            return ResolvedValue.notFound();
         }
-
-        log.warn(
-            "[PromptTemplateResolver] Unsupported prompt expression: {}",
-            expression
-        );
         return ResolvedValue.notFound();
     }
 
@@ -0,0 +1,99 @@
+package com.zj.aiagent.infrastructure.llm.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.zj.aiagent.domain.llm.entity.LlmProviderConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+/**
+ * LlmClientRegistry 单元测试
+ * 验证同一配置复用客户端、配置内容变化或清除后重建、缓存指标
+ */
+@DisplayName("LlmClientRegistry 测试")
+class LlmClientRegistryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private LlmClientRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        registry = new LlmClientRegistry(
+            RestClient.builder(),
+            meterRegistry,
+            16,
+            Duration.ofMinutes(30),
+            8,
+            Duration.ofSeconds(60)
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    @DisplayName("同一配置重复获取复用同一客户端")
+    void should_reuse_client_for_same_config() {
+        LlmProviderConfig config = config(1L, "sk-a");
+
+        LlmClientRegistry.ProviderClient first = registry.get(config);
+        LlmClientRegistry.ProviderClient second = registry.get(config);
+
+        assertThat(second).isSameAs(first);
+        assertThat(second.chatClient()).isSameAs(first.chatClient());
+        assertThat(registry.size()).isEqualTo(1);
+        assertThat(meterRegistry.get("llm.client.cache.requests").tag("result", "hit").functionCounter().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("llm.client.cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("配置内容变化后不再命中旧客户端")
+    void should_create_new_client_when_content_changes() {
+        LlmClientRegistry.ProviderClient before = registry.get(config(1L, "sk-a"));
+        LlmClientRegistry.ProviderClient after = registry.get(config(1L, "sk-b"));
+
+        assertThat(after).isNotSameAs(before);
+    }
+
+    @Test
+    @DisplayName("按配置 ID 清除，其它配置与内联配置不受影响")
+    void should_evict_by_config_id() {
+        LlmClientRegistry.ProviderClient evicted = registry.get(config(1L, "sk-a"));
+        LlmClientRegistry.ProviderClient other = registry.get(config(2L, "sk-a"));
+        LlmClientRegistry.ProviderClient inline = registry.get(null, "gpt-4o", "https://api.example.com/v1", "sk-a");
+
+        registry.evict(1L);
+
+        assertThat(registry.get(config(1L, "sk-a"))).isNotSameAs(evicted);
+        assertThat(registry.get(config(2L, "sk-a"))).isSameAs(other);
+        assertThat(registry.get(null, "gpt-4o", "https://api.example.com/v1", "sk-a")).isSameAs(inline);
+    }
+
+    @Test
+    @DisplayName("仅 /v1 或末尾斜杠不同的地址共用客户端")
+    void should_normalize_base_url() {
+        assertThat(LlmClientRegistry.normalizeBaseUrl("https://api.example.com/v1/")).isEqualTo("https://api.example.com");
+        assertThat(LlmClientRegistry.normalizeBaseUrl("https://api.example.com/")).isEqualTo("https://api.example.com");
+
+        LlmClientRegistry.ProviderClient client = registry.get(null, "gpt-4o", "https://api.example.com/v1", "sk-a");
+        assertThat(registry.get(null, "gpt-4o", "https://api.example.com", "sk-a")).isSameAs(client);
+    }
+
+    private LlmProviderConfig config(Long id, String apiKey) {
+        return LlmProviderConfig.builder()
+            .id(id)
+            .baseUrl("https://api.example.com/v1")
+            .apiKey(apiKey)
+            .model("gpt-4o")
+            .build();
+    }
+}
@@ -0,0 +1,139 @@
+package com.zj.aiagent.infrastructure.llm.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.zj.aiagent.domain.llm.entity.LlmProviderConfig;
+import com.zj.aiagent.infrastructure.redis.IRedisService;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * CachedLlmProviderConfigRepository 单元测试
+ * 验证读穿透缓存、写入后广播失效、收到广播或版本戳变化后重新加载
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("CachedLlmProviderConfigRepository 测试")
+class CachedLlmProviderConfigRepositoryTest {
+
+    @Mock
+    private LlmProviderConfigRepositoryImpl delegate;
+    @Mock
+    private IRedisService redisService;
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    private final AtomicLong stamp = new AtomicLong();
+    private CachedLlmProviderConfigRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new CachedLlmProviderConfigRepository(
+                delegate, redisService, listenerContainer, 64, Duration.ofMinutes(10), 0);
+        when(redisService.getAtomicLong(CachedLlmProviderConfigRepository.VERSION_KEY)).thenAnswer(inv -> stamp.get());
+        when(redisService.incr(CachedLlmProviderConfigRepository.VERSION_KEY)).thenAnswer(inv -> stamp.incrementAndGet());
+        when(delegate.findById(1L)).thenAnswer(inv -> Optional.of(config(1L, "gpt-4o")));
+        when(delegate.findDefault(null)).thenAnswer(inv -> Optional.of(config(2L, "default-model")));
+    }
+
+    @Test
+    @DisplayName("重复读取只查询一次数据库，返回副本互不影响")
+    void should_read_through_once_and_return_copies() {
+        LlmProviderConfig first = repository.findById(1L).orElseThrow();
+        first.setModel("mutated");
+        LlmProviderConfig second = repository.findById(1L).orElseThrow();
+
+        assertThat(second.getModel()).isEqualTo("gpt-4o");
+        assertThat(repository.findDefault(null)).map(LlmProviderConfig::getModel).contains("default-model");
+        assertThat(repository.findDefault(null)).isPresent();
+        verify(delegate, times(1)).findById(1L);
+        verify(delegate, times(1)).findDefault(null);
+    }
+
+    @Test
+    @DisplayName("不存在的配置也会缓存，避免反复查询")
+    void should_cache_missing_config() {
+        when(delegate.findById(9L)).thenReturn(Optional.empty());
+
+        assertThat(repository.findById(9L)).isEmpty();
+        assertThat(repository.findById(9L)).isEmpty();
+        verify(delegate, times(1)).findById(9L);
+    }
+
+    @Test
+    @DisplayName("更新后清除本地缓存、递增版本戳并广播")
+    void should_invalidate_and_broadcast_on_update() {
+        repository.findById(1L);
+        repository.findDefault(null);
+
+        repository.update(config(1L, "gpt-4o-mini"));
+
+        assertThat(repository.size()).isZero();
+        verify(redisService).incr(CachedLlmProviderConfigRepository.VERSION_KEY);
+        verify(redisService).publish(CachedLlmProviderConfigRepository.CHANNEL, "1");
+
+        repository.findById(1L);
+        verify(delegate, times(2)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("收到其它实例的失效广播后重新加载")
+    void should_reload_after_invalidation_message() {
+        repository.findById(1L);
+
+        repository.onMessage(new DefaultMessage(
+                CachedLlmProviderConfigRepository.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "\"1\"".getBytes(StandardCharsets.UTF_8)), null);
+        repository.findById(1L);
+
+        verify(delegate, times(2)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("广播丢失时通过版本戳比对失效")
+    void should_reload_when_version_stamp_changes() {
+        repository.findById(1L);
+        repository.findById(1L);
+        verify(delegate, times(1)).findById(1L);
+
+        // 其它实例写入并递增版本戳，但本实例未收到广播
+        stamp.incrementAndGet();
+        repository.findById(1L);
+
+        verify(delegate, times(2)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("读取版本戳失败时不信任本地缓存")
+    void should_bypass_cache_when_stamp_unavailable() {
+        repository.findById(1L);
+        when(redisService.getAtomicLong(anyString())).thenThrow(new IllegalStateException("redis down"));
+
+        repository.findById(1L);
+
+        verify(delegate, times(2)).findById(1L);
+    }
+
+    private LlmProviderConfig config(Long id, String model) {
+        return LlmProviderConfig.builder()
+                .id(id)
+                .baseUrl("https://api.example.com")
+                .apiKey("sk-test")
+                .model(model)
+                .build();
+    }
+}
@@ -0,0 +1,168 @@
+package com.zj.aiagent.infrastructure.workflow.condition;
+
+import com.zj.aiagent.domain.workflow.port.ConditionEvaluatorPort;
+import com.zj.aiagent.domain.workflow.valobj.ComparisonOperator;
+import com.zj.aiagent.domain.workflow.valobj.ConditionBranch;
+import com.zj.aiagent.domain.workflow.valobj.ConditionGroup;
+import com.zj.aiagent.domain.workflow.valobj.ConditionItem;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionContext;
+import com.zj.aiagent.domain.workflow.valobj.LogicalOperator;
+import net.jqwik.api.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Property-Based Test: 预编译条件树与解释执行等价
+ *
+ * 验证：对于任意分支配置（含变量引用、格式错误的引用、数值/字符串/null 字面值、null 操作符与空条件组）
+ * 以及任意 ExecutionContext，预编译条件树选中的分支与逐次解释执行完全相同（同一分支对象），
+ * 配置无效时抛出相同的异常；同一条件树跨多个 ExecutionContext 复用时结果依然一致。
+ */
+class CompiledConditionTreeEquivalencePropertyTest {
+
+    private final StructuredConditionEvaluator evaluator = new StructuredConditionEvaluator();
+    private final LegacyStructuredConditionEvaluator interpreter = new LegacyStructuredConditionEvaluator();
+
+    // ========== Properties ==========
+
+    @Property(tries = 500)
+    void compiled_tree_should_select_same_branch_as_interpreter(
+            @ForAll("branchLists") List<ConditionBranch> branches,
+            @ForAll("contexts") ExecutionContext context) {
+        assertThat(outcome(() -> evaluator.evaluate(branches, context)))
+                .isEqualTo(outcome(() -> interpreter.evaluate(branches, context)));
+    }
+
+    @Property(tries = 200)
+    void compiled_tree_should_be_reusable_across_contexts(
+            @ForAll("validBranchLists") List<ConditionBranch> branches,
+            @ForAll("contexts") ExecutionContext first,
+            @ForAll("contexts") ExecutionContext second) {
+        ConditionEvaluatorPort.CompiledConditions compiled = evaluator.compile(branches);
+
+        for (ExecutionContext context : List.of(first, second, first)) {
+            assertThat(compiled.evaluate(context)).isSameAs(interpreter.evaluate(branches, context));
+        }
+    }
+
+    // ========== Generators ==========
+
+    @Provide
+    Arbitrary<List<ConditionBranch>> branchLists() {
+        return Arbitraries.oneOf(validBranchLists(), anyBranchLists());
+    }
+
+    /**
+     * 恰好一个 default 分支
+     */
+    @Provide
+    Arbitrary<List<ConditionBranch>> validBranchLists() {
+        return Combinators.combine(branch(false).list().ofMaxSize(4), branch(true))
+                .as((branches, defaultBranch) -> {
+                    List<ConditionBranch> all = new ArrayList<>(branches);
+                    all.add(defaultBranch);
+                    return all;
+                });
+    }
+
+    /**
+     * default 分支数量任意（含 0 和多个），覆盖配置校验
+     */
+    Arbitrary<List<ConditionBranch>> anyBranchLists() {
+        return Arbitraries.oneOf(branch(false), branch(true)).list().ofMaxSize(3);
+    }
+
+    private Arbitrary<ConditionBranch> branch(boolean isDefault) {
+        Arbitrary<List<ConditionGroup>> groups = isDefault
+                ? Arbitraries.just(List.of())
+                : group().list().ofMaxSize(3);
+        return Combinators.combine(Arbitraries.integers().between(0, 3), Arbitraries.of("a", "b", "c"), groups)
+                .as((priority, target, conditionGroups) -> ConditionBranch.builder()
+                        .priority(priority)
+                        .targetNodeId(target)
+                        .isDefault(isDefault)
+                        .conditionGroups(conditionGroups)
+                        .build());
+    }
+
+    private Arbitrary<ConditionGroup> group() {
+        return Combinators.combine(
+                        Arbitraries.of(LogicalOperator.AND, LogicalOperator.OR).injectNull(0.1),
+                        item().list().ofMaxSize(3))
+                .as((operator, items) -> ConditionGroup.builder().operator(operator).conditions(items).build());
+    }
+
+    private Arbitrary<ConditionItem> item() {
+        Arbitrary<String> leftOperand = operand().map(value -> value != null ? value.toString() : null);
+        return Combinators.combine(leftOperand, Arbitraries.of(ComparisonOperator.class).injectNull(0.05), operand())
+                .as((left, operator, right) -> ConditionItem.builder()
+                        .leftOperand(left)
+                        .operator(operator)
+                        .rightOperand(right)
+                        .build());
+    }
+
+    private Arbitrary<Object> operand() {
+        return Arbitraries.oneOf(
+                Arbitraries.of("n1.output.x", "n1.output.y", "n2.output.x", "nodes.n1.x", "nodes.n2.y",
+                        "inputs.x", "inputs.y", "inputs.", "nodes.n1", ".output.x", "n1.output.").map(Object.class::cast),
+                scalar());
+    }
+
+    private Arbitrary<Object> scalar() {
+        return Arbitraries.oneOf(
+                Arbitraries.of("", "1", "2.5", "-3", "abc", "ab", "NaN", "1e2").map(Object.class::cast),
+                Arbitraries.integers().between(-3, 3).map(Object.class::cast),
+                Arbitraries.doubles().between(-3, 3).ofScale(1).map(Object.class::cast),
+                Arbitraries.just(null));
+    }
+
+    @Provide
+    Arbitrary<ExecutionContext> contexts() {
+        Arbitrary<Map<String, Object>> values = Combinators.combine(scalar(), scalar())
+                .as((x, y) -> {
+                    Map<String, Object> map = new HashMap<>();
+                    if (x != null) {
+                        map.put("x", x);
+                    }
+                    if (y != null) {
+                        map.put("y", y);
+                    }
+                    return map;
+                });
+        return Combinators.combine(values, values, values, Arbitraries.of(true, false))
+                .as((inputs, n1, n2, hasN2) -> {
+                    ExecutionContext context = ExecutionContext.builder().build();
+                    context.getInputs().putAll(inputs);
+                    context.setNodeOutput("n1", n1);
+                    if (hasN2) {
+                        context.setNodeOutput("n2", n2);
+                    }
+                    return context;
+                });
+    }
+
+    // ========== 辅助方法 ==========
+
+    /**
+     * 选中的分支（按对象身份）或异常信息
+     */
+    private static Object outcome(ThrowingSupplier supplier) {
+        try {
+            return Arrays.asList("branch", System.identityHashCode(supplier.get()));
+        } catch (Exception e) {
+            return List.of(e.getClass().getName(), String.valueOf(e.getMessage()));
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThrowingSupplier {
+        Object get();
+    }
+}
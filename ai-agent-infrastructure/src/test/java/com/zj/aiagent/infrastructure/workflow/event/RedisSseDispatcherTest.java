@@ -0,0 +1,169 @@
+package com.zj.aiagent.infrastructure.workflow.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zj.aiagent.domain.chat.valobj.SseEventPayload;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * RedisSseDispatcher 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("RedisSseDispatcher 测试")
+class RedisSseDispatcherTest {
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RScoredSortedSet<Object> presence;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private RedisSseDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        when(redissonClient.getScoredSortedSet(anyString(), any())).thenReturn(presence);
+        dispatcher = new RedisSseDispatcher(listenerContainer, objectMapper, redissonClient, Duration.ofSeconds(60));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    @DisplayName("每个实例只注册一个模式订阅")
+    void should_subscribe_once_with_pattern() {
+        dispatcher.subscribe();
+        dispatcher.register("exec-1", payload -> { });
+        dispatcher.register("exec-2", payload -> { });
+
+        verify(listenerContainer, times(1)).addMessageListener(eq(dispatcher), any(PatternTopic.class));
+    }
+
+    @Test
+    @DisplayName("消息按 executionId 分发给全部本地订阅方")
+    void should_route_message_to_subscribers_of_execution() throws Exception {
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+        List<String> other = new CopyOnWriteArrayList<>();
+        dispatcher.register("exec-1", payload -> first.add(payload.getNodeId()));
+        dispatcher.register("exec-1", payload -> second.add(payload.getNodeId()));
+        dispatcher.register("exec-2", payload -> other.add(payload.getNodeId()));
+
+        dispatcher.onMessage(message("exec-1", "llm"), null);
+
+        assertThat(first).containsExactly("llm");
+        assertThat(second).containsExactly("llm");
+        assertThat(other).isEmpty();
+    }
+
+    @Test
+    @DisplayName("注销最后一个订阅方后移除执行")
+    void should_remove_execution_when_last_subscriber_unregisters() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        Runnable unregister = dispatcher.register("exec-1", payload -> received.add(payload.getNodeId()));
+
+        unregister.run();
+        unregister.run();
+        dispatcher.onMessage(message("exec-1", "llm"), null);
+
+        assertThat(received).isEmpty();
+        assertThat(dispatcher.executionCount()).isZero();
+        verify(presence, times(1)).add(anyDouble(), eq(dispatcher.instanceId()));
+        verify(presence, times(1)).remove(dispatcher.instanceId());
+    }
+
+    @Test
+    @DisplayName("注销与重新登记并发时，在场键的移除不会覆盖新登记的写入")
+    void should_keep_presence_when_unregister_races_register() throws Exception {
+        Set<Object> members = ConcurrentHashMap.newKeySet();
+        CountDownLatch removing = new CountDownLatch(1);
+        when(presence.add(anyDouble(), any())).thenAnswer(inv -> members.add(inv.getArgument(1)));
+        when(presence.remove(any())).thenAnswer(inv -> {
+            removing.countDown();
+            // 移除在途时新的订阅方到达
+            Thread.sleep(200);
+            return members.remove(inv.getArgument(0));
+        });
+
+        Runnable unregister = dispatcher.register("exec-1", payload -> { });
+        CompletableFuture<Void> unregistering = CompletableFuture.runAsync(unregister);
+        assertThat(removing.await(5, TimeUnit.SECONDS)).isTrue();
+        dispatcher.register("exec-1", payload -> { });
+        unregistering.get(5, TimeUnit.SECONDS);
+
+        assertThat(dispatcher.subscriberCount("exec-1")).isEqualTo(1);
+        assertThat(members).containsExactly(dispatcher.instanceId());
+    }
+
+    @Test
+    @DisplayName("本地快速路径直接投递给本实例的订阅方")
+    void should_deliver_local_payload_without_decoding() {
+        List<SseEventPayload> received = new CopyOnWriteArrayList<>();
+        dispatcher.register("exec-1", received::add);
+        SseEventPayload payload = SseEventPayload.builder().executionId("exec-1").nodeId("llm").build();
+
+        dispatcher.deliverLocal(payload);
+
+        assertThat(received).containsExactly(payload);
+    }
+
+    @Test
+    @DisplayName("投递失败的订阅方自动注销，不影响其它订阅方")
+    void should_unregister_failing_subscriber() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        Consumer<SseEventPayload> failing = payload -> {
+            throw new IllegalStateException("emitter closed");
+        };
+        dispatcher.register("exec-1", failing);
+        dispatcher.register("exec-1", payload -> received.add(payload.getNodeId()));
+
+        dispatcher.onMessage(message("exec-1", "a"), null);
+        dispatcher.onMessage(message("exec-1", "b"), null);
+
+        assertThat(received).containsExactly("a", "b");
+        assertThat(dispatcher.subscriberCount("exec-1")).isEqualTo(1);
+    }
+
+    private DefaultMessage message(String executionId, String nodeId) throws Exception {
+        String body = objectMapper.writeValueAsString(SseEventPayload.builder()
+                .executionId(executionId)
+                .nodeId(nodeId)
+                .build());
+        return new DefaultMessage(
+                RedisSsePublisher.channel(executionId).getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,78 @@
+package com.zj.aiagent.infrastructure.workflow.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zj.aiagent.domain.chat.valobj.SseEventPayload;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RStream;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.StreamMessageId;
+import org.redisson.api.stream.StreamReadArgs;
+
+/**
+ * RedisSseEventReplayer 单元测试
+ * 验证事件 ID 比较、补读时以条目 ID 作为事件 ID
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("RedisSseEventReplayer 测试")
+class RedisSseEventReplayerTest {
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RStream<Object, Object> stream;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("事件 ID 先比较毫秒再比较序号")
+    void should_compare_ids_by_millis_then_sequence() {
+        assertThat(RedisSseEventReplayer.compareIds("1700000000000-1", "1700000000000-0")).isPositive();
+        assertThat(RedisSseEventReplayer.compareIds("1700000000000-9", "1700000000001-0")).isNegative();
+        assertThat(RedisSseEventReplayer.compareIds("1700000000000-2", "1700000000000-2")).isZero();
+        assertThat(RedisSseEventReplayer.compareIds(null, "1-0")).isNegative();
+    }
+
+    @Test
+    @DisplayName("非法 ID 按从头读取处理")
+    void should_parse_invalid_id_as_zero() {
+        assertThat(RedisSseEventReplayer.parseId("garbage")).isEqualTo(new StreamMessageId(0, 0));
+        assertThat(RedisSseEventReplayer.parseId("42")).isEqualTo(new StreamMessageId(42, 0));
+    }
+
+    @Test
+    @DisplayName("补读的事件以流条目 ID 作为事件 ID")
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void should_replay_events_with_entry_ids() throws Exception {
+        when(redissonClient.getStream(eq(RedisSsePublisher.streamKey("exec-1")), any())).thenReturn((RStream) stream);
+        Map<StreamMessageId, Map<Object, Object>> entries = new LinkedHashMap<>();
+        entries.put(new StreamMessageId(10, 1), Map.of("d", json("start")));
+        entries.put(new StreamMessageId(10, 2), Map.of("d", "not-json"));
+        entries.put(new StreamMessageId(11, 0), Map.of("d", json("llm")));
+        when(stream.read(any(StreamReadArgs.class))).thenReturn(entries);
+
+        RedisSseEventReplayer replayer = new RedisSseEventReplayer(redissonClient, objectMapper, 100);
+        List<SseEventPayload> events = replayer.replayAfter("exec-1", "10-0");
+
+        assertThat(events).extracting(SseEventPayload::getId).containsExactly("10-1", "11-0");
+        assertThat(events).extracting(SseEventPayload::getNodeId).containsExactly("start", "llm");
+    }
+
+    private String json(String nodeId) throws Exception {
+        return objectMapper.writeValueAsString(SseEventPayload.builder()
+                .executionId("exec-1")
+                .nodeId(nodeId)
+                .build());
+    }
+}
@@ -0,0 +1,211 @@
+package com.zj.aiagent.infrastructure.workflow.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zj.aiagent.domain.chat.valobj.SseEventPayload;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * SSE 本地快速路径测试
+ *
+ * 用内存实现的 Redis 替身模拟追加脚本（事件流 ID、订阅方在场键、PUBLISH），
+ * PUBLISH 的消息经模拟的网络往返后交给所有实例的分发器。
+ * 对比同实例订阅方（本地快速路径）与跨实例订阅方（经频道）的端到端延迟。
+ */
+@Slf4j
+@DisplayName("SSE 本地快速路径测试")
+class RedisSsePublisherLocalDeliveryTest {
+
+    private static final long SIMULATED_HOP_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final int EVENTS = 200;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RedisStandIn redis = new RedisStandIn();
+
+    private RedisSseDispatcher producerInstance;
+    private RedisSseDispatcher remoteInstance;
+    private RedisSsePublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        producerInstance = redis.connect();
+        remoteInstance = redis.connect();
+        publisher = new RedisSsePublisher(redis.client, objectMapper, producerInstance, 5000, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        producerInstance.shutdown();
+        remoteInstance.shutdown();
+        redis.network.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("只有本实例订阅方时不发布到频道，直接投递")
+    void should_skip_publish_when_only_local_subscribers() {
+        List<SseEventPayload> received = new ArrayList<>();
+        producerInstance.register("exec-1", received::add);
+
+        String id = publisher.publish(payload("exec-1", "llm"));
+
+        assertThat(received).extracting(SseEventPayload::getId).containsExactly(id);
+        assertThat(redis.published.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("存在其它实例订阅方时发布到频道，本实例订阅方也只收到一次")
+    void should_publish_when_remote_subscribers_exist() throws Exception {
+        CountDownLatch local = new CountDownLatch(1);
+        CountDownLatch remote = new CountDownLatch(1);
+        List<String> localIds = new ArrayList<>();
+        producerInstance.register("exec-2", p -> {
+            localIds.add(p.getId());
+            local.countDown();
+        });
+        remoteInstance.register("exec-2", p -> remote.countDown());
+
+        String id = publisher.publish(payload("exec-2", "llm"));
+
+        assertThat(remote.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(local.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(redis.published.get()).isEqualTo(1);
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertThat(localIds).containsExactly(id);
+    }
+
+    @Test
+    @DisplayName("本地快速路径的投递延迟低于经频道的投递")
+    void local_fast_path_should_beat_channel_round_trip() throws Exception {
+        long[] local = measure("exec-local", producerInstance);
+        long[] channel = measure("exec-remote", remoteInstance);
+
+        long localP50 = percentile(local, 50);
+        long channelP50 = percentile(channel, 50);
+        log.info("[SSE-Latency] local p50={}us p99={}us, channel p50={}us p99={}us",
+                localP50 / 1_000, percentile(local, 99) / 1_000,
+                channelP50 / 1_000, percentile(channel, 99) / 1_000);
+
+        assertThat(localP50).isLessThan(channelP50);
+        assertThat(channelP50).isGreaterThanOrEqualTo(SIMULATED_HOP_NANOS);
+    }
+
+    private long[] measure(String executionId, RedisSseDispatcher subscriberInstance) throws Exception {
+        Map<String, Long> sentAt = new ConcurrentHashMap<>();
+        long[] latencies = new long[EVENTS];
+        AtomicLong index = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(EVENTS);
+        subscriberInstance.register(executionId, p -> {
+            latencies[(int) index.getAndIncrement()] = System.nanoTime() - sentAt.get(p.getNodeId());
+            done.countDown();
+        });
+
+        for (int i = 0; i < EVENTS; i++) {
+            String nodeId = "node-" + i;
+            sentAt.put(nodeId, System.nanoTime());
+            publisher.publish(payload(executionId, nodeId));
+        }
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        return latencies;
+    }
+
+    private static long percentile(long[] values, int percentile) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+
+    private SseEventPayload payload(String executionId, String nodeId) {
+        return SseEventPayload.builder()
+                .executionId(executionId)
+                .nodeId(nodeId)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    /**
+     * Redis 替身：按追加脚本的语义维护事件流序号和订阅方在场键，PUBLISH 经模拟网络延迟后投递给所有实例
+     */
+    private final class RedisStandIn {
+
+        final RedissonClient client = mock(RedissonClient.class);
+        final ExecutorService network = Executors.newSingleThreadExecutor();
+        final AtomicLong published = new AtomicLong();
+
+        private final Map<String, Map<String, Double>> presence = new ConcurrentHashMap<>();
+        private final List<RedisSseDispatcher> instances = new ArrayList<>();
+        private final AtomicLong sequence = new AtomicLong();
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        RedisStandIn() {
+            RScript script = mock(RScript.class);
+            when(client.getScript(any(Codec.class))).thenReturn(script);
+            when(script.eval(anyString(), any(), anyString(), any(), anyList(), any(Object[].class)))
+                    .thenAnswer(inv -> append(inv.getArgument(4), inv.getRawArguments()));
+            when(client.getScoredSortedSet(anyString(), any())).thenAnswer(inv -> {
+                Map<String, Double> members = presence.computeIfAbsent(inv.getArgument(0), k -> new ConcurrentHashMap<>());
+                RScoredSortedSet set = mock(RScoredSortedSet.class);
+                when(set.add(anyDouble(), any())).thenAnswer(a -> members.put(a.getArgument(1), a.getArgument(0)) == null);
+                when(set.remove(any())).thenAnswer(a -> members.remove(a.getArgument(0)) != null);
+                return set;
+            });
+        }
+
+        RedisSseDispatcher connect() {
+            RedisSseDispatcher dispatcher = new RedisSseDispatcher(
+                    mock(RedisMessageListenerContainer.class), objectMapper, client, Duration.ofSeconds(60));
+            instances.add(dispatcher);
+            return dispatcher;
+        }
+
+        private List<Object> append(List<Object> keys, Object[] raw) {
+            Object[] argv = (Object[]) raw[5];
+            String channel = (String) argv[2];
+            String json = (String) argv[3];
+            String self = (String) argv[4];
+            double now = Double.parseDouble((String) argv[5]);
+
+            String id = System.currentTimeMillis() + "-" + sequence.incrementAndGet();
+            long remote = presence.getOrDefault((String) keys.get(1), Map.of()).entrySet().stream()
+                    .filter(e -> e.getValue() > now && !e.getKey().equals(self))
+                    .count();
+            if (remote == 0) {
+                return List.of(id, 0L);
+            }
+
+            published.incrementAndGet();
+            byte[] body = ("{\"id\":\"" + id + "\"," + json.substring(1)).getBytes(StandardCharsets.UTF_8);
+            network.execute(() -> {
+                LockSupport.parkNanos(SIMULATED_HOP_NANOS);
+                DefaultMessage message = new DefaultMessage(channel.getBytes(StandardCharsets.UTF_8), body);
+                instances.forEach(instance -> instance.onMessage(message, null));
+            });
+            return List.of(id, 1L);
+        }
+    }
+}
@@ -16,7 +16,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.web.client.RestClient;
+import com.zj.aiagent.infrastructure.llm.client.LlmClientRegistry;
 import com.zj.aiagent.domain.llm.repository.LlmProviderConfigRepository;
 
 import java.util.HashMap;
@@ -68,13 +68,13 @@ class ConditionNodeExecutorStrategyLlmTest {
         objectMapper = new ObjectMapper();
         // 使用同步 Executor 简化测试
         Executor syncExecutor = Runnable::run;
-        RestClient.Builder restClientBuilder = RestClient.builder();
+        LlmClientRegistry llmClientRegistry = mock(LlmClientRegistry.class);
 
         // 使用空的 LlmProviderConfigRepository stub（LLM 配置在测试中通过 spy 的 buildChatClient 覆盖）
         LlmProviderConfigRepository llmRepo = mock(LlmProviderConfigRepository.class);
 
         strategy = spy(new ConditionNodeExecutorStrategy(
-                conditionEvaluator, objectMapper, syncExecutor, restClientBuilder, llmRepo));
+                conditionEvaluator, objectMapper, syncExecutor, llmClientRegistry, llmRepo));
 
         // 构建测试分支
         testBranches = List.of(
@@ -0,0 +1,196 @@
+package com.zj.aiagent.infrastructure.workflow.executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zj.aiagent.domain.workflow.config.NodeConfig;
+import com.zj.aiagent.domain.workflow.entity.Node;
+import com.zj.aiagent.domain.workflow.port.StreamPublisher;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
+import com.zj.aiagent.domain.workflow.valobj.NodeExecutionResult;
+import com.zj.aiagent.domain.workflow.valobj.NodeType;
+import com.zj.aiagent.infrastructure.workflow.template.PromptTemplateResolver;
+import com.zj.aiagent.infrastructure.workflow.template.PromptValueFormatter;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * HttpNodeExecutorStrategy 测试
+ * 在本地启动 reactor-netty HTTP 服务，验证模板渲染、连接复用、响应体截断、
+ * 以及等待响应期间不占用节点线程
+ */
+class HttpNodeExecutorStrategyTest {
+
+    private static final int MAX_BODY_BYTES = 1024;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final StreamPublisher streamPublisher = mock(StreamPublisher.class);
+
+    /**
+     * 单线程节点线程池：慢请求若阻塞线程，后续节点无法执行
+     */
+    private final ExecutorService nodeExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * 客户端断开时慢接口的响应被取消
+     */
+    private final CountDownLatch slowAborted = new CountDownLatch(1);
+
+    private DisposableServer server;
+    private HttpNodeExecutorStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+            .host("127.0.0.1")
+            .port(0)
+            .route(routes -> routes
+                .get("/users/{id}", (request, response) -> response.sendString(Mono.just(
+                    request.param("id") + "|" + request.requestHeaders().get("X-Token"))))
+                .post("/submit", (request, response) -> response.sendString(
+                    request.receive().aggregate().asString().map(body ->
+                        request.requestHeaders().get("Content-Type") + "|" + body)))
+                .get("/large", (request, response) -> response.sendString(Mono.just("字".repeat(MAX_BODY_BYTES))))
+                .get("/peer", (request, response) -> response.sendString(Mono.just(
+                    String.valueOf(request.remoteAddress().getPort()))))
+                .get("/slow", (request, response) -> response.sendString(
+                    Mono.delay(Duration.ofSeconds(3)).thenReturn("late")
+                        .doOnCancel(slowAborted::countDown))))
+            .bindNow();
+
+        strategy = new HttpNodeExecutorStrategy(
+            nodeExecutor,
+            objectMapper,
+            new PromptTemplateResolver(new PromptValueFormatter(objectMapper)),
+            4,
+            Duration.ofSeconds(5),
+            Duration.ofSeconds(30),
+            Duration.ofSeconds(30),
+            Duration.ofSeconds(5),
+            MAX_BODY_BYTES);
+    }
+
+    @AfterEach
+    void tearDown() {
+        strategy.shutdown();
+        server.disposeNow();
+        nodeExecutor.shutdownNow();
+    }
+
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    private Node httpNode(Map<String, Object> properties) {
+        return Node.builder()
+            .nodeId("http-1")
+            .name("HTTP")
+            .type(NodeType.HTTP)
+            .config(NodeConfig.builder().properties(new HashMap<>(properties)).build())
+            .build();
+    }
+
+    private NodeExecutionResult execute(Node node, Map<String, Object> inputs) throws Exception {
+        return strategy.executeAsync(node, inputs, streamPublisher).get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("URL 与 Header 模板按输入渲染，同一节点多次执行结果一致")
+    void renders_url_and_header_templates() throws Exception {
+        Node node = httpNode(Map.of(
+            "http_url", baseUrl() + "/users/{{userId}}",
+            "http_headers", "{\"X-Token\": \"Bearer {{token}}\"}"));
+
+        NodeExecutionResult first = execute(node, Map.of("userId", "42", "token", "abc"));
+        NodeExecutionResult second = execute(node, Map.of("userId", "7", "token", "xyz"));
+
+        assertEquals(ExecutionStatus.SUCCEEDED, first.getStatus());
+        assertEquals(200, first.getOutputs().get("statusCode"));
+        assertEquals("42|Bearer abc", first.getOutputs().get("body"));
+        assertEquals(false, first.getOutputs().get("truncated"));
+        assertEquals("7|Bearer xyz", second.getOutputs().get("body"));
+    }
+
+    @Test
+    @DisplayName("配置了 Body 模板时以 JSON 发送渲染后的请求体")
+    void posts_rendered_json_body() throws Exception {
+        Node node = httpNode(Map.of(
+            "http_url", baseUrl() + "/submit",
+            "http_method", "post",
+            "http_body", "{\"query\": \"{{query}}\"}"));
+
+        NodeExecutionResult result = execute(node, Map.of("query", "你好"));
+
+        assertEquals(ExecutionStatus.SUCCEEDED, result.getStatus());
+        assertEquals("application/json|{\"query\": \"你好\"}", result.getOutputs().get("response"));
+    }
+
+    @Test
+    @DisplayName("响应体超过上限时读到上限即停止并标记截断")
+    void truncates_body_at_limit() throws Exception {
+        NodeExecutionResult result = execute(httpNode(Map.of("http_url", baseUrl() + "/large")), Map.of());
+
+        assertEquals(ExecutionStatus.SUCCEEDED, result.getStatus());
+        assertEquals(true, result.getOutputs().get("truncated"));
+        String body = (String) result.getOutputs().get("body");
+        assertTrue(body.startsWith("字".repeat(MAX_BODY_BYTES / 3)));
+        assertTrue(body.length() <= MAX_BODY_BYTES / 3 + 1);
+    }
+
+    @Test
+    @DisplayName("顺序请求复用连接池中的连接")
+    void reuses_pooled_connection() throws Exception {
+        Node node = httpNode(Map.of("http_url", baseUrl() + "/peer"));
+
+        Set<Object> clientPorts = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            clientPorts.add(execute(node, Map.of()).getOutputs().get("body"));
+        }
+
+        assertTrue(clientPorts.size() < 5, "connections were not reused: " + clientPorts);
+    }
+
+    @Test
+    @DisplayName("等待响应不占用节点线程，超时后以失败结束")
+    void waits_without_blocking_node_thread() throws Exception {
+        CompletableFuture<NodeExecutionResult> slow = strategy.executeAsync(
+            httpNode(Map.of("http_url", baseUrl() + "/slow", "timeout", 1000)), Map.of(), streamPublisher);
+
+        NodeExecutionResult fast = execute(httpNode(Map.of("http_url", baseUrl() + "/peer")), Map.of());
+        assertEquals(ExecutionStatus.SUCCEEDED, fast.getStatus());
+        assertFalse(slow.isDone());
+
+        NodeExecutionResult timedOut = slow.get(10, TimeUnit.SECONDS);
+        assertEquals(ExecutionStatus.FAILED, timedOut.getStatus());
+        assertTrue(timedOut.getErrorMessage().contains("timed out"));
+        verify(streamPublisher).publishError(timedOut.getErrorMessage());
+    }
+
+    @Test
+    @DisplayName("执行取消时结束进行中的请求")
+    void cancel_disposes_in_flight_request() throws Exception {
+        CompletableFuture<NodeExecutionResult> slow = strategy.executeAsync(
+            httpNode(Map.of("http_url", baseUrl() + "/slow")), Map.of(), streamPublisher);
+        // 等请求发出后再取消
+        execute(httpNode(Map.of("http_url", baseUrl() + "/peer")), Map.of());
+
+        assertTrue(slow.cancel(true));
+
+        assertTrue(slowAborted.await(5, TimeUnit.SECONDS));
+        verify(streamPublisher, never()).publishError(anyString());
+    }
+}
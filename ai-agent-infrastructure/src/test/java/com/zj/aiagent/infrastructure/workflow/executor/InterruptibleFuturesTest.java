@@ -0,0 +1,60 @@
+package com.zj.aiagent.infrastructure.workflow.executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * InterruptibleFutures 测试
+ * 验证取消时中断执行线程，且中断标记不会遗留给线程池的后续任务
+ */
+class InterruptibleFuturesTest {
+
+    private final ExecutorService pool = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("取消时中断阻塞中的任务，后续任务不受中断标记影响")
+    void should_interrupt_running_task_on_cancel() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        CompletableFuture<String> future = InterruptibleFutures.supplyAsync(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(10_000);
+                return "finished";
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                return "interrupted";
+            }
+        }, pool);
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(future.cancel(true));
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertTrue(future.isCancelled());
+        assertFalse(CompletableFuture.supplyAsync(() -> Thread.currentThread().isInterrupted(), pool)
+            .get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("未取消时正常返回结果")
+    void should_complete_normally() throws Exception {
+        assertEquals("ok", InterruptibleFutures.supplyAsync(() -> "ok", pool).get(5, TimeUnit.SECONDS));
+    }
+}
@@ -14,6 +14,7 @@ import com.zj.aiagent.domain.workflow.entity.Node;
 import com.zj.aiagent.domain.workflow.valobj.ExecutionContext;
 import com.zj.aiagent.domain.workflow.valobj.FieldSchema;
 import com.zj.aiagent.domain.workflow.valobj.NodeType;
+import com.zj.aiagent.infrastructure.llm.client.LlmClientRegistry;
 import com.zj.aiagent.infrastructure.workflow.template.PromptTemplateResolver;
 import com.zj.aiagent.infrastructure.workflow.template.PromptValueFormatter;
 import java.util.List;
@@ -22,7 +23,6 @@ import java.util.concurrent.Executor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.springframework.web.client.RestClient;
 
 class LlmNodeExecutorStrategyPromptTemplateTest {
 
@@ -37,7 +37,7 @@ class LlmNodeExecutorStrategyPromptTemplateTest {
         Executor directExecutor = Runnable::run;
         strategy = new LlmNodeExecutorStrategy(
             directExecutor,
-            RestClient.builder(),
+            mock(LlmClientRegistry.class),
             objectMapper,
             mock(KnowledgeRetrievalService.class),
             mock(LlmProviderConfigRepository.class),
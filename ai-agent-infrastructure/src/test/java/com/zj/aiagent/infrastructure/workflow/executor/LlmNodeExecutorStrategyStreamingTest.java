@@ -0,0 +1,181 @@
+package com.zj.aiagent.infrastructure.workflow.executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zj.aiagent.domain.knowledge.service.KnowledgeRetrievalService;
+import com.zj.aiagent.domain.llm.repository.LlmProviderConfigRepository;
+import com.zj.aiagent.domain.workflow.config.NodeConfig;
+import com.zj.aiagent.domain.workflow.entity.Node;
+import com.zj.aiagent.domain.workflow.port.StreamPublisher;
+import com.zj.aiagent.domain.workflow.valobj.NodeExecutionResult;
+import com.zj.aiagent.domain.workflow.valobj.NodeType;
+import com.zj.aiagent.infrastructure.llm.client.LlmClientRegistry;
+import com.zj.aiagent.infrastructure.workflow.template.PromptTemplateResolver;
+import com.zj.aiagent.infrastructure.workflow.template.PromptValueFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+/**
+ * LLM 节点流式执行测试
+ * 验证生成阶段不占用节点线程池线程，且空响应兜底、流错误处理保持不变
+ */
+class LlmNodeExecutorStrategyStreamingTest {
+
+    private final ExecutorService nodePool = Executors.newSingleThreadExecutor();
+    private final ChatClient chatClient = mock(ChatClient.class, RETURNS_DEEP_STUBS);
+    private final StreamPublisher streamPublisher = mock(StreamPublisher.class);
+
+    private LlmNodeExecutorStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        strategy = new LlmNodeExecutorStrategy(
+            nodePool,
+            mock(LlmClientRegistry.class),
+            objectMapper,
+            mock(KnowledgeRetrievalService.class),
+            mock(LlmProviderConfigRepository.class),
+            new PromptTemplateResolver(new PromptValueFormatter(objectMapper))
+        ) {
+            @Override
+            ChatClient createChatClient(Long llmConfigId, String model, String apiUrl, String apiKey) {
+                return chatClient;
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodePool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("流式输出期间节点线程池线程可被其它节点使用")
+    void should_release_node_pool_while_streaming() throws Exception {
+        Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+        when(chatClient.prompt(any(Prompt.class)).stream().content()).thenReturn(sink.asFlux());
+
+        CompletableFuture<NodeExecutionResult> future = strategy.executeAsync(
+            buildLlmNode(),
+            inputs(),
+            streamPublisher
+        );
+
+        // 单线程池：若生成阶段阻塞在池线程上，这里的任务将无法执行
+        CompletableFuture<String> other = CompletableFuture.supplyAsync(() -> "other", nodePool);
+        assertEquals("other", other.get(5, TimeUnit.SECONDS));
+        assertFalse(future.isDone());
+
+        sink.tryEmitNext("你好");
+        sink.tryEmitNext("，世界");
+        sink.tryEmitComplete();
+
+        NodeExecutionResult result = future.get(5, TimeUnit.SECONDS);
+        assertTrue(result.isSuccess());
+        assertEquals("你好，世界", result.getOutputs().get("response"));
+        verify(streamPublisher).publishDelta("你好");
+        verify(streamPublisher).publishDelta("，世界");
+    }
+
+    @Test
+    @DisplayName("取消节点 future 时取消响应流订阅")
+    void should_dispose_stream_when_cancelled() throws Exception {
+        Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicBoolean disposed = new AtomicBoolean();
+        when(chatClient.prompt(any(Prompt.class)).stream().content())
+            .thenReturn(sink.asFlux().doOnCancel(() -> disposed.set(true)));
+
+        CompletableFuture<NodeExecutionResult> future = strategy.executeAsync(
+            buildLlmNode(),
+            inputs(),
+            streamPublisher
+        );
+        sink.tryEmitNext("部分");
+        // 等待准备阶段完成、订阅建立
+        CompletableFuture.runAsync(() -> { }, nodePool).get(5, TimeUnit.SECONDS);
+
+        future.cancel(true);
+
+        assertTrue(disposed.get());
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    @DisplayName("流式返回空内容时回退到非流式调用")
+    void should_fallback_to_blocking_call_on_empty_stream() throws Exception {
+        ChatClient.ChatClientRequestSpec request = mock(ChatClient.ChatClientRequestSpec.class, RETURNS_DEEP_STUBS);
+        when(chatClient.prompt(any(Prompt.class))).thenReturn(request);
+        when(request.stream().content()).thenReturn(Flux.empty());
+        when(request.call().content()).thenReturn("兜底回复");
+
+        NodeExecutionResult result = strategy
+            .executeAsync(buildLlmNode(), inputs(), streamPublisher)
+            .get(5, TimeUnit.SECONDS);
+
+        assertTrue(result.isSuccess());
+        assertEquals("兜底回复", result.getOutputs().get("response"));
+        verify(streamPublisher).publishDelta("兜底回复");
+    }
+
+    @Test
+    @DisplayName("流中断时返回失败结果并推送错误")
+    void should_fail_when_stream_errors() throws Exception {
+        when(chatClient.prompt(any(Prompt.class)).stream().content())
+            .thenReturn(Flux.concat(Flux.just("部分"), Flux.error(new IllegalStateException("connection reset"))));
+
+        NodeExecutionResult result = strategy
+            .executeAsync(buildLlmNode(), inputs(), streamPublisher)
+            .get(5, TimeUnit.SECONDS);
+
+        assertFalse(result.isSuccess());
+        assertEquals("Stream interrupted, partial output available", result.getErrorMessage());
+        verify(streamPublisher).publishError("connection reset");
+    }
+
+    private Map<String, Object> inputs() {
+        Map<String, Object> inputs = new HashMap<>();
+        inputs.put("input", "问候一下");
+        return inputs;
+    }
+
+    private Node buildLlmNode() {
+        return Node.builder()
+            .nodeId("llm-1")
+            .name("LLM")
+            .type(NodeType.LLM)
+            .config(
+                NodeConfig.builder()
+                    .properties(
+                        Map.of(
+                            "model", "test-model",
+                            "baseUrl", "http://localhost:1",
+                            "apiKey", "sk-test"
+                        )
+                    )
+                    .build()
+            )
+            .build();
+    }
+}
@@ -0,0 +1,165 @@
+package com.zj.aiagent.infrastructure.workflow.expression;
+
+import com.zj.aiagent.domain.workflow.valobj.ExecutionContext;
+import net.jqwik.api.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Property-Based Test: 预编译引用与逐次解析等价
+ *
+ * 验证：对于任意引用字符串（合法引用、格式错误的引用、普通文本、历史 SpEL）以及任意 ExecutionContext，
+ * 预编译的 ExpressionResolver 与原逐次解析实现返回相同的值，或抛出相同信息的异常；
+ * 同一引用重复解析时复用已编译的访问器。
+ */
+class CompiledExpressionEquivalencePropertyTest {
+
+    private final ExpressionResolver resolver = new ExpressionResolver(1_000);
+    private final LegacyExpressionResolver legacy = new LegacyExpressionResolver();
+
+    // ========== Properties ==========
+
+    @Property(tries = 500)
+    void resolve_should_match_legacy_behaviour(
+            @ForAll("references") String expression,
+            @ForAll("contexts") ExecutionContext context) {
+        // 第二次解析走缓存的访问器，同样须与原实现一致
+        assertThat(outcome(() -> resolver.resolve(expression, context)))
+                .isEqualTo(outcome(() -> legacy.resolve(expression, context)));
+        assertThat(outcome(() -> resolver.resolve(expression, context)))
+                .isEqualTo(outcome(() -> legacy.resolve(expression, context)));
+    }
+
+    @Property(tries = 200)
+    void resolveInputs_should_match_legacy_behaviour(
+            @ForAll("inputMappings") Map<String, Object> inputMappings,
+            @ForAll("contexts") ExecutionContext context) {
+        assertThat(outcome(() -> resolver.resolveInputs(inputMappings, context)))
+                .isEqualTo(outcome(() -> legacy.resolveInputs(inputMappings, context)));
+    }
+
+    @Property(tries = 100)
+    void compiled_accessor_should_be_reused(@ForAll("references") String expression) {
+        assertThat(resolver.compile(expression)).isSameAs(resolver.compile(expression));
+    }
+
+    @Example
+    void spel_should_keep_working_after_compilation() {
+        String expression = "#{#nodeOutputs['llm-1']['response'] + '!'}";
+        ExecutionContext context = ExecutionContext.builder().build();
+        context.setNodeOutput("llm-1", Map.of("response", "hi"));
+
+        // MIXED 模式在若干次解释执行后编译为字节码，结果保持一致
+        for (int i = 0; i < 200; i++) {
+            assertThat(resolver.resolve(expression, context)).isEqualTo("hi!");
+        }
+    }
+
+    // ========== Generators ==========
+
+    @Provide
+    Arbitrary<String> references() {
+        Arbitrary<String> segment = Arbitraries.of("a", "b", "list", "0", "1", "5", "-1", "x", "", " ");
+        Arbitrary<String> path = segment.list().ofMinSize(0).ofMaxSize(4).map(s -> String.join(".", s));
+        Arbitrary<String> nodeId = Arbitraries.of("n1", "n2", "missing", "");
+        Arbitrary<String> key = Arbitraries.of("a", "b", "missing", "", " ");
+
+        return Arbitraries.oneOf(
+                key.map(k -> "inputs." + k),
+                key.map(k -> "sharedState." + k),
+                key.map(k -> "state." + k),
+                Combinators.combine(nodeId, path).as((n, p) -> "nodes." + n + "." + p),
+                Combinators.combine(nodeId, path).as((n, p) -> n + ".output." + p),
+                Arbitraries.of("nodes.", "nodes.n1", ".output.a", "n1.output.", "plain text", "", "   "),
+                Arbitraries.of(
+                        "#{#inputs['a']}",
+                        "#{#nodeOutputs['n1']['a']}",
+                        "#{#n1['list'][0]}",
+                        "#{#sharedState['missing'].length()}",
+                        "#{ ( }"),
+                Arbitraries.strings().ofMaxLength(12))
+                .flatMap(expr -> Arbitraries.of("", " ", "\t").map(pad -> pad + expr + pad));
+    }
+
+    @Provide
+    Arbitrary<ExecutionContext> contexts() {
+        Arbitrary<Object> leaf = Arbitraries.oneOf(
+                Arbitraries.strings().alpha().ofMaxLength(4).map(Object.class::cast),
+                Arbitraries.integers().between(-5, 5).map(Object.class::cast),
+                Arbitraries.just(null));
+        Arbitrary<Object> value = Arbitraries.oneOf(
+                leaf,
+                leaf.list().ofMaxSize(3).map(Object.class::cast),
+                Combinators.combine(leaf, leaf.list().ofMaxSize(3))
+                        .as((a, list) -> (Object) nullableMap("b", a, "list", list)));
+        Arbitrary<Map<String, Object>> map = Combinators.combine(value, value, Arbitraries.of(true, false))
+                .as((a, list, present) -> present ? nullableMap("a", a, "list", list) : new HashMap<>());
+
+        return Combinators.combine(map, map, map, map, Arbitraries.of(true, false))
+                .as((inputs, state, n1, n2, hasN2) -> {
+                    ExecutionContext context = ExecutionContext.builder().build();
+                    context.getInputs().putAll(withoutNulls(inputs));
+                    context.getSharedState().putAll(withoutNulls(state));
+                    context.setNodeOutput("n1", n1);
+                    if (hasN2) {
+                        context.setNodeOutput("n2", n2);
+                    }
+                    return context;
+                });
+    }
+
+    @Provide
+    Arbitrary<Map<String, Object>> inputMappings() {
+        Arbitrary<Object> value = Arbitraries.oneOf(
+                references().map(Object.class::cast),
+                Arbitraries.integers().map(Object.class::cast),
+                Arbitraries.just(null));
+        return Arbitraries.maps(Arbitraries.of("p", "q", "r"), value).ofMaxSize(3)
+                .map(LinkedHashMap::new);
+    }
+
+    // ========== 辅助方法 ==========
+
+    /**
+     * 解析结果或异常信息（异常类型 + message）
+     */
+    private static Object outcome(ThrowingSupplier supplier) {
+        try {
+            return Arrays.asList("value", supplier.get());
+        } catch (Exception e) {
+            return List.of(e.getClass().getName(), Objects.toString(e.getMessage()));
+        }
+    }
+
+    private static Map<String, Object> nullableMap(String k1, Object v1, String k2, Object v2) {
+        Map<String, Object> map = new HashMap<>();
+        map.put(k1, v1);
+        map.put(k2, v2);
+        return map;
+    }
+
+    /**
+     * ConcurrentHashMap 不接受 null 值
+     */
+    private static Map<String, Object> withoutNulls(Map<String, Object> map) {
+        Map<String, Object> copy = new HashMap<>();
+        map.forEach((k, v) -> {
+            if (v != null) {
+                copy.put(k, v);
+            }
+        });
+        return copy;
+    }
+
+    @FunctionalInterface
+    private interface ThrowingSupplier {
+        Object get();
+    }
+}
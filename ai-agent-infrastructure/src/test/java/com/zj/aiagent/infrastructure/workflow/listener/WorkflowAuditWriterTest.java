@@ -0,0 +1,131 @@
+package com.zj.aiagent.infrastructure.workflow.listener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.zj.aiagent.domain.workflow.entity.WorkflowNodeExecutionLog;
+import com.zj.aiagent.domain.workflow.port.WorkflowNodeExecutionLogRepository;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+/**
+ * WorkflowAuditWriter 单元测试
+ * 验证按条数攒批写入、内存日志视图、非本实例启动的执行从数据库加载、执行结束后释放视图
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("WorkflowAuditWriter 测试")
+class WorkflowAuditWriterTest {
+
+    @Mock
+    private WorkflowNodeExecutionLogRepository repository;
+
+    private WorkflowAuditWriter writer;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    private WorkflowAuditWriter start(int batchSize, long flushIntervalMillis) {
+        writer = new WorkflowAuditWriter(repository, 100, batchSize, flushIntervalMillis, 100, Duration.ofMinutes(10));
+        writer.start();
+        return writer;
+    }
+
+    @Test
+    @DisplayName("日志按批写入，视图立即可见且不回查数据库")
+    void should_write_in_batches_and_serve_view() {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        doAnswer(inv -> batchSizes.add(((List<?>) inv.getArgument(0)).size()))
+                .when(repository).saveAll(anyList());
+        start(5, 1_000);
+
+        writer.open("exec-1");
+        for (int i = 1; i <= 10; i++) {
+            writer.submit(log("exec-1", "node-" + i));
+        }
+
+        assertThat(writer.logsOf("exec-1")).extracting(WorkflowNodeExecutionLog::getNodeId)
+                .containsExactly("node-1", "node-2", "node-3", "node-4", "node-5",
+                        "node-6", "node-7", "node-8", "node-9", "node-10");
+        verify(repository, timeout(5_000).times(2)).saveAll(anyList());
+        assertThat(batchSizes).containsExactly(5, 5);
+        verify(repository, never()).findByExecutionIdOrderByEndTime(anyString());
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("不足一批时按时间间隔写入")
+    void should_flush_partial_batch_after_interval() {
+        start(100, 50);
+
+        writer.open("exec-2");
+        writer.submit(log("exec-2", "start"));
+
+        verify(repository, timeout(5_000)).saveAll(argThat(batch -> batch.size() == 1));
+    }
+
+    @Test
+    @DisplayName("非本实例启动的执行首次访问时从数据库加载一次")
+    void should_load_view_from_repository_once() {
+        when(repository.findByExecutionIdOrderByEndTime("exec-3")).thenReturn(List.of(log("exec-3", "start")));
+        start(100, 50);
+
+        writer.submit(log("exec-3", "llm"));
+
+        assertThat(writer.logsOf("exec-3")).extracting(WorkflowNodeExecutionLog::getNodeId)
+                .containsExactly("start", "llm");
+        verify(repository, times(1)).findByExecutionIdOrderByEndTime("exec-3");
+    }
+
+    @Test
+    @DisplayName("释放视图后已提交的日志仍落库，再次访问时从数据库加载")
+    void should_release_view_on_close() {
+        start(100, 50);
+
+        writer.open("exec-5");
+        writer.submit(log("exec-5", "start"));
+        writer.close("exec-5");
+
+        verify(repository, timeout(5_000)).saveAll(argThat(batch -> batch.size() == 1));
+        when(repository.findByExecutionIdOrderByEndTime("exec-5")).thenReturn(List.of(log("exec-5", "start")));
+        assertThat(writer.logsOf("exec-5")).extracting(WorkflowNodeExecutionLog::getNodeId)
+                .containsExactly("start");
+        verify(repository, times(1)).findByExecutionIdOrderByEndTime("exec-5");
+    }
+
+    @Test
+    @DisplayName("批量写入失败时逐条重试")
+    void should_retry_one_by_one_when_batch_fails() {
+        doThrow(new IllegalStateException("db down")).when(repository).saveAll(anyList());
+        start(2, 1_000);
+
+        writer.open("exec-4");
+        writer.submit(log("exec-4", "a"));
+        writer.submit(log("exec-4", "b"));
+
+        verify(repository, timeout(5_000).times(2)).save(any());
+    }
+
+    private WorkflowNodeExecutionLog log(String executionId, String nodeId) {
+        return WorkflowNodeExecutionLog.builder()
+                .executionId(executionId)
+                .nodeId(nodeId)
+                .outputs(Map.of("response", nodeId))
+                .build();
+    }
+}
@@ -0,0 +1,300 @@
+package com.zj.aiagent.infrastructure.workflow.readiness;
+
+import com.zj.aiagent.domain.workflow.config.NodeConfig;
+import com.zj.aiagent.domain.workflow.entity.Execution;
+import com.zj.aiagent.domain.workflow.entity.Node;
+import com.zj.aiagent.domain.workflow.entity.WorkflowGraph;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionContext;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
+import com.zj.aiagent.domain.workflow.valobj.NodeExecutionResult;
+import com.zj.aiagent.domain.workflow.valobj.NodeType;
+import net.jqwik.api.*;
+import net.jqwik.api.constraints.IntRange;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Property-Based Test: 增量就绪度与全量重算等价
+ *
+ * 验证：
+ * 对于任意随机 DAG 与任意合法的调度序列（派发、成功、失败、条件路由剪枝），
+ * Execution 基于反向邻接与剩余入度计数的增量实现，与原先每次遍历全部边重算有效入度、
+ * 扫描边表查找前驱的实现，在每一步得到相同的节点状态、就绪集合与整体执行状态。
+ *
+ * 测试策略：
+ * - 随机生成分层 DAG（边只从低序号指向高序号），随机穿插条件节点
+ * - 参考模型逐字保留原有算法（calculateEffectiveInDegrees / 扫描式 getPredecessors）
+ * - 随机交替执行 markRunning 与 advance，每步比对
+ */
+class IncrementalReadinessEquivalencePropertyTest {
+
+    // ========== 参考实现（原全量算法） ==========
+
+    private static final class ReferenceExecution {
+        private final WorkflowGraph graph;
+        private final Map<String, ExecutionStatus> nodeStatuses = new HashMap<>();
+        private ExecutionStatus status = ExecutionStatus.PENDING;
+
+        ReferenceExecution(WorkflowGraph graph) {
+            this.graph = graph;
+        }
+
+        Set<String> start() {
+            graph.getNodes().keySet().forEach(id -> nodeStatuses.put(id, ExecutionStatus.PENDING));
+            status = ExecutionStatus.RUNNING;
+            return readyNodes();
+        }
+
+        void markRunning(Collection<String> nodeIds) {
+            for (String nodeId : nodeIds) {
+                if (nodeStatuses.get(nodeId) == ExecutionStatus.PENDING) {
+                    nodeStatuses.put(nodeId, ExecutionStatus.RUNNING);
+                }
+            }
+        }
+
+        Set<String> advance(String nodeId, NodeExecutionResult result) {
+            nodeStatuses.put(nodeId, result.getStatus());
+            if (result.isRouting()) {
+                Node conditionNode = graph.getNode(nodeId);
+                if (conditionNode != null && conditionNode.isConditionNode()) {
+                    for (String successorId : graph.getEdges().getOrDefault(nodeId, Set.of())) {
+                        if (graph.getNode(successorId) != null && !successorId.equals(result.getSelectedBranchId())) {
+                            skip(successorId);
+                        }
+                    }
+                }
+            }
+            if (nodeStatuses.values().stream().allMatch(ReferenceExecution::isDone)) {
+                status = ExecutionStatus.SUCCEEDED;
+                return Set.of();
+            }
+            if (nodeStatuses.values().stream().anyMatch(s -> s == ExecutionStatus.FAILED)) {
+                status = ExecutionStatus.FAILED;
+                return Set.of();
+            }
+            return readyNodes();
+        }
+
+        Set<String> readyNodes() {
+            Map<String, Integer> inDegrees = new HashMap<>();
+            graph.getNodes().keySet().forEach(id -> inDegrees.put(id, 0));
+            for (Map.Entry<String, Set<String>> entry : graph.getEdges().entrySet()) {
+                if (isDone(nodeStatuses.get(entry.getKey()))) {
+                    continue;
+                }
+                for (String targetId : entry.getValue()) {
+                    inDegrees.merge(targetId, 1, Integer::sum);
+                }
+            }
+            return graph.getNodes().keySet().stream()
+                    .filter(id -> nodeStatuses.get(id) == ExecutionStatus.PENDING)
+                    .filter(id -> inDegrees.getOrDefault(id, 0) == 0)
+                    .collect(Collectors.toSet());
+        }
+
+        private void skip(String nodeId) {
+            if (nodeStatuses.get(nodeId) != ExecutionStatus.PENDING) {
+                return;
+            }
+            nodeStatuses.put(nodeId, ExecutionStatus.SKIPPED);
+            for (String successorId : graph.getEdges().getOrDefault(nodeId, Set.of())) {
+                if (graph.getNode(successorId) == null) {
+                    continue;
+                }
+                Set<String> predecessors = graph.getEdges().entrySet().stream()
+                        .filter(e -> e.getValue().contains(successorId))
+                        .map(Map.Entry::getKey)
+                        .filter(graph.getNodes()::containsKey)
+                        .collect(Collectors.toSet());
+                if (predecessors.size() <= 1
+                        || predecessors.stream().allMatch(p -> nodeStatuses.get(p) == ExecutionStatus.SKIPPED)) {
+                    skip(successorId);
+                }
+            }
+        }
+
+        private static boolean isDone(ExecutionStatus s) {
+            return s == ExecutionStatus.SUCCEEDED || s == ExecutionStatus.SKIPPED || s == ExecutionStatus.FAILED;
+        }
+    }
+
+    // ========== 辅助方法 ==========
+
+    /**
+     * 随机 DAG：节点按序号排列，边只从低序号指向高序号，保证无环
+     */
+    private WorkflowGraph randomDag(int nodeCount, int edgePercent, int conditionPercent, Random random) {
+        Map<String, Node> nodes = new HashMap<>();
+        Map<String, Set<String>> edges = new HashMap<>();
+        for (int i = 0; i < nodeCount; i++) {
+            String nodeId = "n" + i;
+            NodeType type = i > 0 && random.nextInt(100) < conditionPercent ? NodeType.CONDITION : NodeType.LLM;
+            nodes.put(nodeId, Node.builder()
+                    .nodeId(nodeId).name(nodeId).type(type)
+                    .config(NodeConfig.builder().build()).build());
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            for (int j = i + 1; j < nodeCount; j++) {
+                if (random.nextInt(100) < edgePercent) {
+                    edges.computeIfAbsent("n" + i, k -> new HashSet<>()).add("n" + j);
+                }
+            }
+        }
+        return WorkflowGraph.builder().graphId("random-dag").nodes(nodes).edges(edges).build();
+    }
+
+    private NodeExecutionResult randomResult(WorkflowGraph graph, String nodeId, int failPercent, Random random) {
+        Node node = graph.getNode(nodeId);
+        if (node.isConditionNode()) {
+            List<String> successors = new ArrayList<>(graph.getEdges().getOrDefault(nodeId, Set.of()));
+            Collections.sort(successors);
+            String selected = successors.isEmpty() || random.nextInt(10) == 0
+                    ? "missing"
+                    : successors.get(random.nextInt(successors.size()));
+            return NodeExecutionResult.routing(selected, Map.of());
+        }
+        if (random.nextInt(100) < failPercent) {
+            return NodeExecutionResult.failed("boom");
+        }
+        return NodeExecutionResult.success(Map.of());
+    }
+
+    private Set<String> ids(List<Node> nodes) {
+        return nodes.stream().map(Node::getNodeId).collect(Collectors.toSet());
+    }
+
+    // ========== Property Tests ==========
+
+    @Property(tries = 300)
+    void incremental_readiness_matches_full_recomputation(
+            @ForAll @IntRange(min = 1, max = 30) int nodeCount,
+            @ForAll @IntRange(min = 0, max = 60) int edgePercent,
+            @ForAll @IntRange(min = 0, max = 40) int conditionPercent,
+            @ForAll @IntRange(min = 0, max = 15) int failPercent,
+            @ForAll Random random) {
+
+        WorkflowGraph graph = randomDag(nodeCount, edgePercent, conditionPercent, random);
+        Execution execution = Execution.builder()
+                .executionId("prop-" + UUID.randomUUID())
+                .graph(graph)
+                .context(ExecutionContext.builder().build())
+                .build();
+        ReferenceExecution reference = new ReferenceExecution(graph);
+
+        Set<String> ready = ids(execution.start(new HashMap<>()));
+        Set<String> expectedReady = reference.start();
+        assert ready.equals(expectedReady) :
+                String.format("start ready mismatch: actual=%s expected=%s", ready, expectedReady);
+
+        for (int step = 0; step < nodeCount * 3 && execution.getStatus() == ExecutionStatus.RUNNING; step++) {
+            List<String> running = execution.getNodeStatuses().entrySet().stream()
+                    .filter(e -> e.getValue() == ExecutionStatus.RUNNING)
+                    .map(Map.Entry::getKey)
+                    .sorted()
+                    .collect(Collectors.toList());
+            List<String> pending = new ArrayList<>(ids(execution.getReadyNodes()));
+            Collections.sort(pending);
+
+            if (!pending.isEmpty() && (running.isEmpty() || random.nextBoolean())) {
+                // 随机派发部分就绪节点
+                List<String> dispatch = pending.stream()
+                        .filter(id -> random.nextInt(3) > 0)
+                        .collect(Collectors.toList());
+                if (dispatch.isEmpty()) {
+                    dispatch = List.of(pending.get(0));
+                }
+                execution.markRunning(dispatch.stream().map(graph::getNode).collect(Collectors.toList()));
+                reference.markRunning(dispatch);
+            } else if (!running.isEmpty()) {
+                String nodeId = running.get(random.nextInt(running.size()));
+                NodeExecutionResult result = randomResult(graph, nodeId, failPercent, random);
+                Set<String> next = ids(execution.advance(nodeId, result));
+                Set<String> expectedNext = reference.advance(nodeId, result);
+                assert next.equals(expectedNext) :
+                        String.format("advance(%s) ready mismatch: actual=%s expected=%s", nodeId, next, expectedNext);
+            } else {
+                break;
+            }
+
+            assert execution.getNodeStatuses().equals(reference.nodeStatuses) :
+                    String.format("statuses diverged at step %d: actual=%s expected=%s",
+                            step, execution.getNodeStatuses(), reference.nodeStatuses);
+            assert execution.getStatus() == reference.status :
+                    String.format("execution status diverged: actual=%s expected=%s",
+                            execution.getStatus(), reference.status);
+            if (execution.getStatus() == ExecutionStatus.RUNNING) {
+                Set<String> actualReady = ids(execution.getReadyNodes());
+                Set<String> referenceReady = reference.readyNodes();
+                assert actualReady.equals(referenceReady) :
+                        String.format("ready set diverged: actual=%s expected=%s", actualReady, referenceReady);
+            }
+        }
+    }
+
+    @Property(tries = 200)
+    void predecessor_index_matches_edge_scan(
+            @ForAll @IntRange(min = 1, max = 30) int nodeCount,
+            @ForAll @IntRange(min = 0, max = 80) int edgePercent,
+            @ForAll Random random) {
+
+        WorkflowGraph graph = randomDag(nodeCount, edgePercent, 0, random);
+
+        for (String nodeId : graph.getNodes().keySet()) {
+            Set<Node> expected = graph.getEdges().entrySet().stream()
+                    .filter(e -> e.getValue().contains(nodeId))
+                    .map(e -> graph.getNodes().get(e.getKey()))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
+            Set<Node> actual = graph.getPredecessors(nodeId);
+            assert actual.equals(expected) :
+                    String.format("predecessors of %s: actual=%s expected=%s", nodeId,
+                            actual.stream().map(Node::getNodeId).toList(),
+                            expected.stream().map(Node::getNodeId).toList());
+        }
+    }
+
+    @Property(tries = 100)
+    void readiness_rebuilt_after_reload_matches_reference(
+            @ForAll @IntRange(min = 2, max = 20) int nodeCount,
+            @ForAll @IntRange(min = 0, max = 60) int edgePercent,
+            @ForAll Random random) {
+
+        WorkflowGraph graph = randomDag(nodeCount, edgePercent, 0, random);
+        Execution execution = Execution.builder()
+                .executionId("reload-" + UUID.randomUUID())
+                .graph(graph)
+                .context(ExecutionContext.builder().build())
+                .build();
+        ReferenceExecution reference = new ReferenceExecution(graph);
+        execution.start(new HashMap<>());
+        reference.start();
+
+        // 完成若干就绪节点后，模拟从存储重新加载（派生状态丢失后重建）
+        for (int i = 0; i < nodeCount / 2 && execution.getStatus() == ExecutionStatus.RUNNING; i++) {
+            List<Node> ready = execution.getReadyNodes();
+            if (ready.isEmpty()) {
+                break;
+            }
+            String nodeId = ready.get(random.nextInt(ready.size())).getNodeId();
+            execution.advance(nodeId, NodeExecutionResult.success(Map.of()));
+            reference.advance(nodeId, NodeExecutionResult.success(Map.of()));
+        }
+
+        Execution reloaded = Execution.builder()
+                .executionId(execution.getExecutionId())
+                .graph(graph)
+                .status(execution.getStatus())
+                .nodeStatuses(new HashMap<>(execution.getNodeStatuses()))
+                .context(ExecutionContext.builder().build())
+                .build();
+
+        if (reloaded.getStatus() == ExecutionStatus.RUNNING) {
+            Set<String> actual = ids(reloaded.getReadyNodes());
+            Set<String> expected = reference.readyNodes();
+            assert actual.equals(expected) :
+                    String.format("reloaded ready mismatch: actual=%s expected=%s", actual, expected);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.zj.aiagent.infrastructure.workflow.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zj.aiagent.domain.workflow.entity.Execution;
+import com.zj.aiagent.domain.workflow.entity.Node;
+import com.zj.aiagent.domain.workflow.entity.WorkflowGraph;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
+import com.zj.aiagent.domain.workflow.valobj.NodeType;
+import com.zj.aiagent.infrastructure.redis.IRedisService;
+import java.util.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.redisson.api.RedissonClient;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * CachedExecutionRepository 单元测试
+ * 验证非持有线程读到的是与调度中聚合隔离的快照副本，以及写后刷盘失败的重试
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CachedExecutionRepositoryTest {
+
+    @Mock
+    private IRedisService redisService;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private RedisExecutionRepository delegate;
+
+    private CachedExecutionRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        // 编解码走真实实现，Redis 读写打桩
+        delegate = spy(new RedisExecutionRepository(redisService, objectMapper, redissonClient));
+        doNothing().when(delegate).save(any());
+        doNothing().when(delegate).write(any());
+        doNothing().when(delegate).forget(anyString());
+        repository = new CachedExecutionRepository(delegate, 600_000L, 600_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.shutdown();
+    }
+
+    private Execution buildExecution() {
+        Map<String, Node> nodes = new HashMap<>();
+        nodes.put("start", Node.builder().nodeId("start").name("开始").type(NodeType.START).build());
+        nodes.put("end", Node.builder().nodeId("end").name("结束").type(NodeType.END).build());
+        Map<String, Set<String>> edges = new HashMap<>();
+        edges.put("start", new HashSet<>(Set.of("end")));
+
+        Execution execution = Execution.builder()
+            .executionId("exec-1")
+            .conversationId("conv-1")
+            .graph(WorkflowGraph.builder().graphId("g").nodes(nodes).edges(edges).build())
+            .build();
+        execution.start(new HashMap<>(Map.of("query", "你好")));
+        return execution;
+    }
+
+    @Test
+    @DisplayName("快照读取返回独立副本，不受之后的本地状态变更影响")
+    void snapshot_read_is_isolated_from_live_execution() {
+        Execution execution = buildExecution();
+        repository.save(execution);
+
+        Execution snapshot = repository.findSnapshotById("exec-1").orElseThrow();
+        assertNotSame(execution, snapshot);
+        assertSame(execution, repository.findById("exec-1").orElseThrow());
+
+        execution.getContext().setNodeOutput("start", Map.of("query", "你好"));
+        execution.setVersion(execution.getVersion() + 1);
+
+        assertTrue(snapshot.getContext().getNodeOutputs().isEmpty());
+        assertNull(repository.findSnapshotById("exec-1").orElseThrow().getContext().getNodeOutput("start"));
+
+        repository.update(execution);
+
+        Execution updated = repository.findSnapshotById("exec-1").orElseThrow();
+        assertNotSame(execution, updated);
+        assertEquals(execution.getVersion(), updated.getVersion());
+        assertEquals(Map.of("query", "你好"), updated.getContext().getNodeOutput("start"));
+        assertEquals(ExecutionStatus.RUNNING, updated.getStatus());
+        assertSame(execution.getGraph(), updated.getGraph());
+        verify(delegate, never()).findById(anyString());
+    }
+
+    @Test
+    @DisplayName("会话历史合并本地执行时返回快照副本")
+    void conversation_history_returns_copies_of_live_executions() {
+        Execution execution = buildExecution();
+        repository.save(execution);
+        doReturn(List.of(delegate.deserialize(delegate.serialize(execution))))
+            .when(delegate).findByConversationId("conv-1");
+
+        List<Execution> history = repository.findByConversationId("conv-1");
+
+        assertEquals(1, history.size());
+        assertNotSame(execution, history.get(0));
+        assertEquals("exec-1", history.get(0).getExecutionId());
+    }
+
+    @Test
+    @DisplayName("写后刷盘失败时快照放回队列并重试")
+    void failed_write_behind_is_retried() {
+        repository.shutdown();
+        repository = new CachedExecutionRepository(delegate, 10L, 600_000L);
+        doThrow(new RuntimeException("redis down")).doNothing().when(delegate).write(any());
+
+        Execution execution = buildExecution();
+        repository.save(execution);
+        execution.setVersion(execution.getVersion() + 1);
+        repository.update(execution);
+
+        int version = execution.getVersion();
+        verify(delegate, timeout(5_000).times(2)).write(argThat(s -> s.version() == version));
+    }
+
+    @Test
+    @DisplayName("重试前已有更新的快照排队时，不再回写失败的旧快照")
+    void failed_write_behind_does_not_replace_newer_snapshot() {
+        repository.shutdown();
+        repository = new CachedExecutionRepository(delegate, 10L, 600_000L);
+        Execution execution = buildExecution();
+        repository.save(execution);
+        int failedVersion = execution.getVersion() + 1;
+
+        doAnswer(inv -> {
+            // 刷盘进行中持有线程又产生了新版本
+            execution.setVersion(failedVersion + 1);
+            repository.update(execution);
+            throw new RuntimeException("redis down");
+        }).doNothing().when(delegate).write(any());
+
+        execution.setVersion(failedVersion);
+        repository.update(execution);
+
+        verify(delegate, timeout(5_000)).write(argThat(s -> s.version() == failedVersion + 1));
+        repository.flushAll();
+        verify(delegate, times(1)).write(argThat(s -> s.version() == failedVersion));
+    }
+}
@@ -0,0 +1,117 @@
+package com.zj.aiagent.infrastructure.workflow.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.zj.aiagent.domain.workflow.entity.Execution;
+import com.zj.aiagent.domain.workflow.port.ExecutionArchiveRepository;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
+import com.zj.aiagent.infrastructure.redis.IRedisService;
+import java.time.Duration;
+import java.util.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.redisson.api.RLock;
+
+/**
+ * ExecutionArchiver 单元测试
+ * 验证先写归档再移出 Redis、只归档仍处于终态的执行、按批循环直到取空
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ExecutionArchiverTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    @Mock
+    private RedisExecutionRepository executionRepository;
+
+    @Mock
+    private ExecutionArchiveRepository archiveRepository;
+
+    @Mock
+    private IRedisService redisService;
+
+    @Mock
+    private RLock lock;
+
+    private ExecutionArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        archiver = new ExecutionArchiver(executionRepository, archiveRepository, redisService,
+            BATCH_SIZE, 10, Duration.ofHours(1));
+        when(redisService.getLock(anyString())).thenReturn(lock);
+        when(lock.tryLock()).thenReturn(true);
+        when(lock.isHeldByCurrentThread()).thenReturn(true);
+    }
+
+    private Execution execution(String executionId, ExecutionStatus status) {
+        return Execution.builder()
+            .executionId(executionId)
+            .conversationId("conv-1")
+            .status(status)
+            .build();
+    }
+
+    @Test
+    @DisplayName("终态执行先写入归档再移出 Redis，已过期或被重新拉起的只移出索引")
+    @SuppressWarnings("unchecked")
+    void archives_terminal_executions_before_removing() {
+        Execution succeeded = execution("exec-1", ExecutionStatus.SUCCEEDED);
+        Execution resumed = execution("exec-2", ExecutionStatus.RUNNING);
+        when(executionRepository.findTerminatedBefore(anyLong(), eq(BATCH_SIZE)))
+            .thenReturn(List.of("exec-1", "exec-2"), List.of("exec-3"));
+        when(executionRepository.findAllById(List.of("exec-1", "exec-2"))).thenReturn(List.of(succeeded, resumed));
+        when(executionRepository.findAllById(List.of("exec-3"))).thenReturn(List.of());
+
+        archiver.archive();
+
+        InOrder inOrder = inOrder(archiveRepository, executionRepository);
+        inOrder.verify(archiveRepository).saveAll(List.of(succeeded));
+        ArgumentCaptor<Collection<String>> stale = ArgumentCaptor.forClass(Collection.class);
+        inOrder.verify(executionRepository).removeArchived(eq(List.of(succeeded)), stale.capture());
+        assertEquals(Set.of("exec-2"), new HashSet<>(stale.getValue()));
+
+        inOrder.verify(archiveRepository).saveAll(List.of());
+        inOrder.verify(executionRepository).removeArchived(eq(List.of()), stale.capture());
+        assertEquals(Set.of("exec-3"), new HashSet<>(stale.getValue()));
+
+        verify(executionRepository, times(2)).findTerminatedBefore(anyLong(), anyInt());
+        verify(lock).unlock();
+    }
+
+    @Test
+    @DisplayName("写入归档失败时不移出 Redis，下次重试")
+    void keeps_redis_copy_when_archive_fails() {
+        Execution failed = execution("exec-1", ExecutionStatus.FAILED);
+        when(executionRepository.findTerminatedBefore(anyLong(), anyInt())).thenReturn(List.of("exec-1"));
+        when(executionRepository.findAllById(any())).thenReturn(List.of(failed));
+        doThrow(new RuntimeException("db down")).when(archiveRepository).saveAll(any());
+
+        archiver.archive();
+
+        verify(executionRepository, never()).removeArchived(any(), any());
+        verify(lock).unlock();
+    }
+
+    @Test
+    @DisplayName("其它实例持有归档锁时跳过本轮")
+    void skips_when_lock_held_elsewhere() {
+        when(lock.tryLock()).thenReturn(false);
+
+        archiver.archive();
+
+        verify(executionRepository, never()).findTerminatedBefore(anyLong(), anyInt());
+        verify(lock, never()).unlock();
+    }
+}
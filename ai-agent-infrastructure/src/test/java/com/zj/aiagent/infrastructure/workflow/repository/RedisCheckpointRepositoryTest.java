@@ -0,0 +1,399 @@
+package com.zj.aiagent.infrastructure.workflow.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zj.aiagent.domain.workflow.valobj.Checkpoint;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionContext;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.redisson.api.RBatch;
+import org.redisson.api.RBucket;
+import org.redisson.api.RBucketAsync;
+import org.redisson.api.RBuckets;
+import org.redisson.api.RKeys;
+import org.redisson.api.RKeysAsync;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScoredSortedSetAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.protocol.ScoredEntry;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * RedisCheckpointRepository 单元测试
+ * 以内存 Map 模拟 Redis，验证基线 + 增量写入、恢复结果与全量快照一致、保留数量裁剪与一次性清理
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RedisCheckpointRepositoryTest {
+
+    private static final String EXECUTION_ID = "exec-1";
+    private static final String INDEX_KEY = "workflow:checkpoint:index:" + EXECUTION_ID;
+    private static final String PAUSE_KEY = "workflow:pause:" + EXECUTION_ID;
+
+    /** 与 Redis 一致：按分数排序，分数相同时按成员字典序 */
+    private static final Comparator<Map.Entry<String, Double>> ZSET_ORDER =
+        Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey());
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RBatch batch;
+
+    @Mock
+    private RKeys keys;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    /** 字符串键 */
+    private final Map<String, String> strings = new HashMap<>();
+
+    /** ZSET 键 -> (成员 -> 分数) */
+    private final Map<String, Map<String, Double>> sortedSets = new HashMap<>();
+
+    /** 每次 RKeys.delete 调用删除的键 */
+    private final List<List<String>> deleteCalls = new ArrayList<>();
+
+    private long clock = 1_700_000_000_000L;
+
+    @BeforeEach
+    void setUp() {
+        when(redissonClient.createBatch()).thenReturn(batch);
+        when(redissonClient.getScoredSortedSet(anyString(), any(Codec.class))).thenAnswer(inv -> {
+            String key = inv.getArgument(0);
+            RScoredSortedSet<String> set = mock(RScoredSortedSet.class);
+            when(set.valueRange(0, -1)).thenAnswer(i -> members(key));
+            when(set.entryRange(0, -1)).thenAnswer(i -> entries(key));
+            when(set.lastEntry()).thenAnswer(i -> {
+                List<ScoredEntry<String>> entries = entries(key);
+                return entries.isEmpty() ? null : entries.get(entries.size() - 1);
+            });
+            return set;
+        });
+        when(redissonClient.getBucket(anyString(), any(Codec.class))).thenAnswer(inv -> {
+            String key = inv.getArgument(0);
+            RBucket<String> bucket = mock(RBucket.class);
+            when(bucket.get()).thenAnswer(i -> strings.get(key));
+            return bucket;
+        });
+        RBuckets buckets = mock(RBuckets.class);
+        when(redissonClient.getBuckets(any(Codec.class))).thenReturn(buckets);
+        when(buckets.get(any(String[].class))).thenAnswer(inv -> {
+            Map<String, String> values = new HashMap<>();
+            for (Object key : inv.getArguments()) {
+                if (strings.containsKey((String) key)) {
+                    values.put((String) key, strings.get(key));
+                }
+            }
+            return values;
+        });
+        when(redissonClient.getKeys()).thenReturn(keys);
+        when(keys.delete(any(String[].class))).thenAnswer(inv -> {
+            List<String> deleted = Arrays.stream(inv.getArguments()).map(String.class::cast).toList();
+            deleteCalls.add(deleted);
+            deleted.forEach(this::deleteKey);
+            return (long) deleted.size();
+        });
+
+        when(batch.getBucket(anyString(), any(Codec.class))).thenAnswer(inv -> {
+            String key = inv.getArgument(0);
+            RBucketAsync<String> bucket = mock(RBucketAsync.class);
+            when(bucket.setAsync(anyString(), any(Duration.class))).thenAnswer(i -> {
+                strings.put(key, i.getArgument(0));
+                return null;
+            });
+            return bucket;
+        });
+        when(batch.getScoredSortedSet(anyString(), any(Codec.class))).thenAnswer(inv -> {
+            String key = inv.getArgument(0);
+            RScoredSortedSetAsync<String> set = mock(RScoredSortedSetAsync.class);
+            when(set.addAsync(anyDouble(), anyString())).thenAnswer(i -> {
+                sortedSets.computeIfAbsent(key, k -> new HashMap<>()).put(i.getArgument(1), i.getArgument(0));
+                return null;
+            });
+            when(set.removeAllAsync(anyCollection())).thenAnswer(i -> {
+                Collection<?> removed = i.getArgument(0);
+                sortedSets.getOrDefault(key, new HashMap<>()).keySet().removeAll(removed);
+                return null;
+            });
+            return set;
+        });
+        RKeysAsync batchKeys = mock(RKeysAsync.class);
+        when(batch.getKeys()).thenReturn(batchKeys);
+        when(batchKeys.deleteAsync(any(String[].class))).thenAnswer(inv -> {
+            Arrays.stream(inv.getArguments()).map(String.class::cast).forEach(this::deleteKey);
+            return null;
+        });
+    }
+
+    private RedisCheckpointRepository repository(int baseInterval, int retention) {
+        return new RedisCheckpointRepository(objectMapper, redissonClient, baseInterval, retention, 1_000);
+    }
+
+    private List<String> members(String key) {
+        return sortedSets.getOrDefault(key, Map.of()).entrySet().stream()
+            .sorted(ZSET_ORDER)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private List<ScoredEntry<String>> entries(String key) {
+        return sortedSets.getOrDefault(key, Map.of()).entrySet().stream()
+            .sorted(ZSET_ORDER)
+            .map(entry -> new ScoredEntry<>(entry.getValue(), entry.getKey()))
+            .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private void deleteKey(String key) {
+        strings.remove(key);
+        sortedSets.remove(key);
+    }
+
+    private Checkpoint checkpoint(String nodeId, ExecutionContext context) {
+        clock++;
+        return checkpointAt(nodeId, context);
+    }
+
+    /**
+     * 以当前时钟构造检查点（不推进时钟，用于同一毫秒内的多次写入）
+     */
+    private Checkpoint checkpointAt(String nodeId, ExecutionContext context) {
+        return Checkpoint.builder()
+            .checkpointId(EXECUTION_ID + "_" + nodeId + "_" + clock)
+            .executionId(EXECUTION_ID)
+            .currentNodeId(nodeId)
+            .contextSnapshot(context.snapshot())
+            .createdAt(LocalDateTime.of(2024, 1, 1, 12, 0))
+            .build();
+    }
+
+    private ExecutionContext initialContext() {
+        ExecutionContext context = ExecutionContext.builder().build();
+        context.setInputs(Map.of("query", "你好"));
+        context.getChatHistory().add(Map.of("role", "USER", "content", "上一轮"));
+        return context;
+    }
+
+    /**
+     * 模拟第 step 个节点完成：写入输出、修改/删除共享状态、追加日志
+     */
+    private void advance(ExecutionContext context, int step) {
+        context.setNodeOutput("node-" + step, Map.of("response", "结果" + step, "tokens", step));
+        context.getSharedState().put("counter", step);
+        if (step % 2 == 0) {
+            context.getSharedState().put("tmp-" + step, List.of(step));
+        } else {
+            context.getSharedState().remove("tmp-" + (step - 1));
+        }
+        context.appendLog("node-" + step, "节点" + step, "完成第 " + step + " 步");
+    }
+
+    private JsonNode tree(ExecutionContext context) {
+        return objectMapper.valueToTree(context);
+    }
+
+    @Test
+    @DisplayName("基线 + 增量恢复出的上下文与最后一次全量快照一致")
+    void restore_rebuilds_latest_snapshot_from_base_and_deltas() {
+        RedisCheckpointRepository repository = repository(3, 100);
+        ExecutionContext context = initialContext();
+        Checkpoint last = null;
+        for (int step = 1; step <= 7; step++) {
+            advance(context, step);
+            last = checkpoint("node-" + step, context);
+            repository.save(last);
+        }
+
+        List<String> index = members(INDEX_KEY);
+        assertEquals(7, index.size());
+        assertEquals(List.of(0, 3, 6), baseIndexes(index));
+
+        Checkpoint restored = repository.findLatest(EXECUTION_ID).orElseThrow();
+        assertEquals(last.getCheckpointId(), restored.getCheckpointId());
+        assertEquals("node-7", restored.getCurrentNodeId());
+        assertEquals(tree(last.getContextSnapshot()), tree(restored.getContextSnapshot()));
+    }
+
+    @Test
+    @DisplayName("增量条目只携带变化的 key")
+    void delta_contains_only_changed_keys() throws Exception {
+        RedisCheckpointRepository repository = repository(10, 100);
+        ExecutionContext context = initialContext();
+        advance(context, 1);
+        repository.save(checkpoint("node-1", context));
+        advance(context, 2);
+        repository.save(checkpoint("node-2", context));
+
+        String deltaKey = members(INDEX_KEY).get(1);
+        assertTrue(deltaKey.contains(":delta:"));
+        JsonNode delta = objectMapper.readTree(strings.get(deltaKey)).get("contextSnapshot");
+
+        assertEquals(Set.of("node-2"), fieldNames(delta.get("set").get("nodeOutputs")));
+        assertEquals(Set.of("counter", "tmp-2"), fieldNames(delta.get("set").get("sharedState")));
+        assertNull(delta.get("set").get("inputs"));
+        assertTrue(delta.get("replaced").has("executionLog"));
+        assertFalse(delta.get("replaced").has("chatHistory"));
+    }
+
+    @Test
+    @DisplayName("只保留最近的检查点及其依赖的基线，裁剪后仍可恢复")
+    void retention_trims_old_entries_but_keeps_required_base() {
+        RedisCheckpointRepository repository = repository(3, 4);
+        ExecutionContext context = initialContext();
+        Set<String> written = new HashSet<>();
+        Checkpoint last = null;
+        for (int step = 1; step <= 11; step++) {
+            advance(context, step);
+            last = checkpoint("node-" + step, context);
+            repository.save(last);
+            written.addAll(members(INDEX_KEY));
+        }
+
+        List<String> index = members(INDEX_KEY);
+        assertTrue(index.size() >= 4 && index.size() <= 4 + 3 - 1, "retained: " + index);
+        assertTrue(index.get(0).contains(":base:"));
+        for (String key : written) {
+            assertEquals(index.contains(key), strings.containsKey(key), key);
+        }
+        assertEquals(tree(last.getContextSnapshot()),
+            tree(repository.findLatest(EXECUTION_ID).orElseThrow().getContextSnapshot()));
+    }
+
+    @Test
+    @DisplayName("新实例（无内存基准）先写基线，并沿用库中已有索引")
+    void cold_writer_starts_with_base() {
+        ExecutionContext context = initialContext();
+        advance(context, 1);
+        repository(3, 100).save(checkpoint("node-1", context));
+        advance(context, 2);
+        Checkpoint last = checkpoint("node-2", context);
+        repository(3, 100).save(last);
+
+        List<String> index = members(INDEX_KEY);
+        assertEquals(List.of(0, 1), baseIndexes(index));
+        assertEquals(tree(last.getContextSnapshot()),
+            tree(repository(3, 100).findLatest(EXECUTION_ID).orElseThrow().getContextSnapshot()));
+    }
+
+    @Test
+    @DisplayName("其它实例写入后本实例的内存基准已过期，下一次写入改为基线")
+    void stale_writer_rebases_after_another_instance_writes() {
+        RedisCheckpointRepository first = repository(10, 100);
+        RedisCheckpointRepository second = repository(10, 100);
+        ExecutionContext context = initialContext();
+        advance(context, 1);
+        first.save(checkpoint("node-1", context));
+        advance(context, 2);
+        first.save(checkpoint("node-2", context));
+
+        // 执行迁移到另一实例继续推进
+        advance(context, 3);
+        second.save(checkpoint("node-3", context));
+        advance(context, 4);
+        second.save(checkpoint("node-4", context));
+
+        // 回到原实例：其基准仍停在 node-2
+        advance(context, 5);
+        Checkpoint last = checkpoint("node-5", context);
+        first.save(last);
+
+        List<String> index = members(INDEX_KEY);
+        assertEquals(5, index.size());
+        assertTrue(index.get(4).endsWith(last.getCheckpointId()), index.toString());
+        assertEquals(List.of(0, 2, 4), baseIndexes(index));
+        assertEquals(tree(last.getContextSnapshot()),
+            tree(repository(10, 100).findLatest(EXECUTION_ID).orElseThrow().getContextSnapshot()));
+
+        // 重建后的基准继续写增量
+        advance(context, 6);
+        first.save(checkpoint("node-6", context));
+        assertTrue(members(INDEX_KEY).get(5).contains(":delta:"));
+    }
+
+    @Test
+    @DisplayName("同一毫秒内写入的检查点按写入顺序排列，恢复最后写入的一个")
+    void same_millisecond_checkpoints_keep_write_order() {
+        RedisCheckpointRepository repository = repository(10, 100);
+        ExecutionContext context = initialContext();
+        clock++;
+        // 键名字典序与写入顺序相反
+        advance(context, 1);
+        Checkpoint first = checkpointAt("node-z", context);
+        repository.save(first);
+        advance(context, 2);
+        Checkpoint second = checkpointAt("node-b", context);
+        repository.save(second);
+        advance(context, 3);
+        Checkpoint third = checkpointAt("node-a", context);
+        repository.save(third);
+
+        List<String> index = members(INDEX_KEY);
+        assertTrue(index.get(0).endsWith(first.getCheckpointId()), index.toString());
+        assertTrue(index.get(1).endsWith(second.getCheckpointId()), index.toString());
+        assertTrue(index.get(2).endsWith(third.getCheckpointId()), index.toString());
+
+        Checkpoint restored = repository(10, 100).findLatest(EXECUTION_ID).orElseThrow();
+        assertEquals(third.getCheckpointId(), restored.getCheckpointId());
+        assertEquals(tree(third.getContextSnapshot()), tree(restored.getContextSnapshot()));
+    }
+
+    @Test
+    @DisplayName("暂停点保存完整快照，清理时一次删除全部条目、索引与暂停点")
+    void delete_removes_every_key_in_one_call() {
+        RedisCheckpointRepository repository = repository(3, 100);
+        ExecutionContext context = initialContext();
+        for (int step = 1; step <= 4; step++) {
+            advance(context, step);
+            repository.save(checkpoint("node-" + step, context));
+        }
+        Checkpoint pause = checkpoint("node-5", context);
+        pause.setPausePoint(true);
+        repository.save(pause);
+
+        Checkpoint pausePoint = repository.findPausePoint(EXECUTION_ID).orElseThrow();
+        assertEquals(tree(pause.getContextSnapshot()), tree(pausePoint.getContextSnapshot()));
+
+        List<String> entries = members(INDEX_KEY);
+        repository.deleteByExecutionId(EXECUTION_ID);
+
+        assertEquals(1, deleteCalls.size());
+        Set<String> expected = new HashSet<>(entries);
+        expected.add(INDEX_KEY);
+        expected.add(PAUSE_KEY);
+        assertEquals(expected, new HashSet<>(deleteCalls.get(0)));
+        assertTrue(strings.isEmpty());
+        assertTrue(sortedSets.isEmpty());
+        assertTrue(repository.findLatest(EXECUTION_ID).isEmpty());
+    }
+
+    private static List<Integer> baseIndexes(List<String> index) {
+        List<Integer> bases = new ArrayList<>();
+        for (int i = 0; i < index.size(); i++) {
+            if (index.get(i).contains(":base:")) {
+                bases.add(i);
+            }
+        }
+        return bases;
+    }
+
+    private static Set<String> fieldNames(JsonNode node) {
+        Set<String> names = new HashSet<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
@@ -0,0 +1,228 @@
+package com.zj.aiagent.infrastructure.workflow.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zj.aiagent.domain.workflow.entity.Execution;
+import com.zj.aiagent.domain.workflow.entity.Node;
+import com.zj.aiagent.domain.workflow.entity.WorkflowGraph;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
+import com.zj.aiagent.domain.workflow.valobj.NodeExecutionResult;
+import com.zj.aiagent.domain.workflow.valobj.NodeType;
+import com.zj.aiagent.infrastructure.redis.IRedisService;
+import java.time.LocalDateTime;
+import java.util.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.redisson.api.RScoredSortedSet;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * RedisExecutionRepository 单元测试
+ * 验证 Hash 字段编解码往返一致、增量写入只携带变化字段、终态登记结束时间索引
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RedisExecutionRepositoryTest {
+
+    @Mock
+    private IRedisService redisService;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RScript script;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private RedisExecutionRepository repository;
+
+    private final List<List<Object>> scriptCalls = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        repository = new RedisExecutionRepository(redisService, objectMapper, redissonClient);
+        when(redissonClient.getScript(any(Codec.class))).thenReturn(script);
+        when(script.eval(anyString(), any(), anyString(), any(), anyList(), any(Object[].class)))
+            .thenAnswer(inv -> {
+                Object[] all = inv.getArguments();
+                scriptCalls.add(Arrays.asList(Arrays.copyOfRange(all, 5, all.length)));
+                return 1L;
+            });
+    }
+
+    private Execution buildExecution() {
+        Map<String, Node> nodes = new HashMap<>();
+        nodes.put("start", Node.builder().nodeId("start").name("开始").type(NodeType.START).build());
+        nodes.put("llm", Node.builder().nodeId("llm").name("LLM").type(NodeType.LLM).build());
+        nodes.put("end", Node.builder().nodeId("end").name("结束").type(NodeType.END).build());
+        Map<String, Set<String>> edges = new HashMap<>();
+        edges.put("start", new HashSet<>(Set.of("llm")));
+        edges.put("llm", new HashSet<>(Set.of("end")));
+
+        Execution execution = Execution.builder()
+            .executionId("exec-1")
+            .agentId(1L)
+            .userId(2L)
+            .conversationId("conv-1")
+            .graph(WorkflowGraph.builder().graphId("g").nodes(nodes).edges(edges).build())
+            .createdAt(LocalDateTime.of(2024, 1, 1, 12, 0))
+            .build();
+        execution.start(new HashMap<>(Map.of("query", "你好")));
+        return execution;
+    }
+
+    /**
+     * 取出某次脚本调用写入的字段（field -> value）
+     */
+    private Map<String, String> writtenFields(List<Object> args) {
+        int pairs = Integer.parseInt((String) args.get(4));
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (int i = 0; i < pairs; i++) {
+            fields.put((String) args.get(5 + i * 2), (String) args.get(6 + i * 2));
+        }
+        return fields;
+    }
+
+    @Test
+    @DisplayName("Hash 字段编解码往返保持聚合内容一致")
+    void codec_round_trip() throws Exception {
+        Execution execution = buildExecution();
+        execution.getContext().setNodeOutput("start", Map.of("query", "你好"));
+        execution.getContext().appendLog("start", "开始", "完成");
+        execution.getReviewedNodes().add("llm");
+
+        ExecutionHashCodec codec = new ExecutionHashCodec(objectMapper);
+        ExecutionSnapshot snapshot = codec.encode(execution);
+        Map<String, String> hash = new HashMap<>(snapshot.fields());
+        hash.put(ExecutionHashCodec.GRAPH_FIELD, codec.encodeGraph(snapshot));
+        hash.put(ExecutionHashCodec.VERSION_FIELD, String.valueOf(execution.getVersion()));
+
+        Execution decoded = codec.decode(hash);
+
+        assertEquals(execution.getExecutionId(), decoded.getExecutionId());
+        assertEquals(execution.getStatus(), decoded.getStatus());
+        assertEquals(execution.getVersion(), decoded.getVersion());
+        assertEquals(execution.getNodeStatuses(), decoded.getNodeStatuses());
+        assertEquals(execution.getReviewedNodes(), decoded.getReviewedNodes());
+        assertEquals(execution.getCreatedAt(), decoded.getCreatedAt());
+        assertEquals(execution.getContext().getInputs(), decoded.getContext().getInputs());
+        assertEquals(execution.getContext().getNodeOutputs(), decoded.getContext().getNodeOutputs());
+        assertEquals(execution.getContext().getExecutionLog(), decoded.getContext().getExecutionLog());
+        assertEquals(execution.getGraph().getNodes().keySet(), decoded.getGraph().getNodes().keySet());
+        assertEquals(execution.getGraph().getEdges(), decoded.getGraph().getEdges());
+    }
+
+    @Test
+    @DisplayName("旧版纯文本执行日志可解码为结构化日志")
+    void codec_decodes_legacy_text_log() throws Exception {
+        ExecutionHashCodec codec = new ExecutionHashCodec(objectMapper);
+        Map<String, String> hash = new HashMap<>(codec.encode(buildExecution()).fields());
+        hash.put("ctx:log", "[start-开始]: 完成\n[llm-LLM]: 生成回复\n");
+
+        Execution decoded = codec.decode(hash);
+
+        assertEquals(2, decoded.getContext().getExecutionLog().size());
+        assertEquals("[start-开始]: 完成\n[llm-LLM]: 生成回复\n",
+            decoded.getContext().getExecutionLogContent());
+    }
+
+    @Test
+    @DisplayName("save 全量写入（含 graph），后续 update 只写入变化字段")
+    void update_writes_only_dirty_fields() {
+        Execution execution = buildExecution();
+        repository.save(execution);
+
+        assertEquals(1, scriptCalls.size());
+        List<Object> saveArgs = scriptCalls.get(0);
+        assertEquals("", saveArgs.get(1));
+        assertEquals("1", saveArgs.get(3));
+        assertTrue(writtenFields(saveArgs).containsKey(ExecutionHashCodec.GRAPH_FIELD));
+
+        Integer baseVersion = execution.getVersion();
+        execution.advance("start", NodeExecutionResult.success(Map.of("query", "你好")));
+        repository.update(execution);
+
+        assertEquals(2, scriptCalls.size());
+        List<Object> updateArgs = scriptCalls.get(1);
+        assertEquals(String.valueOf(baseVersion), updateArgs.get(1));
+        assertEquals("0", updateArgs.get(3));
+
+        Map<String, String> delta = writtenFields(updateArgs);
+        assertFalse(delta.containsKey(ExecutionHashCodec.GRAPH_FIELD));
+        assertFalse(delta.containsKey("ctx:inputs"));
+        assertEquals(ExecutionStatus.SUCCEEDED.name(), delta.get("ns:start"));
+        assertTrue(delta.containsKey("out:start"));
+    }
+
+    @Test
+    @DisplayName("hashCode 与长度相同但内容不同的字段仍被写入")
+    void colliding_hash_code_field_is_still_written() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        Execution execution = buildExecution();
+        execution.getContext().setNodeOutput("start", Map.of("v", "Aa"));
+        repository.save(execution);
+
+        execution.getContext().setNodeOutput("start", Map.of("v", "BB"));
+        execution.setVersion(execution.getVersion() + 1);
+        repository.update(execution);
+
+        Map<String, String> delta = writtenFields(scriptCalls.get(1));
+        assertTrue(delta.containsKey("out:start"));
+        assertTrue(delta.get("out:start").contains("BB"));
+    }
+
+    @Test
+    @DisplayName("基线版本不一致时退化为全量写入")
+    void base_mismatch_falls_back_to_full_write() {
+        Execution execution = buildExecution();
+        repository.save(execution);
+
+        when(script.eval(anyString(), any(), anyString(), any(), anyList(), any(Object[].class)))
+            .thenAnswer(inv -> {
+                Object[] all = inv.getArguments();
+                List<Object> args = Arrays.asList(Arrays.copyOfRange(all, 5, all.length));
+                scriptCalls.add(args);
+                return "".equals(args.get(1)) ? 1L : -1L;
+            });
+
+        execution.setVersion(execution.getVersion() + 1);
+        execution.getNodeStatuses().put("llm", ExecutionStatus.RUNNING);
+        repository.update(execution);
+
+        assertEquals(3, scriptCalls.size());
+        List<Object> fullArgs = scriptCalls.get(2);
+        assertEquals("1", fullArgs.get(3));
+        assertTrue(writtenFields(fullArgs).containsKey(ExecutionHashCodec.GRAPH_FIELD));
+    }
+
+    @Test
+    @DisplayName("进入终态时登记结束时间索引，运行中的更新不登记")
+    void terminal_write_indexes_execution() {
+        RScoredSortedSet<Object> terminalIndex = mock(RScoredSortedSet.class);
+        when(redissonClient.getScoredSortedSet(eq("workflow:execution:terminal"), any(Codec.class)))
+            .thenReturn(terminalIndex);
+
+        Execution execution = buildExecution();
+        repository.save(execution);
+        verify(terminalIndex, never()).add(anyDouble(), any());
+
+        execution.setStatus(ExecutionStatus.SUCCEEDED);
+        execution.setVersion(execution.getVersion() + 1);
+        repository.update(execution);
+
+        verify(terminalIndex).add(anyDouble(), eq("exec-1"));
+    }
+}
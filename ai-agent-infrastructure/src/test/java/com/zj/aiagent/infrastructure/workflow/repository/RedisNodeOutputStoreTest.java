@@ -0,0 +1,249 @@
+package com.zj.aiagent.infrastructure.workflow.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zj.aiagent.domain.workflow.exception.OffloadedOutputNotFoundException;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionContext;
+import com.zj.aiagent.domain.workflow.valobj.OffloadedOutput;
+import com.zj.aiagent.infrastructure.workflow.expression.ExpressionResolver;
+import java.time.Duration;
+import java.util.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * RedisNodeOutputStore 单元测试
+ * 验证超过阈值的输出值按内容地址转存、上下文中只保留引用，以及解引用的缓存与回源
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RedisNodeOutputStoreTest {
+
+    private static final int THRESHOLD = 1024;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    /** Redis 键 -> 字节 */
+    private final Map<String, byte[]> blobs = new HashMap<>();
+
+    private int reads;
+
+    private int writes;
+
+    /** 续期过 TTL 的键 */
+    private final List<String> refreshed = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(redissonClient.getBucket(anyString(), any(Codec.class))).thenAnswer(inv -> {
+            String key = inv.getArgument(0);
+            RBucket<byte[]> bucket = mock(RBucket.class);
+            doAnswer(i -> {
+                writes++;
+                return blobs.put(key, i.getArgument(0));
+            }).when(bucket).set(any(byte[].class), any(Duration.class));
+            when(bucket.getAndExpire(any(Duration.class))).thenAnswer(i -> {
+                reads++;
+                if (blobs.containsKey(key)) {
+                    refreshed.add(key);
+                }
+                return blobs.get(key);
+            });
+            when(bucket.expire(any(Duration.class))).thenAnswer(i -> {
+                if (!blobs.containsKey(key)) {
+                    return false;
+                }
+                refreshed.add(key);
+                return true;
+            });
+            when(bucket.expireAsync(any(Duration.class))).thenAnswer(i -> {
+                if (blobs.containsKey(key)) {
+                    refreshed.add(key);
+                }
+                return null;
+            });
+            return bucket;
+        });
+    }
+
+    private RedisNodeOutputStore store() {
+        return new RedisNodeOutputStore(objectMapper, redissonClient, THRESHOLD, 1024 * 1024);
+    }
+
+    private ExecutionContext contextWithOutput(String nodeId, Map<String, Object> output) {
+        ExecutionContext context = ExecutionContext.builder().build();
+        context.setNodeOutput(nodeId, output);
+        return context;
+    }
+
+    @Test
+    @DisplayName("超过阈值的值转存为引用，小值保持内联")
+    void offload_replaces_large_values_with_references() {
+        String large = "长".repeat(THRESHOLD);
+        ExecutionContext context = contextWithOutput("llm-1", Map.of("response", large, "tokens", 42, "model", "qwen"));
+
+        store().offload(context, "llm-1");
+
+        Map<String, Object> output = context.getNodeOutput("llm-1");
+        assertEquals(42, output.get("tokens"));
+        assertEquals("qwen", output.get("model"));
+        OffloadedOutput ref = OffloadedOutput.from(output.get("response"));
+        assertNotNull(ref);
+        assertEquals(1, blobs.size());
+        byte[] stored = blobs.get("workflow:output:blob:" + ref.digest());
+        assertNotNull(stored);
+        assertEquals(stored.length, ref.size());
+    }
+
+    @Test
+    @DisplayName("相同内容只存一份，已是引用的值不重复转存")
+    void offload_is_content_addressed_and_idempotent() {
+        List<String> chunks = Collections.nCopies(100, "相同的知识片段内容");
+        ExecutionContext context = ExecutionContext.builder().build();
+        context.setNodeOutput("kb-1", Map.of("knowledge_list", chunks));
+        context.setNodeOutput("kb-2", Map.of("knowledge_list", chunks));
+
+        RedisNodeOutputStore store = store();
+        store.offload(context, "kb-1");
+        store.offload(context, "kb-2");
+        Object firstRef = context.getNodeOutput("kb-1").get("knowledge_list");
+        store.offload(context, "kb-1");
+
+        assertEquals(1, blobs.size());
+        assertEquals(firstRef, context.getNodeOutput("kb-2").get("knowledge_list"));
+        assertEquals(firstRef, context.getNodeOutput("kb-1").get("knowledge_list"));
+        // 相同内容只写入一次字节，重复出现时续期；刚续期过的引用在间隔内不再访问 Redis
+        assertEquals(1, writes);
+        String key = "workflow:output:blob:" + OffloadedOutput.from(firstRef).digest();
+        assertEquals(List.of(key), refreshed);
+    }
+
+    @Test
+    @DisplayName("从 Redis 取回时续期，Redis 中的内容已过期时重新转存会写回字节")
+    void resolve_and_rewrite_refresh_ttl() {
+        String large = "长".repeat(THRESHOLD);
+        ExecutionContext context = contextWithOutput("llm-1", Map.of("response", large));
+        store().offload(context, "llm-1");
+        Object ref = context.getNodeOutput("llm-1").get("response");
+        String key = "workflow:output:blob:" + OffloadedOutput.from(ref).digest();
+
+        assertEquals(large, store().resolve(ref));
+        assertEquals(List.of(key), refreshed);
+
+        RedisNodeOutputStore store = store();
+        store.offload(contextWithOutput("llm-2", Map.of("response", large)), "llm-2");
+        blobs.clear();
+        store.offload(contextWithOutput("llm-3", Map.of("response", large)), "llm-3");
+        assertTrue(blobs.containsKey(key));
+        assertEquals(3, writes);
+    }
+
+    @Test
+    @DisplayName("解引用优先命中进程内缓存，冷缓存时从 Redis 取回原值")
+    void resolve_serves_from_cache_then_redis() {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("title", "员工手册");
+        document.put("body", "正文".repeat(THRESHOLD));
+        ExecutionContext context = contextWithOutput("http-1", Map.of("body", document));
+
+        RedisNodeOutputStore store = store();
+        store.offload(context, "http-1");
+        Object ref = context.getNodeOutput("http-1").get("body");
+
+        assertEquals(document, store.resolve(ref));
+        assertEquals(0, reads);
+
+        RedisNodeOutputStore coldStore = store();
+        assertEquals(document, coldStore.resolve(ref));
+        assertEquals(document, coldStore.resolve(ref));
+        assertEquals(1, reads);
+
+        assertEquals("plain", store.resolve("plain"));
+        assertNull(store.resolve(null));
+    }
+
+    @Test
+    @DisplayName("解引用返回独立副本，调用方修改不影响缓存与其它调用方")
+    @SuppressWarnings("unchecked")
+    void resolve_returns_independent_copies() {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("title", "员工手册");
+        document.put("sections", new ArrayList<>(List.of("第一章".repeat(THRESHOLD), "第二章")));
+        Map<String, Object> expected = Map.of("title", "员工手册", "sections", List.copyOf((List<?>) document.get("sections")));
+        ExecutionContext context = contextWithOutput("http-1", new HashMap<>(Map.of("body", document)));
+
+        RedisNodeOutputStore store = store();
+        store.offload(context, "http-1");
+        Object ref = context.getNodeOutput("http-1").get("body");
+        // 节点继续修改自己持有的原对象
+        document.put("title", "已修改");
+
+        Map<String, Object> first = (Map<String, Object>) store.resolve(ref);
+        first.put("title", "调用方修改");
+        ((List<Object>) first.get("sections")).clear();
+
+        assertEquals(expected, store.resolve(ref));
+    }
+
+    @Test
+    @DisplayName("转存内容过期时解引用抛出异常")
+    void resolve_fails_when_blob_expired() {
+        Object ref = new OffloadedOutput("0".repeat(64), 2048).toValue();
+
+        assertThrows(OffloadedOutputNotFoundException.class, () -> store().resolve(ref));
+    }
+
+    @Test
+    @DisplayName("值引用解析访问到转存输出时按需取回，并可继续访问嵌套路径")
+    void expression_resolver_dereferences_lazily() {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("title", "员工手册");
+        document.put("sections", List.of("第一章".repeat(THRESHOLD), "第二章"));
+        ExecutionContext context = contextWithOutput("http-1", Map.of("body", document, "status", 200));
+
+        RedisNodeOutputStore store = store();
+        store.offload(context, "http-1");
+        ExpressionResolver resolver = new ExpressionResolver(100, store);
+
+        assertEquals(200, resolver.resolve("http-1.output.status", context));
+        assertEquals("员工手册", resolver.resolve("http-1.output.body.title", context));
+        assertEquals("第二章", resolver.resolve("nodes.http-1.body.sections.1", context));
+        assertEquals(document, resolver.resolve("http-1.output.body", context));
+    }
+
+    @Test
+    @DisplayName("历史 SpEL 只取回被访问的转存输出，未引用的转存内容过期不影响求值")
+    void legacy_spel_dereferences_only_accessed_outputs() {
+        ExecutionContext context = contextWithOutput("http-1", Map.of("body", "正文".repeat(THRESHOLD)));
+        context.setNodeOutput("llm-1", Map.of("response", "你好", "raw", "原文".repeat(THRESHOLD)));
+
+        RedisNodeOutputStore store = store();
+        store.offload(context, "http-1");
+        store.offload(context, "llm-1");
+        // 转存内容全部过期，且进程内缓存为冷
+        blobs.clear();
+        ExpressionResolver resolver = new ExpressionResolver(100, store());
+
+        assertEquals("你好!", resolver.resolve("#{#nodeOutputs['llm-1']['response'] + '!'}", context));
+        assertEquals("你好", resolver.resolve("#{#nodeOutputs['llm-1'].get('response')}", context));
+        assertEquals(0, reads);
+        assertThrows(IllegalArgumentException.class,
+            () -> resolver.resolve("#{#nodeOutputs['http-1']['body']}", context));
+    }
+}
@@ -0,0 +1,151 @@
+package com.zj.aiagent.infrastructure.workflow.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zj.aiagent.domain.chat.valobj.SseEventPayload;
+import com.zj.aiagent.domain.workflow.valobj.NodeExecutionResult;
+import com.zj.aiagent.domain.workflow.valobj.SseEventType;
+import com.zj.aiagent.domain.workflow.valobj.StreamContext;
+import com.zj.aiagent.infrastructure.workflow.event.RedisSsePublisher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * RedisSseStreamPublisher 增量合并测试
+ */
+@DisplayName("RedisSseStreamPublisher 增量合并测试")
+class RedisSseStreamPublisherTest {
+
+    private final RedisSsePublisher ssePublisher = mock(RedisSsePublisher.class);
+    private final List<SseEventPayload> published = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RedisSseStreamPublisherFactory factory;
+
+    @AfterEach
+    void tearDown() {
+        if (factory != null) {
+            factory.shutdown();
+        }
+    }
+
+    private RedisSseStreamPublisher publisher(long windowMillis, int maxChars) {
+        doAnswer(inv -> {
+            published.add(inv.getArgument(0));
+            return "1-0";
+        }).when(ssePublisher).publish(any());
+        factory = new RedisSseStreamPublisherFactory(ssePublisher, new ObjectMapper(), meterRegistry,
+                windowMillis, maxChars);
+        return (RedisSseStreamPublisher) factory.create(StreamContext.builder()
+                .executionId("exec-1")
+                .nodeId("llm-1")
+                .nodeName("LLM")
+                .isFinalOutputNode(true)
+                .build());
+    }
+
+    @Test
+    @DisplayName("窗口内的增量合并，完成事件前先推送缓冲区")
+    void should_merge_deltas_and_flush_before_finish() {
+        RedisSseStreamPublisher publisher = publisher(60_000, 1_000);
+
+        publisher.publishStart();
+        for (String token : List.of("Hel", "lo", ", ", "world")) {
+            publisher.publishDelta(token);
+        }
+        publisher.publishFinish(NodeExecutionResult.success(Map.of("response", "Hello, world")));
+
+        assertThat(published).extracting(SseEventPayload::getEventType)
+                .containsExactly(SseEventType.START, SseEventType.UPDATE, SseEventType.FINISH);
+        assertThat(published.get(1).getPayload().getDelta()).isEqualTo("Hello, world");
+        assertThat(meterRegistry.get("sse.delta.merge.ratio").gauge().value()).isEqualTo(4.0);
+    }
+
+    @Test
+    @DisplayName("超过字符上限立即推送")
+    void should_flush_when_max_chars_reached() {
+        RedisSseStreamPublisher publisher = publisher(60_000, 4);
+
+        publisher.publishDelta("ab");
+        publisher.publishDelta("cd");
+        publisher.publishDelta("e");
+
+        assertThat(published).hasSize(1);
+        assertThat(published.get(0).getPayload().getDelta()).isEqualTo("abcd");
+    }
+
+    @Test
+    @DisplayName("思考与正文切换、错误事件都先推送缓冲区")
+    void should_flush_on_thought_switch_and_error() {
+        RedisSseStreamPublisher publisher = publisher(60_000, 1_000);
+
+        publisher.publishDelta("think", true);
+        publisher.publishDelta("answer", false);
+        publisher.publishError("boom");
+
+        assertThat(published).extracting(p -> p.getPayload().getRenderMode())
+                .containsExactly("THOUGHT", "MARKDOWN", "TEXT");
+        assertThat(published.get(1).getPayload().getDelta()).isEqualTo("answer");
+    }
+
+    @Test
+    @DisplayName("增量停止后窗口到期推送剩余内容")
+    void should_flush_tail_after_window() {
+        RedisSseStreamPublisher publisher = publisher(20, 1_000);
+
+        publisher.publishDelta("tail");
+
+        verify(ssePublisher, timeout(2_000)).publish(any());
+        assertThat(published.get(0).getPayload().getDelta()).isEqualTo("tail");
+    }
+
+    @Test
+    @DisplayName("窗口为 0 时不合并")
+    void should_publish_each_delta_when_disabled() {
+        RedisSseStreamPublisher publisher = publisher(0, 1_000);
+
+        publisher.publishDelta("a");
+        publisher.publishDelta("b");
+
+        assertThat(published).extracting(p -> p.getPayload().getDelta()).containsExactly("a", "b");
+    }
+
+    @Test
+    @DisplayName("多个流的窗口到期推送并行执行，慢推送不会串行阻塞其它流")
+    void should_flush_many_streams_concurrently() throws Exception {
+        int streams = 100;
+        CountDownLatch flushed = new CountDownLatch(streams);
+        doAnswer(inv -> {
+            // 模拟一次阻塞的 Redis 调用
+            Thread.sleep(100);
+            published.add(inv.getArgument(0));
+            flushed.countDown();
+            return "1-0";
+        }).when(ssePublisher).publish(any());
+        factory = new RedisSseStreamPublisherFactory(ssePublisher, new ObjectMapper(), meterRegistry, 20, 1_000);
+
+        for (int i = 0; i < streams; i++) {
+            factory.create(StreamContext.builder()
+                    .executionId("exec-" + i)
+                    .nodeId("llm-1")
+                    .nodeName("LLM")
+                    .isFinalOutputNode(true)
+                    .build()).publishDelta("tail-" + i);
+        }
+
+        // 串行推送需要 100 * 100ms = 10s
+        assertTrue(flushed.await(3, TimeUnit.SECONDS), "pending flushes: " + flushed.getCount());
+        assertThat(published).extracting(p -> p.getPayload().getDelta()).hasSize(streams)
+                .allMatch(delta -> delta.startsWith("tail-"));
+    }
+}
@@ -0,0 +1,88 @@
+package com.zj.aiagent.infrastructure.workflow.template;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionContext;
+import net.jqwik.api.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Property-Based Test: 预编译模板与逐次正则替换输出一致
+ *
+ * 验证：对于由字面文本、{{}} / #{} 占位符与零散的 { } # 拼成的任意模板，以及任意包含
+ * 花括号、# 的替换值，预编译模板的渲染结果与原实现逐字节相同；同一模板重复渲染（命中缓存）结果不变。
+ */
+class PromptTemplateEquivalencePropertyTest {
+
+    private final PromptValueFormatter formatter = new PromptValueFormatter(new ObjectMapper());
+    private final PromptTemplateResolver resolver = new PromptTemplateResolver(formatter);
+    private final LegacyPromptTemplateResolver legacy = new LegacyPromptTemplateResolver(formatter);
+
+    @Property(tries = 1000)
+    void compiled_template_should_render_identically(
+            @ForAll("templates") String template,
+            @ForAll("resolvedInputs") Map<String, Object> resolvedInputs,
+            @ForAll("contexts") ExecutionContext context) {
+        String expected = legacy.resolve(template, resolvedInputs, context);
+
+        assertThat(resolver.resolve(template, resolvedInputs, context)).isEqualTo(expected);
+        assertThat(resolver.resolve(template, resolvedInputs, context)).isEqualTo(expected);
+    }
+
+    @Example
+    void substituted_value_should_form_hash_placeholder_with_literal_text() {
+        // 第一遍替换出的文本与字面文本拼成 #{b}，第二遍继续替换
+        String template = "#{{{a}}}";
+        Map<String, Object> inputs = Map.of("a", "b", "b", "done");
+
+        assertThat(resolver.resolve(template, inputs, ExecutionContext.builder().build()))
+                .isEqualTo(legacy.resolve(template, inputs, ExecutionContext.builder().build()))
+                .isEqualTo("done");
+    }
+
+    // ========== Generators ==========
+
+    @Provide
+    Arbitrary<String> templates() {
+        Arbitrary<String> reference = Arbitraries.of(
+                "a", "b", " a ", "inputs.q", "inputs.missing", "n1.output.k", "n1.output.missing",
+                "n2.output.k", ".output.k", "unknown", " ");
+        Arbitrary<String> token = Arbitraries.oneOf(
+                reference.map(r -> "{{" + r + "}}"),
+                reference.map(r -> "#{" + r + "}"),
+                Arbitraries.of("问题：", "text ", "# Title\n", "{", "}", "#", "{{", "}}", "#{", "\\$1", "$"));
+        return token.list().ofMaxSize(8).map(tokens -> String.join("", tokens));
+    }
+
+    @Provide
+    Arbitrary<Map<String, Object>> resolvedInputs() {
+        return Arbitraries.maps(Arbitraries.of("a", "b", "unknown"), values()).ofMaxSize(3)
+                .map(HashMap::new);
+    }
+
+    @Provide
+    Arbitrary<ExecutionContext> contexts() {
+        return Combinators.combine(values(), values(), Arbitraries.of(true, false))
+                .as((q, k, hasNode) -> {
+                    ExecutionContext context = ExecutionContext.builder().build();
+                    context.getInputs().put("q", q);
+                    if (hasNode) {
+                        Map<String, Object> output = new HashMap<>();
+                        output.put("k", k);
+                        context.setNodeOutput("n1", output);
+                    }
+                    return context;
+                });
+    }
+
+    private Arbitrary<Object> values() {
+        return Arbitraries.oneOf(
+                Arbitraries.of("b", "a}", "#", "#{a}", "{{b}}", "{", "{\"x\":1}", "$1", "").map(Object.class::cast),
+                Arbitraries.integers().between(0, 9).map(Object.class::cast),
+                Arbitraries.just(List.of("片段1", "片段2")));
+    }
+}
@@ -0,0 +1,108 @@
+package com.zj.aiagent.infrastructure.workflow.template;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionContext;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * PromptTemplateResolver 基准测试：预编译模板 vs 逐次正则替换
+ *
+ * 运行方式（需先 test-compile）：
+ * <pre>
+ * mvn -pl ai-agent-infrastructure test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *     com.zj.aiagent.infrastructure.workflow.template.PromptTemplateResolverBenchmark
+ * </pre>
+ *
+ * 参考结果（JDK 21，单核虚拟机，ns/op，误差较大，仅供量级对比）：
+ * <pre>
+ * Benchmark        (shape)  Mode  Cnt      Score      Error  Units
+ * compiled        MUSTACHE  avgt    5   2307.487 ±  971.093  ns/op
+ * compiled            HASH  avgt    5   2001.698 ±  359.048  ns/op
+ * compiled           PLAIN  avgt    5     76.781 ±    8.994  ns/op
+ * legacy          MUSTACHE  avgt    5  31147.787 ± 5664.223  ns/op
+ * legacy              HASH  avgt    5  47937.625 ± 3805.447  ns/op
+ * legacy             PLAIN  avgt    5   4351.570 ±  812.892  ns/op
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptTemplateResolverBenchmark {
+
+    /**
+     * MUSTACHE：{{}} 占位符；HASH：历史 #{} 占位符；PLAIN：无占位符的长系统提示词
+     */
+    @Param({"MUSTACHE", "HASH", "PLAIN"})
+    public String shape;
+
+    private PromptTemplateResolver compiled;
+    private LegacyPromptTemplateResolver legacy;
+    private String template;
+    private Map<String, Object> resolvedInputs;
+    private ExecutionContext context;
+
+    @Setup
+    public void setUp() {
+        PromptValueFormatter formatter = new PromptValueFormatter(new ObjectMapper());
+        compiled = new PromptTemplateResolver(formatter);
+        legacy = new LegacyPromptTemplateResolver(formatter);
+
+        String instructions = "你是一个严谨的企业知识库助手。请只依据提供的资料回答问题，"
+                + "资料不足时明确说明无法回答，不要编造。回答使用 Markdown，先给结论再给依据。\n";
+        String body = instructions.repeat(12);
+        template = switch (shape) {
+            case "MUSTACHE" -> body
+                    + "## 资料\n{{knowledge-1.output.knowledge_list}}\n"
+                    + "## 用户信息\n{{inputs.userName}}（{{inputs.department}}）\n"
+                    + "## 问题\n{{input}}\n";
+            case "HASH" -> body
+                    + "## 资料\n#{knowledge-1.output.knowledge_list}\n"
+                    + "## 用户信息\n#{inputs.userName}（#{inputs.department}）\n"
+                    + "## 问题\n#{input}\n";
+            default -> body;
+        };
+
+        resolvedInputs = Map.of("input", "年假可以跨年使用吗？");
+        context = ExecutionContext.builder()
+                .inputs(Map.of("userName", "张三", "department", "研发部"))
+                .build();
+        context.setNodeOutput("knowledge-1", Map.of("knowledge_list",
+                List.of("年假当年有效，经审批可顺延至次年一季度。", "未休年假按规定折算工资。")));
+    }
+
+    @Benchmark
+    public String compiled() {
+        return compiled.resolve(template, resolvedInputs, context);
+    }
+
+    @Benchmark
+    public String legacy() {
+        return legacy.resolve(template, resolvedInputs, context);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PromptTemplateResolverBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
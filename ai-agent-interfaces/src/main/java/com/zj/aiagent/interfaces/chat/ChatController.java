@@ -1,6 +1,5 @@
 package com.zj.aiagent.interfaces.chat;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zj.aiagent.application.chat.ChatApplicationService;
 import com.zj.aiagent.application.workflow.SchedulerService;
 import com.zj.aiagent.domain.agent.entity.Agent;
@@ -8,9 +7,9 @@ import com.zj.aiagent.domain.agent.repository.AgentRepository;
 import com.zj.aiagent.domain.chat.entity.Conversation;
 import com.zj.aiagent.domain.chat.entity.Message;
 import com.zj.aiagent.domain.workflow.valobj.ExecutionMode;
-import com.zj.aiagent.infrastructure.workflow.event.RedisSseListener;
 import com.zj.aiagent.interfaces.chat.dto.ConversationResponse;
 import com.zj.aiagent.interfaces.chat.dto.MessageResponse;
+import com.zj.aiagent.interfaces.workflow.ExecutionSseStreamer;
 import com.zj.aiagent.shared.context.UserContext;
 import com.zj.aiagent.shared.response.PageResult;
 import com.zj.aiagent.shared.response.Response;
@@ -20,8 +19,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.redis.listener.ChannelTopic;
-import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
@@ -31,8 +28,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -47,11 +42,7 @@ public class ChatController {
     private final ChatApplicationService chatApplicationService;
     private final SchedulerService schedulerService;
     private final AgentRepository agentRepository;
-    private final RedisMessageListenerContainer redisMessageListenerContainer;
-    private final ObjectMapper objectMapper;
-    private final ScheduledExecutorService heartbeatScheduler;
-
-    private static final long SSE_TIMEOUT = 30 * 60 * 1000L;
+    private final ExecutionSseStreamer executionSseStreamer;
 
     /**
      * 创建会话
@@ -134,54 +125,11 @@ public class ChatController {
 
         // 3. 创建 SSE Emitter
         String executionId = UUID.randomUUID().toString();
-        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
-
-        String channel = "workflow:channel:" + executionId;
-        RedisSseListener listener = new RedisSseListener(objectMapper, payload -> {
-            try {
-                String eventName = payload.getEventType() != null
-                        ? payload.getEventType().name().toLowerCase() : "message";
-                emitter.send(SseEmitter.event().name(eventName).data(payload));
-                
-                // 当收到最终 FINISH 事件时，关闭 SSE 流
-                if ("finish".equals(eventName) && payload.getStatus() != null &&
-                    (payload.getStatus() == com.zj.aiagent.domain.workflow.valobj.ExecutionStatus.SUCCEEDED ||
-                     payload.getStatus() == com.zj.aiagent.domain.workflow.valobj.ExecutionStatus.FAILED)) {
-                    String nodeType = payload.getNodeType();
-                    if ("END".equals(nodeType) || nodeType == null) {
-                        emitter.complete();
-                    }
-                }
-            } catch (IOException e) {
-                log.error("[Chat SSE] Error sending event: {}", e.getMessage());
-                emitter.completeWithError(e);
-            }
-        });
-
-        redisMessageListenerContainer.addMessageListener(listener, new ChannelTopic(channel));
-
-        var heartbeatTask = heartbeatScheduler.scheduleAtFixedRate(() -> {
-            try {
-                emitter.send(SseEmitter.event().name("ping").data("pong"));
-            } catch (Exception e) {
-                // ignore
-            }
-        }, 15, 15, TimeUnit.SECONDS);
-
-        Runnable cleanUp = () -> {
-            redisMessageListenerContainer.removeMessageListener(listener);
-            heartbeatTask.cancel(true);
-        };
-        emitter.onCompletion(cleanUp);
-        emitter.onTimeout(cleanUp);
-        emitter.onError(e -> cleanUp.run());
+        SseEmitter emitter = executionSseStreamer.open(executionId, null, true);
 
         // 4. 异步启动工作流
         CompletableFuture.runAsync(() -> {
             try {
-                emitter.send(SseEmitter.event().name("connected")
-                        .data(Map.of("executionId", executionId)));
-
                 schedulerService.startExecution(
                         executionId, agentId, userId, conversationId,
                         null, // 使用已发布版本
@@ -3,7 +3,6 @@ package com.zj.aiagent.interfaces.common.config;
 import com.zj.aiagent.interfaces.common.interceptor.LoginInterceptor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -11,8 +10,6 @@ import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.Arrays;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Web MVC 配置
@@ -27,16 +24,6 @@ public class WebMvcConfig implements WebMvcConfigurer {
     @Value("${cors.allowed-origins:}")
     private String allowedOrigins;
 
-    @Bean("workflowTaskScheduler")
-    public ScheduledExecutorService workflowTaskScheduler() {
-        return Executors.newScheduledThreadPool(10);
-    }
-
-    @Bean("heartbeatScheduler")
-    public ScheduledExecutorService heartbeatScheduler() {
-        return Executors.newScheduledThreadPool(2);
-    }
-
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(loginInterceptor)
@@ -58,6 +45,8 @@ public class WebMvcConfig implements WebMvcConfigurer {
         var corsConfig = registry.addMapping("/**")
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH")
                 .allowedHeaders("*")
+                // 执行历史分页游标，跨域时需显式暴露给前端读取
+                .exposedHeaders("X-Next-Cursor")
                 .allowCredentials(true)
                 .maxAge(3600);
 
@@ -0,0 +1,221 @@
+package com.zj.aiagent.interfaces.workflow;
+
+import com.zj.aiagent.domain.chat.valobj.SseEventPayload;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
+import com.zj.aiagent.infrastructure.workflow.event.RedisSseDispatcher;
+import com.zj.aiagent.infrastructure.workflow.event.RedisSseEventReplayer;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 工作流执行 SSE 推流
+ *
+ * 向本实例的 SSE 事件分发器登记订阅并把事件转发给 SseEmitter，事件以事件流条目 ID 作为 SSE id。
+ * 携带 Last-Event-ID 时先登记订阅，再从事件流补读该 ID 之后的事件，
+ * 补读期间到达的实时事件先缓冲，补读完成后按 ID 去重再转发，保证不丢不重。
+ * 实时事件经每个 emitter 独立的有界发送队列 ({@link SseOutbox}) 由虚拟线程发送，分发线程不做网络写。
+ */
+@Slf4j
+@Component
+public class ExecutionSseStreamer {
+
+    private static final long SSE_TIMEOUT = 30 * 60 * 1000L; // 30 minutes
+
+    private final RedisSseDispatcher sseDispatcher;
+    private final RedisSseEventReplayer eventReplayer;
+    private final SseHeartbeatWheel heartbeatWheel;
+    private final int outboxCapacity;
+    private final SseOutbox.OverflowPolicy overflowPolicy;
+    private final SseOutbox.Metrics outboxMetrics;
+
+    private final ExecutorService outboxDrainer = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("sse-outbox-", 0).factory()
+    );
+
+    public ExecutionSseStreamer(
+        RedisSseDispatcher sseDispatcher,
+        RedisSseEventReplayer eventReplayer,
+        SseHeartbeatWheel heartbeatWheel,
+        MeterRegistry meterRegistry,
+        @Value("${workflow.sse.outbox.capacity:256}") int outboxCapacity,
+        @Value("${workflow.sse.outbox.overflow-policy:COALESCE}") String overflowPolicy
+    ) {
+        this.sseDispatcher = sseDispatcher;
+        this.eventReplayer = eventReplayer;
+        this.heartbeatWheel = heartbeatWheel;
+        this.outboxCapacity = outboxCapacity;
+        this.overflowPolicy = SseOutbox.OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase());
+        this.outboxMetrics = new SseOutbox.Metrics(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        outboxDrainer.shutdownNow();
+    }
+
+    /**
+     * 打开执行的实时事件流
+     *
+     * @param lastEventId 客户端最后收到的事件 ID，为空时只推送订阅之后的事件
+     */
+    public SseEmitter open(String executionId, String lastEventId, boolean sendConnectedEvent) {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
+        SseHeartbeatWheel.Heartbeat heartbeat = heartbeatWheel.register(emitter);
+        SseOutbox outbox = new SseOutbox(
+            executionId, emitter, heartbeat, outboxCapacity, overflowPolicy, outboxDrainer, outboxMetrics
+        );
+        Subscription subscription = new Subscription(outbox);
+
+        Runnable unregister = sseDispatcher.register(executionId, subscription::onLive);
+        log.info("[SSE] Subscribed to execution: {}", executionId);
+
+        Runnable cleanUp = () -> {
+            log.info("[SSE] Cleaning up resources for execution: {}", executionId);
+            unregister.run();
+            heartbeat.cancel();
+        };
+        emitter.onCompletion(cleanUp);
+        emitter.onTimeout(cleanUp);
+        emitter.onError(e -> cleanUp.run());
+
+        if (sendConnectedEvent) {
+            try {
+                sendConnected(emitter, executionId);
+            } catch (IOException e) {
+                log.error("[SSE] Failed to send connected event: {}", e.getMessage());
+                emitter.completeWithError(e);
+                return emitter;
+            }
+        }
+
+        List<SseEventPayload> replayed = List.of();
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                replayed = eventReplayer.replayAfter(executionId, lastEventId);
+                log.info("[SSE] Replaying {} event(s) of {} after {}", replayed.size(), executionId, lastEventId);
+            } catch (Exception e) {
+                log.warn("[SSE] Failed to replay events of {}: {}", executionId, e.getMessage());
+            }
+        }
+        subscription.goLive(replayed);
+
+        return emitter;
+    }
+
+    /**
+     * 已结束的执行：补读 Last-Event-ID 之后的事件，再发送结束事件并关闭
+     */
+    public SseEmitter replayFinished(String executionId, String lastEventId, ExecutionStatus status) {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
+        try {
+            sendConnected(emitter, executionId);
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                for (SseEventPayload payload : eventReplayer.replayAfter(executionId, lastEventId)) {
+                    send(emitter, payload);
+                }
+            }
+            emitter.send(
+                SseEmitter.event()
+                    .name("finish")
+                    .data(Map.of("status", status.name()), MediaType.APPLICATION_JSON)
+            );
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    private void sendConnected(SseEmitter emitter, String executionId) throws IOException {
+        emitter.send(
+            SseEmitter.event()
+                .name("connected")
+                .data(Map.of("executionId", executionId), MediaType.APPLICATION_JSON)
+        );
+    }
+
+    /**
+     * 发送单个事件，返回是否为整个执行的结束事件
+     */
+    static boolean send(SseEmitter emitter, SseEventPayload payload) throws IOException {
+        String eventName = payload.getEventType() != null
+            ? payload.getEventType().name().toLowerCase()
+            : "message";
+        SseEmitter.SseEventBuilder event = SseEmitter.event()
+            .name(eventName)
+            .data(payload, MediaType.APPLICATION_JSON);
+        if (payload.getId() != null) {
+            event.id(payload.getId());
+        }
+        emitter.send(event);
+
+        ExecutionStatus status = payload.getStatus();
+        String nodeType = payload.getNodeType();
+        return "finish".equals(eventName)
+            && (status == ExecutionStatus.SUCCEEDED
+                || status == ExecutionStatus.FAILED
+                || status == ExecutionStatus.CANCELLED)
+            && ("END".equals(nodeType) || nodeType == null);
+    }
+
+    /**
+     * 单个 emitter 的订阅：补读完成前缓冲实时事件
+     */
+    private static final class Subscription {
+
+        private final SseOutbox outbox;
+        private List<SseEventPayload> buffered = new ArrayList<>();
+
+        Subscription(SseOutbox outbox) {
+            this.outbox = outbox;
+        }
+
+        synchronized void onLive(SseEventPayload payload) {
+            if (buffered != null) {
+                buffered.add(payload);
+                return;
+            }
+            outbox.offer(payload);
+        }
+
+        /**
+         * 补读事件在调用线程直接发送（发送队列此时为空，不受溢出策略影响），
+         * 再把缓冲的实时事件按 ID 去重后放入发送队列，之后实时事件直接入队
+         */
+        void goLive(List<SseEventPayload> replayed) {
+            String lastReplayedId = null;
+            boolean open = true;
+            for (SseEventPayload payload : replayed) {
+                if (!outbox.sendNow(payload)) {
+                    open = false;
+                    break;
+                }
+                if (payload.getId() != null) {
+                    lastReplayedId = payload.getId();
+                }
+            }
+            synchronized (this) {
+                if (open) {
+                    for (SseEventPayload payload : buffered) {
+                        if (payload.getId() == null || lastReplayedId == null
+                                || RedisSseEventReplayer.compareIds(payload.getId(), lastReplayedId) > 0) {
+                            outbox.offer(payload);
+                        }
+                    }
+                }
+                buffered = null;
+            }
+        }
+    }
+}
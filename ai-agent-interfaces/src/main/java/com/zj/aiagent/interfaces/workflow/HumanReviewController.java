@@ -9,11 +9,13 @@ import com.zj.aiagent.domain.workflow.port.ExecutionRepository;
 import com.zj.aiagent.domain.workflow.port.ExpressionResolverPort;
 import com.zj.aiagent.domain.workflow.port.HumanReviewQueuePort;
 import com.zj.aiagent.domain.workflow.port.HumanReviewRepository;
+import com.zj.aiagent.domain.workflow.port.NodeOutputStorePort;
 import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
 import com.zj.aiagent.domain.workflow.valobj.TriggerPhase;
 import com.zj.aiagent.interfaces.workflow.dto.HumanReviewDTO;
 import com.zj.aiagent.shared.context.UserContext;
 import com.zj.aiagent.shared.response.Response;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -34,6 +36,7 @@ public class HumanReviewController {
     private final HumanReviewRepository humanReviewRepository;
     private final ExecutionRepository executionRepository;
     private final ExpressionResolverPort expressionResolver;
+    private final NodeOutputStorePort nodeOutputStore;
 
     /**
      * 获取待审核列表
@@ -50,7 +53,7 @@ public class HumanReviewController {
 
         List<HumanReviewDTO.PendingReviewDTO> dtos = pendingExecutionIds
             .stream()
-            .map(executionRepository::findById)
+            .map(executionRepository::findSnapshotById)
             .filter(java.util.Optional::isPresent)
             .map(java.util.Optional::get)
             .map(execution -> {
@@ -82,7 +85,7 @@ public class HumanReviewController {
         @PathVariable String executionId
     ) {
         Execution execution = executionRepository
-            .findById(executionId)
+            .findSnapshotById(executionId)
             .orElseThrow(() ->
                 new IllegalArgumentException("Execution not found")
             );
@@ -159,16 +162,16 @@ public class HumanReviewController {
                     // 当前暂停节点：根据 phase 决定是否展示输出
                     if (phase == TriggerPhase.AFTER_EXECUTION) {
                         // 执行后暂停：展示输出
-                        nodeOutputs = execution
-                            .getContext()
-                            .getNodeOutput(n.getNodeId());
+                        nodeOutputs = dereferenced(
+                            execution.getContext().getNodeOutput(n.getNodeId())
+                        );
                     }
                     // BEFORE_EXECUTION：不展示输出（还没执行）
                 } else {
                     // 上游节点：展示输出
-                    nodeOutputs = execution
-                        .getContext()
-                        .getNodeOutput(n.getNodeId());
+                    nodeOutputs = dereferenced(
+                        execution.getContext().getNodeOutput(n.getNodeId())
+                    );
                 }
 
                 return HumanReviewDTO.NodeContextDTO.builder()
@@ -255,4 +258,18 @@ public class HumanReviewController {
             )
         );
     }
+
+    /**
+     * 审核页展示完整输出：转存的大体积输出值替换为原值
+     */
+    private Map<String, Object> dereferenced(Map<String, Object> outputs) {
+        if (outputs == null) {
+            return null;
+        }
+        Map<String, Object> resolved = new HashMap<>();
+        outputs.forEach((key, value) ->
+            resolved.put(key, nodeOutputStore.resolve(value))
+        );
+        return resolved;
+    }
 }
@@ -0,0 +1,156 @@
+package com.zj.aiagent.interfaces.workflow;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SSE 心跳时间轮
+ *
+ * 所有 emitter 共用一个时间轮：心跳间隔被划分为若干槽，emitter 登记时放入当前指针之前的槽，
+ * 每个 tick 只扫描一个槽，因此每个 emitter 每个间隔被访问一次，单次扫描量为 总数 / 槽数，
+ * 调度器负载与连接数无关（只有一个周期任务）。
+ * 半个间隔内发送过数据的 emitter 跳过本轮心跳；发送失败的 emitter 移出时间轮并以错误结束，触发其清理回调。
+ */
+@Slf4j
+@Component
+public class SseHeartbeatWheel {
+
+    private final long intervalNanos;
+    private final long tickMillis;
+    private final List<Set<Heartbeat>> slots;
+    private int cursor;
+
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("sse-heartbeat-wheel").daemon(true).factory());
+    private final ExecutorService senders = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("sse-heartbeat-", 0).factory());
+
+    public SseHeartbeatWheel(
+            @Value("${workflow.sse.heartbeat.interval:15s}") Duration interval,
+            @Value("${workflow.sse.heartbeat.tick:500ms}") Duration tick) {
+        this.intervalNanos = interval.toNanos();
+        this.tickMillis = Math.max(1, tick.toMillis());
+        int slotCount = (int) Math.max(1, interval.toMillis() / tickMillis);
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        ticker.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    /**
+     * 登记 emitter，约一个间隔后收到第一次心跳
+     *
+     * @return 心跳句柄：发送数据后 touch，emitter 结束时 cancel
+     */
+    public Heartbeat register(SseEmitter emitter) {
+        int slot;
+        synchronized (this) {
+            slot = (cursor + slots.size() - 1) % slots.size();
+        }
+        Heartbeat heartbeat = new Heartbeat(emitter, slots.get(slot));
+        heartbeat.slot.add(heartbeat);
+        return heartbeat;
+    }
+
+    /**
+     * 时间轮中的 emitter 数量
+     */
+    public int size() {
+        return slots.stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * 推进一个槽，对到期的 emitter 批量发送心跳
+     */
+    void tick() {
+        Set<Heartbeat> slot;
+        synchronized (this) {
+            slot = slots.get(cursor);
+            cursor = (cursor + 1) % slots.size();
+        }
+        if (slot.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        List<Heartbeat> due = new ArrayList<>();
+        for (Heartbeat heartbeat : slot) {
+            if (now - heartbeat.lastActiveNanos >= intervalNanos / 2) {
+                due.add(heartbeat);
+            }
+        }
+        if (!due.isEmpty()) {
+            // 一个槽一个虚拟线程，慢连接不阻塞时间轮
+            senders.execute(() -> due.forEach(this::ping));
+        }
+    }
+
+    private void ping(Heartbeat heartbeat) {
+        try {
+            heartbeat.emitter.send(SseEmitter.event().name("ping").data("pong"));
+            heartbeat.touch();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("[SSE] Heartbeat failed, evicting emitter: {}", e.getMessage());
+            heartbeat.cancel();
+            try {
+                heartbeat.emitter.completeWithError(e);
+            } catch (Exception ignored) {
+                // emitter 已结束
+            }
+        }
+    }
+
+    /**
+     * 单个 emitter 的心跳句柄
+     */
+    public static final class Heartbeat {
+
+        private final SseEmitter emitter;
+        private final Set<Heartbeat> slot;
+        private volatile long lastActiveNanos = System.nanoTime();
+
+        private Heartbeat(SseEmitter emitter, Set<Heartbeat> slot) {
+            this.emitter = emitter;
+            this.slot = slot;
+        }
+
+        /**
+         * 记录 emitter 刚发送过数据
+         */
+        public void touch() {
+            lastActiveNanos = System.nanoTime();
+        }
+
+        /**
+         * 移出时间轮，可重复调用
+         */
+        public void cancel() {
+            slot.remove(this);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.zj.aiagent.interfaces.workflow;
+
+import com.zj.aiagent.domain.chat.valobj.SseEventPayload;
+import com.zj.aiagent.domain.chat.valobj.SseEventPayload.ContentPayload;
+import com.zj.aiagent.domain.workflow.valobj.SseEventType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个 SSE emitter 的有界发送队列
+ *
+ * 分发线程只负责入队，发送由虚拟线程按需排空（队列非空时才有一个排空任务），
+ * 慢连接只阻塞自己的排空任务，不影响其它执行的投递。
+ * 队列满时按溢出策略处理增量事件；开始、完成、错误等生命周期事件不丢弃，
+ * 但队列达到两倍容量时无论策略如何都断开连接（客户端可凭 Last-Event-ID 续传）。
+ */
+@Slf4j
+final class SseOutbox {
+
+    /**
+     * 溢出策略
+     */
+    enum OverflowPolicy {
+        /** 与队尾同节点的增量合并为一个事件 */
+        COALESCE,
+        /** 丢弃新到的中间增量（完成事件仍带完整内容） */
+        DROP_DELTAS,
+        /** 断开连接 */
+        DISCONNECT
+    }
+
+    private final String executionId;
+    private final SseEmitter emitter;
+    private final SseHeartbeatWheel.Heartbeat heartbeat;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final Executor drainer;
+    private final Metrics metrics;
+
+    private final ArrayDeque<SseEventPayload> queue = new ArrayDeque<>();
+    private boolean draining;
+    private boolean closed;
+
+    SseOutbox(String executionId, SseEmitter emitter, SseHeartbeatWheel.Heartbeat heartbeat,
+            int capacity, OverflowPolicy policy, Executor drainer, Metrics metrics) {
+        this.executionId = executionId;
+        this.emitter = emitter;
+        this.heartbeat = heartbeat;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.drainer = drainer;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 入队一个事件，必要时启动排空任务
+     */
+    synchronized void offer(SseEventPayload payload) {
+        if (closed) {
+            return;
+        }
+        if (queue.size() >= capacity && !admitOverflow(payload)) {
+            return;
+        }
+        queue.addLast(payload);
+        metrics.enqueued(queue.size());
+        if (!draining) {
+            draining = true;
+            drainer.execute(this::drain);
+        }
+    }
+
+    synchronized int depth() {
+        return queue.size();
+    }
+
+    /**
+     * 队列已满时处理新事件，返回是否仍需入队
+     */
+    private boolean admitOverflow(SseEventPayload payload) {
+        if (queue.size() >= capacity * 2L || policy == OverflowPolicy.DISCONNECT) {
+            log.warn("[SSE] Outbox of {} overflowed ({} queued), disconnecting slow consumer",
+                    executionId, queue.size());
+            metrics.overflow("disconnected");
+            close();
+            emitter.completeWithError(new IOException("SSE consumer too slow"));
+            return false;
+        }
+        if (!isDelta(payload)) {
+            return true;
+        }
+        if (policy == OverflowPolicy.DROP_DELTAS) {
+            metrics.overflow("dropped");
+            return false;
+        }
+        SseEventPayload tail = queue.peekLast();
+        if (tail != null && mergeable(tail, payload)) {
+            queue.pollLast();
+            queue.addLast(merge(tail, payload));
+            metrics.overflow("coalesced");
+            return false;
+        }
+        return true;
+    }
+
+    private void drain() {
+        while (true) {
+            SseEventPayload next;
+            synchronized (this) {
+                next = closed ? null : queue.pollFirst();
+                if (next == null) {
+                    draining = false;
+                    return;
+                }
+            }
+            metrics.dequeued();
+            if (!transmit(next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 在调用线程直接发送（用于补读，此时队列尚未启用），返回是否仍可继续发送
+     */
+    boolean sendNow(SseEventPayload payload) {
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+        }
+        return transmit(payload);
+    }
+
+    /**
+     * 发送一个事件；执行结束或发送失败时关闭队列并结束 emitter，返回是否仍可继续发送
+     */
+    private boolean transmit(SseEventPayload payload) {
+        try {
+            boolean finished = ExecutionSseStreamer.send(emitter, payload);
+            heartbeat.touch();
+            if (finished) {
+                log.info("[SSE] Execution complete, closing emitter for: {}", executionId);
+                close();
+                emitter.complete();
+                return false;
+            }
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.error("[SSE] Error sending event to emitter: {}", e.getMessage());
+            close();
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private synchronized void close() {
+        closed = true;
+        metrics.discarded(queue.size());
+        queue.clear();
+    }
+
+    static boolean isDelta(SseEventPayload payload) {
+        return payload.getEventType() == SseEventType.UPDATE
+                && payload.getPayload() != null
+                && payload.getPayload().getDelta() != null;
+    }
+
+    private static boolean mergeable(SseEventPayload tail, SseEventPayload next) {
+        return isDelta(tail)
+                && Objects.equals(tail.getNodeId(), next.getNodeId())
+                && tail.getPayload().isThought() == next.getPayload().isThought()
+                && Objects.equals(tail.getPayload().getRenderMode(), next.getPayload().getRenderMode());
+    }
+
+    /**
+     * 合并两个增量事件，取后者的事件 ID（续传从合并后的位置开始）；
+     * 事件对象可能被多个订阅方共享，因此构建新对象而不修改原对象
+     */
+    static SseEventPayload merge(SseEventPayload first, SseEventPayload second) {
+        ContentPayload content = second.getPayload();
+        return SseEventPayload.builder()
+                .id(second.getId())
+                .executionId(second.getExecutionId())
+                .nodeId(second.getNodeId())
+                .nodeType(second.getNodeType())
+                .parentId(second.getParentId())
+                .eventType(second.getEventType())
+                .status(second.getStatus())
+                .timestamp(second.getTimestamp())
+                .payload(ContentPayload.builder()
+                        .title(content.getTitle())
+                        .delta(first.getPayload().getDelta() + content.getDelta())
+                        .isThought(content.isThought())
+                        .renderMode(content.getRenderMode())
+                        .build())
+                .build();
+    }
+
+    /**
+     * 发送队列指标（所有 emitter 共享，不按 emitter 打标签以控制基数）
+     */
+    static final class Metrics {
+
+        private final AtomicInteger pending = new AtomicInteger();
+        private final DistributionSummary depth;
+        private final Counter coalesced;
+        private final Counter dropped;
+        private final Counter disconnected;
+
+        Metrics(MeterRegistry meterRegistry) {
+            Gauge.builder("sse.emitter.queue.pending", pending, AtomicInteger::get)
+                    .description("Events queued across all SSE emitters")
+                    .register(meterRegistry);
+            this.depth = DistributionSummary.builder("sse.emitter.queue.depth")
+                    .description("Per-emitter queue depth observed on enqueue")
+                    .register(meterRegistry);
+            this.coalesced = overflowCounter(meterRegistry, "coalesced");
+            this.dropped = overflowCounter(meterRegistry, "dropped");
+            this.disconnected = overflowCounter(meterRegistry, "disconnected");
+        }
+
+        private static Counter overflowCounter(MeterRegistry meterRegistry, String action) {
+            return Counter.builder("sse.emitter.overflow")
+                    .description("SSE events affected by emitter queue overflow")
+                    .tag("action", action)
+                    .register(meterRegistry);
+        }
+
+        void enqueued(int queueDepth) {
+            pending.incrementAndGet();
+            depth.record(queueDepth);
+        }
+
+        void dequeued() {
+            pending.decrementAndGet();
+        }
+
+        void discarded(int count) {
+            pending.addAndGet(-count);
+        }
+
+        void overflow(String action) {
+            switch (action) {
+                case "coalesced" -> coalesced.increment();
+                case "dropped" -> dropped.increment();
+                default -> disconnected.increment();
+            }
+        }
+    }
+}
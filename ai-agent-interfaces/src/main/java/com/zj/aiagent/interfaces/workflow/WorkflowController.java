@@ -1,25 +1,21 @@
 package com.zj.aiagent.interfaces.workflow;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zj.aiagent.application.workflow.ExecutionHistoryService;
 import com.zj.aiagent.application.workflow.SchedulerService;
 import com.zj.aiagent.domain.workflow.entity.Execution;
 import com.zj.aiagent.domain.workflow.port.ExecutionRepository;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionHistoryCursor;
 import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
-import com.zj.aiagent.infrastructure.workflow.event.RedisSseListener;
 import java.io.IOException;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.listener.ChannelTopic;
-import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -37,12 +33,9 @@ public class WorkflowController {
 
     private final SchedulerService schedulerService;
     private final ExecutionRepository executionRepository;
+    private final ExecutionHistoryService executionHistoryService;
     private final com.zj.aiagent.domain.workflow.port.WorkflowNodeExecutionLogRepository workflowNodeExecutionLogRepository;
-    private final RedisMessageListenerContainer redisMessageListenerContainer;
-    private final ObjectMapper objectMapper;
-    private final ScheduledExecutorService workflowTaskScheduler;
-
-    private static final long SSE_TIMEOUT = 30 * 60 * 1000L; // 30 minutes
+    private final ExecutionSseStreamer executionSseStreamer;
 
     /**
      * 启动工作流执行 (Direct POST Streaming)
@@ -61,7 +54,7 @@ public class WorkflowController {
         );
 
         String executionId = UUID.randomUUID().toString();
-        SseEmitter emitter = createExecutionEmitter(executionId, true);
+        SseEmitter emitter = executionSseStreamer.open(executionId, null, true);
 
         // 2. 异步启动调度
         CompletableFuture.runAsync(() -> {
@@ -103,7 +96,8 @@ public class WorkflowController {
 
     /**
      * 订阅已有执行的 SSE 流。
-     * 用于人工审核恢复后，前端重新接回同一条 execution 的实时事件。
+     * 用于人工审核恢复后或断线重连时，前端重新接回同一条 execution 的实时事件。
+     * 携带 Last-Event-ID（请求头，或首次连接时的 lastEventId 参数）时先补读之后的事件再继续推送实时事件。
      */
     @GetMapping(
         value = "/{executionId}/stream",
@@ -111,13 +105,20 @@ public class WorkflowController {
     )
     public SseEmitter streamExecution(
         @PathVariable String executionId,
+        @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+        @RequestParam(value = "lastEventId", required = false) String lastEventIdParam,
         jakarta.servlet.http.HttpServletResponse response
     ) {
         response.setCharacterEncoding("UTF-8");
-        log.info("[API] Re-subscribing execution stream: {}", executionId);
+        String lastEventId = lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam;
+        log.info(
+            "[API] Re-subscribing execution stream: {}, lastEventId: {}",
+            executionId,
+            lastEventId
+        );
 
         Execution execution = executionRepository
-            .findById(executionId)
+            .findSnapshotById(executionId)
             .orElseThrow(() ->
                 new IllegalArgumentException(
                     "Execution not found: " + executionId
@@ -125,133 +126,14 @@ public class WorkflowController {
             );
 
         if (isTerminalStatus(execution.getStatus())) {
-            SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
-            try {
-                emitter.send(
-                    SseEmitter.event()
-                        .name("connected")
-                        .data(
-                            Map.of("executionId", executionId),
-                            MediaType.APPLICATION_JSON
-                        )
-                );
-                emitter.send(
-                    SseEmitter.event()
-                        .name("finish")
-                        .data(
-                            Map.of("status", execution.getStatus().name()),
-                            MediaType.APPLICATION_JSON
-                        )
-                );
-                emitter.complete();
-            } catch (IOException e) {
-                emitter.completeWithError(e);
-            }
-            return emitter;
-        }
-
-        return createExecutionEmitter(executionId, true);
-    }
-
-    private SseEmitter createExecutionEmitter(
-        String executionId,
-        boolean sendConnectedEvent
-    ) {
-        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
-
-        String channel = "workflow:channel:" + executionId;
-        RedisSseListener listener = new RedisSseListener(
-            objectMapper,
-            payload -> {
-                try {
-                    String eventName =
-                        payload.getEventType() != null
-                            ? payload.getEventType().name().toLowerCase()
-                            : "message";
-
-                    emitter.send(
-                        SseEmitter.event()
-                            .name(eventName)
-                            .data(payload, MediaType.APPLICATION_JSON)
-                    );
-
-                    if (
-                        "finish".equals(eventName) &&
-                        payload.getStatus() != null &&
-                        (payload.getStatus() == ExecutionStatus.SUCCEEDED ||
-                            payload.getStatus() == ExecutionStatus.FAILED ||
-                            payload.getStatus() == ExecutionStatus.CANCELLED)
-                    ) {
-                        String nodeType = payload.getNodeType();
-                        if ("END".equals(nodeType) || nodeType == null) {
-                            log.info(
-                                "[SSE] Execution complete, closing emitter for: {}",
-                                executionId
-                            );
-                            emitter.complete();
-                        }
-                    }
-                } catch (IOException e) {
-                    log.error(
-                        "[SSE] Error sending event to emitter: {}",
-                        e.getMessage()
-                    );
-                    emitter.completeWithError(e);
-                }
-            }
-        );
-
-        redisMessageListenerContainer.addMessageListener(
-            listener,
-            new ChannelTopic(channel)
-        );
-        log.info("[SSE] Subscribed to Redis channel: {}", channel);
-
-        var heartbeatTask = workflowTaskScheduler.scheduleAtFixedRate(
-            () -> {
-                try {
-                    emitter.send(SseEmitter.event().name("ping").data("pong"));
-                } catch (Exception e) {
-                    // Ignore heartbeat errors, emitter might be closed
-                }
-            },
-            15,
-            15,
-            TimeUnit.SECONDS
-        );
-
-        Runnable cleanUp = () -> {
-            log.info(
-                "[SSE] Cleaning up resources for execution: {}",
-                executionId
+            return executionSseStreamer.replayFinished(
+                executionId,
+                lastEventId,
+                execution.getStatus()
             );
-            redisMessageListenerContainer.removeMessageListener(listener);
-            heartbeatTask.cancel(true);
-        };
-        emitter.onCompletion(cleanUp);
-        emitter.onTimeout(cleanUp);
-        emitter.onError(e -> cleanUp.run());
-
-        if (sendConnectedEvent) {
-            try {
-                emitter.send(
-                    SseEmitter.event()
-                        .name("connected")
-                        .data(
-                            Map.of("executionId", executionId),
-                            MediaType.APPLICATION_JSON
-                        )
-                );
-            } catch (IOException e) {
-                log.error(
-                    "[SSE] Failed to send connected event: {}",
-                    e.getMessage()
-                );
-                emitter.completeWithError(e);
-            }
         }
 
-        return emitter;
+        return executionSseStreamer.open(executionId, lastEventId, true);
     }
 
     private boolean isTerminalStatus(ExecutionStatus status) {
@@ -288,12 +170,13 @@ public class WorkflowController {
 
     /**
      * 获取执行详情 (Debug)
+     * 已归档的执行从归档中读取概要（状态、节点状态与起止时间）
      */
     @GetMapping("/{executionId}")
     public ResponseEntity<
         com.zj.aiagent.interfaces.workflow.dto.ExecutionDTO
     > getExecution(@PathVariable String executionId) {
-        return executionRepository
+        return executionHistoryService
             .findById(executionId)
             .map(com.zj.aiagent.interfaces.workflow.dto.ExecutionDTO::from)
             .map(ResponseEntity::ok)
@@ -352,33 +235,52 @@ public class WorkflowController {
     }
 
     /**
-     * 获取会话执行历史
+     * 获取会话执行历史（键集分页）
+     * 下一页游标通过响应头 X-Next-Cursor 返回，没有更多记录时不返回该响应头
      */
     @GetMapping("/history/{conversationId}")
     public ResponseEntity<
         java.util.List<com.zj.aiagent.interfaces.workflow.dto.ExecutionDTO>
-    > getHistory(@PathVariable String conversationId) {
+    > getHistory(
+        @PathVariable String conversationId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "20") int limit
+    ) {
+        int pageSize = Math.max(1, Math.min(limit, 100));
         java.util.List<Execution> history =
-            executionRepository.findByConversationId(conversationId);
+            executionHistoryService.findByConversationId(
+                conversationId,
+                ExecutionHistoryCursor.parse(cursor),
+                pageSize
+            );
         java.util.List<
             com.zj.aiagent.interfaces.workflow.dto.ExecutionDTO
         > dtos = history
             .stream()
             .map(com.zj.aiagent.interfaces.workflow.dto.ExecutionDTO::from)
             .toList();
-        return ResponseEntity.ok(dtos);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (history.size() == pageSize) {
+            response.header(
+                "X-Next-Cursor",
+                ExecutionHistoryCursor.of(history.get(pageSize - 1)).encode()
+            );
+        }
+        return response.body(dtos);
     }
 
     /**
      * 获取执行上下文快照 (Debug)
      * 用于调试，返回 LTM、STM、执行日志和全局变量
+     * 归档只保存执行概要、不含上下文，执行归档后返回 404
      */
     @GetMapping("/{executionId}/context")
     public ResponseEntity<
         com.zj.aiagent.interfaces.workflow.dto.ExecutionContextDTO
     > getExecutionContext(@PathVariable String executionId) {
         return executionRepository
-            .findById(executionId)
+            .findSnapshotById(executionId)
             .map(execution -> {
                 com.zj.aiagent.interfaces.workflow.dto.ExecutionContextDTO dto =
                     new com.zj.aiagent.interfaces.workflow.dto.ExecutionContextDTO();
@@ -1,5 +1,6 @@
 package com.zj.aiagent.application.workflow;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -17,6 +18,7 @@ import com.zj.aiagent.infrastructure.workflow.graph.WorkflowGraphFactoryImpl;
 import com.zj.aiagent.domain.workflow.valobj.*;
 import com.zj.aiagent.infrastructure.redis.IRedisService;
 import com.zj.aiagent.infrastructure.workflow.executor.NodeExecutorFactory;
+import com.zj.aiagent.infrastructure.workflow.listener.WorkflowAuditWriter;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
@@ -26,12 +28,15 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.redisson.api.RLock;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
 
 // Package Verified: com.zj.aiagent.application.workflow (Matches Application Root)
 @ExtendWith(MockitoExtension.class)
@@ -79,11 +84,17 @@ class SchedulerServiceTest {
     private ChatApplicationService chatApplicationService;
 
     @Mock
-    private WorkflowNodeExecutionLogRepository workflowNodeExecutionLogRepository;
+    private WorkflowAuditWriter workflowAuditWriter;
 
     @Mock
     private ExpressionResolverPort expressionResolver;
 
+    @Mock
+    private NodeOutputStorePort nodeOutputStore;
+
+    @Mock
+    private ExecutionCompletionRegistry executionCompletionRegistry;
+
     @InjectMocks
     private SchedulerService schedulerService;
 
@@ -113,6 +124,24 @@ class SchedulerServiceTest {
         lenient().doNothing().when(rLock).lock(anyLong(), any(TimeUnit.class));
         lenient().when(rLock.isHeldByCurrentThread()).thenReturn(true);
         lenient().doNothing().when(rLock).unlock();
+        lenient().when(nodeOutputStore.resolve(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        // 执行邮箱使用真实实现，租约锁由上面的 rLock 桩提供
+        ReflectionTestUtils.setField(
+            schedulerService,
+            "executionMailbox",
+            new ExecutionMailbox(redisService)
+        );
+        // 取消登记表使用真实实现，取消标记的读取仍经由 redisService 桩
+        ReflectionTestUtils.setField(
+            schedulerService,
+            "executionCancellationRegistry",
+            new ExecutionCancellationRegistry(
+                redisService,
+                mock(RedisMessageListenerContainer.class),
+                30_000L
+            )
+        );
 
         // Common Lenient Stubs for Stream
         lenient()
@@ -310,6 +339,56 @@ class SchedulerServiceTest {
             verify(humanReviewRepository, never()).save(any());
         }
 
+        @Test
+        @DisplayName("AFTER_EXECUTION 阶段恢复时以解引用后的节点输出推进执行")
+        void should_AdvanceWithDereferencedOutputs_When_ResumedAfterExecution() {
+            String executionId = "exec-resume-after-001";
+            String nodeId = "node-llm-001";
+            Map<String, Object> ref = new OffloadedOutput("a".repeat(64), 70_000).toValue();
+
+            when(redisService.isExists("workflow:cancel:" + executionId)).thenReturn(false);
+            when(executionRepository.findById(executionId)).thenReturn(
+                Optional.of(execution)
+            );
+            when(execution.getPausedNodeId()).thenReturn(nodeId);
+            when(execution.getPausedPhase()).thenReturn(
+                TriggerPhase.AFTER_EXECUTION
+            );
+            when(execution.resume(eq(nodeId), any())).thenReturn(
+                Collections.emptyList()
+            );
+            lenient().when(execution.getExecutionId()).thenReturn(executionId);
+            lenient().when(execution.getContext()).thenReturn(executionContext);
+            lenient().when(execution.getGraph()).thenReturn(workflowGraph);
+            lenient().when(execution.getStatus()).thenReturn(ExecutionStatus.RUNNING);
+            lenient().when(workflowGraph.getNode(nodeId)).thenReturn(node);
+            lenient().when(node.getName()).thenReturn("Test LLM Node");
+            lenient().when(node.getType()).thenReturn(NodeType.LLM);
+            lenient()
+                .when(executionContext.getNodeOutput(nodeId))
+                .thenReturn(Map.of("response", ref, "tokens", 42));
+            when(nodeOutputStore.resolve(ref)).thenReturn("完整的大体积输出");
+
+            schedulerService.resumeExecution(
+                executionId,
+                nodeId,
+                null,
+                null,
+                1L,
+                "",
+                null
+            );
+
+            ArgumentCaptor<NodeExecutionResult> result = ArgumentCaptor.forClass(
+                NodeExecutionResult.class
+            );
+            verify(execution).advance(eq(nodeId), result.capture());
+            assertEquals(
+                Map.of("response", "完整的大体积输出", "tokens", 42),
+                result.getValue().getOutputs()
+            );
+        }
+
         @Test
         @DisplayName("expectedVersion 与当前执行版本不一致时应抛出冲突异常")
         void should_ThrowConflict_When_ExpectedVersionMismatch() {
@@ -383,6 +462,8 @@ class SchedulerServiceTest {
                 any(NodeExecutionResult.class)
             );
             verify(humanReviewQueuePort).removeFromPendingQueue(executionId);
+            verify(checkpointRepository).deleteByExecutionId(executionId);
+            verify(workflowAuditWriter).close(executionId);
         }
 
         @Test
@@ -406,4 +487,25 @@ class SchedulerServiceTest {
             );
         }
     }
+
+    @Nested
+    @DisplayName("cancelExecution 测试")
+    class CancelExecutionTests {
+
+        @Test
+        @DisplayName("取消后释放本地状态、检查点与日志视图")
+        void should_ReleaseExecutionState_When_Cancelled() {
+            String executionId = "exec-cancel-001";
+
+            schedulerService.cancelExecution(executionId);
+
+            verify(executionRepository, timeout(5_000)).evict(executionId);
+            verify(checkpointRepository, timeout(5_000)).deleteByExecutionId(executionId);
+            verify(workflowAuditWriter, timeout(5_000)).close(executionId);
+            verify(executionCompletionRegistry).complete(
+                executionId,
+                ExecutionStatus.CANCELLED
+            );
+        }
+    }
 }
@@ -0,0 +1,122 @@
+package com.zj.aiagent.interfaces.workflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * SseHeartbeatWheel 单元测试（手动推进时间轮）
+ */
+@DisplayName("SseHeartbeatWheel 测试")
+class SseHeartbeatWheelTest {
+
+    private static final int SLOTS = 4;
+
+    private SseHeartbeatWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        // 间隔 40ms，4 个槽；不调用 start()，由测试推进
+        wheel = new SseHeartbeatWheel(Duration.ofMillis(40), Duration.ofMillis(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        wheel.shutdown();
+    }
+
+    @Test
+    @DisplayName("转满一圈后发送心跳，每圈只访问一次")
+    void should_ping_once_per_round() throws Exception {
+        SseEmitter emitter = mock(SseEmitter.class);
+        wheel.register(emitter);
+        Thread.sleep(30);
+
+        advance(SLOTS - 1);
+        verify(emitter, after(100).never()).send(any(SseEmitter.SseEventBuilder.class));
+
+        advance(1);
+        verify(emitter, timeout(1_000).times(1)).send(any(SseEmitter.SseEventBuilder.class));
+
+        Thread.sleep(30);
+        advance(SLOTS);
+        verify(emitter, timeout(1_000).times(2)).send(any(SseEmitter.SseEventBuilder.class));
+    }
+
+    @Test
+    @DisplayName("近期发送过数据的 emitter 跳过心跳")
+    void should_skip_recently_active_emitter() throws Exception {
+        SseEmitter emitter = mock(SseEmitter.class);
+        SseHeartbeatWheel.Heartbeat heartbeat = wheel.register(emitter);
+        Thread.sleep(30);
+
+        heartbeat.touch();
+        advance(SLOTS);
+
+        verify(emitter, after(100).never()).send(any(SseEmitter.SseEventBuilder.class));
+    }
+
+    @Test
+    @DisplayName("心跳发送失败时移出时间轮并以错误结束 emitter")
+    void should_evict_dead_emitter() throws Exception {
+        BrokenEmitter emitter = new BrokenEmitter();
+        wheel.register(emitter);
+        Thread.sleep(30);
+
+        advance(SLOTS);
+
+        assertThat(emitter.completed.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(emitter.error).isInstanceOf(IOException.class);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("取消后不再发送心跳")
+    void should_not_ping_cancelled_emitter() throws Exception {
+        SseEmitter emitter = mock(SseEmitter.class);
+        SseHeartbeatWheel.Heartbeat heartbeat = wheel.register(emitter);
+        Thread.sleep(30);
+
+        heartbeat.cancel();
+        advance(SLOTS);
+
+        assertThat(wheel.size()).isZero();
+        verify(emitter, after(100).never()).send(any(SseEmitter.SseEventBuilder.class));
+    }
+
+    /**
+     * 连接已断开的 emitter：发送即失败，记录结束原因
+     */
+    private static final class BrokenEmitter extends SseEmitter {
+
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile Throwable error;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            throw new IOException("Broken pipe");
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            error = ex;
+            completed.countDown();
+        }
+    }
+
+    private void advance(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            wheel.tick();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.zj.aiagent.interfaces.workflow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.zj.aiagent.domain.chat.valobj.SseEventPayload;
+import com.zj.aiagent.domain.chat.valobj.SseEventPayload.ContentPayload;
+import com.zj.aiagent.domain.workflow.valobj.ExecutionStatus;
+import com.zj.aiagent.domain.workflow.valobj.SseEventType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * SseOutbox 单元测试：慢连接隔离与溢出策略
+ */
+@DisplayName("SseOutbox 测试")
+class SseOutboxTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SseOutbox.Metrics metrics = new SseOutbox.Metrics(meterRegistry);
+    private final ExecutorService drainer = Executors.newVirtualThreadPerTaskExecutor();
+    private final SseHeartbeatWheel wheel = new SseHeartbeatWheel(Duration.ofSeconds(15), Duration.ofMillis(500));
+
+    @AfterEach
+    void tearDown() {
+        drainer.shutdownNow();
+        wheel.shutdown();
+    }
+
+    @Test
+    @DisplayName("慢连接只阻塞自己的发送队列")
+    void slow_consumer_should_not_block_other_emitters() throws Exception {
+        GatedEmitter slow = new GatedEmitter();
+        GatedEmitter fast = new GatedEmitter();
+        fast.open();
+        SseOutbox slowOutbox = outbox(slow, 16, SseOutbox.OverflowPolicy.COALESCE);
+        SseOutbox fastOutbox = outbox(fast, 16, SseOutbox.OverflowPolicy.COALESCE);
+
+        slowOutbox.offer(delta("1", "a"));
+        fastOutbox.offer(delta("1", "a"));
+
+        assertThat(fast.received(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(slow.sent).isEmpty();
+        slow.open();
+        assertThat(slow.received(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("COALESCE: 队列满时同节点增量合并，保留最新事件 ID")
+    void coalesce_should_merge_deltas_when_full() throws Exception {
+        GatedEmitter emitter = new GatedEmitter();
+        SseOutbox outbox = outbox(emitter, 2, SseOutbox.OverflowPolicy.COALESCE);
+
+        outbox.offer(delta("1", "a"));
+        emitter.awaitBlocked();
+        outbox.offer(delta("2", "b"));
+        outbox.offer(delta("3", "c"));
+        outbox.offer(delta("4", "d"));
+        outbox.offer(delta("5", "e"));
+
+        assertThat(outbox.depth()).isEqualTo(2);
+        emitter.open();
+        emitter.awaitCount(3);
+        assertThat(emitter.sent).extracting(p -> p.getPayload().getDelta()).containsExactly("a", "b", "cde");
+        assertThat(emitter.sent.get(2).getId()).isEqualTo("5");
+        assertThat(overflow("coalesced")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("DROP_DELTAS: 队列满时丢弃中间增量，完成事件不丢")
+    void drop_deltas_should_keep_lifecycle_events() throws Exception {
+        GatedEmitter emitter = new GatedEmitter();
+        SseOutbox outbox = outbox(emitter, 2, SseOutbox.OverflowPolicy.DROP_DELTAS);
+
+        outbox.offer(delta("1", "a"));
+        emitter.awaitBlocked();
+        outbox.offer(delta("2", "b"));
+        outbox.offer(delta("3", "c"));
+        outbox.offer(delta("4", "d"));
+        outbox.offer(finish("5"));
+
+        emitter.open();
+        emitter.awaitCount(4);
+        assertThat(emitter.sent).extracting(SseEventPayload::getId).containsExactly("1", "2", "3", "5");
+        assertThat(overflow("dropped")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("DISCONNECT: 队列满时断开连接")
+    void disconnect_should_complete_emitter_with_error() throws Exception {
+        GatedEmitter emitter = new GatedEmitter();
+        SseOutbox outbox = outbox(emitter, 1, SseOutbox.OverflowPolicy.DISCONNECT);
+
+        outbox.offer(delta("1", "a"));
+        emitter.awaitBlocked();
+        outbox.offer(delta("2", "b"));
+        outbox.offer(delta("3", "c"));
+
+        assertThat(emitter.error).isInstanceOf(IOException.class);
+        assertThat(outbox.depth()).isZero();
+        assertThat(overflow("disconnected")).isEqualTo(1);
+        assertThat(meterRegistry.get("sse.emitter.queue.pending").gauge().value()).isZero();
+    }
+
+    private SseOutbox outbox(SseEmitter emitter, int capacity, SseOutbox.OverflowPolicy policy) {
+        return new SseOutbox("exec-1", emitter, wheel.register(emitter), capacity, policy, drainer, metrics);
+    }
+
+    private double overflow(String action) {
+        return meterRegistry.get("sse.emitter.overflow").tag("action", action).counter().count();
+    }
+
+    private static SseEventPayload delta(String id, String text) {
+        return SseEventPayload.builder()
+                .id(id)
+                .executionId("exec-1")
+                .nodeId("llm")
+                .eventType(SseEventType.UPDATE)
+                .status(ExecutionStatus.RUNNING)
+                .payload(ContentPayload.builder().delta(text).renderMode("MARKDOWN").build())
+                .build();
+    }
+
+    private static SseEventPayload finish(String id) {
+        return SseEventPayload.builder()
+                .id(id)
+                .executionId("exec-1")
+                .nodeId("llm")
+                .eventType(SseEventType.FINISH)
+                .status(ExecutionStatus.SUCCEEDED)
+                .build();
+    }
+
+    /**
+     * 可控的慢连接：放行前 send 阻塞，记录已发送的事件
+     */
+    private static final class GatedEmitter extends SseEmitter {
+
+        private final CountDownLatch gate = new CountDownLatch(1);
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final List<SseEventPayload> sent = new CopyOnWriteArrayList<>();
+        private volatile Throwable error;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            blocked.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            builder.build().stream()
+                    .map(DataWithMediaType::getData)
+                    .filter(SseEventPayload.class::isInstance)
+                    .map(SseEventPayload.class::cast)
+                    .forEach(sent::add);
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            error = ex;
+        }
+
+        @Override
+        public synchronized void complete() {
+        }
+
+        void open() {
+            gate.countDown();
+        }
+
+        void awaitBlocked() throws InterruptedException {
+            assertThat(blocked.await(1, TimeUnit.SECONDS)).isTrue();
+        }
+
+        boolean received(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            while (sent.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            return !sent.isEmpty();
+        }
+
+        void awaitCount(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while (sent.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertThat(sent).hasSizeGreaterThanOrEqualTo(count);
+        }
+    }
+}